@@ -0,0 +1,28 @@
+-- Secondary indexes for the access paths used by the persistence layer.
+-- Without them every load by foreign key is a full table scan.
+
+-- Kitchen: tasks and assignments are always loaded by summary sheet
+CREATE INDEX IF NOT EXISTS `idx_tasks_sumsheet` ON `Tasks` (`sumsheet_id`, `position`);
+CREATE INDEX IF NOT EXISTS `idx_assignment_sumsheet` ON `Assignment` (`sumsheet_id`);
+CREATE INDEX IF NOT EXISTS `idx_summarysheets_service` ON `SummarySheets` (`service_id`);
+
+-- Events and menus
+CREATE INDEX IF NOT EXISTS `idx_services_event` ON `Services` (`event_id`);
+CREATE INDEX IF NOT EXISTS `idx_services_menu` ON `Services` (`approved_menu_id`);
+CREATE INDEX IF NOT EXISTS `idx_menuitems_menu_section` ON `MenuItems` (`menu_id`, `section_id`, `position`);
+CREATE INDEX IF NOT EXISTS `idx_menusections_menu` ON `MenuSections` (`menu_id`, `position`);
+CREATE INDEX IF NOT EXISTS `idx_menufeatures_menu` ON `MenuFeatures` (`menu_id`);
+
+-- Users
+CREATE INDEX IF NOT EXISTS `idx_userroles_user` ON `UserRoles` (`user_id`);
+
+-- Shifts
+CREATE INDEX IF NOT EXISTS `idx_shifts_date` ON `Shifts` (`date`);
+CREATE INDEX IF NOT EXISTS `idx_shiftbookings_user` ON `ShiftBookings` (`user_id`);
+
+-- Personnel: overlap checks filter by collaborator, status and date range
+CREATE INDEX IF NOT EXISTS `idx_leaverequests_collab` ON `LeaveRequests` (`collaborator_id`, `approved`, `start_date`, `end_date`);
+CREATE INDEX IF NOT EXISTS `idx_leaverequests_status` ON `LeaveRequests` (`approved`, `request_date`);
+CREATE INDEX IF NOT EXISTS `idx_availability_shift` ON `CollaboratorAvailability` (`shift_id`);
+CREATE INDEX IF NOT EXISTS `idx_perfnotes_collab` ON `PerformanceNotes` (`collaborator_id`);
+CREATE INDEX IF NOT EXISTS `idx_perfnotes_event` ON `PerformanceNotes` (`event_id`);
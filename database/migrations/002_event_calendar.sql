@@ -0,0 +1,13 @@
+-- Event calendar: range scans and keyset pagination on date_start.
+
+-- The baseline seeds event dates as 'YYYY-MM-DD' text, while the application
+-- stores epoch milliseconds. Normalize them so range comparisons see a single
+-- representation (text always sorts after numbers in SQLite). The application
+-- writes local midnight (java.sql.Date): 'utc' reads the text as local time.
+UPDATE `Events` SET `date_start` = CAST(strftime('%s', `date_start`, 'utc') AS INTEGER) * 1000
+    WHERE typeof(`date_start`) = 'text' AND strftime('%s', `date_start`, 'utc') IS NOT NULL;
+UPDATE `Events` SET `date_end` = CAST(strftime('%s', `date_end`, 'utc') AS INTEGER) * 1000
+    WHERE typeof(`date_end`) = 'text' AND strftime('%s', `date_end`, 'utc') IS NOT NULL;
+
+-- Pages are read in (date_start, id) order
+CREATE INDEX IF NOT EXISTS `idx_events_date_start` ON `Events` (`date_start`, `id`);
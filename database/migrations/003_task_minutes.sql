@@ -0,0 +1,3 @@
+-- Time estimate of a kitchen task, in minutes, used to plan assignments.
+-- Tasks saved before this column have no estimate (0).
+ALTER TABLE `Tasks` ADD COLUMN `minutes` INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- Service dates: the baseline seeds them as 'YYYY-MM-DD' text, which is what
+-- Service reads back, but services saved by the application were stored as
+-- epoch milliseconds. Normalize them to text so range scans see one format.
+UPDATE `Services` SET `service_date` = date(`service_date` / 1000, 'unixepoch', 'localtime')
+    WHERE typeof(`service_date`) = 'integer';
+
+-- Production plans scan the services of a date window
+CREATE INDEX IF NOT EXISTS `idx_services_date` ON `Services` (`service_date`);
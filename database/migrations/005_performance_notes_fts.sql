@@ -0,0 +1,18 @@
+-- Full-text index on the performance notes.
+
+-- External content table: the index stores only the tokens, the text is read
+-- from PerformanceNotes by rowid. The application adds the row of each new
+-- note (PersonnelPersistence.updatePerformanceLogged) and notes are never
+-- changed or deleted. unicode61 with remove_diacritics matches "perche" with
+-- "perché".
+DROP TABLE IF EXISTS `PerformanceNotesFts`;
+CREATE VIRTUAL TABLE `PerformanceNotesFts` USING fts5(
+    `note`,
+    content = 'PerformanceNotes',
+    content_rowid = 'id',
+    tokenize = 'unicode61 remove_diacritics 2'
+);
+
+-- Indexes the notes already present
+INSERT INTO `PerformanceNotesFts` (`PerformanceNotesFts`) VALUES ('rebuild');
+
@@ -0,0 +1,4 @@
+-- Optional capacity of the shifts: at most `capacity` bookings, NULL for no
+-- limit. ShiftBookingEngine checks it in the same statement that inserts the
+-- booking.
+ALTER TABLE `Shifts` ADD COLUMN `capacity` INTEGER;
@@ -0,0 +1,189 @@
+package catering.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import catering.api.ApiServer;
+import catering.api.JsonParser;
+
+/**
+ * Load generator for the HTTP API: a number of clients, each with its own
+ * session, send a mix of read requests for a fixed time; the throughput and
+ * the latency percentiles are printed at the end.
+ *
+ * Without --url an ApiServer is started in this JVM on the benchmark
+ * database of the given scale (see BenchmarkDatabase).
+ *
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@api-load -Dapi.args="--clients 200 --duration 30"
+ * </pre>
+ *
+ * Options: --url (server to test), --scale (default 1000), --clients
+ * (default 50), --duration in seconds (default 20), --warmup in seconds
+ * (default 5).
+ */
+public final class ApiLoadTest {
+
+    // Logged in round robin, one session per client
+    private static final String[] USERS = { "Antonio", "Chiara", "Giovanni", "Marco", "Luca" };
+
+    private static final String[] PATHS = {
+            "/api/events?from=2030-01-01&to=2030-03-01",
+            "/api/recipes",
+            "/api/shifts?date=2030-01-15",
+            "/api/collaborators",
+            "/api/sessions/current",
+    };
+
+    private ApiLoadTest() {
+    }
+
+    // Latencies of one client, in microseconds
+    private static class ClientResult {
+        long[] latencies = new long[1024];
+        int count;
+        int errors;
+
+        void add(long micros) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int scale = 1000;
+        int clients = 50;
+        int duration = 20;
+        int warmup = 5;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+            case "--url":
+                url = value;
+                break;
+            case "--scale":
+                scale = Integer.parseInt(value);
+                break;
+            case "--clients":
+                clients = Integer.parseInt(value);
+                break;
+            case "--duration":
+                duration = Integer.parseInt(value);
+                break;
+            case "--warmup":
+                warmup = Integer.parseInt(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ApiServer server = null;
+        if (url == null) {
+            BenchmarkDatabase.open(scale);
+            server = new ApiServer(0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+            System.out.println("Embedded server, " + (server.usesVirtualThreads() ? "virtual" : "platform")
+                    + " threads, scale " + scale);
+        }
+
+        try {
+            run(url, clients, warmup, false);
+            run(url, clients, duration, true);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    private static void run(String url, int clients, int seconds, boolean report) throws Exception {
+        ExecutorService io = Executors.newFixedThreadPool(4);
+        HttpClient http = HttpClient.newBuilder().executor(io).build();
+        String[] sessions = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            sessions[i] = login(http, url, USERS[i % USERS.length]);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<ClientResult>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String session = sessions[i];
+            int first = i;
+            futures.add(pool.submit(() -> {
+                ClientResult r = new ClientResult();
+                for (int n = first; System.nanoTime() < end; n++) {
+                    HttpRequest req = HttpRequest.newBuilder(URI.create(url + PATHS[n % PATHS.length]))
+                            .header(ApiServer.SESSION_HEADER, session).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> res = http.send(req, HttpResponse.BodyHandlers.ofString());
+                        if (res.statusCode() != 200) {
+                            r.errors++;
+                        }
+                    } catch (IOException ex) {
+                        r.errors++;
+                    }
+                    r.add((System.nanoTime() - start) / 1000);
+                }
+                return r;
+            }));
+        }
+
+        long[] all = new long[0];
+        int errors = 0;
+        for (Future<ClientResult> f : futures) {
+            ClientResult r = f.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + r.count);
+            System.arraycopy(r.latencies, 0, all, offset, r.count);
+            errors += r.errors;
+        }
+        pool.shutdown();
+        io.shutdown();
+
+        if (!report) {
+            return;
+        }
+        Arrays.sort(all);
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.1f req/s%n", clients, all.length, errors,
+                all.length / (double) seconds);
+        System.out.printf("latency ms: p50=%.2f p95=%.2f p99=%.2f max=%.2f%n", percentile(all, 50),
+                percentile(all, 95), percentile(all, 99), all.length > 0 ? all[all.length - 1] / 1000.0 : 0);
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String login(HttpClient http, String url, String username) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url + "/api/sessions"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"" + username + "\"}")).build();
+        HttpResponse<String> res = http.send(req, HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 201) {
+            throw new IllegalStateException("Login failed for " + username + ": " + res.body());
+        }
+        return (String) ((Map<String, Object>) JsonParser.parse(res.body())).get("sessionId");
+    }
+}
@@ -0,0 +1,80 @@
+package catering.bench;
+
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.persistence.PersistenceManager;
+import catering.util.LogManager;
+
+/**
+ * Database used by the benchmarks: the seed data plus a dataset written by
+ * DatasetGenerator, whose size is set by the scale (number of events).
+ *
+ * Each scale gets its own file under target/bench, generated on first use and
+ * reused by later runs. PersistenceManager reads the database path once, so
+ * open() must run before anything else touches the persistence layer; JMH
+ * forks a fresh JVM per parameter set, which guarantees it.
+ */
+public final class BenchmarkDatabase {
+
+    private static final Logger LOGGER = LogManager.getLogger(BenchmarkDatabase.class);
+
+    // Same seed for every run, so a given scale always yields the same rows
+    private static final long SEED = 42;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Points the persistence layer at the database for the given scale,
+     * generating it if needed
+     *
+     * @param scale Number of generated events
+     */
+    public static void open(int scale) {
+        File file = new File("target/bench", "catering-" + scale + ".db");
+        String current = System.getProperty(PersistenceManager.DB_PATH_PROPERTY);
+        if (current != null && !new File(current).getAbsolutePath().equals(file.getAbsolutePath())) {
+            throw new IllegalStateException("Another benchmark database is already open: " + current);
+        }
+        System.setProperty(PersistenceManager.DB_PATH_PROPERTY, file.getPath());
+        if (!PersistenceManager.getDatabasePath().equals(file.getAbsolutePath())) {
+            throw new IllegalStateException("The persistence layer was initialized before the benchmark database");
+        }
+
+        // Per-row INFO logging would dominate the measurements
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        int[] events = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM Events WHERE name LIKE ?",
+                rs -> events[0] = rs.getInt(1), DatasetGenerator.EVENT_PREFIX + "%");
+        if (events[0] < scale) {
+            long start = System.currentTimeMillis();
+            if (!new DatasetGenerator(scale(scale), SEED).generate()) {
+                throw new IllegalStateException("Could not generate the benchmark database " + file);
+            }
+            LOGGER.warning("Generated benchmark database " + file + " (scale " + scale + ") in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * @param scale Number of generated events
+     * @return The size of the dataset generated for that scale
+     */
+    public static DatasetGenerator.Scale scale(int scale) {
+        return DatasetGenerator.Scale.ofEvents(scale);
+    }
+
+    /**
+     * @return The id of the first generated row of a table, looked up by a
+     *         name column prefix
+     */
+    public static int firstId(String table, String column, String prefix) {
+        int[] id = new int[1];
+        PersistenceManager.executeQuery("SELECT MIN(id) FROM " + table + " WHERE " + column + " LIKE ?",
+                rs -> id[0] = rs.getInt(1), prefix + "%");
+        return id[0];
+    }
+}
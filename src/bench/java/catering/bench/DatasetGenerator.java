@@ -0,0 +1,581 @@
+package catering.bench;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import catering.persistence.BatchUpdateHandler;
+import catering.persistence.PersistenceManager;
+import catering.util.LogManager;
+
+/**
+ * Generates a synthetic catering dataset on top of the current database:
+ * users and roles, recipes and preparations, menus, events with services,
+ * summary sheets with tasks and assignments, shifts with bookings and
+ * collaborators with availability, leave requests and performance notes.
+ *
+ * Generation is deterministic: the same scale and seed applied to the same
+ * database produce the same rows. Ids are assigned explicitly after the
+ * existing ones, so every table is written with executeBatchInsert and the
+ * whole dataset is committed in a single transaction.
+ *
+ * Generated rows are recognizable by their name prefixes (USER_PREFIX,
+ * EVENT_PREFIX, COLLABORATOR_PREFIX) and are dated from 2030-01-01, so they
+ * never collide with the seed data.
+ *
+ * Usage: DatasetGenerator [--db file] [--events n] [--seed n]
+ * [--services-per-event n] [--tasks-per-sheet n]
+ */
+public final class DatasetGenerator {
+
+    private static final Logger LOGGER = LogManager.getLogger(DatasetGenerator.class);
+
+    public static final String USER_PREFIX = "gen-user-";
+    public static final String EVENT_PREFIX = "Generated event ";
+    public static final String COLLABORATOR_PREFIX = "Generated collaborator ";
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    private static final String[][] SERVICE_SLOTS = {
+            { "Pranzo", "12:00:00", "15:00:00" },
+            { "Cena", "19:30:00", "23:00:00" },
+            { "Aperitivo", "18:00:00", "19:30:00" },
+            { "Colazione", "08:00:00", "10:00:00" } };
+
+    private static final String[][] SHIFT_SLOTS = {
+            { "08:00:00", "12:00:00" },
+            { "12:00:00", "16:00:00" },
+            { "18:00:00", "23:00:00" } };
+
+    private static final String[] NOTE_PHRASES = {
+            "puntuale", "in ritardo", "ottimo lavoro", "preciso con gli allergeni", "da affiancare",
+            "molto affidabile", "gestisce bene la pressione", "lento in chiusura", "cordiale con i clienti",
+            "ordinato in cucina", "esperto di pasticceria", "buona conoscenza dei vini" };
+
+    /**
+     * Size of the generated dataset. Only the number of events is required;
+     * every other count grows with it unless set explicitly.
+     */
+    public static class Scale {
+        private final int events;
+        private int eventsPerDay = 3;
+        private int servicesPerEvent = 2;
+        private int tasksPerSheet = 10;
+        private int users;
+        private int recipes;
+        private int menus;
+        private int collaborators;
+
+        private Scale(int events) {
+            this.events = Math.max(1, events);
+            this.users = Math.max(20, this.events / 10);
+            this.recipes = Math.max(50, this.events / 20);
+            this.menus = Math.max(10, this.events / 20);
+            this.collaborators = Math.max(10, this.events / 5);
+        }
+
+        /**
+         * @param events Number of generated events
+         * @return The default scale for that number of events
+         */
+        public static Scale ofEvents(int events) {
+            return new Scale(events);
+        }
+
+        public Scale eventsPerDay(int eventsPerDay) {
+            this.eventsPerDay = Math.max(1, eventsPerDay);
+            return this;
+        }
+
+        public Scale servicesPerEvent(int servicesPerEvent) {
+            this.servicesPerEvent = Math.max(1, Math.min(SERVICE_SLOTS.length, servicesPerEvent));
+            return this;
+        }
+
+        public Scale tasksPerSheet(int tasksPerSheet) {
+            this.tasksPerSheet = Math.max(0, tasksPerSheet);
+            return this;
+        }
+
+        public Scale users(int users) {
+            this.users = Math.max(4, users);
+            return this;
+        }
+
+        public Scale recipes(int recipes) {
+            this.recipes = Math.max(1, recipes);
+            return this;
+        }
+
+        public Scale menus(int menus) {
+            this.menus = Math.max(1, menus);
+            return this;
+        }
+
+        public Scale collaborators(int collaborators) {
+            this.collaborators = Math.max(1, collaborators);
+            return this;
+        }
+
+        public int getEvents() {
+            return events;
+        }
+
+        public int getDays() {
+            return (events + eventsPerDay - 1) / eventsPerDay;
+        }
+
+        public int getServicesPerEvent() {
+            return servicesPerEvent;
+        }
+
+        /**
+         * @return Number of services, which is also the number of summary
+         *         sheets (one per service)
+         */
+        public int getServices() {
+            return events * servicesPerEvent;
+        }
+
+        public int getTasksPerSheet() {
+            return tasksPerSheet;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        public int getRecipes() {
+            return recipes;
+        }
+
+        public int getMenus() {
+            return menus;
+        }
+
+        public int getShifts() {
+            return getDays() * SHIFT_SLOTS.length;
+        }
+
+        public int getCollaborators() {
+            return collaborators;
+        }
+    }
+
+    // Sets the parameters of one generated row
+    private interface Row {
+        void bind(PreparedStatement ps, int i) throws SQLException;
+    }
+
+    private final Scale scale;
+    private final Random random;
+
+    // First id of every generated range
+    private int firstUser;
+    private int firstRecipe;
+    private int firstPreparation;
+    private int firstMenu;
+    private int firstEvent;
+    private int firstService;
+    private int firstSheet;
+    private int firstTask;
+    private int firstShift;
+    private int firstCollaborator;
+
+    private int[][] menuRecipes;
+    private int[][] recipePreparations;
+    private int[] serviceMenu;
+
+    private long rows;
+
+    public DatasetGenerator(Scale scale, long seed) {
+        this.scale = scale;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Writes the whole dataset in one transaction
+     *
+     * @return true if the dataset was committed
+     */
+    public boolean generate() {
+        long start = System.currentTimeMillis();
+        rows = 0;
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            generateUsers();
+            generateRecipes();
+            generateMenus();
+            generateEvents();
+            generateShifts();
+            generateSummarySheets();
+            generatePersonnel();
+        });
+        if (committed) {
+            LOGGER.info("Generated " + rows + " rows (" + scale.getEvents() + " events) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return committed;
+    }
+
+    private void generateUsers() {
+        firstUser = nextId("Users");
+        insert("INSERT INTO Users (id, username) VALUES (?, ?)", scale.users, (ps, i) -> {
+            ps.setInt(1, firstUser + i);
+            ps.setString(2, USER_PREFIX + (i + 1));
+        });
+        // CUOCO, CHEF, ORGANIZZATORE and SERVIZIO in turn; the first user is also PROPRIETARIO
+        insert("INSERT INTO UserRoles (user_id, role_id) VALUES (?, ?)", scale.users + 1, (ps, i) -> {
+            ps.setInt(1, i < scale.users ? firstUser + i : firstUser);
+            ps.setInt(2, i < scale.users ? i % 4 : 4);
+        });
+    }
+
+    private void generateRecipes() {
+        firstRecipe = nextId("Recipes");
+        firstPreparation = nextId("Preparations");
+        int preparations = scale.recipes;
+
+        insert("INSERT INTO Recipes (id, name, description) VALUES (?, ?, ?)", scale.recipes, (ps, i) -> {
+            ps.setInt(1, firstRecipe + i);
+            ps.setString(2, "Ricetta " + (i + 1));
+            ps.setString(3, "Ricetta generata");
+        });
+        insert("INSERT INTO Preparations (id, name, description) VALUES (?, ?, ?)", preparations, (ps, i) -> {
+            ps.setInt(1, firstPreparation + i);
+            ps.setString(2, "Preparazione " + (i + 1));
+            ps.setString(3, "Preparazione generata");
+        });
+
+        // One to three preparations per recipe, drawn from a shared pool so
+        // that different recipes reuse the same preparations
+        recipePreparations = new int[scale.recipes][];
+        List<int[]> links = new ArrayList<>();
+        for (int r = 0; r < scale.recipes; r++) {
+            int[] preps = distinct(1 + random.nextInt(3), preparations);
+            recipePreparations[r] = preps;
+            for (int p : preps) {
+                links.add(new int[] { firstRecipe + r, firstPreparation + p });
+            }
+        }
+        insert("INSERT INTO RecipePreparations (recipe_id, preparation_id) VALUES (?, ?)", links.size(), (ps, i) -> {
+            ps.setInt(1, links.get(i)[0]);
+            ps.setInt(2, links.get(i)[1]);
+        });
+    }
+
+    private void generateMenus() {
+        firstMenu = nextId("Menus");
+        int firstSection = nextId("MenuSections");
+        String[] sections = { "Antipasti", "Primi", "Secondi", "Dessert" };
+        int itemsPerSection = 3;
+
+        insert("INSERT INTO Menus (id, title, owner_id, published) VALUES (?, ?, ?, ?)", scale.menus, (ps, i) -> {
+            ps.setInt(1, firstMenu + i);
+            ps.setString(2, "Menu generato " + (i + 1));
+            ps.setInt(3, chef(random.nextInt(scale.users)));
+            ps.setBoolean(4, random.nextInt(4) != 0);
+        });
+        insert("INSERT INTO MenuSections (id, menu_id, name, position) VALUES (?, ?, ?, ?)",
+                scale.menus * sections.length, (ps, i) -> {
+                    ps.setInt(1, firstSection + i);
+                    ps.setInt(2, firstMenu + i / sections.length);
+                    ps.setString(3, sections[i % sections.length]);
+                    ps.setInt(4, i % sections.length);
+                });
+
+        int perMenu = sections.length * itemsPerSection;
+        menuRecipes = new int[scale.menus][];
+        for (int m = 0; m < scale.menus; m++) {
+            menuRecipes[m] = distinct(Math.min(perMenu, scale.recipes), scale.recipes);
+        }
+        insert("INSERT INTO MenuItems (menu_id, section_id, description, recipe_id, position) VALUES (?, ?, ?, ?, ?)",
+                scale.menus * Math.min(perMenu, scale.recipes), (ps, i) -> {
+                    int per = Math.min(perMenu, scale.recipes);
+                    int m = i / per;
+                    int k = i % per;
+                    ps.setInt(1, firstMenu + m);
+                    ps.setInt(2, firstSection + m * sections.length + k / itemsPerSection);
+                    ps.setString(3, "Ricetta " + (menuRecipes[m][k] + 1));
+                    ps.setInt(4, firstRecipe + menuRecipes[m][k]);
+                    ps.setInt(5, k % itemsPerSection);
+                });
+    }
+
+    private void generateEvents() {
+        firstEvent = nextId("Events");
+        firstService = nextId("Services");
+        int perEvent = scale.servicesPerEvent;
+
+        insert("INSERT INTO Events (id, name, date_start, date_end, chef_id) VALUES (?, ?, ?, ?, ?)",
+                scale.events, (ps, i) -> {
+                    long start = eventDay(i).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                    ps.setInt(1, firstEvent + i);
+                    ps.setString(2, EVENT_PREFIX + (i + 1));
+                    ps.setLong(3, start);
+                    ps.setLong(4, start + 24L * 60 * 60 * 1000);
+                    ps.setInt(5, chef(random.nextInt(scale.users)));
+                });
+
+        serviceMenu = new int[scale.getServices()];
+        insert("INSERT INTO Services (id, event_id, name, approved_menu_id, service_date, time_start, time_end, location) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", scale.getServices(), (ps, i) -> {
+                    String[] slot = SERVICE_SLOTS[i % perEvent];
+                    serviceMenu[i] = random.nextInt(scale.menus);
+                    ps.setInt(1, firstService + i);
+                    ps.setInt(2, firstEvent + i / perEvent);
+                    ps.setString(3, slot[0]);
+                    ps.setInt(4, firstMenu + serviceMenu[i]);
+                    ps.setString(5, eventDay(i / perEvent).toString());
+                    ps.setString(6, slot[1]);
+                    ps.setString(7, slot[2]);
+                    ps.setString(8, "Sala " + (1 + random.nextInt(5)));
+                });
+    }
+
+    private void generateShifts() {
+        firstShift = nextId("Shifts");
+        int bookingsPerShift = Math.min(3, scale.users);
+
+        insert("INSERT INTO Shifts (id, date, start_time, end_time) VALUES (?, ?, ?, ?)", scale.getShifts(),
+                (ps, i) -> {
+                    String[] slot = SHIFT_SLOTS[i % SHIFT_SLOTS.length];
+                    ps.setInt(1, firstShift + i);
+                    ps.setString(2, FIRST_DAY.plusDays(i / SHIFT_SLOTS.length).toString());
+                    ps.setString(3, slot[0]);
+                    ps.setString(4, slot[1]);
+                });
+
+        int[][] booked = new int[scale.getShifts()][];
+        for (int s = 0; s < booked.length; s++) {
+            booked[s] = distinct(bookingsPerShift, scale.users);
+        }
+        insert("INSERT INTO ShiftBookings (shift_id, user_id) VALUES (?, ?)", booked.length * bookingsPerShift,
+                (ps, i) -> {
+                    ps.setInt(1, firstShift + i / bookingsPerShift);
+                    ps.setInt(2, firstUser + booked[i / bookingsPerShift][i % bookingsPerShift]);
+                });
+    }
+
+    private void generateSummarySheets() {
+        firstSheet = nextId("SummarySheets");
+        firstTask = nextId("Tasks");
+        int sheets = scale.getServices();
+        int perSheet = scale.tasksPerSheet;
+
+        insert("INSERT INTO SummarySheets (id, service_id, owner_id) VALUES (?, ?, ?)", sheets, (ps, i) -> {
+            ps.setInt(1, firstSheet + i);
+            ps.setInt(2, firstService + i);
+            ps.setInt(3, chef(random.nextInt(scale.users)));
+        });
+
+        // The recipes of the approved menu first, then their preparations
+        insert("INSERT INTO Tasks (id, sumsheet_id, kitchenproc_id, description, type, quantity, position, portions, ready) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", sheets * perSheet, (ps, i) -> {
+                    int sheet = i / perSheet;
+                    int position = i % perSheet;
+                    int[] recipes = menuRecipes[serviceMenu[sheet]];
+                    boolean recipe = position < recipes.length;
+                    int proc;
+                    if (recipe) {
+                        proc = firstRecipe + recipes[position];
+                    } else {
+                        int[] preps = recipePreparations[recipes[random.nextInt(recipes.length)]];
+                        proc = firstPreparation + preps[random.nextInt(preps.length)];
+                    }
+                    ps.setInt(1, firstTask + i);
+                    ps.setInt(2, firstSheet + sheet);
+                    ps.setInt(3, proc);
+                    ps.setString(4, (recipe ? "Ricetta " + (proc - firstRecipe + 1)
+                            : "Preparazione " + (proc - firstPreparation + 1)));
+                    ps.setBoolean(5, recipe);
+                    ps.setDouble(6, 1 + random.nextInt(20));
+                    ps.setInt(7, position);
+                    ps.setInt(8, 10 * (1 + random.nextInt(20)));
+                    ps.setBoolean(9, random.nextInt(10) == 0);
+                });
+
+        // About a third of the tasks are assigned to a cook, in a shift of the service day
+        int perService = SHIFT_SLOTS.length;
+        List<Integer> assigned = new ArrayList<>();
+        for (int t = 0; t < sheets * perSheet; t++) {
+            if (random.nextInt(3) == 0) {
+                assigned.add(t);
+            }
+        }
+        insert("INSERT INTO Assignment (sumsheet_id, task_id, cook_id, shift_id) VALUES (?, ?, ?, ?)",
+                assigned.size(), (ps, i) -> {
+                    int task = assigned.get(i);
+                    int sheet = task / perSheet;
+                    int day = (sheet / scale.servicesPerEvent) / scale.eventsPerDay;
+                    ps.setInt(1, firstSheet + sheet);
+                    ps.setInt(2, firstTask + task);
+                    ps.setInt(3, cook(random.nextInt(scale.users)));
+                    ps.setInt(4, firstShift + day * perService + random.nextInt(perService));
+                });
+    }
+
+    private void generatePersonnel() {
+        firstCollaborator = nextId("Collaborators");
+        int collaborators = scale.collaborators;
+        int availabilityPerCollaborator = Math.min(5, scale.getShifts());
+        int notesPerCollaborator = 3;
+
+        insert("INSERT INTO Collaborators (id, name, contact, fiscal_code, address, occasional, active, vacation_days) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", collaborators, (ps, i) -> {
+                    ps.setInt(1, firstCollaborator + i);
+                    ps.setString(2, COLLABORATOR_PREFIX + (i + 1));
+                    ps.setString(3, "gen-" + (i + 1) + "@example.com");
+                    ps.setString(4, String.format("GEN%013d", i + 1));
+                    ps.setString(5, "Via Generata " + (1 + random.nextInt(200)));
+                    ps.setBoolean(6, random.nextBoolean());
+                    ps.setBoolean(7, random.nextInt(20) != 0);
+                    ps.setInt(8, 10 + random.nextInt(21));
+                });
+
+        int[][] available = new int[collaborators][];
+        for (int c = 0; c < collaborators; c++) {
+            available[c] = distinct(availabilityPerCollaborator, scale.getShifts());
+        }
+        insert("INSERT INTO CollaboratorAvailability (collaborator_id, shift_id, confirmed) VALUES (?, ?, ?)",
+                collaborators * availabilityPerCollaborator, (ps, i) -> {
+                    ps.setInt(1, firstCollaborator + i / availabilityPerCollaborator);
+                    ps.setInt(2, firstShift + available[i / availabilityPerCollaborator][i % availabilityPerCollaborator]);
+                    ps.setBoolean(3, random.nextInt(5) == 0);
+                });
+
+        // Two leave requests per collaborator: the first approved, the second
+        // pending or rejected
+        insert("INSERT INTO LeaveRequests (collaborator_id, start_date, end_date, approved, request_date) "
+                + "VALUES (?, ?, ?, ?, ?)", collaborators * 2, (ps, i) -> {
+                    LocalDate start = FIRST_DAY.plusDays(random.nextInt(Math.max(1, scale.getDays())));
+                    ps.setInt(1, firstCollaborator + i / 2);
+                    ps.setString(2, start.toString());
+                    ps.setString(3, start.plusDays(random.nextInt(7)).toString());
+                    ps.setInt(4, i % 2 == 0 ? 1 : random.nextInt(2) - 1);
+                    ps.setString(5, start.minusDays(30).toString());
+                });
+
+        insert("INSERT INTO PerformanceNotes (collaborator_id, event_id, author_id, note, created_at) "
+                + "VALUES (?, ?, ?, ?, ?)", collaborators * notesPerCollaborator, (ps, i) -> {
+                    int event = random.nextInt(scale.events);
+                    ps.setInt(1, firstCollaborator + i / notesPerCollaborator);
+                    if (random.nextInt(4) == 0) {
+                        ps.setNull(2, Types.INTEGER);
+                    } else {
+                        ps.setInt(2, firstEvent + event);
+                    }
+                    ps.setInt(3, firstUser + random.nextInt(scale.users));
+                    ps.setString(4, note());
+                    ps.setString(5, eventDay(event) + String.format(" %02d:%02d:00",
+                            random.nextInt(24), random.nextInt(60)));
+                });
+    }
+
+    private String note() {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 1 + random.nextInt(3); k > 0; k--) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(NOTE_PHRASES[random.nextInt(NOTE_PHRASES.length)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    private LocalDate eventDay(int event) {
+        return FIRST_DAY.plusDays(event / scale.eventsPerDay);
+    }
+
+    // Generated user i has role i % 4: CUOCO at multiples of four, CHEF right after
+    private int cook(int n) {
+        return firstUser + n % (scale.users / 4) * 4;
+    }
+
+    private int chef(int n) {
+        return cook(n) + 1;
+    }
+
+    // count distinct values in [0, bound), in draw order
+    private int[] distinct(int count, int bound) {
+        count = Math.min(count, bound);
+        Set<Integer> seen = new HashSet<>();
+        int[] values = new int[count];
+        for (int k = 0; k < count;) {
+            int v = random.nextInt(bound);
+            if (seen.add(v)) {
+                values[k++] = v;
+            }
+        }
+        return values;
+    }
+
+    private static int nextId(String table) {
+        int[] id = new int[1];
+        PersistenceManager.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, rs -> id[0] = rs.getInt(1));
+        return id[0];
+    }
+
+    private void insert(String sql, int count, Row row) {
+        rows += PersistenceManager.executeBatchInsert(sql, count, new BatchUpdateHandler() {
+            @Override
+            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                row.bind(ps, batchCount);
+            }
+
+            @Override
+            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                // ids are assigned explicitly
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        int events = 1000;
+        long seed = 42;
+        Integer servicesPerEvent = null;
+        Integer tasksPerSheet = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--db":
+                System.setProperty(PersistenceManager.DB_PATH_PROPERTY, args[i + 1]);
+                break;
+            case "--events":
+                events = Integer.parseInt(args[i + 1]);
+                break;
+            case "--seed":
+                seed = Long.parseLong(args[i + 1]);
+                break;
+            case "--services-per-event":
+                servicesPerEvent = Integer.parseInt(args[i + 1]);
+                break;
+            case "--tasks-per-sheet":
+                tasksPerSheet = Integer.parseInt(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Scale scale = Scale.ofEvents(events);
+        if (servicesPerEvent != null) {
+            scale.servicesPerEvent(servicesPerEvent);
+        }
+        if (tasksPerSheet != null) {
+            scale.tasksPerSheet(tasksPerSheet);
+        }
+        boolean ok = new DatasetGenerator(scale, seed).generate();
+        PersistenceManager.shutdown();
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+}
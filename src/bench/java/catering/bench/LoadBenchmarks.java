@@ -0,0 +1,131 @@
+package catering.bench;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catering.businesslogic.event.Event;
+import catering.businesslogic.kitchen.ProductionPlan;
+import catering.businesslogic.kitchen.SummarySheet;
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.personnel.AvailabilityMatrix;
+import catering.businesslogic.personnel.Collaborator;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.shift.ShiftStore;
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+
+/**
+ * Read paths of the persistence layer, measured on a generated database.
+ *
+ * Single-row loads cycle through the generated ids, so they are not served
+ * by the same rows every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmarks {
+
+    @Param({ "100", "1000" })
+    public int scale;
+
+    private int firstUser;
+    private int userCount;
+    private int firstSheet;
+    private int sheetCount;
+    private int next;
+    private List<Shift> weekend;
+
+    @Setup
+    public void setup() {
+        BenchmarkDatabase.open(scale);
+        DatasetGenerator.Scale size = BenchmarkDatabase.scale(scale);
+        firstUser = BenchmarkDatabase.firstId("Users", "username", DatasetGenerator.USER_PREFIX);
+        userCount = size.getUsers();
+        // Sheets are generated one per service, in service order
+        sheetCount = size.getServices();
+        int[] id = new int[1];
+        PersistenceManager.executeQuery("SELECT MIN(ss.id) FROM SummarySheets ss "
+                + "JOIN Services s ON s.id = ss.service_id JOIN Events e ON e.id = s.event_id WHERE e.name LIKE ?",
+                rs -> id[0] = rs.getInt(1), DatasetGenerator.EVENT_PREFIX + "%");
+        firstSheet = id[0];
+        List<Shift> days = Shift.loadShiftsBetween(Date.valueOf(DatasetGenerator.FIRST_DAY),
+                Date.valueOf(DatasetGenerator.FIRST_DAY.plusDays(2)));
+        weekend = days.subList(0, Math.min(12, days.size()));
+    }
+
+    @Benchmark
+    public User userLoad() {
+        return User.load(firstUser + next++ % userCount);
+    }
+
+    @Benchmark
+    public Menu menuLoad() {
+        return Menu.load(1);
+    }
+
+    @Benchmark
+    public ArrayList<Event> eventLoadAll() {
+        return Event.loadAllEvents();
+    }
+
+    @Benchmark
+    public SummarySheet summarySheetLoadById() {
+        return SummarySheet.loadSummarySheetById(firstSheet + next++ % sheetCount);
+    }
+
+    @Benchmark
+    public ArrayList<Shift> shiftLoadAll() {
+        return Shift.loadAllShifts();
+    }
+
+    // Opening the shift board on one day, with an empty store
+    @Benchmark
+    public ArrayList<Shift> shiftBoardDay() {
+        ShiftStore store = ShiftStore.getInstance();
+        store.invalidate();
+        ArrayList<Shift> day = store.getShifts(Date.valueOf(DatasetGenerator.FIRST_DAY.plusDays(next++ % 28)));
+        Shift.loadBookings(day);
+        return day;
+    }
+
+    @Benchmark
+    public ArrayList<Collaborator> collaboratorLoadActive() {
+        return Collaborator.loadActive();
+    }
+
+    // Staffing board of a weekend: who is free for each of its shifts and
+    // for all of them, from the loaded availability matrix
+    @Benchmark
+    public int availabilityWeekend() {
+        AvailabilityMatrix matrix = AvailabilityMatrix.getInstance();
+        int free = matrix.countFree(weekend);
+        for (Shift s : weekend) {
+            free += matrix.getFreeCollaborators(Collections.singletonList(s)).size();
+        }
+        return free;
+    }
+
+    @Benchmark
+    public ProductionPlan productionPlanMonth() {
+        return ProductionPlan.load(Date.valueOf(DatasetGenerator.FIRST_DAY),
+                Date.valueOf(DatasetGenerator.FIRST_DAY.plusMonths(1)));
+    }
+}
@@ -0,0 +1,106 @@
+package catering.bench;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.personnel.Collaborator;
+import catering.businesslogic.personnel.LeaveRequest;
+import catering.businesslogic.personnel.PersonnelException;
+import catering.businesslogic.user.User;
+import catering.persistence.MenuPersistence;
+import catering.persistence.WriteBehindWriter;
+
+/**
+ * Write paths of the persistence layer, measured on a generated database.
+ *
+ * The rows written here stay in the database file; regenerate it (delete
+ * target/bench) when a clean baseline is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmarks {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Param({ "100", "1000" })
+    public int scale;
+
+    private Collaborator[] collaborators;
+    private long day;
+    private int next;
+
+    private Menu menu;
+    private MenuPersistence direct;
+    private WriteBehindWriter writeBehind;
+    private MenuPersistence deferred;
+
+    @Setup
+    public void setup() {
+        BenchmarkDatabase.open(scale);
+        int first = BenchmarkDatabase.firstId("Collaborators", "name", DatasetGenerator.COLLABORATOR_PREFIX);
+        collaborators = new Collaborator[BenchmarkDatabase.scale(scale).getCollaborators()];
+        for (int i = 0; i < collaborators.length; i++) {
+            collaborators[i] = Collaborator.loadById(first + i);
+        }
+        // Pending requests far after the generated leaves: every save runs the
+        // overlap check and the insert
+        day = System.currentTimeMillis() + 3650 * DAY;
+
+        direct = new MenuPersistence();
+        writeBehind = new WriteBehindWriter();
+        deferred = new MenuPersistence(writeBehind);
+        menu = new Menu(User.load("Antonio"), "Benchmark menu");
+        direct.updateMenuCreated(menu);
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeBehind.close();
+    }
+
+    @Benchmark
+    public LeaveRequest leaveRequestSave() throws PersonnelException {
+        Collaborator c = collaborators[next++ % collaborators.length];
+        Date start = new Date(day + next * DAY);
+        LeaveRequest req = LeaveRequest.create(c, start, new Date(start.getTime() + 2 * DAY));
+        req.save();
+        return req;
+    }
+
+    /**
+     * Title change as seen by the caller: the UPDATE is committed before the
+     * notification returns
+     */
+    @Benchmark
+    public void menuTitleDirect() {
+        menu.setTitle("Benchmark menu " + next++);
+        direct.updateMenuTitleChanged(menu);
+    }
+
+    /**
+     * Same change through the write-behind writer: the caller only queues it
+     */
+    @Benchmark
+    public void menuTitleWriteBehind() {
+        menu.setTitle("Benchmark menu " + next++);
+        deferred.updateMenuTitleChanged(menu);
+    }
+}
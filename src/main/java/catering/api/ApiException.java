@@ -0,0 +1,37 @@
+package catering.api;
+
+/**
+ * Error answered to the client with the given HTTP status and message
+ */
+public class ApiException extends RuntimeException {
+
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public static ApiException notFound(String what) {
+        return new ApiException(404, what + " not found");
+    }
+
+    public static ApiException badRequest(String message) {
+        return new ApiException(400, message);
+    }
+
+    /**
+     * @return The value, if it was found
+     * @throws ApiException 404 if the value is null
+     */
+    public static <T> T requireFound(T value, String what) {
+        if (value == null) {
+            throw notFound(what);
+        }
+        return value;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,168 @@
+package catering.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import catering.businesslogic.Session;
+
+/**
+ * An API call: path parameters, query string and JSON body of the request,
+ * plus the session of the caller (null for anonymous routes)
+ */
+public class ApiRequest {
+
+    private final HttpExchange exchange;
+    private final Map<String, String> pathParams;
+    private final Session session;
+    private Map<String, String> query;
+    private Map<String, Object> body;
+
+    ApiRequest(HttpExchange exchange, Map<String, String> pathParams, Session session) {
+        this.exchange = exchange;
+        this.pathParams = pathParams;
+        this.session = session;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String header(String name) {
+        return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    /**
+     * @return The integer path parameter, e.g. {id}
+     */
+    public int pathInt(String name) {
+        return toInt(name, pathParams.get(name));
+    }
+
+    /**
+     * @return The query string parameter, or null if missing
+     */
+    public String query(String name) {
+        if (query == null) {
+            query = new HashMap<>();
+            String raw = exchange.getRequestURI().getRawQuery();
+            if (raw != null) {
+                for (String pair : raw.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String key = eq < 0 ? pair : pair.substring(0, eq);
+                    String value = eq < 0 ? "" : pair.substring(eq + 1);
+                    query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                            URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query.get(name);
+    }
+
+    public int queryInt(String name, int defaultValue) {
+        String value = query(name);
+        return value == null ? defaultValue : toInt(name, value);
+    }
+
+    /**
+     * @return The date query parameter (YYYY-MM-DD), or null if missing
+     */
+    public Date queryDate(String name) {
+        return toDate(name, query(name));
+    }
+
+    /**
+     * @return The JSON body of the request, parsed on first use
+     */
+    public Map<String, Object> body() throws IOException {
+        if (body == null) {
+            try (InputStream in = exchange.getRequestBody()) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                try {
+                    body = JsonParser.parseObject(text);
+                } catch (IllegalArgumentException ex) {
+                    throw ApiException.badRequest("Invalid JSON body: " + ex.getMessage());
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * @return The string field of the body
+     * @throws ApiException If the field is missing
+     */
+    public String bodyString(String name) throws IOException {
+        Object value = body().get(name);
+        if (value == null) {
+            throw ApiException.badRequest("Missing field: " + name);
+        }
+        return value.toString();
+    }
+
+    public String bodyString(String name, String defaultValue) throws IOException {
+        Object value = body().get(name);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * @return The integer field of the body
+     * @throws ApiException If the field is missing or not a number
+     */
+    public int bodyInt(String name) throws IOException {
+        Integer value = bodyInt(name, null);
+        if (value == null) {
+            throw ApiException.badRequest("Missing field: " + name);
+        }
+        return value;
+    }
+
+    public Integer bodyInt(String name, Integer defaultValue) throws IOException {
+        Object value = body().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return toInt(name, value.toString());
+    }
+
+    public boolean bodyBoolean(String name) throws IOException {
+        Object value = body().get(name);
+        if (!(value instanceof Boolean)) {
+            throw ApiException.badRequest("Missing or invalid boolean field: " + name);
+        }
+        return (Boolean) value;
+    }
+
+    public Date bodyDate(String name) throws IOException {
+        Object value = body().get(name);
+        return value == null ? null : toDate(name, value.toString());
+    }
+
+    private static int toInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw ApiException.badRequest("Invalid integer for " + name + ": " + value);
+        }
+    }
+
+    private static Date toDate(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Date.valueOf(value);
+        } catch (IllegalArgumentException ex) {
+            throw ApiException.badRequest("Invalid date for " + name + " (expected YYYY-MM-DD): " + value);
+        }
+    }
+}
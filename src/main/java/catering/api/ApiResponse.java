@@ -0,0 +1,123 @@
+package catering.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Writes the JSON answer of an API call.
+ *
+ * json() buffers the whole body and sends it with a Content-Length; stream()
+ * sends the headers first and then the body in chunks as it is written, so
+ * the client receives the first items of a long list while the rest is still
+ * being serialized.
+ */
+public class ApiResponse {
+
+    /**
+     * Writes a JSON body
+     */
+    public interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    /**
+     * Writes one item of a list
+     */
+    public interface ItemWriter<T> {
+        void write(JsonWriter json, T item) throws IOException;
+    }
+
+    // Bytes buffered before a chunk of a streamed response is sent
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final HttpExchange exchange;
+    private boolean committed;
+
+    ApiResponse(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * @return true once the status line has been sent
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public void json(Body body) throws IOException {
+        json(200, body);
+    }
+
+    public void json(int status, Body body) throws IOException {
+        StringWriter buffer = new StringWriter();
+        body.write(new JsonWriter(buffer));
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        committed = true;
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Sends a 200 response whose body is written while it is being sent
+     */
+    public void stream(Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        committed = true;
+        // Length 0 selects chunked transfer encoding
+        exchange.sendResponseHeaders(200, 0);
+        try (BufferedWriter out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE)) {
+            body.write(new JsonWriter(out));
+        }
+    }
+
+    /**
+     * Streams a list as a JSON array
+     */
+    public <T> void streamList(Iterable<T> items, ItemWriter<T> writer) throws IOException {
+        stream(json -> writeList(json, items, writer));
+    }
+
+    /**
+     * Streams the rows of a database stream as a JSON array, reading them
+     * while the response is sent; the stream is closed at the end
+     */
+    public <T> void streamList(Stream<T> items, ItemWriter<T> writer) throws IOException {
+        try (Stream<T> rows = items) {
+            Iterator<T> it = rows.iterator();
+            streamList(() -> it, writer);
+        }
+    }
+
+    /**
+     * Writes a list as a JSON array, item by item
+     */
+    public static <T> void writeList(JsonWriter json, Iterable<T> items, ItemWriter<T> writer) throws IOException {
+        json.beginArray();
+        for (T item : items) {
+            writer.write(json, item);
+        }
+        json.endArray();
+    }
+
+    public void noContent() throws IOException {
+        committed = true;
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    public void error(int status, String message) throws IOException {
+        json(status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+}
@@ -0,0 +1,263 @@
+package catering.api;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.Session;
+import catering.businesslogic.UseCaseLogicException;
+import catering.businesslogic.kitchen.SummarySheetException;
+import catering.businesslogic.menu.MenuException;
+import catering.businesslogic.personnel.PersonnelException;
+import catering.util.LogManager;
+
+/**
+ * Embedded HTTP server exposing the managers as a JSON API.
+ *
+ * Every request runs on its own thread: a virtual thread when the JVM has
+ * them (Java 21+), a pooled platform thread otherwise. Blocking on the
+ * database is cheap with virtual threads, so the number of requests served
+ * at once is not bounded by a thread pool but by the connection pool.
+ *
+ * A client logs in with POST /api/sessions {"username": "..."} and sends the
+ * returned id in the X-Session-Id header of the following requests. Each API
+ * session owns a business Session, bound to the request thread while the
+ * request runs; requests of the same session are served one at a time, so the
+ * current menu, sheet... of a user never sees two concurrent updates.
+ *
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass=catering.api.ApiServer
+ * </pre>
+ */
+public class ApiServer {
+
+    private static final Logger LOGGER = LogManager.getLogger(ApiServer.class);
+
+    public static final String PORT_PROPERTY = "catering.api.port";
+    public static final int DEFAULT_PORT = 8080;
+
+    public static final String SESSION_HEADER = "X-Session-Id";
+
+    // Sessions idle for longer are logged out
+    private static final long SESSION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private static class ApiSession {
+        final Session session;
+        // Serializes the requests of the session; unlike synchronized it does
+        // not pin a virtual thread to its carrier while waiting
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long lastAccess = System.currentTimeMillis();
+
+        ApiSession(Session session) {
+            this.session = session;
+        }
+    }
+
+    private final CatERing app;
+    private final Router router = new Router();
+    private final Map<String, ApiSession> sessions = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param port Port to listen on, 0 for any free port
+     */
+    public ApiServer(int port) throws IOException {
+        this.app = CatERing.getInstance();
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "api-worker");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "api-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::expireSessions, 1, 1, TimeUnit.MINUTES);
+
+        registerSessionRoutes();
+        EventRoutes.register(router, app);
+        MenuRoutes.register(router, app);
+        KitchenRoutes.register(router, app);
+        ShiftRoutes.register(router, app);
+        PersonnelRoutes.register(router, app);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() is looked up by reflection,
+     * so the server still compiles and runs on Java 11
+     *
+     * @return The executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("API listening on port " + getPort()
+                + (virtualThreads ? " (virtual threads)" : " (platform threads)"));
+    }
+
+    /**
+     * Stops accepting requests and waits up to delay seconds for the running
+     * ones to finish, then for their changes to be written
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        app.getPersistenceWriter().flush();
+        sweeper.shutdownNow();
+        executor.shutdown();
+        sessions.clear();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return true if requests run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return Number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void registerSessionRoutes() {
+        // {"username": "..."} -> {"sessionId": "...", "user": {...}}
+        router.anonymous("POST", "/api/sessions", (req, res) -> {
+            Session session = app.openSession();
+            try (Session.Binding b = session.bind()) {
+                app.getUserManager().fakeLogin(req.bodyString("username"));
+            } catch (UseCaseLogicException ex) {
+                throw new ApiException(401, ex.getMessage());
+            }
+            // User.load answers an empty user for unknown names
+            if (session.getUser() == null || session.getUser().getId() == 0) {
+                throw new ApiException(401, "User not found");
+            }
+            sessions.put(session.getId(), new ApiSession(session));
+            res.json(201, json -> {
+                json.beginObject().name("sessionId").value(session.getId()).name("user");
+                JsonViews.user(json, session.getUser());
+                json.endObject();
+            });
+        });
+
+        router.get("/api/sessions/current", (req, res) -> res.json(json -> JsonViews.user(json, req.getSession().getUser())));
+
+        router.delete("/api/sessions/current", (req, res) -> {
+            sessions.remove(req.getSession().getId());
+            req.getSession().clear();
+            res.noContent();
+        });
+    }
+
+    private void handle(HttpExchange exchange) {
+        ApiResponse res = new ApiResponse(exchange);
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Router.Match match = router.find(method, path);
+            if (match == null) {
+                throw new ApiException(404, "No route for " + method + " " + path);
+            }
+
+            if (match.route.anonymous) {
+                match.route.handler.handle(new ApiRequest(exchange, match.params, null), res);
+                return;
+            }
+
+            ApiSession s = session(exchange.getRequestHeaders().getFirst(SESSION_HEADER));
+            s.lock.lock();
+            try (Session.Binding b = s.session.bind()) {
+                s.lastAccess = System.currentTimeMillis();
+                match.route.handler.handle(new ApiRequest(exchange, match.params, s.session), res);
+            } finally {
+                s.lock.unlock();
+            }
+        } catch (ApiException ex) {
+            fail(res, ex.getStatus(), ex.getMessage(), null);
+        } catch (UseCaseLogicException | MenuException | SummarySheetException | PersonnelException ex) {
+            // The request is not allowed in the current state of the session
+            fail(res, 409, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName(), null);
+        } catch (IllegalArgumentException ex) {
+            fail(res, 400, ex.getMessage() != null ? ex.getMessage() : "Invalid request", null);
+        } catch (Exception ex) {
+            fail(res, 500, "Internal error", ex);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ApiSession session(String id) {
+        ApiSession s = id != null ? sessions.get(id) : null;
+        if (s == null) {
+            throw new ApiException(401, "Missing or expired session");
+        }
+        return s;
+    }
+
+    private void fail(ApiResponse res, int status, String message, Exception cause) {
+        if (cause != null) {
+            LOGGER.log(Level.SEVERE, "API request failed", cause);
+        }
+        if (res.isCommitted()) {
+            // Headers already sent (streamed list): the client sees a truncated body
+            LOGGER.warning("Response already started, dropping error " + status + ": " + message);
+            return;
+        }
+        try {
+            res.error(status, message);
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Could not send error response", ex);
+        }
+    }
+
+    private void expireSessions() {
+        long limit = System.currentTimeMillis() - SESSION_TIMEOUT_MS;
+        sessions.values().removeIf(s -> s.lastAccess < limit && !s.lock.isLocked());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        ApiServer api = new ApiServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> api.stop(1)));
+        api.start();
+    }
+}
@@ -0,0 +1,70 @@
+package catering.api;
+
+import java.sql.Date;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.EventManager;
+import catering.businesslogic.event.EventPage;
+import catering.businesslogic.menu.Menu;
+
+/**
+ * Routes of the events: paged listing, selection of event and service, menu
+ * assignment
+ */
+final class EventRoutes {
+
+    private EventRoutes() {
+    }
+
+    static void register(Router router, CatERing app) {
+        EventManager events = app.getEventManager();
+
+        // ?from=YYYY-MM-DD&to=YYYY-MM-DD[&pageToken=..][&pageSize=..]
+        // Without a range every event is listed
+        router.get("/api/events", (req, res) -> {
+            Date from = req.queryDate("from");
+            Date to = req.queryDate("to");
+            if (from == null && to == null) {
+                res.streamList(events.getEvents(), JsonViews::event);
+                return;
+            }
+            if (from == null || to == null) {
+                throw ApiException.badRequest("Both from and to are required");
+            }
+            EventPage page = events.getEvents(from, to, req.query("pageToken"),
+                    req.queryInt("pageSize", EventManager.DEFAULT_PAGE_SIZE));
+            res.stream(json -> {
+                json.beginObject().name("events");
+                ApiResponse.writeList(json, page.getEvents(), JsonViews::event);
+                json.name("nextPageToken").value(page.getNextPageToken()).endObject();
+            });
+        });
+
+        router.get("/api/events/{id}", (req, res) -> {
+            Event e = ApiException.requireFound(Event.loadById(req.pathInt("id")), "Event");
+            res.json(json -> JsonViews.eventDetail(json, e));
+        });
+
+        // {"serviceId": n} also selects the service of the event
+        router.post("/api/events/{id}/select", (req, res) -> {
+            Event e = ApiException.requireFound(Event.loadById(req.pathInt("id")), "Event");
+            events.selectEvent(e);
+            Integer serviceId = req.bodyInt("serviceId", null);
+            if (serviceId != null) {
+                events.setSelectedServiceIndex(serviceId);
+                if (events.getCurrentService() == null || events.getCurrentService().getId() != serviceId) {
+                    throw ApiException.notFound("Service");
+                }
+            }
+            res.json(json -> JsonViews.eventDetail(json, e));
+        });
+
+        // {"menuId": n} assigns the menu to the selected service
+        router.post("/api/events/current/menu", (req, res) -> {
+            Menu m = MenuRoutes.loadMenu(req.bodyInt("menuId"));
+            events.assignMenu(m);
+            res.json(json -> JsonViews.service(json, events.getCurrentService()));
+        });
+    }
+}
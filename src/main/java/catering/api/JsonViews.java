@@ -0,0 +1,209 @@
+package catering.api;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.Service;
+import catering.businesslogic.kitchen.Assignment;
+import catering.businesslogic.kitchen.KitchenTask;
+import catering.businesslogic.kitchen.SummarySheet;
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.menu.MenuItem;
+import catering.businesslogic.menu.Section;
+import catering.businesslogic.personnel.Collaborator;
+import catering.businesslogic.personnel.LeaveRequest;
+import catering.businesslogic.personnel.PerformanceNote;
+import catering.businesslogic.recipe.Recipe;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.user.User;
+
+/**
+ * JSON form of the domain objects returned by the API. Related objects are
+ * referenced by id, except for the parts that make up the object (the
+ * sections of a menu, the tasks of a summary sheet...).
+ */
+public final class JsonViews {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private JsonViews() {
+    }
+
+    // YYYY-MM-DD, as java.sql.Date prints itself
+    private static String day(Date d) {
+        return d == null ? null : new java.sql.Date(d.getTime()).toString();
+    }
+
+    private static String timestamp(Date d) {
+        return d == null ? null : TIMESTAMP.format(Instant.ofEpochMilli(d.getTime()).atZone(ZoneId.systemDefault()));
+    }
+
+    public static void user(JsonWriter json, User u) throws IOException {
+        if (u == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject()
+                .name("id").value(u.getId())
+                .name("username").value(u.getUserName())
+                .name("roles").beginArray();
+        for (User.Role r : u.getRoles()) {
+            json.value(r.name());
+        }
+        json.endArray().endObject();
+    }
+
+    public static void event(JsonWriter json, Event e) throws IOException {
+        json.beginObject()
+                .name("id").value(e.getId())
+                .name("name").value(e.getName())
+                .name("dateStart").valueOf(e.getDateStart())
+                .name("dateEnd").valueOf(e.getDateEnd())
+                .name("chefId").value(e.getChefId())
+                .endObject();
+    }
+
+    /**
+     * Writes an event with its services
+     */
+    public static void eventDetail(JsonWriter json, Event e) throws IOException {
+        json.beginObject()
+                .name("id").value(e.getId())
+                .name("name").value(e.getName())
+                .name("dateStart").valueOf(e.getDateStart())
+                .name("dateEnd").valueOf(e.getDateEnd())
+                .name("chefId").value(e.getChefId())
+                .name("services");
+        ApiResponse.writeList(json, e.getServices(), JsonViews::service);
+        json.endObject();
+    }
+
+    public static void service(JsonWriter json, Service s) throws IOException {
+        json.beginObject()
+                .name("id").value(s.getId())
+                .name("eventId").value(s.getEventId())
+                .name("name").value(s.getName())
+                .name("date").valueOf(s.getDate())
+                .name("timeStart").valueOf(s.getTimeStart())
+                .name("timeEnd").valueOf(s.getTimeEnd())
+                .name("location").value(s.getLocation())
+                .name("menuId").value(s.getMenuId())
+                .endObject();
+    }
+
+    public static void recipe(JsonWriter json, Recipe r) throws IOException {
+        json.beginObject()
+                .name("id").value(r.getId())
+                .name("name").value(r.getName())
+                .endObject();
+    }
+
+    public static void menu(JsonWriter json, Menu m) throws IOException {
+        json.beginObject()
+                .name("id").value(m.getId())
+                .name("title").value(m.getTitle())
+                .name("published").value(m.isPublished())
+                .name("ownerId").value(m.getOwner() != null ? m.getOwner().getId() : null)
+                .name("sections").beginArray();
+        for (Section s : m.getSections()) {
+            json.beginObject()
+                    .name("id").value(s.getId())
+                    .name("name").value(s.getName())
+                    .name("items");
+            ApiResponse.writeList(json, s.getItems(), JsonViews::menuItem);
+            json.endObject();
+        }
+        json.endArray().name("freeItems");
+        ApiResponse.writeList(json, m.getFreeItems(), JsonViews::menuItem);
+        json.endObject();
+    }
+
+    public static void menuItem(JsonWriter json, MenuItem mi) throws IOException {
+        json.beginObject()
+                .name("id").value(mi.getId())
+                .name("description").value(mi.getDescription())
+                .name("recipeId").value(mi.getRecipe() != null ? mi.getRecipe().getId() : null)
+                .endObject();
+    }
+
+    public static void summarySheet(JsonWriter json, SummarySheet ss) throws IOException {
+        json.beginObject()
+                .name("id").value(ss.getId())
+                .name("ownerId").value(ss.getOwner() != null ? ss.getOwner().getId() : null)
+                .name("tasks");
+        ApiResponse.writeList(json, ss.getTaskList(), JsonViews::task);
+        json.name("assignments");
+        ApiResponse.writeList(json, ss.getAssignments(), JsonViews::assignment);
+        json.endObject();
+    }
+
+    public static void task(JsonWriter json, KitchenTask t) throws IOException {
+        json.beginObject()
+                .name("id").value(t.getId())
+                .name("description").value(t.getDescription())
+                .name("quantity").value(t.getQuantity())
+                .name("portions").value(t.getPortions())
+                .name("minutes").value(t.getMinutes())
+                .name("ready").value(t.isReady())
+                .endObject();
+    }
+
+    public static void assignment(JsonWriter json, Assignment a) throws IOException {
+        json.beginObject()
+                .name("id").value(a.getId())
+                .name("taskId").value(a.getTask() != null ? a.getTask().getId() : null)
+                .name("shiftId").value(a.getShift() != null ? a.getShift().getId() : null)
+                .name("cookId").value(a.getCook() != null ? a.getCook().getId() : null)
+                .endObject();
+    }
+
+    public static void shift(JsonWriter json, Shift s) throws IOException {
+        json.beginObject()
+                .name("id").value(s.getId())
+                .name("date").valueOf(s.getDate())
+                .name("startTime").valueOf(s.getStartTime())
+                .name("endTime").valueOf(s.getEndTime())
+                .name("capacity").value(s.getCapacity())
+                .name("bookedUserIds").beginArray();
+        for (Integer uid : s.getBookedUsers().keySet()) {
+            json.value(uid);
+        }
+        json.endArray().endObject();
+    }
+
+    public static void collaborator(JsonWriter json, Collaborator c) throws IOException {
+        json.beginObject()
+                .name("id").value(c.getId())
+                .name("name").value(c.getName())
+                .name("contact").value(c.getContact())
+                .name("occasional").value(c.isOccasional())
+                .name("active").value(c.isActive())
+                .name("vacationDays").value(c.getVacationDays())
+                .endObject();
+    }
+
+    public static void leaveRequest(JsonWriter json, LeaveRequest r) throws IOException {
+        json.beginObject()
+                .name("id").value(r.getId())
+                .name("collaboratorId").value(r.getCollaborator() != null ? r.getCollaborator().getId() : null)
+                .name("startDate").value(day(r.getStartDate()))
+                .name("endDate").value(day(r.getEndDate()))
+                .name("approved").value(r.getApproved())
+                .endObject();
+    }
+
+    public static void performanceNote(JsonWriter json, PerformanceNote n) throws IOException {
+        json.beginObject()
+                .name("id").value(n.getId())
+                .name("collaboratorId").value(n.getCollaborator() != null ? n.getCollaborator().getId() : null)
+                .name("eventId").value(n.getEvent() != null ? n.getEvent().getId() : null)
+                .name("authorId").value(n.getAuthor() != null ? n.getAuthor().getId() : null)
+                .name("note").value(n.getNote())
+                .name("createdAt").value(timestamp(n.getCreatedAt()))
+                .endObject();
+    }
+}
@@ -0,0 +1,126 @@
+package catering.api;
+
+import java.time.LocalDateTime;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.event.EventManager;
+import catering.businesslogic.kitchen.Assignment;
+import catering.businesslogic.kitchen.KitchenTask;
+import catering.businesslogic.kitchen.KitchenTaskManager;
+import catering.businesslogic.kitchen.ProductionPlan;
+import catering.businesslogic.kitchen.SummarySheet;
+import catering.businesslogic.kitchen.TaskSchedule;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.user.User;
+
+/**
+ * Routes of the summary sheets. As for the menus, tasks and assignments are
+ * changed on the current sheet of the session.
+ */
+final class KitchenRoutes {
+
+    private KitchenRoutes() {
+    }
+
+    private static SummarySheet current(KitchenTaskManager kitchen) {
+        return ApiException.requireFound(kitchen.getCurrentSummarySheet(), "Current summary sheet");
+    }
+
+    private static KitchenTask task(SummarySheet ss, int id) {
+        for (KitchenTask t : ss.getTaskList()) {
+            if (t.getId() == id) {
+                return t;
+            }
+        }
+        throw ApiException.notFound("Task");
+    }
+
+    static void register(Router router, CatERing app) {
+        KitchenTaskManager kitchen = app.getKitchenTaskManager();
+        EventManager events = app.getEventManager();
+
+        router.get("/api/sheets", (req, res) -> res.streamList(kitchen.loadAllSumSheets(), JsonViews::summarySheet));
+
+        // Generates the sheet of the selected event and service
+        router.post("/api/sheets", (req, res) -> {
+            SummarySheet ss = kitchen.generateSummarySheet(events.getSelectedEvent(), events.getCurrentService());
+            res.json(201, json -> JsonViews.summarySheet(json, ss));
+        });
+
+        // ?from=yyyy-mm-dd&to=yyyy-mm-dd
+        router.get("/api/production-plan", (req, res) -> {
+            ProductionPlan plan = kitchen.getProductionPlan(req.queryDate("from"), req.queryDate("to"));
+            res.streamList(plan.getLines(), (json, l) -> json.beginObject()
+                    .name("date").value(l.getDate().toString())
+                    .name("kitchenProcess").value(l.getKitchenProcess() != null ? l.getKitchenProcess().getName() : null)
+                    .name("quantity").value(l.getQuantity())
+                    .name("portions").value(l.getPortions())
+                    .name("minutes").value(l.getMinutes())
+                    .name("tasks").value(l.getTaskCount())
+                    .name("services").value(l.getServiceIds().size())
+                    .endObject());
+        });
+
+        router.get("/api/sheets/current", (req, res) -> res.json(json -> JsonViews.summarySheet(json, current(kitchen))));
+
+        router.post("/api/sheets/{id}/open", (req, res) -> {
+            SummarySheet ss = ApiException.requireFound(SummarySheet.loadSummarySheetById(req.pathInt("id")),
+                    "Summary sheet");
+            kitchen.openSumSheet(ss);
+            res.json(json -> JsonViews.summarySheet(json, ss));
+        });
+
+        // {"position": n}
+        router.post("/api/sheets/current/tasks/{id}/move", (req, res) -> {
+            SummarySheet ss = current(kitchen);
+            kitchen.moveTask(task(ss, req.pathInt("id")), req.bodyInt("position"));
+            res.json(json -> JsonViews.summarySheet(json, ss));
+        });
+
+        // {"quantity": n, "portions": n, "minutes": n}
+        router.post("/api/sheets/current/tasks/{id}/info", (req, res) -> {
+            KitchenTask t = task(current(kitchen), req.pathInt("id"));
+            kitchen.addTaskInformation(t, req.bodyInt("quantity"), req.bodyInt("portions"), req.bodyInt("minutes", 0));
+            res.json(json -> JsonViews.task(json, t));
+        });
+
+        router.post("/api/sheets/current/tasks/{id}/ready", (req, res) -> {
+            KitchenTask t = task(current(kitchen), req.pathInt("id"));
+            kitchen.setTaskReady(t);
+            res.json(json -> JsonViews.task(json, t));
+        });
+
+        // Tasks in dependency order with their proposed start and slack
+        router.get("/api/sheets/current/schedule", (req, res) -> {
+            TaskSchedule schedule = current(kitchen).getSchedule();
+            res.json(json -> {
+                json.beginObject().name("totalMinutes").value(schedule.getTotalMinutes()).name("tasks").beginArray();
+                for (KitchenTask t : schedule.topologicalOrder()) {
+                    LocalDateTime start = schedule.getProposedStart(t);
+                    json.beginObject()
+                            .name("id").value(t.getId())
+                            .name("description").value(t.getDescription())
+                            .name("earliestStart").value(schedule.getEarliestStart(t))
+                            .name("slack").value(schedule.getSlack(t))
+                            .name("proposedStart").value(start != null ? start.toString() : null)
+                            .endObject();
+                }
+                json.endArray().name("criticalPath").beginArray();
+                for (KitchenTask t : schedule.getCriticalPath()) {
+                    json.value(t.getId());
+                }
+                json.endArray().endObject();
+            });
+        });
+
+        // {"taskId": n, "shiftId": n, "cookId": n}: cookId is optional
+        router.post("/api/sheets/current/assignments", (req, res) -> {
+            KitchenTask t = task(current(kitchen), req.bodyInt("taskId"));
+            Shift s = ApiException.requireFound(app.getShiftManager().loadShiftById(req.bodyInt("shiftId")), "Shift");
+            Integer cookId = req.bodyInt("cookId", null);
+            User cook = cookId != null ? ShiftRoutes.loadUser(cookId) : null;
+            Assignment a = kitchen.assignTask(t, s, cook);
+            res.json(201, json -> JsonViews.assignment(json, a));
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package catering.api;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.menu.MenuItem;
+import catering.businesslogic.menu.MenuManager;
+import catering.businesslogic.menu.Section;
+import catering.businesslogic.recipe.Recipe;
+
+/**
+ * Routes of the menus and recipes. Editing works on the current menu of the
+ * session, as in the use cases: create or choose a menu, then change it.
+ */
+final class MenuRoutes {
+
+    private MenuRoutes() {
+    }
+
+    static Menu loadMenu(int id) {
+        Menu m = Menu.load(id);
+        // Menu.load returns an empty menu when the id does not exist
+        if (m.getId() == 0) {
+            throw ApiException.notFound("Menu");
+        }
+        return m;
+    }
+
+    private static Menu current(MenuManager menus) {
+        return ApiException.requireFound(menus.getCurrentMenu(), "Current menu");
+    }
+
+    private static Section section(Menu m, int id) {
+        for (Section s : m.getSections()) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        throw ApiException.notFound("Section");
+    }
+
+    static void register(Router router, CatERing app) {
+        MenuManager menus = app.getMenuManager();
+
+        router.get("/api/recipes", (req, res) -> res.streamList(Recipe.streamAllRecipes(), JsonViews::recipe));
+
+        // {"title": "..."}
+        router.post("/api/menus", (req, res) -> {
+            Menu m = menus.createMenu(req.bodyString("title", null));
+            res.json(201, json -> JsonViews.menu(json, m));
+        });
+
+        router.get("/api/menus/current", (req, res) -> res.json(json -> JsonViews.menu(json, current(menus))));
+
+        router.get("/api/menus/{id}", (req, res) -> {
+            Menu m = loadMenu(req.pathInt("id"));
+            res.json(json -> JsonViews.menu(json, m));
+        });
+
+        router.post("/api/menus/{id}/choose", (req, res) -> {
+            menus.chooseMenu(loadMenu(req.pathInt("id")));
+            res.json(json -> JsonViews.menu(json, current(menus)));
+        });
+
+        // {"title": "..."}
+        router.post("/api/menus/current/title", (req, res) -> {
+            menus.changeTitle(req.bodyString("title"));
+            res.json(json -> JsonViews.menu(json, current(menus)));
+        });
+
+        router.post("/api/menus/current/publish", (req, res) -> {
+            menus.publish();
+            res.json(json -> JsonViews.menu(json, current(menus)));
+        });
+
+        // {"name": "..."}
+        router.post("/api/menus/current/sections", (req, res) -> {
+            menus.defineSection(req.bodyString("name"));
+            res.json(201, json -> JsonViews.menu(json, current(menus)));
+        });
+
+        // {"position": n}
+        router.post("/api/menus/current/sections/{id}/move", (req, res) -> {
+            Menu m = current(menus);
+            menus.moveSection(section(m, req.pathInt("id")), req.bodyInt("position"));
+            res.json(json -> JsonViews.menu(json, m));
+        });
+
+        // {"recipeId": n, "sectionId": n, "description": "..."}: sectionId
+        // and description are optional
+        router.post("/api/menus/current/items", (req, res) -> {
+            Menu m = current(menus);
+            Recipe r = ApiException.requireFound(Recipe.loadRecipe(req.bodyInt("recipeId")), "Recipe");
+            Integer sectionId = req.bodyInt("sectionId", null);
+            Section sec = sectionId != null ? section(m, sectionId) : null;
+            String desc = req.bodyString("description", r.getName());
+            MenuItem mi = menus.insertItem(r, sec, desc);
+            res.json(201, json -> JsonViews.menuItem(json, mi));
+        });
+    }
+}
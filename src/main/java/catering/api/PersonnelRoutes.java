@@ -0,0 +1,137 @@
+package catering.api;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.event.Event;
+import catering.businesslogic.personnel.AvailabilityMatrix;
+import catering.businesslogic.personnel.Collaborator;
+import catering.businesslogic.personnel.LeaveRequest;
+import catering.businesslogic.personnel.PerformanceNote;
+import catering.businesslogic.personnel.PerformanceNotePage;
+import catering.businesslogic.personnel.PerformanceNoteQuery;
+import catering.businesslogic.personnel.PersonnelManager;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.shift.ShiftManager;
+
+/**
+ * Routes of the personnel: collaborators, availabilities, performance notes,
+ * leave requests
+ */
+final class PersonnelRoutes {
+
+    private PersonnelRoutes() {
+    }
+
+    private static Collaborator collaborator(ApiRequest req) {
+        return ApiException.requireFound(Collaborator.loadById(req.pathInt("id")), "Collaborator");
+    }
+
+    private static Shift shift(ShiftManager shifts, int id) {
+        return ApiException.requireFound(shifts.loadShiftById(id), "Shift");
+    }
+
+    static void register(Router router, CatERing app) {
+        PersonnelManager personnel = app.getPersonnelManager();
+        ShiftManager shifts = app.getShiftManager();
+
+        router.get("/api/collaborators",
+                (req, res) -> res.streamList(personnel.getCollaboratorList(), JsonViews::collaborator));
+
+        // ?from=YYYY-MM-DD&to=YYYY-MM-DD, both included
+        router.get("/api/collaborators/available", (req, res) -> {
+            Date from = req.queryDate("from");
+            Date to = req.queryDate("to");
+            if (from == null || to == null) {
+                throw ApiException.badRequest("Both from and to are required");
+            }
+            res.streamList(personnel.getAvailableCollaborators(from, to), JsonViews::collaborator);
+        });
+
+        // ?shifts=1,2,3: collaborators free for every shift
+        router.get("/api/collaborators/free", (req, res) -> {
+            String ids = req.query("shifts");
+            if (ids == null || ids.isBlank()) {
+                throw ApiException.badRequest("shifts is required");
+            }
+            List<Shift> wanted = new ArrayList<>();
+            for (String id : ids.split(",")) {
+                try {
+                    wanted.add(shift(shifts, Integer.parseInt(id.trim())));
+                } catch (NumberFormatException e) {
+                    throw ApiException.badRequest("Invalid shift id: " + id);
+                }
+            }
+            res.streamList(personnel.getFreeCollaborators(wanted), JsonViews::collaborator);
+        });
+
+        // {"shiftId": n, "status": "AVAILABLE"|"CONFIRMED"|"NONE"}
+        router.post("/api/collaborators/{id}/availability", (req, res) -> {
+            Collaborator c = collaborator(req);
+            Shift s = shift(shifts, req.bodyInt("shiftId"));
+            AvailabilityMatrix.Status status = AvailabilityMatrix.Status.valueOf(req.bodyString("status"));
+            personnel.setAvailability(c, s, status);
+            res.json(json -> json.beginObject().name("collaboratorId").value(c.getId())
+                    .name("shiftId").value(s.getId()).name("status").value(status.name()).endObject());
+        });
+
+        // {"name": "...", "contact": "..."}
+        router.post("/api/collaborators", (req, res) -> {
+            Collaborator c = personnel.addCollaborator(req.bodyString("name"), req.bodyString("contact", null));
+            res.json(201, json -> JsonViews.collaborator(json, c));
+        });
+
+        router.get("/api/collaborators/{id}", (req, res) -> {
+            Collaborator c = personnel.getCollaboratorProfile(collaborator(req));
+            res.json(json -> JsonViews.collaborator(json, c));
+        });
+
+        router.get("/api/collaborators/{id}/notes", (req, res) -> res
+                .streamList(personnel.getPerformanceHistory(collaborator(req)), JsonViews::performanceNote));
+
+        // {"eventId": n, "note": "..."}
+        router.post("/api/collaborators/{id}/notes", (req, res) -> {
+            Collaborator c = collaborator(req);
+            Event e = ApiException.requireFound(Event.loadById(req.bodyInt("eventId")), "Event");
+            PerformanceNote n = personnel.logPerformance(c, e, req.bodyString("note"));
+            res.json(201, json -> JsonViews.performanceNote(json, n));
+        });
+
+        // ?q=...[&collaboratorId=n][&eventId=n][&from=YYYY-MM-DD][&to=YYYY-MM-DD][&page=n][&pageSize=n]
+        router.get("/api/notes/search", (req, res) -> {
+            PerformanceNoteQuery search = new PerformanceNoteQuery(req.query("q"))
+                    .between(req.queryDate("from"), req.queryDate("to"));
+            if (req.query("collaboratorId") != null) {
+                search.collaborator(ApiException.requireFound(
+                        Collaborator.loadById(req.queryInt("collaboratorId", 0)), "Collaborator"));
+            }
+            if (req.query("eventId") != null) {
+                search.event(ApiException.requireFound(Event.loadById(req.queryInt("eventId", 0)), "Event"));
+            }
+            PerformanceNotePage page = personnel.searchPerformanceNotes(search, req.queryInt("page", 0),
+                    req.queryInt("pageSize", PersonnelManager.DEFAULT_PAGE_SIZE));
+            res.stream(json -> {
+                json.beginObject().name("notes").beginArray();
+                for (PerformanceNotePage.Hit h : page.getHits()) {
+                    json.beginObject().name("score").value(h.getScore()).name("snippet").value(h.getSnippet())
+                            .name("note");
+                    JsonViews.performanceNote(json, h.getNote());
+                    json.endObject();
+                }
+                json.endArray().name("nextPage").value(page.hasNextPage() ? page.getPage() + 1 : null).endObject();
+            });
+        });
+
+        router.get("/api/collaborators/{id}/leaves",
+                (req, res) -> res.streamList(personnel.getLeaveRequests(collaborator(req)), JsonViews::leaveRequest));
+
+        // {"approved": true|false}
+        router.post("/api/leaves/{id}/evaluation", (req, res) -> {
+            LeaveRequest r = ApiException.requireFound(LeaveRequest.loadById(req.pathInt("id")), "Leave request");
+            personnel.evaluateLeaveRequest(r, req.bodyBoolean("approved"));
+            res.json(json -> JsonViews.leaveRequest(json, r));
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package catering.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps method and path to the handler of an API call. Path patterns are
+ * matched segment by segment; a {name} segment matches any value and is
+ * passed to the handler as a path parameter.
+ */
+public class Router {
+
+    /**
+     * Handles one API call
+     */
+    public interface Handler {
+        void handle(ApiRequest req, ApiResponse res) throws Exception;
+    }
+
+    static class Route {
+        final String method;
+        final String[] segments;
+        final Handler handler;
+        final boolean anonymous;
+
+        Route(String method, String pattern, Handler handler, boolean anonymous) {
+            this.method = method;
+            this.segments = split(pattern);
+            this.handler = handler;
+            this.anonymous = anonymous;
+        }
+
+        Map<String, String> match(String[] path) {
+            if (path.length != segments.length) {
+                return null;
+            }
+            Map<String, String> params = new HashMap<>();
+            for (int i = 0; i < path.length; i++) {
+                String s = segments[i];
+                if (s.startsWith("{") && s.endsWith("}")) {
+                    params.put(s.substring(1, s.length() - 1), path[i]);
+                } else if (!s.equals(path[i])) {
+                    return null;
+                }
+            }
+            return params;
+        }
+    }
+
+    /**
+     * A route matched by a request, with its path parameters
+     */
+    static class Match {
+        final Route route;
+        final Map<String, String> params;
+
+        Match(Route route, Map<String, String> params) {
+            this.route = route;
+            this.params = params;
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+
+    public Router get(String pattern, Handler handler) {
+        return add("GET", pattern, handler, false);
+    }
+
+    public Router post(String pattern, Handler handler) {
+        return add("POST", pattern, handler, false);
+    }
+
+    public Router delete(String pattern, Handler handler) {
+        return add("DELETE", pattern, handler, false);
+    }
+
+    /**
+     * Adds a route that can be called without a session
+     */
+    public Router anonymous(String method, String pattern, Handler handler) {
+        return add(method, pattern, handler, true);
+    }
+
+    private Router add(String method, String pattern, Handler handler, boolean anonymous) {
+        routes.add(new Route(method, pattern, handler, anonymous));
+        return this;
+    }
+
+    /**
+     * Finds the route for a request. Literal segments win over parameters, so
+     * /menus/current is not taken for /menus/{id}.
+     *
+     * @return The match, or null if no route has this path
+     * @throws ApiException 405 if the path exists with another method
+     */
+    Match find(String method, String path) {
+        String[] parts = split(path);
+        Match best = null;
+        int bestLiterals = -1;
+        boolean pathExists = false;
+        for (Route r : routes) {
+            Map<String, String> params = r.match(parts);
+            if (params == null) {
+                continue;
+            }
+            pathExists = true;
+            int literals = r.segments.length - params.size();
+            if (r.method.equals(method) && literals > bestLiterals) {
+                best = new Match(r, params);
+                bestLiterals = literals;
+            }
+        }
+        if (best == null && pathExists) {
+            throw new ApiException(405, "Method " + method + " not allowed on " + path);
+        }
+        return best;
+    }
+
+    private static String[] split(String path) {
+        String p = path.startsWith("/") ? path.substring(1) : path;
+        if (p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p.isEmpty() ? new String[0] : p.split("/");
+    }
+}
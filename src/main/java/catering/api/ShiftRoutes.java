@@ -0,0 +1,153 @@
+package catering.api;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.shift.HolidayCalendar;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.shift.ShiftManager;
+import catering.businesslogic.shift.ShiftTemplate;
+import catering.businesslogic.user.User;
+
+/**
+ * Routes of the shift table and of the bookings
+ */
+final class ShiftRoutes {
+
+    private ShiftRoutes() {
+    }
+
+    static User loadUser(int id) {
+        User u = User.load(id);
+        // User.load returns an empty user when the id does not exist
+        if (u == null || u.getId() == 0) {
+            throw ApiException.notFound("User");
+        }
+        return u;
+    }
+
+    private static Time time(Object value) {
+        String text = String.valueOf(value);
+        return Time.valueOf(text.length() == 5 ? text + ":00" : text);
+    }
+
+    private static ShiftTemplate template(ApiRequest req) throws IOException {
+        Date from = req.bodyDate("from");
+        Date to = req.bodyDate("to");
+        if (from == null || to == null) {
+            throw ApiException.badRequest("Both from and to are required");
+        }
+        ShiftTemplate template = new ShiftTemplate(from, to).capacity(req.bodyInt("capacity", null));
+        Object slots = req.body().get("slots");
+        if (!(slots instanceof List) || ((List<?>) slots).isEmpty()) {
+            throw ApiException.badRequest("Missing field: slots");
+        }
+        for (Object o : (List<?>) slots) {
+            if (!(o instanceof Map)) {
+                throw ApiException.badRequest("Invalid slot: " + o);
+            }
+            Map<?, ?> slot = (Map<?, ?>) o;
+            template.weekly(DayOfWeek.valueOf(String.valueOf(slot.get("day")).toUpperCase()),
+                    time(slot.get("start")), time(slot.get("end")));
+        }
+        Object except = req.body().get("except");
+        if (except instanceof List) {
+            for (Object day : (List<?>) except) {
+                template.except(Date.valueOf(String.valueOf(day)));
+            }
+        }
+        if (Boolean.TRUE.equals(req.body().get("italianHolidays"))) {
+            template.holidays(HolidayCalendar.italian());
+        }
+        return template;
+    }
+
+    static void register(Router router, CatERing app) {
+        ShiftManager shifts = app.getShiftManager();
+
+        // ?date=YYYY-MM-DD restricts the table to one day,
+        // ?from=YYYY-MM-DD&to=YYYY-MM-DD to a range (both included)
+        router.get("/api/shifts", (req, res) -> {
+            Date date = req.queryDate("date");
+            Date from = req.queryDate("from");
+            Date to = req.queryDate("to");
+            List<Shift> table;
+            if (date != null) {
+                table = shifts.getShiftsForDate(date);
+            } else if (from != null && to != null) {
+                table = shifts.getShifts(from, to);
+            } else if (from == null && to == null) {
+                table = shifts.getShiftTable();
+            } else {
+                throw ApiException.badRequest("Both from and to are required");
+            }
+            // Every booking is written: read them in one go
+            shifts.loadBookings(table);
+            res.streamList(table, JsonViews::shift);
+        });
+
+        // {"from": "YYYY-MM-DD", "to": "YYYY-MM-DD",
+        //  "slots": [{"day": "SATURDAY", "start": "HH:MM", "end": "HH:MM"}, ...],
+        //  "capacity": n, "except": ["YYYY-MM-DD", ...], "italianHolidays": true, "preview": n}
+        // With preview the first n shifts are listed and nothing is created
+        router.post("/api/shifts/recurring", (req, res) -> {
+            ShiftTemplate template = template(req);
+            Integer preview = req.bodyInt("preview", null);
+            if (preview != null) {
+                List<Shift> first = shifts.previewShifts(template, preview);
+                res.json(json -> {
+                    json.beginObject().name("count").value(template.count()).name("shifts");
+                    ApiResponse.writeList(json, first, JsonViews::shift);
+                    json.endObject();
+                });
+                return;
+            }
+            List<Shift> created = shifts.createShifts(template);
+            res.json(201, json -> {
+                json.beginObject().name("created").value(created.size()).name("shifts");
+                ApiResponse.writeList(json, created, JsonViews::shift);
+                json.endObject();
+            });
+        });
+
+        router.get("/api/shifts/{id}", (req, res) -> {
+            Shift s = ApiException.requireFound(shifts.loadShiftById(req.pathInt("id")), "Shift");
+            res.json(json -> JsonViews.shift(json, s));
+        });
+
+        // {"userId": n}: without userId the logged in user is booked
+        router.post("/api/shifts/{id}/bookings", (req, res) -> {
+            Shift s = ApiException.requireFound(shifts.loadShiftById(req.pathInt("id")), "Shift");
+            Integer userId = req.bodyInt("userId", null);
+            User u = userId != null ? loadUser(userId)
+                    : app.getUserManager().getCurrentUser();
+            switch (shifts.bookUserForShift(s, u)) {
+            case BOOKED:
+                break;
+            case ALREADY_BOOKED:
+                throw new ApiException(409, u.getUserName() + " is already booked for shift " + s.getId());
+            case FULL:
+                throw new ApiException(409, "Shift " + s.getId() + " is full");
+            case NOT_FOUND:
+                throw ApiException.notFound("Shift");
+            default:
+                throw new ApiException(500, "Cannot book shift " + s.getId());
+            }
+            res.json(201, json -> JsonViews.shift(json, s));
+        });
+
+        router.delete("/api/shifts/{id}/bookings/{userId}", (req, res) -> {
+            Shift s = ApiException.requireFound(shifts.loadShiftById(req.pathInt("id")), "Shift");
+            User u = loadUser(req.pathInt("userId"));
+            if (shifts.removeUserFromShift(s, u) == null) {
+                throw ApiException.notFound("Booking");
+            }
+            res.noContent();
+        });
+    }
+}
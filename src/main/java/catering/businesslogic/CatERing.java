@@ -9,16 +9,44 @@ import catering.businesslogic.shift.ShiftManager;
 import catering.businesslogic.user.UserManager;
 import catering.persistence.KitchenTaskPersistence;
 import catering.persistence.MenuPersistence;
+import catering.persistence.PersistenceWriter;
 import catering.persistence.PersonnelPersistence;
-
+import catering.persistence.WriteBehindWriter;
+
+/**
+ * Entry point of the business logic: holds the use case managers and wires
+ * them to their persistence receivers.
+ *
+ * The managers are shared by every user; the state of each user (logged in
+ * user, current menu, event, summary sheet...) lives in their Session.
+ *
+ * With -Dcatering.persistence.write-behind=true the receivers write through a
+ * WriteBehindWriter: see getPersistenceWriter() to flush it.
+ */
 public class CatERing {
-    private static CatERing singleInstance;
+    private static volatile CatERing singleInstance;
 
     public static CatERing getInstance() {
-        if (singleInstance == null) {
-            singleInstance = new CatERing();
+        CatERing app = singleInstance;
+        if (app == null) {
+            synchronized (CatERing.class) {
+                app = singleInstance;
+                if (app == null) {
+                    app = new CatERing();
+                    singleInstance = app;
+                }
+            }
         }
-        return singleInstance;
+        return app;
+    }
+
+    /**
+     * Creates a session for a new user of the application
+     *
+     * @return The session, to be bound around the calls made for that user
+     */
+    public Session openSession() {
+        return new Session();
     }
 
     private MenuManager menuMgr;
@@ -29,6 +57,7 @@ public class CatERing {
     private ShiftManager shiftMgr;
     private PersonnelManager personnelMgr;
 
+    private PersistenceWriter persistenceWriter;
     private MenuPersistence menuPersistence;
     private KitchenTaskPersistence kitchenTaskPersistence;
     private PersonnelPersistence personnelPersistence;
@@ -42,9 +71,10 @@ public class CatERing {
         shiftMgr = new ShiftManager();
         personnelMgr = new PersonnelManager();
 
-        menuPersistence = new MenuPersistence();
-        kitchenTaskPersistence = new KitchenTaskPersistence();
-        personnelPersistence = new PersonnelPersistence();
+        persistenceWriter = WriteBehindWriter.fromSystemProperties();
+        menuPersistence = new MenuPersistence(persistenceWriter);
+        kitchenTaskPersistence = new KitchenTaskPersistence(persistenceWriter);
+        personnelPersistence = new PersonnelPersistence(persistenceWriter);
 
         menuMgr.addEventReceiver(menuPersistence);
         kitchenTaskMgr.addEventReceiver(kitchenTaskPersistence);
@@ -132,4 +162,12 @@ public class CatERing {
         return personnelMgr;
     }
 
+    /**
+     * @return The writer used by the persistence receivers; flush() waits for
+     *         the changes notified so far to be in the database
+     */
+    public PersistenceWriter getPersistenceWriter() {
+        return persistenceWriter;
+    }
+
 }
@@ -0,0 +1,166 @@
+package catering.businesslogic;
+
+import java.util.UUID;
+
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.Service;
+import catering.businesslogic.kitchen.SummarySheet;
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.personnel.Collaborator;
+import catering.businesslogic.user.User;
+
+/**
+ * Working state of one user of the application: who is logged in and which
+ * menu, event, service, summary sheet and collaborator they are working on.
+ *
+ * The managers are shared by every session and keep no per-user state: they
+ * read it from the session bound to the calling thread. Threads without a
+ * bound session use the default one, so a single-user program (CatERing.main,
+ * the tests) works without ever creating a session.
+ *
+ * A session is meant to be used by one thread at a time, but it may move
+ * from thread to thread between requests; its fields are volatile so each
+ * request sees the state left by the previous one.
+ */
+public class Session {
+
+    private static final Session DEFAULT = new Session();
+
+    private static final ThreadLocal<Session> bound = new ThreadLocal<>();
+
+    /**
+     * Restores the previously bound session when closed
+     */
+    public static class Binding implements AutoCloseable {
+        private final Session previous;
+
+        private Binding(Session previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                bound.remove();
+            } else {
+                bound.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return The session bound to the current thread, or the default session
+     */
+    public static Session current() {
+        Session s = bound.get();
+        return s != null ? s : DEFAULT;
+    }
+
+    /**
+     * @return The session used by threads that have none bound
+     */
+    public static Session getDefault() {
+        return DEFAULT;
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final long createdAt = System.currentTimeMillis();
+
+    private volatile User user;
+    private volatile Menu currentMenu;
+    private volatile Event selectedEvent;
+    private volatile Service currentService;
+    private volatile SummarySheet currentSumSheet;
+    private volatile Collaborator currentCollaborator;
+
+    /**
+     * Binds this session to the current thread until the returned binding is
+     * closed:
+     *
+     * <pre>
+     * try (Session.Binding b = session.bind()) {
+     *     CatERing.getInstance().getMenuManager().createMenu("Estate");
+     * }
+     * </pre>
+     *
+     * @return The binding to close
+     */
+    public Binding bind() {
+        Binding b = new Binding(bound.get());
+        bound.set(this);
+        return b;
+    }
+
+    /**
+     * Forgets the user and everything they were working on
+     */
+    public void clear() {
+        user = null;
+        currentMenu = null;
+        selectedEvent = null;
+        currentService = null;
+        currentSumSheet = null;
+        currentCollaborator = null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Menu getCurrentMenu() {
+        return currentMenu;
+    }
+
+    public void setCurrentMenu(Menu currentMenu) {
+        this.currentMenu = currentMenu;
+    }
+
+    public Event getSelectedEvent() {
+        return selectedEvent;
+    }
+
+    public void setSelectedEvent(Event selectedEvent) {
+        this.selectedEvent = selectedEvent;
+    }
+
+    public Service getCurrentService() {
+        return currentService;
+    }
+
+    public void setCurrentService(Service currentService) {
+        this.currentService = currentService;
+    }
+
+    public SummarySheet getCurrentSumSheet() {
+        return currentSumSheet;
+    }
+
+    public void setCurrentSumSheet(SummarySheet currentSumSheet) {
+        this.currentSumSheet = currentSumSheet;
+    }
+
+    public Collaborator getCurrentCollaborator() {
+        return currentCollaborator;
+    }
+
+    public void setCurrentCollaborator(Collaborator currentCollaborator) {
+        this.currentCollaborator = currentCollaborator;
+    }
+
+    @Override
+    public String toString() {
+        return "Session{id=" + id + ", user=" + (user != null ? user.getUserName() : "none") + "}";
+    }
+}
@@ -4,7 +4,11 @@ import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import catering.businesslogic.user.User;
 import catering.persistence.PersistenceManager;
@@ -119,10 +123,7 @@ public class Event {
         Long startTimestamp = (dateStart != null) ? dateStart.getTime() : null;
         Long endTimestamp = (dateEnd != null) ? dateEnd.getTime() : null;
 
-        PersistenceManager.executeUpdate(query, name, startTimestamp, endTimestamp, getChefId());
-
-        // Get the ID of the newly inserted event
-        id = PersistenceManager.getLastId();
+        id = PersistenceManager.executeInsert(query, name, startTimestamp, endTimestamp, getChefId());
 
         LOGGER.info("Saved event: " + name + " (ID: " + id + ")");
     }
@@ -139,15 +140,22 @@ public class Event {
     }
 
     public boolean deleteEvent() {
-        // Delete all services first
-        for (Service service : services) {
-            service.deleteService();
-        }
-        services.clear();
+        int[] rows = new int[1];
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            // Delete all services first
+            for (Service service : services) {
+                service.deleteService();
+            }
 
-        // Delete the event
-        String query = "DELETE FROM Events WHERE id = ?";
-        boolean success = PersistenceManager.executeUpdate(query, id) > 0;
+            // Delete the event
+            String query = "DELETE FROM Events WHERE id = ?";
+            rows[0] = PersistenceManager.executeUpdate(query, id);
+        });
+
+        boolean success = committed && rows[0] > 0;
+        if (committed) {
+            services.clear();
+        }
 
         if (success) {
             LOGGER.info("Deleted event: " + name + " (ID: " + id + ")");
@@ -158,8 +166,62 @@ public class Event {
 
     // Static load methods
     public static ArrayList<Event> loadAllEvents() {
+        try (Stream<Event> all = streamAllEvents()) {
+            return all.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Streams all events with their chef and services, most recent first.
+     * Events are read from the database as the stream is consumed, so an
+     * export of the whole history runs in constant memory; the stream must be
+     * closed.
+     *
+     * @return Stream of all events
+     */
+    public static Stream<Event> streamAllEvents() {
+        return PersistenceManager.stream("SELECT * FROM Events ORDER BY date_start DESC", rs -> {
+            Event e = new Event();
+            e.id = rs.getInt("id");
+            e.name = rs.getString("name");
+            e.dateStart = DateUtils.getDateFromResultSet(rs, "date_start");
+            e.dateEnd = DateUtils.getDateFromResultSet(rs, "date_end");
+            e.chef = User.load(rs.getInt("chef_id"));
+            e.services = Service.loadServicesForEvent(e.id);
+            return e;
+        });
+    }
+
+    /**
+     * Loads one page of the events starting in [from, to), ordered by start
+     * date and id. Chefs and services of the whole page are loaded with
+     * batched queries, instead of a few queries per event.
+     *
+     * @param from      First start date included
+     * @param to        First start date excluded
+     * @param pageToken Token of the previous page, or null for the first page
+     * @param pageSize  Maximum number of events in the page
+     * @return The page of events
+     * @throws IllegalArgumentException If the page token is malformed
+     */
+    public static EventPage loadEvents(Date from, Date to, String pageToken, int pageSize) {
+        long afterDate = Long.MIN_VALUE;
+        long afterId = 0;
+        if (pageToken != null) {
+            long[] cursor = EventPage.decodeToken(pageToken);
+            afterDate = cursor[0];
+            afterId = cursor[1];
+        }
+
+        // Keyset pagination: seek past the last row of the previous page on
+        // the (date_start, id) index instead of skipping rows with OFFSET
+        String query = "SELECT * FROM Events WHERE date_start >= ? AND date_start < ? "
+                + "AND (date_start > ? OR (date_start = ? AND id > ?)) "
+                + "ORDER BY date_start, id LIMIT ?";
+
         ArrayList<Event> events = new ArrayList<>();
-        String query = "SELECT * FROM Events ORDER BY date_start DESC";
+        ArrayList<Long> rawStarts = new ArrayList<>();
+        ArrayList<Integer> chefOf = new ArrayList<>();
 
         PersistenceManager.executeQuery(query, new ResultHandler() {
             @Override
@@ -169,17 +231,36 @@ public class Event {
                 e.name = rs.getString("name");
                 e.dateStart = DateUtils.getDateFromResultSet(rs, "date_start");
                 e.dateEnd = DateUtils.getDateFromResultSet(rs, "date_end");
-                e.chef = User.load(rs.getInt("chef_id"));
+                rawStarts.add(rs.getLong("date_start"));
+                chefOf.add(rs.getInt("chef_id"));
                 events.add(e);
             }
-        });
+        }, from.getTime(), to.getTime(), afterDate, afterDate, afterId, pageSize + 1);
 
-        // Load services for each event
+        // The extra row only tells whether another page follows
+        String nextPageToken = null;
+        if (events.size() > pageSize) {
+            events.remove(pageSize);
+            nextPageToken = EventPage.encodeToken(rawStarts.get(pageSize - 1), events.get(pageSize - 1).id);
+        }
+
+        Map<Integer, User> chefs = User.loadUsers(new LinkedHashSet<>(chefOf));
+        ArrayList<Integer> eventIds = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            Event e = events.get(i);
+            e.chef = chefs.get(chefOf.get(i));
+            eventIds.add(e.id);
+        }
+
+        Map<Integer, ArrayList<Service>> services = Service.loadServicesForEvents(eventIds);
         for (Event e : events) {
-            e.services = Service.loadServicesForEvent(e.id);
+            ArrayList<Service> list = services.get(e.id);
+            if (list != null) {
+                e.services = list;
+            }
         }
 
-        return events;
+        return new EventPage(events, nextPageToken);
     }
 
     public static Event loadById(int id) {
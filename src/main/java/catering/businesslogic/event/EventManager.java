@@ -3,9 +3,12 @@ package catering.businesslogic.event;
 import java.sql.Date;
 import java.sql.Time;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import catering.businesslogic.Session;
 import catering.businesslogic.UseCaseLogicException;
 import catering.businesslogic.menu.Menu;
 import catering.businesslogic.user.User;
@@ -21,15 +24,16 @@ public class EventManager {
 
     private static final Logger LOGGER = LogManager.getLogger(EventManager.class);
 
-    private ArrayList<EventReceiver> eventReceivers;
-    private Event selectedEvent;
-    private Service currentService;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Shared by every session: receivers may be added while others notify
+    private List<EventReceiver> eventReceivers;
 
     /**
      * Constructor initializes the event receivers list
      */
     public EventManager() {
-        eventReceivers = new ArrayList<>();
+        eventReceivers = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -61,21 +65,68 @@ public class EventManager {
         return Event.loadAllEvents();
     }
 
+    /**
+     * Gets one page of the events starting in the given date range, with
+     * DEFAULT_PAGE_SIZE events per page
+     *
+     * @param from      First start date included
+     * @param to        First start date excluded
+     * @param pageToken Token returned with the previous page, or null for the
+     *                  first page
+     * @return The page of events, ordered by start date
+     * @throws UseCaseLogicException if the range or the page token is invalid
+     */
+    public EventPage getEvents(Date from, Date to, String pageToken) throws UseCaseLogicException {
+        return getEvents(from, to, pageToken, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Gets one page of the events starting in the given date range
+     *
+     * @param from      First start date included
+     * @param to        First start date excluded
+     * @param pageToken Token returned with the previous page, or null for the
+     *                  first page
+     * @param pageSize  Maximum number of events in the page
+     * @return The page of events, ordered by start date
+     * @throws UseCaseLogicException if the range, the page size or the page
+     *                               token is invalid
+     */
+    public EventPage getEvents(Date from, Date to, String pageToken, int pageSize) throws UseCaseLogicException {
+        if (from == null || to == null || from.after(to)) {
+            String msg = "Cannot list events: invalid date range " + from + " - " + to;
+            LOGGER.warning(msg);
+            throw new UseCaseLogicException(msg);
+        }
+        if (pageSize <= 0) {
+            String msg = "Cannot list events: invalid page size " + pageSize;
+            LOGGER.warning(msg);
+            throw new UseCaseLogicException(msg);
+        }
+
+        try {
+            return Event.loadEvents(from, to, pageToken, pageSize);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Cannot list events: " + e.getMessage());
+            throw new UseCaseLogicException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Sets the current service based on service ID
      * 
      * @param serviceId ID of the service to select
      */
     public void setSelectedServiceIndex(int serviceId) {
-        if (selectedEvent != null && selectedEvent.getServices() != null) {
-            for (Service si : selectedEvent.getServices()) {
+        if (getSelectedEvent() != null && getSelectedEvent().getServices() != null) {
+            for (Service si : getSelectedEvent().getServices()) {
                 if (si.getId() == serviceId) {
-                    currentService = si;
+                    setCurrentService(si);
                     return;
                 }
             }
         }
-        // If service not found, currentService remains unchanged
+        // If service not found, the current service remains unchanged
     }
 
     /**
@@ -84,7 +135,7 @@ public class EventManager {
      * @param service Service to set as current
      */
     public void setCurrentService(Service service) {
-        this.currentService = service;
+        Session.current().setCurrentService(service);
     }
 
     /**
@@ -93,7 +144,7 @@ public class EventManager {
      * @return Current service or null if none selected
      */
     public Service getCurrentService() {
-        return this.currentService;
+        return Session.current().getCurrentService();
     }
 
     /**
@@ -102,7 +153,7 @@ public class EventManager {
      * @return Selected event or null if none selected
      */
     public Event getSelectedEvent() {
-        return selectedEvent;
+        return Session.current().getSelectedEvent();
     }
 
     /**
@@ -111,7 +162,7 @@ public class EventManager {
      * @param event Event to select
      */
     public void setSelectedEvent(Event event) {
-        this.selectedEvent = event;
+        Session.current().setSelectedEvent(event);
     }
 
     /**
@@ -137,8 +188,8 @@ public class EventManager {
             event.saveNewEvent();
 
             // Set as selected event
-            this.selectedEvent = event;
-            this.currentService = null;
+            setSelectedEvent(event);
+            setCurrentService(null);
 
             // Notify all receivers
             notifyEventCreated(event);
@@ -152,20 +203,20 @@ public class EventManager {
 
     public void selectEvent(Event event) {
         LOGGER.info("Selecting event '" + event.getName() + "' (ID: " + event.getId() + ")");
-        this.selectedEvent = event;
-        this.currentService = null;
+        setSelectedEvent(event);
+        setCurrentService(null);
     }
 
     public Service createService(String name, Date date, Time timeStart, Time timeEnd, String location)
             throws UseCaseLogicException {
-        if (selectedEvent == null) {
+        if (getSelectedEvent() == null) {
             String msg = "Cannot create service: no event selected";
             LOGGER.warning(msg);
             throw new UseCaseLogicException(msg);
         }
 
         try {
-            LOGGER.info("Creating new service '" + name + "' for event '" + selectedEvent.getName() + "'");
+            LOGGER.info("Creating new service '" + name + "' for event '" + getSelectedEvent().getName() + "'");
 
             Service service = new Service();
             service.setName(name);
@@ -173,14 +224,14 @@ public class EventManager {
             service.setTimeStart(timeStart);
             service.setTimeEnd(timeEnd);
             service.setLocation(location);
-            service.setEventId(selectedEvent.getId());
+            service.setEventId(getSelectedEvent().getId());
 
             // Save to database
             service.saveNewService();
 
             // Add to event and set as current service
-            selectedEvent.addService(service);
-            this.currentService = service;
+            getSelectedEvent().addService(service);
+            setCurrentService(service);
 
             // Notify all receivers
             notifyServiceCreated(service);
@@ -209,8 +260,8 @@ public class EventManager {
             notifyEventModified(event);
 
             // Update selected event if it's the same one
-            if (selectedEvent != null && selectedEvent.getId() == eventId) {
-                this.selectedEvent = event;
+            if (getSelectedEvent() != null && getSelectedEvent().getId() == eventId) {
+                setSelectedEvent(event);
             }
         }
     }
@@ -238,7 +289,8 @@ public class EventManager {
             // Handle menu assignment if needed
             if (menuId > 0 && (service.getMenuId() == 0 || service.getMenuId() != menuId)) {
                 try {
-                    Menu menu = Menu.load(menuId);
+                    // Same batched loader as the event pages: a fixed number of queries
+                    Menu menu = Menu.loadMenus(List.of(menuId)).get(menuId);
                     if (menu != null) {
                         service.setMenu(menu);
                     }
@@ -251,8 +303,8 @@ public class EventManager {
             notifyServiceModified(service);
 
             // Update current service reference if this is the current service
-            if (currentService != null && currentService.getId() == serviceId) {
-                currentService = service;
+            if (getCurrentService() != null && getCurrentService().getId() == serviceId) {
+                setCurrentService(service);
             }
         }
 
@@ -267,7 +319,7 @@ public class EventManager {
      */
     public boolean deleteService(int serviceId) {
         try {
-            if (selectedEvent == null) {
+            if (getSelectedEvent() == null) {
                 LOGGER.warning("Cannot delete service: no event selected");
                 return false;
             }
@@ -288,11 +340,11 @@ public class EventManager {
                 return false;
             }
 
-            selectedEvent.removeService(serviceToDelete);
+            getSelectedEvent().removeService(serviceToDelete);
 
             // Clear current service if it was the one deleted
-            if (currentService != null && currentService.getId() == serviceId) {
-                currentService = null;
+            if (getCurrentService() != null && getCurrentService().getId() == serviceId) {
+                setCurrentService(null);
             }
 
             // Notify all receivers
@@ -330,9 +382,9 @@ public class EventManager {
             }
 
             // Clear references if this was the selected event
-            if (selectedEvent != null && selectedEvent.getId() == eventId) {
-                selectedEvent = null;
-                currentService = null;
+            if (getSelectedEvent() != null && getSelectedEvent().getId() == eventId) {
+                setSelectedEvent(null);
+                setCurrentService(null);
             }
 
             // Notify all receivers
@@ -352,24 +404,24 @@ public class EventManager {
      * @throws UseCaseLogicException if no event or service is selected
      */
     public void assignMenu(Menu menu) throws UseCaseLogicException {
-        if (selectedEvent == null) {
+        if (getSelectedEvent() == null) {
             String msg = "Cannot assign menu: no event selected";
             LOGGER.warning(msg);
             throw new UseCaseLogicException(msg);
         }
 
-        if (currentService == null) {
+        if (getCurrentService() == null) {
             String msg = "Cannot assign menu: no service selected";
             LOGGER.warning(msg);
             throw new UseCaseLogicException(msg);
         }
 
-        LOGGER.info("Assigning menu '" + menu.getTitle() + "' to service '" + currentService.getName() + "'");
+        LOGGER.info("Assigning menu '" + menu.getTitle() + "' to service '" + getCurrentService().getName() + "'");
 
-        currentService.assignMenuToService(menu);
+        getCurrentService().assignMenuToService(menu);
 
         // Notify all receivers
-        notifyMenuAssigned(currentService, menu);
+        notifyMenuAssigned(getCurrentService(), menu);
     }
 
     /**
@@ -378,14 +430,14 @@ public class EventManager {
      * @return true if removed successfully, false if no service selected
      */
     public boolean removeMenu() {
-        if (currentService == null) {
+        if (getCurrentService() == null) {
             return false;
         }
 
-        currentService.removeMenu();
+        getCurrentService().removeMenu();
 
         // Notify all receivers
-        notifyMenuRemoved(currentService);
+        notifyMenuRemoved(getCurrentService());
 
         return true;
     }
@@ -394,11 +446,11 @@ public class EventManager {
      * Helper method to find a service by ID within the selected event
      */
     private Service findServiceById(int serviceId) {
-        if (selectedEvent == null || selectedEvent.getServices() == null) {
+        if (getSelectedEvent() == null || getSelectedEvent().getServices() == null) {
             return null;
         }
 
-        for (Service s : selectedEvent.getServices()) {
+        for (Service s : getSelectedEvent().getServices()) {
             if (s.getId() == serviceId) {
                 return s;
             }
@@ -429,7 +481,7 @@ public class EventManager {
 
     private void notifyServiceCreated(Service service) {
         for (EventReceiver receiver : eventReceivers) {
-            receiver.updateServiceCreated(selectedEvent, service);
+            receiver.updateServiceCreated(getSelectedEvent(), service);
         }
     }
 
@@ -0,0 +1,67 @@
+package catering.businesslogic.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of events in a date range, ordered by start date and id.
+ *
+ * The next page token is an opaque cursor on the last event of the page
+ * (its start date and id): the next page starts right after it, so pages stay
+ * consistent when events are added or removed before the cursor.
+ */
+public class EventPage {
+
+    private final List<Event> events;
+    private final String nextPageToken;
+
+    EventPage(ArrayList<Event> events, String nextPageToken) {
+        this.events = Collections.unmodifiableList(events);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return Token to pass to get the next page, or null if this is the last
+     *         page
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+
+    static String encodeToken(long dateStart, int id) {
+        return dateStart + ":" + id;
+    }
+
+    /**
+     * Decodes a page token
+     *
+     * @param token The token returned with the previous page
+     * @return {date_start, id} of the last event of the previous page
+     * @throws IllegalArgumentException If the token is malformed
+     */
+    static long[] decodeToken(String token) {
+        int sep = token.indexOf(':');
+        if (sep <= 0) {
+            throw new IllegalArgumentException("Invalid page token: " + token);
+        }
+        try {
+            return new long[] { Long.parseLong(token.substring(0, sep)), Integer.parseInt(token.substring(sep + 1)) };
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid page token: " + token, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventPage [events=" + events.size() + ", nextPageToken=" + nextPageToken + "]";
+    }
+}
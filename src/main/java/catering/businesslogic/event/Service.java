@@ -125,29 +125,26 @@ public class Service {
     public void saveNewService() {
         String query = "INSERT INTO Services (event_id, name, service_date, time_start, time_end, location) VALUES (?, ?, ?, ?, ?, ?)";
 
-        // Convert date to timestamp for storage
-        Long dateTimestamp = (this.getDate() != null) ? this.getDate().getTime() : null;
+        // Stored as 'YYYY-MM-DD', the format read back by fromRow
+        String dateText = (this.getDate() != null) ? this.getDate().toString() : null;
 
-        PersistenceManager.executeUpdate(query,
+        this.setId(PersistenceManager.executeInsert(query,
                 this.getEventId(),
                 this.getName(),
-                dateTimestamp,
+                dateText,
                 this.getTimeStart(),
                 this.getTimeEnd(),
-                this.getLocation());
-
-        // Get the ID of the newly inserted service
-        this.setId(PersistenceManager.getLastId());
+                this.getLocation()));
     }
 
     public void updateService() {
         String query = "UPDATE Services SET name = ?, service_date = ?, time_start = ?, time_end = ?, location = ? WHERE id = ?";
 
-        Long dateTimestamp = (this.getDate() != null) ? this.getDate().getTime() : null;
+        String dateText = (this.getDate() != null) ? this.getDate().toString() : null;
 
         PersistenceManager.executeUpdate(query,
                 this.getName(),
-                dateTimestamp,
+                dateText,
                 this.getTimeStart(),
                 this.getTimeEnd(),
                 this.getLocation(),
@@ -227,30 +224,7 @@ public class Service {
             public void handle(ResultSet rs) throws SQLException {
                 serviceFound[0] = true;
 
-                Service s = new Service();
-                s.id = rs.getInt("id");
-                s.name = rs.getString("name");
-
-                try {
-                    String dateStr = rs.getString("service_date");
-                    String startTimeStr = rs.getString("time_start");
-                    String endTimeStr = rs.getString("time_end");
-
-                    if (dateStr != null && !dateStr.isEmpty()) {
-                        s.date = Date.valueOf(dateStr);
-                    }
-                    if (startTimeStr != null && !startTimeStr.isEmpty()) {
-                        s.timeStart = Time.valueOf(startTimeStr);
-                    }
-                    if (endTimeStr != null && !endTimeStr.isEmpty()) {
-                        s.timeEnd = Time.valueOf(endTimeStr);
-                    }
-                } catch (IllegalArgumentException ex) {
-                    LOGGER.warning("Error parsing date/time in service: " + s.name);
-                }
-
-                s.location = rs.getString("location");
-                s.eventId = rs.getInt("event_id");
+                Service s = fromRow(rs);
 
                 int menuId = rs.getInt("approved_menu_id");
                 if (menuId > 0) {
@@ -268,6 +242,110 @@ public class Service {
         return serviceFound[0] ? serviceHolder[0] : null;
     }
 
+    /**
+     * Loads a set of services with a single IN query. Their approved menus
+     * are loaded together by Menu.loadMenus, and shared by the services that
+     * use them.
+     *
+     * @param ids The service IDs
+     * @return Map from ID to service; IDs not found are missing
+     */
+    public static Map<Integer, Service> loadServices(Collection<Integer> ids) {
+        Map<Integer, Service> services = new HashMap<>();
+        Map<Integer, Integer> menuIds = new HashMap<>();
+
+        PersistenceManager.executeQueryIn("SELECT * FROM Services WHERE id IN (%s)", ids, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Service s = fromRow(rs);
+                services.put(s.id, s);
+                int menuId = rs.getInt("approved_menu_id");
+                if (menuId > 0) {
+                    menuIds.put(s.id, menuId);
+                }
+            }
+        });
+
+        loadMenus(menuIds, services);
+        return services;
+    }
+
+    /**
+     * Loads the services of a set of events with a single IN query. Their
+     * approved menus are loaded together by Menu.loadMenus, and shared by the
+     * services that use them.
+     *
+     * @param eventIds The event IDs
+     * @return Map from event ID to its services, ordered by date and start
+     *         time; events without services are missing
+     */
+    public static Map<Integer, ArrayList<Service>> loadServicesForEvents(Collection<Integer> eventIds) {
+        Map<Integer, ArrayList<Service>> byEvent = new HashMap<>();
+        Map<Integer, Service> services = new HashMap<>();
+        Map<Integer, Integer> menuIds = new HashMap<>();
+
+        PersistenceManager.executeQueryIn(
+                "SELECT * FROM Services WHERE event_id IN (%s) ORDER BY service_date, time_start, id", eventIds,
+                new ResultHandler() {
+                    @Override
+                    public void handle(ResultSet rs) throws SQLException {
+                        Service s = fromRow(rs);
+                        services.put(s.id, s);
+                        byEvent.computeIfAbsent(s.eventId, k -> new ArrayList<>()).add(s);
+                        int menuId = rs.getInt("approved_menu_id");
+                        if (menuId > 0) {
+                            menuIds.put(s.id, menuId);
+                        }
+                    }
+                });
+
+        loadMenus(menuIds, services);
+        return byEvent;
+    }
+
+    // Loads the distinct menus with one batched load and assigns them to the
+    // services using them
+    private static void loadMenus(Map<Integer, Integer> menuIds, Map<Integer, Service> services) {
+        Map<Integer, Menu> menus = Menu.loadMenus(menuIds.values());
+        for (Map.Entry<Integer, Integer> e : menuIds.entrySet()) {
+            Service s = services.get(e.getKey());
+            int menuId = e.getValue();
+            s.menu = menus.get(menuId);
+            if (s.menu == null) {
+                LOGGER.warning("Failed to load menu (id: " + menuId + ") for service: " + s.name);
+            }
+        }
+    }
+
+    // Builds a service from a row of Services, without its menu
+    private static Service fromRow(ResultSet rs) throws SQLException {
+        Service s = new Service();
+        s.id = rs.getInt("id");
+        s.name = rs.getString("name");
+
+        try {
+            String dateStr = rs.getString("service_date");
+            String startTimeStr = rs.getString("time_start");
+            String endTimeStr = rs.getString("time_end");
+
+            if (dateStr != null && !dateStr.isEmpty()) {
+                s.date = Date.valueOf(dateStr);
+            }
+            if (startTimeStr != null && !startTimeStr.isEmpty()) {
+                s.timeStart = Time.valueOf(startTimeStr);
+            }
+            if (endTimeStr != null && !endTimeStr.isEmpty()) {
+                s.timeEnd = Time.valueOf(endTimeStr);
+            }
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warning("Error parsing date/time in service: " + s.name);
+        }
+
+        s.location = rs.getString("location");
+        s.eventId = rs.getInt("event_id");
+        return s;
+    }
+
     @Override
     public String toString() {
         return "Service [id=" + id + ", name=" + name + ", date=" + date + ", location=" + location +
@@ -4,6 +4,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import catering.businesslogic.shift.Shift;
 import catering.businesslogic.user.User;
@@ -113,17 +116,78 @@ public class Assignment {
         return assignments;
     }
 
+    /**
+     * Loads the assignments of a set of summary sheets with one IN query,
+     * plus one batch for their shifts and one for their cooks. Tasks are
+     * taken from the already loaded task lists so that each assignment
+     * refers to the same instance as its summary sheet.
+     * 
+     * @param sumSheetIds The summary sheet IDs
+     * @param tasksById   Tasks of those summary sheets, by ID
+     * @return Map from summary sheet ID to its assignments
+     */
+    static Map<Integer, ArrayList<Assignment>> loadAssignmentsBySumSheetIds(Collection<Integer> sumSheetIds,
+            Map<Integer, KitchenTask> tasksById) {
+        String query = "SELECT * FROM Assignment WHERE sumsheet_id IN (%s)";
+        Map<Integer, ArrayList<Assignment>> assignments = new HashMap<>();
+        ArrayList<Assignment> loaded = new ArrayList<>();
+        ArrayList<int[]> refs = new ArrayList<>(); // shift, task, cook
+
+        PersistenceManager.executeQueryIn(query, sumSheetIds, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Assignment a = new Assignment();
+                a.id = rs.getInt("id");
+
+                loaded.add(a);
+                refs.add(new int[] { rs.getInt("shift_id"), rs.getInt("task_id"), rs.getInt("cook_id") });
+                assignments.computeIfAbsent(rs.getInt("sumsheet_id"), k -> new ArrayList<>()).add(a);
+            }
+        });
+
+        ArrayList<Integer> shiftIds = new ArrayList<>();
+        ArrayList<Integer> cookIds = new ArrayList<>();
+        for (int[] r : refs) {
+            shiftIds.add(r[0]);
+            cookIds.add(r[2]);
+        }
+        Map<Integer, Shift> shifts = Shift.loadShifts(shiftIds);
+        Map<Integer, User> cooks = User.loadUsers(cookIds);
+
+        for (int i = 0; i < loaded.size(); i++) {
+            Assignment a = loaded.get(i);
+            int[] r = refs.get(i);
+            a.shift = shifts.get(r[0]);
+            a.task = tasksById.get(r[1]);
+            if (a.task == null) {
+                // Task of another summary sheet: should not happen, load it on its own
+                a.task = KitchenTask.loadTaskById(r[1]);
+            }
+            a.cook = cooks.get(r[2]);
+        }
+
+        return assignments;
+    }
+
     /**
      * Updates an existing assignment in the database
      * 
      * @param a The assignment to update
      */
     public static void updateAssignment(Assignment a) {
+        updateAssignment(a.id, a.shift.getId(), (a.cook == null ? 0 : a.cook.getId()));
+    }
+
+    /**
+     * Updates an existing assignment from values read when it changed
+     * 
+     * @param id      The assignment ID
+     * @param shiftId The ID of its shift
+     * @param cookId  The ID of its cook, 0 if none
+     */
+    public static void updateAssignment(int id, int shiftId, int cookId) {
         String upd = "UPDATE Assignment SET shift_id = ?, cook_id = ? WHERE id = ?";
-        PersistenceManager.executeUpdate(upd,
-                a.shift.getId(),
-                (a.cook == null ? 0 : a.cook.getId()),
-                a.id);
+        PersistenceManager.executeUpdate(upd, shiftId, cookId, id);
     }
 
     /**
@@ -170,12 +234,11 @@ public class Assignment {
      */
     public static void saveNewAssignment(int id, Assignment a) {
         String query = "INSERT INTO Assignment (sumsheet_id, shift_id, task_id, cook_id) VALUES (?, ?, ?, ?)";
-        PersistenceManager.executeUpdate(query,
+        a.id = PersistenceManager.executeInsert(query,
                 id,
                 a.shift.getId(),
                 a.task.getId(),
                 (a.cook == null ? 0 : a.cook.getId()));
-        a.id = PersistenceManager.getLastId();
 
     }
 
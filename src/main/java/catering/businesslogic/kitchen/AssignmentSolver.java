@@ -0,0 +1,395 @@
+package catering.businesslogic.kitchen;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import catering.businesslogic.event.Service;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.user.User;
+
+/**
+ * Distributes the tasks of a summary sheet among the cooks booked for a set
+ * of shifts.
+ *
+ * Each (shift, cook) pair is a slot whose capacity is the length of the shift,
+ * less the minutes of the tasks already assigned to that cook in that shift.
+ * A plan puts every task in a slot; its cost is the overflow of the slots,
+ * heavily weighted, plus the sum of load^2 / capacity, which is lowest when
+ * every slot is filled in proportion to its length. Tasks without an estimate
+ * count as DEFAULT_TASK_MINUTES.
+ *
+ * The plan starts from a greedy solution (longest tasks first, each into the
+ * slot where it costs least) and is improved by local search (moving a task
+ * to another slot, swapping two tasks) on several threads with different
+ * seeds until the time budget runs out; the best plan found wins.
+ *
+ * Only shifts that end before the service starts are used, and a cook booked
+ * for overlapping shifts only gets a slot in the first of them.
+ */
+public class AssignmentSolver {
+
+    public static final long DEFAULT_TASK_MINUTES = 30;
+
+    // Cost of a minute of overflow: any plan that fits beats any plan that does not
+    private static final double OVERFLOW_WEIGHT = 1e6;
+
+    // Iterations between two checks of the clock
+    private static final int CLOCK_CHECK = 1024;
+
+    private final SummarySheet sheet;
+    private final List<Shift> shifts;
+    private long timeBudgetMillis = 200;
+    private int parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private long seed = 42;
+
+    /**
+     * @param sheet  The sheet whose tasks are assigned
+     * @param shifts Candidate shifts; their booked cooks are the candidate cooks
+     */
+    public AssignmentSolver(SummarySheet sheet, List<Shift> shifts) {
+        this.sheet = sheet;
+        this.shifts = shifts;
+    }
+
+    public AssignmentSolver setTimeBudget(long millis) {
+        this.timeBudgetMillis = millis;
+        return this;
+    }
+
+    public AssignmentSolver setParallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        return this;
+    }
+
+    public AssignmentSolver setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * The outcome of a solve: new assignments plus the tasks that could not be
+     * placed because no slot is available
+     */
+    public static class Plan {
+        private final ArrayList<Assignment> assignments;
+        private final List<KitchenTask> unassigned;
+        private final long overflowMinutes;
+        private final Map<User, Long> cookMinutes;
+
+        Plan(ArrayList<Assignment> assignments, List<KitchenTask> unassigned, long overflowMinutes,
+                Map<User, Long> cookMinutes) {
+            this.assignments = assignments;
+            this.unassigned = unassigned;
+            this.overflowMinutes = overflowMinutes;
+            this.cookMinutes = cookMinutes;
+        }
+
+        public ArrayList<Assignment> getAssignments() {
+            return assignments;
+        }
+
+        public List<KitchenTask> getUnassignedTasks() {
+            return unassigned;
+        }
+
+        /**
+         * @return Minutes of work exceeding the length of the shifts, 0 if the
+         *         plan fits
+         */
+        public long getOverflowMinutes() {
+            return overflowMinutes;
+        }
+
+        /**
+         * @return Minutes of work of each cook, existing assignments included
+         */
+        public Map<User, Long> getCookMinutes() {
+            return cookMinutes;
+        }
+    }
+
+    // Slots and tasks as arrays, shared read-only by the search threads
+    private static class Model {
+        final List<KitchenTask> tasks = new ArrayList<>();
+        final List<Shift> slotShift = new ArrayList<>();
+        final List<User> slotCook = new ArrayList<>();
+        long[] minutes;
+        long[] capacity;
+        long[] baseLoad;
+
+        int taskCount() {
+            return tasks.size();
+        }
+
+        int slotCount() {
+            return slotShift.size();
+        }
+
+        double slotCost(int s, long load) {
+            long over = load - capacity[s];
+            return (over > 0 ? over * OVERFLOW_WEIGHT : 0) + (double) load * load / capacity[s];
+        }
+    }
+
+    // A plan being searched: the slot of each task and the load of each slot
+    private static class State {
+        final int[] slotOf;
+        final long[] load;
+        double cost;
+
+        State(Model m, int[] slotOf) {
+            this.slotOf = slotOf;
+            this.load = m.baseLoad.clone();
+            for (int t = 0; t < slotOf.length; t++) {
+                load[slotOf[t]] += m.minutes[t];
+            }
+            for (int s = 0; s < load.length; s++) {
+                cost += m.slotCost(s, load[s]);
+            }
+        }
+    }
+
+    public Plan solve() {
+        Model m = buildModel();
+        if (m.slotCount() == 0 || m.taskCount() == 0) {
+            List<KitchenTask> unassigned = m.slotCount() == 0 ? m.tasks : Collections.emptyList();
+            return toPlan(m, null, unassigned);
+        }
+
+        int[] initial = greedy(m);
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+        State best = new State(m, initial);
+        if (timeBudgetMillis > 0) {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "assignment-solver");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<State>> futures = new ArrayList<>();
+                for (int i = 0; i < parallelism; i++) {
+                    long workerSeed = seed + i;
+                    futures.add(pool.submit(() -> search(m, initial, new Random(workerSeed), deadline)));
+                }
+                for (Future<State> f : futures) {
+                    State s = f.get();
+                    if (s.cost < best.cost) {
+                        best = s;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Assignment search failed", ex.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return toPlan(m, best, Collections.emptyList());
+    }
+
+    private Model buildModel() {
+        Model m = new Model();
+        Timestamp serviceStart = serviceStart(sheet.getService());
+
+        // Slots: booked cooks of the shifts in time, without overlaps per cook
+        Map<User, List<Shift>> taken = new LinkedHashMap<>();
+        List<Long> capacity = new ArrayList<>();
+        for (Shift s : shifts) {
+            long length = lengthMinutes(s);
+            if (length <= 0 || (serviceStart != null && end(s).after(serviceStart))) {
+                continue;
+            }
+            List<User> cooks = new ArrayList<>(s.getBookedUsers().values());
+            cooks.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            for (User cook : cooks) {
+                if (!cook.isCook() || overlaps(taken.get(cook), s)) {
+                    continue;
+                }
+                taken.computeIfAbsent(cook, k -> new ArrayList<>()).add(s);
+                m.slotShift.add(s);
+                m.slotCook.add(cook);
+                capacity.add(length);
+            }
+        }
+        m.capacity = capacity.stream().mapToLong(Long::longValue).toArray();
+        m.baseLoad = new long[m.slotCount()];
+
+        // Existing assignments keep their tasks and use up their slot
+        for (Assignment a : sheet.getAssignments()) {
+            for (int s = 0; s < m.slotCount(); s++) {
+                if (m.slotShift.get(s) == a.getShift() && m.slotCook.get(s).equals(a.getCook())) {
+                    m.baseLoad[s] += estimate(a.getTask());
+                    break;
+                }
+            }
+        }
+
+        for (KitchenTask t : sheet.getTaskList()) {
+            if (!t.isReady() && !sheet.isAssigned(t)) {
+                m.tasks.add(t);
+            }
+        }
+        m.minutes = new long[m.taskCount()];
+        for (int t = 0; t < m.taskCount(); t++) {
+            m.minutes[t] = estimate(m.tasks.get(t));
+        }
+        return m;
+    }
+
+    // Longest tasks first, each into the slot where it adds the least cost
+    private static int[] greedy(Model m) {
+        Integer[] order = new Integer[m.taskCount()];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(m.minutes[b], m.minutes[a]));
+
+        int[] slotOf = new int[m.taskCount()];
+        long[] load = m.baseLoad.clone();
+        for (int t : order) {
+            int bestSlot = 0;
+            double bestDelta = Double.MAX_VALUE;
+            for (int s = 0; s < m.slotCount(); s++) {
+                double delta = m.slotCost(s, load[s] + m.minutes[t]) - m.slotCost(s, load[s]);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestSlot = s;
+                }
+            }
+            slotOf[t] = bestSlot;
+            load[bestSlot] += m.minutes[t];
+        }
+        return slotOf;
+    }
+
+    /**
+     * Local search from the initial plan: random moves and swaps, accepted if
+     * they do not make the plan worse. Equal-cost moves are accepted too, so
+     * the search can walk across plateaus.
+     */
+    private static State search(Model m, int[] initial, Random random, long deadline) {
+        State cur = new State(m, initial.clone());
+        State best = new State(m, initial.clone());
+        int tasks = m.taskCount();
+        int slots = m.slotCount();
+
+        for (long iter = 0;; iter++) {
+            if (iter % CLOCK_CHECK == 0 && (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())) {
+                break;
+            }
+            int t = random.nextInt(tasks);
+            int from = cur.slotOf[t];
+
+            if (slots > 1 && (tasks == 1 || random.nextBoolean())) {
+                // Move t to another slot
+                int to = random.nextInt(slots - 1);
+                if (to >= from) {
+                    to++;
+                }
+                long mt = m.minutes[t];
+                double delta = m.slotCost(from, cur.load[from] - mt) - m.slotCost(from, cur.load[from])
+                        + m.slotCost(to, cur.load[to] + mt) - m.slotCost(to, cur.load[to]);
+                if (delta <= 0) {
+                    cur.slotOf[t] = to;
+                    cur.load[from] -= mt;
+                    cur.load[to] += mt;
+                    cur.cost += delta;
+                }
+            } else if (tasks > 1) {
+                // Swap t with a task of another slot
+                int u = random.nextInt(tasks);
+                int to = cur.slotOf[u];
+                long diff = m.minutes[u] - m.minutes[t];
+                if (to == from || diff == 0) {
+                    continue;
+                }
+                double delta = m.slotCost(from, cur.load[from] + diff) - m.slotCost(from, cur.load[from])
+                        + m.slotCost(to, cur.load[to] - diff) - m.slotCost(to, cur.load[to]);
+                if (delta <= 0) {
+                    cur.slotOf[t] = to;
+                    cur.slotOf[u] = from;
+                    cur.load[from] += diff;
+                    cur.load[to] -= diff;
+                    cur.cost += delta;
+                }
+            }
+
+            if (cur.cost < best.cost - 1e-9) {
+                System.arraycopy(cur.slotOf, 0, best.slotOf, 0, tasks);
+                System.arraycopy(cur.load, 0, best.load, 0, slots);
+                best.cost = cur.cost;
+            }
+        }
+        return best;
+    }
+
+    private static Plan toPlan(Model m, State state, List<KitchenTask> unassigned) {
+        ArrayList<Assignment> assignments = new ArrayList<>();
+        Map<User, Long> cookMinutes = new LinkedHashMap<>();
+        long overflow = 0;
+        for (int s = 0; s < m.slotCount(); s++) {
+            long load = state != null ? state.load[s] : m.baseLoad[s];
+            cookMinutes.merge(m.slotCook.get(s), load, Long::sum);
+            overflow += Math.max(0, load - m.capacity[s]);
+        }
+        if (state != null) {
+            for (int t = 0; t < m.taskCount(); t++) {
+                int s = state.slotOf[t];
+                assignments.add(new Assignment(m.tasks.get(t), m.slotShift.get(s), m.slotCook.get(s)));
+            }
+        }
+        return new Plan(assignments, new ArrayList<>(unassigned), overflow, cookMinutes);
+    }
+
+    private static long estimate(KitchenTask t) {
+        return t.getMinutes() > 0 ? t.getMinutes() : DEFAULT_TASK_MINUTES;
+    }
+
+    private static long lengthMinutes(Shift s) {
+        if (s.getDate() == null || s.getStartTime() == null || s.getEndTime() == null) {
+            return 0;
+        }
+        return (s.getEndTime().getTime() - s.getStartTime().getTime()) / 60_000;
+    }
+
+    private static Timestamp end(Shift s) {
+        return Timestamp.valueOf(s.getDate().toLocalDate().atTime(s.getEndTime().toLocalTime()));
+    }
+
+    private static Timestamp start(Shift s) {
+        return Timestamp.valueOf(s.getDate().toLocalDate().atTime(s.getStartTime().toLocalTime()));
+    }
+
+    private static boolean overlaps(List<Shift> taken, Shift s) {
+        if (taken == null) {
+            return false;
+        }
+        for (Shift other : taken) {
+            if (start(s).before(end(other)) && start(other).before(end(s))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Timestamp serviceStart(Service service) {
+        if (service == null || service.getDate() == null) {
+            return null;
+        }
+        if (service.getTimeStart() == null) {
+            return Timestamp.valueOf(service.getDate().toLocalDate().atStartOfDay());
+        }
+        return Timestamp.valueOf(service.getDate().toLocalDate().atTime(service.getTimeStart().toLocalTime()));
+    }
+}
@@ -4,11 +4,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import catering.businesslogic.recipe.KitchenProcess;
 import catering.businesslogic.recipe.Preparation;
 import catering.businesslogic.recipe.Recipe;
 import catering.persistence.BatchUpdateHandler;
+import catering.persistence.OrderKeys;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 
@@ -19,8 +25,12 @@ public class KitchenTask {
     private KitchenProcess kitchenProcess;
     private int quantity;
     private int portions;
+    // Estimated preparation time, 0 if unknown
+    private long minutes;
     private boolean ready;
     private boolean type;
+    // Sparse key of the position column, see OrderKeys
+    int position = OrderKeys.UNASSIGNED;
 
     private KitchenTask() {
     }
@@ -44,12 +54,13 @@ public class KitchenTask {
         this.description = mi.description;
         this.kitchenProcess = mi.kitchenProcess;
         this.type = mi.type;
+        this.minutes = mi.minutes;
     }
 
     // STATIC METHODS FOR PERSISTENCE
 
     public static void saveAllNewTasks(int id, ArrayList<KitchenTask> taskList) {
-        String secInsert = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions) VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+        String secInsert = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions, minutes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
 
         PersistenceManager.executeBatchUpdate(secInsert, taskList.size(), new BatchUpdateHandler() {
             @Override
@@ -58,10 +69,12 @@ public class KitchenTask {
                 ps.setInt(2, taskList.get(batchCount).kitchenProcess.getId());
                 ps.setString(3, taskList.get(batchCount).description);
                 ps.setBoolean(4, taskList.get(batchCount).type);
-                ps.setInt(5, batchCount);
+                taskList.get(batchCount).position = OrderKeys.sequential(batchCount);
+                ps.setInt(5, taskList.get(batchCount).position);
                 ps.setBoolean(6, taskList.get(batchCount).ready);
                 ps.setInt(7, taskList.get(batchCount).quantity);
                 ps.setInt(8, taskList.get(batchCount).portions);
+                ps.setLong(9, taskList.get(batchCount).minutes);
             }
 
             @Override
@@ -72,21 +85,27 @@ public class KitchenTask {
 
     }
 
-    public static void saveNewTask(int id, KitchenTask task, int taskPosition) {
-        String query = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-
-        PersistenceManager.executeUpdate(query,
-                id,
-                task.kitchenProcess.getId(),
-                task.getDescription(),
-                task.kitchenProcess.isRecipe(),
-                taskPosition,
-                task.ready,
-                task.quantity,
-                task.portions);
-
-        task.id = PersistenceManager.getLastId();
-
+    /**
+     * Inserts a task added to a summary sheet, with a position key between
+     * its neighbours in the task list
+     */
+    public static void saveNewTask(SummarySheet ss, KitchenTask task) {
+        String query = "INSERT INTO Tasks (sumsheet_id, kitchenproc_id, description, type, position, ready, quantity, portions, minutes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        PersistenceManager.inTransaction(() -> {
+            // Gives the task its key, renumbering the other tasks if there is no room
+            SummarySheet.updateTaskList(ss);
+            task.id = PersistenceManager.executeInsert(query,
+                    ss.getId(),
+                    task.kitchenProcess.getId(),
+                    task.getDescription(),
+                    task.kitchenProcess.isRecipe(),
+                    task.position,
+                    task.ready,
+                    task.quantity,
+                    task.portions,
+                    task.minutes);
+        });
     }
 
     public static ArrayList<KitchenTask> loadAllTasksBySumSheetId(int id) {
@@ -106,6 +125,8 @@ public class KitchenTask {
                 t.portions = rs.getInt("portions");
                 t.ready = rs.getBoolean("ready");
                 t.quantity = rs.getInt("quantity");
+                t.position = rs.getInt("position");
+                t.minutes = rs.getLong("minutes");
                 recipeIds.add(rs.getInt("kitchenproc_id")); // Changed from kitchen_proc_id
                 types.add(rs.getBoolean("type"));
                 taskArrayList.add(t);
@@ -125,6 +146,52 @@ public class KitchenTask {
         return taskArrayList;
     }
 
+    /**
+     * Loads the tasks of a set of summary sheets with one IN query, plus one
+     * batch for their recipes and one for their preparations
+     * 
+     * @param sumSheetIds The summary sheet IDs
+     * @return Map from summary sheet ID to its tasks, ordered by position
+     */
+    static Map<Integer, ArrayList<KitchenTask>> loadTasksBySumSheetIds(Collection<Integer> sumSheetIds) {
+        String query = "SELECT * FROM Tasks WHERE sumsheet_id IN (%s) ORDER BY sumsheet_id, position";
+        Map<Integer, ArrayList<KitchenTask>> tasks = new HashMap<>();
+        Map<KitchenTask, Integer> processIds = new HashMap<>();
+
+        PersistenceManager.executeQueryIn(query, sumSheetIds, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                KitchenTask t = new KitchenTask();
+                t.id = rs.getInt("id");
+
+                t.description = rs.getString("description");
+                t.portions = rs.getInt("portions");
+                t.ready = rs.getBoolean("ready");
+                t.quantity = rs.getInt("quantity");
+                t.position = rs.getInt("position");
+                t.minutes = rs.getLong("minutes");
+                t.type = rs.getBoolean("type");
+                processIds.put(t, rs.getInt("kitchenproc_id"));
+                tasks.computeIfAbsent(rs.getInt("sumsheet_id"), k -> new ArrayList<>()).add(t);
+            }
+        });
+
+        Set<Integer> recipeIds = new HashSet<>();
+        Set<Integer> preparationIds = new HashSet<>();
+        for (Map.Entry<KitchenTask, Integer> e : processIds.entrySet()) {
+            (e.getKey().type ? recipeIds : preparationIds).add(e.getValue());
+        }
+        Map<Integer, Recipe> recipes = Recipe.loadRecipes(recipeIds);
+        Map<Integer, Preparation> preparations = Preparation.loadPreparations(preparationIds);
+
+        for (Map.Entry<KitchenTask, Integer> e : processIds.entrySet()) {
+            KitchenTask t = e.getKey();
+            t.kitchenProcess = t.type ? recipes.get(e.getValue()) : preparations.get(e.getValue());
+        }
+
+        return tasks;
+    }
+
     public static KitchenTask loadTaskById(int id) {
         String query = "SELECT * FROM Tasks WHERE id = ?";
         KitchenTask[] taskHolder = new KitchenTask[1]; // Use array to allow modification in lambda
@@ -144,6 +211,8 @@ public class KitchenTask {
                 t.portions = rs.getInt("portions");
                 t.ready = rs.getBoolean("ready");
                 t.quantity = rs.getInt("quantity");
+                t.position = rs.getInt("position");
+                t.minutes = rs.getLong("minutes");
 
                 t.type = rs.getBoolean("type");
                 ids.add(rs.getInt("kitchenproc_id")); // Changed from kitchen_proc_id
@@ -167,16 +236,32 @@ public class KitchenTask {
     }
 
     public static void updateTaskChanged(KitchenTask task) {
-        String query = "UPDATE Tasks SET description = ?, quantity = ?, portions = ?, ready = ? WHERE id = ?";
+        String query = "UPDATE Tasks SET description = ?, quantity = ?, portions = ?, minutes = ?, ready = ? WHERE id = ?";
 
         PersistenceManager.executeUpdate(query,
                 task.getDescription(),
                 task.quantity,
                 task.portions,
+                task.minutes,
                 task.ready,
                 task.id);
     }
 
+    /**
+     * @return A copy of the fields saved by updateTaskChanged, with the same
+     *         id, that can be written later while this task keeps changing
+     */
+    public KitchenTask copy() {
+        KitchenTask t = new KitchenTask();
+        t.id = id;
+        t.description = description;
+        t.quantity = quantity;
+        t.portions = portions;
+        t.minutes = minutes;
+        t.ready = ready;
+        return t;
+    }
+
     public void setReady() {
         ready = true;
     }
@@ -189,6 +274,10 @@ public class KitchenTask {
         this.portions = portions;
     }
 
+    public void setMinutes(long minutes) {
+        this.minutes = minutes;
+    }
+
     public int getId() {
         return id;
     }
@@ -236,6 +325,13 @@ public class KitchenTask {
         return portions;
     }
 
+    /**
+     * @return Estimated preparation time in minutes, 0 if unknown
+     */
+    public long getMinutes() {
+        return minutes;
+    }
+
     public boolean isReady() {
         return ready;
     }
@@ -1,5 +1,7 @@
 package catering.businesslogic.kitchen;
 
+import java.util.ArrayList;
+
 public interface KitchenTaskEventReceiver {
 
     void updateSheetGenerated(SummarySheet summarySheet);
@@ -10,6 +12,8 @@ public interface KitchenTaskEventReceiver {
 
     void updateAssignmentAdded(SummarySheet currentSumSheet, Assignment a);
 
+    void updateAssignmentsAdded(SummarySheet currentSumSheet, ArrayList<Assignment> added);
+
     void updateAssignmentChanged(Assignment a);
 
     void updateAssignmentDeleted(Assignment ass);
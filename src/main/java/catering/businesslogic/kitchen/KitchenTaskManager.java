@@ -1,8 +1,12 @@
 package catering.businesslogic.kitchen;
 
+import java.sql.Date;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import catering.businesslogic.CatERing;
+import catering.businesslogic.Session;
 import catering.businesslogic.UseCaseLogicException;
 import catering.businesslogic.event.Event;
 import catering.businesslogic.event.Service;
@@ -11,11 +15,11 @@ import catering.businesslogic.user.User;
 
 public class KitchenTaskManager {
 
-    private SummarySheet currentSumSheet;
-    private ArrayList<KitchenTaskEventReceiver> eventReceivers;
+    // Shared by every session: receivers may be added while others notify
+    private List<KitchenTaskEventReceiver> eventReceivers;
 
     public KitchenTaskManager() {
-        eventReceivers = new ArrayList<>();
+        eventReceivers = new CopyOnWriteArrayList<>();
     }
 
     public void addEventReceiver(KitchenTaskEventReceiver rec) {
@@ -56,6 +60,19 @@ public class KitchenTaskManager {
         return SummarySheet.loadAllSumSheets();
     }
 
+    /**
+     * Merges the open tasks of the services between two dates (see
+     * ProductionPlan)
+     */
+    public ProductionPlan getProductionPlan(Date from, Date to) throws UseCaseLogicException {
+        User user = CatERing.getInstance().getUserManager().getCurrentUser();
+        if (user == null || !user.isChef())
+            throw new UseCaseLogicException("User is not a chef");
+        if (from == null || to == null || from.after(to))
+            throw new IllegalArgumentException("Invalid date range");
+        return ProductionPlan.load(from, to);
+    }
+
     public SummarySheet openSumSheet(SummarySheet ss) throws UseCaseLogicException, SummarySheetException {
         User user = CatERing.getInstance().getUserManager().getCurrentUser();
         if (!user.isChef())
@@ -67,25 +84,25 @@ public class KitchenTaskManager {
     }
 
     public void addKitchenTask(KitchenTask t) {
-        KitchenTask added = currentSumSheet.addTask(t);
+        KitchenTask added = getCurrentSummarySheet().addTask(t);
         notifyTaskAdded(added);
     }
 
     public void moveTask(KitchenTask t, int pos) throws UseCaseLogicException {
-        if (currentSumSheet == null || currentSumSheet.getTaskPosition(t) < 0)
+        if (getCurrentSummarySheet() == null || getCurrentSummarySheet().getTaskPosition(t) < 0)
             throw new UseCaseLogicException();
-        if (pos < 0 || pos >= currentSumSheet.getTaskListSize())
+        if (pos < 0 || pos >= getCurrentSummarySheet().getTaskListSize())
             throw new IllegalArgumentException();
-        this.currentSumSheet.moveTask(t, pos);
+        getCurrentSummarySheet().moveTask(t, pos);
 
         this.notifyTaskListSorted();
     }
 
     public void addTaskInformation(KitchenTask task, int quantity, int portions, long minutes)
             throws SummarySheetException, UseCaseLogicException {
-        if (currentSumSheet == null)
+        if (getCurrentSummarySheet() == null)
             throw new UseCaseLogicException();
-        if (currentSumSheet.getTaskPosition(task) < 0)
+        if (getCurrentSummarySheet().getTaskPosition(task) < 0)
             throw new SummarySheetException("Task not found in this SummarySheet");
         if (quantity < 0)
             throw new IllegalArgumentException("Quantity must be >= 0");
@@ -94,7 +111,7 @@ public class KitchenTaskManager {
         if (minutes < 0)
             throw new IllegalArgumentException("Minutes must be >= 0");
 
-        KitchenTask t = currentSumSheet.addTaskInformation(task, quantity, portions, minutes);
+        KitchenTask t = getCurrentSummarySheet().addTaskInformation(task, quantity, portions, minutes);
 
         notifyTaskChanged(t);
     }
@@ -104,18 +121,42 @@ public class KitchenTaskManager {
     }
 
     public Assignment assignTask(KitchenTask t, Shift s, User cook) throws UseCaseLogicException {
-        if (currentSumSheet == null) {
+        if (getCurrentSummarySheet() == null) {
             throw new UseCaseLogicException("Cannot assign task because there is no active summary sheet.");
         }
         if (cook != null && !CatERing.getInstance().getShiftManager().isAvailable(cook, s)) {
             throw new UseCaseLogicException("Cook " + cook.getUserName() + " is not available for the selected shift.");
         }
-        Assignment a = currentSumSheet.addAssignment(t, s, cook);
+        Assignment a = getCurrentSummarySheet().addAssignment(t, s, cook);
         this.notifyAssignmentAdded(a);
 
         return a;
     }
 
+    /**
+     * Assigns the open tasks of the current sheet to the cooks booked for the
+     * given shifts, balancing their load (see AssignmentSolver)
+     *
+     * @param shifts           Candidate shifts
+     * @param timeBudgetMillis Time given to the optimizer
+     * @return The plan; its assignments are already added to the sheet
+     */
+    public AssignmentSolver.Plan autoAssignTasks(List<Shift> shifts, long timeBudgetMillis)
+            throws UseCaseLogicException {
+        SummarySheet ss = getCurrentSummarySheet();
+        if (ss == null)
+            throw new UseCaseLogicException("Cannot assign tasks because there is no active summary sheet.");
+        if (!ss.isOwner(CatERing.getInstance().getUserManager().getCurrentUser()))
+            throw new UseCaseLogicException("User is not owner of the SummarySheet");
+
+        AssignmentSolver.Plan plan = new AssignmentSolver(ss, shifts).setTimeBudget(timeBudgetMillis).solve();
+        if (!plan.getAssignments().isEmpty()) {
+            ss.addAssignments(plan.getAssignments());
+            notifyAssignmentsAdded(plan.getAssignments());
+        }
+        return plan;
+    }
+
     public void modifyAssignment(Assignment ass) throws UseCaseLogicException, SummarySheetException {
         Shift shift = ass.getShift();
         modifyAssignment(ass, shift, null);
@@ -134,10 +175,10 @@ public class KitchenTaskManager {
             throws UseCaseLogicException, SummarySheetException {
         Assignment a;
 
-        if (currentSumSheet == null)
+        if (getCurrentSummarySheet() == null)
             throw new UseCaseLogicException();
         if (cook == null || CatERing.getInstance().getShiftManager().isAvailable(cook, shift))
-            a = currentSumSheet.modifyAssignment(ass, shift, cook);
+            a = getCurrentSummarySheet().modifyAssignment(ass, shift, cook);
         else
             throw new UseCaseLogicException();
 
@@ -150,21 +191,21 @@ public class KitchenTaskManager {
      * @return The current summary sheet
      */
     public SummarySheet getCurrentSummarySheet() {
-        return currentSumSheet;
+        return Session.current().getCurrentSumSheet();
     }
 
     public void setTaskReady(KitchenTask t) throws UseCaseLogicException {
-        KitchenTask task = currentSumSheet.setTaskReady(t);
+        KitchenTask task = getCurrentSummarySheet().setTaskReady(t);
         notifyTaskChanged(task);
     }
 
     public void deleteAssignment(Assignment a) throws UseCaseLogicException {
-        Assignment ass = currentSumSheet.deleteAssignment(a);
+        Assignment ass = getCurrentSummarySheet().deleteAssignment(a);
         notifyAssignmentDeleted(ass);
     }
 
     private void setCurrentSumSheet(SummarySheet summarySheet) {
-        currentSumSheet = summarySheet;
+        Session.current().setCurrentSumSheet(summarySheet);
     }
 
     private void notifyTaskChanged(KitchenTask task) {
@@ -192,19 +233,25 @@ public class KitchenTaskManager {
      */
     private void notifyAssignmentAdded(Assignment assignment) {
         for (KitchenTaskEventReceiver er : eventReceivers) {
-            er.updateAssignmentAdded(currentSumSheet, assignment);
+            er.updateAssignmentAdded(getCurrentSummarySheet(), assignment);
+        }
+    }
+
+    private void notifyAssignmentsAdded(ArrayList<Assignment> added) {
+        for (KitchenTaskEventReceiver er : eventReceivers) {
+            er.updateAssignmentsAdded(getCurrentSummarySheet(), added);
         }
     }
 
     private void notifyTaskListSorted() {
         for (KitchenTaskEventReceiver er : eventReceivers) {
-            er.updateTaskListSorted(currentSumSheet);
+            er.updateTaskListSorted(getCurrentSummarySheet());
         }
     }
 
     private void notifyTaskAdded(KitchenTask added) {
         for (KitchenTaskEventReceiver er : eventReceivers) {
-            er.updateTaskAdded(currentSumSheet, added);
+            er.updateTaskAdded(getCurrentSummarySheet(), added);
         }
     }
 
@@ -0,0 +1,230 @@
+package catering.businesslogic.kitchen;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import catering.businesslogic.recipe.KitchenProcess;
+import catering.businesslogic.recipe.Preparation;
+import catering.businesslogic.recipe.Recipe;
+import catering.persistence.PersistenceManager;
+import catering.persistence.ResultHandler;
+
+/**
+ * Batch cooking plan: the open tasks of every summary sheet whose service
+ * falls in a date window, merged per day and kitchen process. When several
+ * services of the same day need the same preparation (or recipe), the plan
+ * has a single line with their quantities and portions summed, so the
+ * kitchen prepares it once.
+ *
+ * The plan is built with a single query over Services, SummarySheets and
+ * Tasks; the rows are aggregated into a hash table as they are read, so no
+ * task or sheet object is created whatever the size of the window. Only the
+ * kitchen processes of the resulting lines are loaded afterwards.
+ */
+public class ProductionPlan {
+
+    /**
+     * The work on one kitchen process for one day
+     */
+    public static class Line {
+        private final Date date;
+        private final boolean recipe;
+        private final int processId;
+        private KitchenProcess kitchenProcess;
+        private long quantity;
+        private long portions;
+        private long minutes;
+        private int taskCount;
+        private final Set<Integer> serviceIds = new HashSet<>();
+
+        private Line(Date date, boolean recipe, int processId) {
+            this.date = date;
+            this.recipe = recipe;
+            this.processId = processId;
+        }
+
+        public Date getDate() {
+            return date;
+        }
+
+        public KitchenProcess getKitchenProcess() {
+            return kitchenProcess;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public long getPortions() {
+            return portions;
+        }
+
+        /**
+         * @return Estimated minutes of the merged tasks, as if done separately
+         */
+        public long getMinutes() {
+            return minutes;
+        }
+
+        /**
+         * @return Number of tasks merged in this line
+         */
+        public int getTaskCount() {
+            return taskCount;
+        }
+
+        public Set<Integer> getServiceIds() {
+            return Collections.unmodifiableSet(serviceIds);
+        }
+
+        /**
+         * @return true if the line merges tasks of more than one service
+         */
+        public boolean isShared() {
+            return serviceIds.size() > 1;
+        }
+
+        @Override
+        public String toString() {
+            return date + " " + (kitchenProcess != null ? kitchenProcess.getName() : "#" + processId) + ": qty "
+                    + quantity + ", portions " + portions + ", " + taskCount + " tasks of " + serviceIds.size()
+                    + " services";
+        }
+    }
+
+    // Key of the hash aggregation
+    private static final class Key {
+        final String date;
+        final boolean recipe;
+        final int processId;
+
+        Key(String date, boolean recipe, int processId) {
+            this.date = date;
+            this.recipe = recipe;
+            this.processId = processId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return processId == other.processId && recipe == other.recipe && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, recipe, processId);
+        }
+    }
+
+    private final Date from;
+    private final Date to;
+    private final List<Line> lines;
+
+    private ProductionPlan(Date from, Date to, List<Line> lines) {
+        this.from = from;
+        this.to = to;
+        this.lines = lines;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    /**
+     * @return The lines, by day and then by name
+     */
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * @return The lines merging tasks of several services
+     */
+    public List<Line> getSharedLines() {
+        List<Line> shared = new ArrayList<>();
+        for (Line l : lines) {
+            if (l.isShared()) {
+                shared.add(l);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return Number of tasks made unnecessary by merging
+     */
+    public int getMergedTaskCount() {
+        int merged = 0;
+        for (Line l : lines) {
+            merged += l.taskCount - 1;
+        }
+        return merged;
+    }
+
+    // Database-related code below this point
+
+    /**
+     * Builds the plan of the services between two dates, both included
+     */
+    public static ProductionPlan load(Date from, Date to) {
+        String query = "SELECT s.id AS service_id, s.service_date, t.kitchenproc_id, t.type, t.quantity, t.portions, t.minutes "
+                + "FROM Services s "
+                + "JOIN SummarySheets ss ON ss.service_id = s.id "
+                + "JOIN Tasks t ON t.sumsheet_id = ss.id "
+                + "WHERE s.service_date BETWEEN ? AND ? AND t.ready = 0";
+        Map<Key, Line> aggregate = new HashMap<>();
+
+        PersistenceManager.executeQuery(query, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                String date = rs.getString("service_date");
+                boolean recipe = rs.getBoolean("type");
+                int processId = rs.getInt("kitchenproc_id");
+                Key key = new Key(date, recipe, processId);
+                Line line = aggregate.get(key);
+                if (line == null) {
+                    line = new Line(Date.valueOf(date), recipe, processId);
+                    aggregate.put(key, line);
+                }
+                line.quantity += rs.getLong("quantity");
+                line.portions += rs.getLong("portions");
+                long minutes = rs.getLong("minutes");
+                line.minutes += minutes > 0 ? minutes : AssignmentSolver.DEFAULT_TASK_MINUTES;
+                line.taskCount++;
+                line.serviceIds.add(rs.getInt("service_id"));
+            }
+        }, from.toString(), to.toString());
+
+        Set<Integer> recipeIds = new HashSet<>();
+        Set<Integer> prepIds = new HashSet<>();
+        for (Line l : aggregate.values()) {
+            (l.recipe ? recipeIds : prepIds).add(l.processId);
+        }
+        Map<Integer, Recipe> recipes = Recipe.loadRecipes(recipeIds);
+        Map<Integer, Preparation> preparations = Preparation.loadPreparations(prepIds);
+
+        List<Line> lines = new ArrayList<>(aggregate.values());
+        for (Line l : lines) {
+            l.kitchenProcess = l.recipe ? recipes.get(l.processId) : preparations.get(l.processId);
+        }
+        lines.sort(Comparator.comparing(Line::getDate)
+                .thenComparing(l -> l.kitchenProcess != null ? l.kitchenProcess.getName() : ""));
+        return new ProductionPlan(from, to, lines);
+    }
+}
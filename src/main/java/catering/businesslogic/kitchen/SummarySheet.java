@@ -4,12 +4,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import catering.businesslogic.UseCaseLogicException;
 import catering.businesslogic.event.Service;
 import catering.businesslogic.shift.Shift;
 import catering.businesslogic.user.User;
 import catering.persistence.BatchUpdateHandler;
+import catering.persistence.OrderKeys;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 
@@ -45,23 +49,25 @@ public class SummarySheet {
         return loadSummarySheets("SELECT * FROM SummarySheets WHERE service_id = ?", serviceId);
     }
 
+    /**
+     * Saves the order of the tasks, writing only the positions that changed
+     */
     public static void updateTaskList(SummarySheet ss) {
-        String upd = "UPDATE Tasks SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(upd, ss.taskList.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setInt(1, batchCount);
-                ps.setInt(2, ss.taskList.get(batchCount).getId());
-            }
+        updateTaskList(ss.taskList);
+    }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                // no generated ids to handle
-            }
-        });
+    /**
+     * Saves the order of a copy of the task list
+     */
+    public static void updateTaskList(List<KitchenTask> tasks) {
+        OrderKeys.save("Tasks", tasks, KitchenTask::getId, t -> t.position, (t, key) -> t.position = key);
     }
 
     public static void saveNewSumSheet(SummarySheet s) {
+        PersistenceManager.inTransaction(() -> insert(s));
+    }
+
+    private static void insert(SummarySheet s) {
         String sumSheetInsert = "INSERT INTO SummarySheets (service_id, owner_id) VALUES (?, ?);";
         int[] result = PersistenceManager.executeBatchUpdate(sumSheetInsert, 1, new BatchUpdateHandler() {
             @Override
@@ -114,13 +120,35 @@ public class SummarySheet {
             }
         }, params);
 
-        // Load services, owners, tasks, and assignments for each sheet
+        if (summarySheets.isEmpty()) {
+            return summarySheets;
+        }
+
+        // Load services, owners, tasks and assignments of all the sheets at once,
+        // then stitch them together in memory
+        ArrayList<Integer> sheetIds = new ArrayList<>();
+        for (SummarySheet s : summarySheets) {
+            sheetIds.add(s.id);
+        }
+        Map<Integer, Service> services = Service.loadServices(serviceIds);
+        Map<Integer, User> owners = User.loadUsers(ownerIds);
+        Map<Integer, ArrayList<KitchenTask>> tasks = KitchenTask.loadTasksBySumSheetIds(sheetIds);
+
+        Map<Integer, KitchenTask> tasksById = new HashMap<>();
+        for (ArrayList<KitchenTask> list : tasks.values()) {
+            for (KitchenTask t : list) {
+                tasksById.put(t.getId(), t);
+            }
+        }
+        Map<Integer, ArrayList<Assignment>> assignments = Assignment.loadAssignmentsBySumSheetIds(sheetIds,
+                tasksById);
+
         for (int i = 0; i < summarySheets.size(); i++) {
             SummarySheet s = summarySheets.get(i);
-            s.service = Service.loadById(serviceIds.get(i));
-            s.owner = User.load(ownerIds.get(i));
-            s.taskList = KitchenTask.loadAllTasksBySumSheetId(s.id);
-            s.assignmentList = Assignment.loadAllAssignmentsBySumSheetId(s.id);
+            s.service = services.get(serviceIds.get(i));
+            s.owner = owners.get(ownerIds.get(i));
+            s.taskList = tasks.getOrDefault(s.id, new ArrayList<>());
+            s.assignmentList = assignments.getOrDefault(s.id, new ArrayList<>());
         }
 
         return summarySheets;
@@ -136,6 +164,9 @@ public class SummarySheet {
 
     private ArrayList<Assignment> assignmentList;
 
+    // Built on first use, then kept up to date as tasks change
+    private TaskSchedule schedule;
+
     public SummarySheet(Service service, User user) {
 
         this.service = service;
@@ -156,9 +187,20 @@ public class SummarySheet {
 
     public KitchenTask addTask(KitchenTask t) {
         this.taskList.add(t);
+        if (schedule != null)
+            schedule.taskAdded(t);
         return t;
     }
 
+    /**
+     * @return The dependency graph and critical path of the tasks
+     */
+    public TaskSchedule getSchedule() {
+        if (schedule == null)
+            schedule = new TaskSchedule(this);
+        return schedule;
+    }
+
     public int getId() {
         return id;
     }
@@ -182,6 +224,22 @@ public class SummarySheet {
         return ass;
     }
 
+    public void addAssignments(List<Assignment> assignments) {
+        assignmentList.addAll(assignments);
+    }
+
+    /**
+     * @return true if some assignment of this sheet refers to the task
+     */
+    public boolean isAssigned(KitchenTask t) {
+        for (Assignment a : assignmentList) {
+            if (a.getTask() == t) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean isOwner(User user) {
         return user.equals(this.owner);
     }
@@ -208,12 +266,17 @@ public class SummarySheet {
         if (!taskList.contains(t))
             throw new UseCaseLogicException();
         t.setReady();
+        if (schedule != null)
+            schedule.taskChanged(t);
         return t;
     }
 
     public KitchenTask addTaskInformation(KitchenTask task, int quantity, int portions, long minutes) {
         task.setQuantity(quantity);
         task.setPortions(portions);
+        task.setMinutes(minutes);
+        if (schedule != null)
+            schedule.taskChanged(task);
 
         return task;
     }
@@ -227,6 +290,10 @@ public class SummarySheet {
         return owner;
     }
 
+    public Service getService() {
+        return service;
+    }
+
     /**
      * Returns a string representation of this summary sheet for testing purposes.
      * 
@@ -0,0 +1,337 @@
+package catering.businesslogic.kitchen;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import catering.businesslogic.event.Service;
+import catering.businesslogic.recipe.KitchenProcess;
+import catering.businesslogic.recipe.Preparation;
+import catering.businesslogic.recipe.Recipe;
+
+/**
+ * Dependency graph and critical path of the tasks of a summary sheet.
+ *
+ * A recipe task depends on the tasks of the preparations the recipe uses
+ * (Recipe.getPreparations). Every task lasts its estimated minutes
+ * (AssignmentSolver.DEFAULT_TASK_MINUTES if unknown, 0 once ready); with
+ * enough cooks, a task can start as soon as the tasks it depends on are done.
+ * For each task the schedule keeps:
+ * <ul>
+ * <li>earliest start: the longest chain of dependencies before it;</li>
+ * <li>tail: the longest chain from its start to the end of the work.</li>
+ * </ul>
+ * The work lasts max(earliest start + tail) minutes, and the tasks whose
+ * earliest start + tail equals it have no slack: they form the critical path.
+ *
+ * The schedule is kept up to date by the sheet: adding a task, changing its
+ * estimate or marking it ready only updates the tasks after it (earliest
+ * starts) and before it (tails), not the whole graph. Moving a task changes
+ * nothing but the order in which independent tasks are listed.
+ */
+public class TaskSchedule {
+
+    private static class Node {
+        final KitchenTask task;
+        final List<Node> before = new ArrayList<>();
+        final List<Node> after = new ArrayList<>();
+        long duration;
+        long earliestStart;
+        long tail;
+
+        Node(KitchenTask task) {
+            this.task = task;
+        }
+    }
+
+    private final SummarySheet sheet;
+    private final Map<KitchenTask, Node> nodes = new IdentityHashMap<>();
+    // Tasks of each preparation, and recipe tasks needing each preparation
+    private final Map<Preparation, List<Node>> producers = new HashMap<>();
+    private final Map<Preparation, List<Node>> consumers = new HashMap<>();
+    private long makespan = -1;
+
+    /**
+     * Builds the graph of the current tasks of the sheet
+     */
+    TaskSchedule(SummarySheet sheet) {
+        this.sheet = sheet;
+        for (KitchenTask t : sheet.getTaskList()) {
+            link(t);
+        }
+        List<KitchenTask> order = topologicalOrder();
+        for (KitchenTask t : order) {
+            Node n = nodes.get(t);
+            n.earliestStart = earliestStart(n);
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node n = nodes.get(order.get(i));
+            n.tail = tail(n);
+        }
+    }
+
+    /**
+     * Adds a task to the graph
+     */
+    void taskAdded(KitchenTask t) {
+        if (nodes.containsKey(t)) {
+            return;
+        }
+        Node n = link(t);
+        n.earliestStart = earliestStart(n);
+        n.tail = tail(n);
+        propagateForward(n);
+        propagateBackward(n);
+    }
+
+    /**
+     * Updates the schedule after the estimate or the ready state of a task
+     * changed
+     */
+    void taskChanged(KitchenTask t) {
+        Node n = nodes.get(t);
+        if (n == null) {
+            taskAdded(t);
+            return;
+        }
+        long duration = duration(t);
+        if (duration == n.duration) {
+            return;
+        }
+        n.duration = duration;
+        n.tail = tail(n);
+        propagateForward(n);
+        propagateBackward(n);
+    }
+
+    /**
+     * @return The tasks in an order that respects their dependencies; among
+     *         independent tasks the order of the sheet is kept
+     */
+    public List<KitchenTask> topologicalOrder() {
+        Map<Node, Integer> position = new IdentityHashMap<>();
+        List<KitchenTask> tasks = sheet.getTaskList();
+        for (int i = 0; i < tasks.size(); i++) {
+            Node n = nodes.get(tasks.get(i));
+            if (n != null) {
+                position.put(n, i);
+            }
+        }
+
+        Map<Node, Integer> missing = new IdentityHashMap<>();
+        PriorityQueue<Node> free = new PriorityQueue<>((a, b) -> Integer.compare(position.get(a), position.get(b)));
+        for (Node n : position.keySet()) {
+            missing.put(n, n.before.size());
+            if (n.before.isEmpty()) {
+                free.add(n);
+            }
+        }
+        List<KitchenTask> order = new ArrayList<>(position.size());
+        while (!free.isEmpty()) {
+            Node n = free.poll();
+            order.add(n.task);
+            for (Node next : n.after) {
+                if (missing.merge(next, -1, Integer::sum) == 0) {
+                    free.add(next);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return Minutes needed to complete every task with unlimited cooks
+     */
+    public long getTotalMinutes() {
+        if (makespan < 0) {
+            long max = 0;
+            for (Node n : nodes.values()) {
+                max = Math.max(max, n.earliestStart + n.tail);
+            }
+            makespan = max;
+        }
+        return makespan;
+    }
+
+    /**
+     * @return Minutes from the start of the work to the earliest start of the task
+     */
+    public long getEarliestStart(KitchenTask t) {
+        return node(t).earliestStart;
+    }
+
+    /**
+     * @return Minutes the task can be delayed without delaying the end of the work
+     */
+    public long getSlack(KitchenTask t) {
+        Node n = node(t);
+        return getTotalMinutes() - n.earliestStart - n.tail;
+    }
+
+    /**
+     * @return The longest chain of dependent tasks, in execution order
+     */
+    public List<KitchenTask> getCriticalPath() {
+        long total = getTotalMinutes();
+        Node current = null;
+        for (KitchenTask t : topologicalOrder()) {
+            Node n = nodes.get(t);
+            if (n.before.isEmpty() && n.earliestStart + n.tail == total) {
+                current = n;
+                break;
+            }
+        }
+        List<KitchenTask> path = new ArrayList<>();
+        while (current != null) {
+            path.add(current.task);
+            Node next = null;
+            for (Node a : current.after) {
+                if (a.tail == current.tail - current.duration) {
+                    next = a;
+                    break;
+                }
+            }
+            current = next;
+        }
+        return path;
+    }
+
+    /**
+     * @param kitchenStart When the work starts
+     * @return When every task can be completed at the earliest
+     */
+    public LocalDateTime getEarliestCompletion(LocalDateTime kitchenStart) {
+        return kitchenStart.plusMinutes(getTotalMinutes());
+    }
+
+    /**
+     * Proposed start of a task: as late as possible for the work to end when
+     * the service starts, i.e. its earliest start after a work starting at
+     * service start minus the total minutes
+     *
+     * @return The proposed start, or null if the service has no date
+     */
+    public LocalDateTime getProposedStart(KitchenTask t) {
+        LocalDateTime serviceStart = serviceStart(sheet.getService());
+        if (serviceStart == null) {
+            return null;
+        }
+        return serviceStart.minusMinutes(getTotalMinutes()).plusMinutes(getEarliestStart(t));
+    }
+
+    /**
+     * @return The tasks the given one depends on
+     */
+    public List<KitchenTask> getDependencies(KitchenTask t) {
+        List<KitchenTask> deps = new ArrayList<>();
+        for (Node n : node(t).before) {
+            deps.add(n.task);
+        }
+        return Collections.unmodifiableList(deps);
+    }
+
+    private Node node(KitchenTask t) {
+        Node n = nodes.get(t);
+        if (n == null) {
+            throw new IllegalArgumentException("Task not in this schedule");
+        }
+        return n;
+    }
+
+    // Adds the node of a task and its edges
+    private Node link(KitchenTask t) {
+        Node n = new Node(t);
+        n.duration = duration(t);
+        nodes.put(t, n);
+
+        KitchenProcess kp = t.getKitchenProcess();
+        if (kp instanceof Preparation) {
+            Preparation p = (Preparation) kp;
+            producers.computeIfAbsent(p, k -> new ArrayList<>()).add(n);
+            for (Node r : consumers.getOrDefault(p, Collections.emptyList())) {
+                edge(n, r);
+            }
+        } else if (kp instanceof Recipe) {
+            for (Preparation p : ((Recipe) kp).getPreparations()) {
+                consumers.computeIfAbsent(p, k -> new ArrayList<>()).add(n);
+                for (Node prep : producers.getOrDefault(p, Collections.emptyList())) {
+                    edge(prep, n);
+                }
+            }
+        }
+        return n;
+    }
+
+    private static void edge(Node from, Node to) {
+        from.after.add(to);
+        to.before.add(from);
+    }
+
+    private static long earliestStart(Node n) {
+        long start = 0;
+        for (Node b : n.before) {
+            start = Math.max(start, b.earliestStart + b.duration);
+        }
+        return start;
+    }
+
+    private static long tail(Node n) {
+        long tail = 0;
+        for (Node a : n.after) {
+            tail = Math.max(tail, a.tail);
+        }
+        return n.duration + tail;
+    }
+
+    // Recomputes the earliest starts of the tasks after n, as far as they change
+    private void propagateForward(Node n) {
+        makespan = -1;
+        Deque<Node> queue = new ArrayDeque<>(n.after);
+        while (!queue.isEmpty()) {
+            Node next = queue.poll();
+            long start = earliestStart(next);
+            if (start != next.earliestStart) {
+                next.earliestStart = start;
+                queue.addAll(next.after);
+            }
+        }
+    }
+
+    // Recomputes the tails of the tasks before n, as far as they change
+    private void propagateBackward(Node n) {
+        makespan = -1;
+        Deque<Node> queue = new ArrayDeque<>(n.before);
+        while (!queue.isEmpty()) {
+            Node prev = queue.poll();
+            long tail = tail(prev);
+            if (tail != prev.tail) {
+                prev.tail = tail;
+                queue.addAll(prev.before);
+            }
+        }
+    }
+
+    private static long duration(KitchenTask t) {
+        if (t.isReady()) {
+            return 0;
+        }
+        return t.getMinutes() > 0 ? t.getMinutes() : AssignmentSolver.DEFAULT_TASK_MINUTES;
+    }
+
+    private static LocalDateTime serviceStart(Service service) {
+        if (service == null || service.getDate() == null) {
+            return null;
+        }
+        if (service.getTimeStart() == null) {
+            return service.getDate().toLocalDate().atStartOfDay();
+        }
+        return service.getDate().toLocalDate().atTime(service.getTimeStart().toLocalTime());
+    }
+}
@@ -4,13 +4,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import catering.businesslogic.recipe.KitchenProcess;
 import catering.businesslogic.recipe.Recipe;
 import catering.businesslogic.user.User;
 import catering.persistence.BatchUpdateHandler;
+import catering.persistence.OrderKeys;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 
@@ -32,7 +35,10 @@ public class Menu {
     };
 
     public static void create(Menu m) {
+        PersistenceManager.inTransaction(() -> insert(m));
+    }
 
+    private static void insert(Menu m) {
         String query = "INSERT INTO Menus (title, owner_id, published) VALUES (?, ?, ?);";
 
         int[] result = PersistenceManager.executeBatchUpdate(query, 1, new BatchUpdateHandler() {
@@ -103,90 +109,160 @@ public class Menu {
         return m;
     }
 
+    /**
+     * Load a set of menus with a fixed number of IN queries (menus, features,
+     * services using them, sections, items, recipes, owners), however many
+     * sections and items they have
+     * 
+     * @param ids The menu IDs
+     * @return Map from ID to menu; IDs not found are missing
+     */
+    public static Map<Integer, Menu> loadMenus(Collection<Integer> ids) {
+        Map<Integer, Menu> menus = new HashMap<>();
+        Map<Integer, Integer> ownerOf = new HashMap<>();
+
+        PersistenceManager.executeQueryIn("SELECT * FROM Menus WHERE id IN (%s)", ids, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Menu m = new Menu();
+                m.id = rs.getInt("id");
+                m.title = rs.getString("title");
+                m.published = rs.getBoolean("published");
+                menus.put(m.id, m);
+                ownerOf.put(m.id, rs.getInt("owner_id"));
+            }
+        });
+        if (menus.isEmpty()) {
+            return menus;
+        }
+
+        PersistenceManager.executeQueryIn("SELECT * FROM MenuFeatures WHERE menu_id IN (%s)", menus.keySet(),
+                new ResultHandler() {
+                    @Override
+                    public void handle(ResultSet rs) throws SQLException {
+                        menus.get(rs.getInt("menu_id")).features.put(rs.getString("name"), rs.getBoolean("value"));
+                    }
+                });
+
+        PersistenceManager.executeQueryIn("SELECT approved_menu_id FROM Services WHERE approved_menu_id IN (%s)",
+                menus.keySet(), new ResultHandler() {
+                    @Override
+                    public void handle(ResultSet rs) throws SQLException {
+                        menus.get(rs.getInt("approved_menu_id")).inUse = true;
+                    }
+                });
+
+        Map<Integer, Map<Integer, ArrayList<MenuItem>>> items = MenuItem.loadMenuItems(menus.keySet());
+        Map<Integer, ArrayList<Section>> sections = Section.loadSections(menus.keySet(), items);
+        Map<Integer, User> owners = User.loadUsers(ownerOf.values());
+        for (Menu m : menus.values()) {
+            m.owner = owners.get(ownerOf.get(m.id));
+            m.sections = sections.getOrDefault(m.id, new ArrayList<>());
+            ArrayList<MenuItem> freeItems = items.getOrDefault(m.id, Map.of()).get(0);
+            m.freeItems = freeItems != null ? freeItems : new ArrayList<>();
+        }
+
+        return menus;
+    }
+
     /**
      * Delete a menu from the database
      */
     public static void delete(Menu m) {
-        PersistenceManager.executeUpdate("DELETE FROM MenuItems WHERE menu_id = ?", m.id);
-        PersistenceManager.executeUpdate("DELETE FROM MenuSections WHERE menu_id = ?", m.id);
-        PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId());
-        PersistenceManager.executeUpdate("DELETE FROM Menus WHERE id = ?", m.getId());
+        PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("DELETE FROM MenuItems WHERE menu_id = ?", m.id);
+            PersistenceManager.executeUpdate("DELETE FROM MenuSections WHERE menu_id = ?", m.id);
+            PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId());
+            PersistenceManager.executeUpdate("DELETE FROM Menus WHERE id = ?", m.getId());
+        });
     }
 
     public static void saveTitle(Menu m) {
-        PersistenceManager.executeUpdate("UPDATE Menus SET title = ? WHERE id = ?",
-                m.getTitle(), m.getId());
+        saveTitle(m.getId(), m.getTitle());
+    }
+
+    /**
+     * Save the title of a menu, given by value so it can be written later
+     */
+    public static void saveTitle(int menuId, String title) {
+        PersistenceManager.executeUpdate("UPDATE Menus SET title = ? WHERE id = ?", title, menuId);
     }
 
     /**
      * Save the published status of a menu
      */
     public static void savePublished(Menu m) {
-        PersistenceManager.executeUpdate("UPDATE Menus SET published = ? WHERE id = ?",
-                m.published, m.getId());
+        savePublished(m.getId(), m.published);
+    }
+
+    public static void savePublished(int menuId, boolean published) {
+        PersistenceManager.executeUpdate("UPDATE Menus SET published = ? WHERE id = ?", published, menuId);
     }
 
     /**
      * Save the features of a menu
      */
     public static void saveFeatures(Menu m) {
-        // First delete existing features
-        PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", m.getId());
+        saveFeatures(m.getId(), m.features);
+    }
+
+    /**
+     * Save the features of a menu from a copy taken when they changed
+     */
+    public static void saveFeatures(int menuId, Map<String, Boolean> features) {
+        PersistenceManager.inTransaction(() -> {
+            // First delete existing features
+            PersistenceManager.executeUpdate("DELETE FROM MenuFeatures WHERE menu_id = ?", menuId);
 
-        // Then add the updated features
-        saveFeaturesToDB(m);
+            // Then add the updated features
+            saveFeaturesToDB(menuId, features);
+        });
     }
 
     /**
      * Save the section order of a menu
      */
     public static void saveSectionOrder(Menu m) {
-        String query = "UPDATE MenuSections SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, m.sections.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setInt(1, batchCount);
-                ps.setInt(2, m.sections.get(batchCount).getId());
-            }
+        saveSectionOrder(m.sections);
+    }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                // No generated IDs to handle
-            }
-        });
+    /**
+     * Save the order of a copy of the sections of a menu
+     */
+    public static void saveSectionOrder(List<Section> sections) {
+        OrderKeys.save("MenuSections", sections, Section::getId, s -> s.position, (s, key) -> s.position = key);
     }
 
     /**
      * Save the order of free items in a menu
      */
     public static void saveFreeItemOrder(Menu m) {
-        String query = "UPDATE MenuItems SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, m.freeItems.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setInt(1, batchCount);
-                ps.setInt(2, m.freeItems.get(batchCount).getId());
-            }
+        saveFreeItemOrder(m.freeItems);
+    }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                // No generated IDs to handle
-            }
-        });
+    /**
+     * Save the order of a copy of the free items of a menu
+     */
+    public static void saveFreeItemOrder(List<MenuItem> freeItems) {
+        MenuItem.saveOrder(freeItems);
     }
 
     /**
      * Save features to the database
      */
     private static void saveFeaturesToDB(Menu m) {
+        saveFeaturesToDB(m.id, m.features);
+    }
+
+    private static void saveFeaturesToDB(int menuId, Map<String, Boolean> values) {
         String query = "INSERT INTO MenuFeatures (menu_id, name, value) VALUES (?, ?, ?)";
-        String[] features = m.features.keySet().toArray(new String[0]);
+        String[] features = values.keySet().toArray(new String[0]);
         PersistenceManager.executeBatchUpdate(query, features.length, new BatchUpdateHandler() {
             @Override
             public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setInt(1, m.id);
+                ps.setInt(1, menuId);
                 ps.setString(2, features[batchCount]);
-                ps.setBoolean(3, m.features.get(features[batchCount]));
+                ps.setBoolean(3, values.get(features[batchCount]));
             }
 
             @Override
@@ -4,9 +4,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import catering.businesslogic.recipe.Recipe;
 import catering.persistence.BatchUpdateHandler;
+import catering.persistence.OrderKeys;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 
@@ -23,7 +28,8 @@ public class MenuItem {
                 ps.setInt(2, sectionid);
                 ps.setString(3, items.get(batchCount).description);
                 ps.setInt(4, items.get(batchCount).recipe.getId());
-                ps.setInt(5, batchCount);
+                items.get(batchCount).position = OrderKeys.sequential(batchCount);
+                ps.setInt(5, items.get(batchCount).position);
             }
 
             @Override
@@ -33,13 +39,28 @@ public class MenuItem {
         });
     }
 
-    public static void create(int menuid, int sectionid, MenuItem mi, int pos) {
+    /**
+     * Inserts an item added to a menu, with a position key between its
+     * neighbours in its section (or among the free items)
+     */
+    public static void create(Menu m, Section sec, MenuItem mi) {
 
         String itemInsert = "INSERT INTO MenuItems (menu_id, section_id, description, recipe_id, position) VALUES (?, ?, ?, ?, ?)";
 
-        PersistenceManager.executeUpdate(itemInsert, menuid, sectionid, mi.description, mi.recipe.getId(), pos);
+        PersistenceManager.inTransaction(() -> {
+            // Gives the item its key, renumbering the others if there is no room
+            saveOrder(sec != null ? sec.getItems() : m.getFreeItems());
+            mi.id = PersistenceManager.executeInsert(itemInsert, m.getId(), sec != null ? sec.getId() : 0,
+                    mi.description, mi.recipe.getId(), mi.position);
+        });
+    }
 
-        mi.id = PersistenceManager.getLastId();
+    /**
+     * Saves the order of a list of items, writing only the positions that
+     * changed
+     */
+    static void saveOrder(List<MenuItem> items) {
+        OrderKeys.save("MenuItems", items, MenuItem::getId, mi -> mi.position, (mi, key) -> mi.position = key);
     }
 
     public static ArrayList<MenuItem> loadMenuItems(int menu_id, int sec_id) {
@@ -55,6 +76,7 @@ public class MenuItem {
                 MenuItem mi = new MenuItem();
                 mi.id = rs.getInt("id");
                 mi.description = rs.getString("description");
+                mi.position = rs.getInt("position");
                 result.add(mi);
                 recids.add(rs.getInt("recipe_id"));
             }
@@ -67,14 +89,54 @@ public class MenuItem {
         return result;
     }
 
+    /**
+     * Loads the items of a set of menus with one IN query, plus the batched
+     * load of their recipes
+     * 
+     * @param menuIds The menu IDs
+     * @return Items by menu ID, then by section ID (0 for the free items), in
+     *         position order
+     */
+    static Map<Integer, Map<Integer, ArrayList<MenuItem>>> loadMenuItems(Collection<Integer> menuIds) {
+        Map<Integer, Map<Integer, ArrayList<MenuItem>>> result = new HashMap<>();
+        List<MenuItem> items = new ArrayList<>();
+        List<Integer> recids = new ArrayList<>();
+
+        String query = "SELECT * FROM MenuItems WHERE menu_id IN (%s) ORDER BY position, id";
+        PersistenceManager.executeQueryIn(query, menuIds, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                MenuItem mi = new MenuItem();
+                mi.id = rs.getInt("id");
+                mi.description = rs.getString("description");
+                mi.position = rs.getInt("position");
+                result.computeIfAbsent(rs.getInt("menu_id"), k -> new HashMap<>())
+                        .computeIfAbsent(rs.getInt("section_id"), k -> new ArrayList<>()).add(mi);
+                items.add(mi);
+                recids.add(rs.getInt("recipe_id"));
+            }
+        });
+
+        Map<Integer, Recipe> recipes = Recipe.loadRecipes(recids);
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).recipe = recipes.get(recids.get(i));
+        }
+
+        return result;
+    }
+
     public static void saveSection(int sec_id, MenuItem mi) {
         String upd = "UPDATE MenuItems SET section_id = ? WHERE id = ?";
         PersistenceManager.executeUpdate(upd, sec_id, mi.id);
     }
 
     public static void saveDescription(MenuItem mi) {
+        saveDescription(mi.id, mi.getDescription());
+    }
+
+    public static void saveDescription(int itemId, String description) {
         String upd = "UPDATE MenuItems SET description = ? WHERE id = ?";
-        PersistenceManager.executeUpdate(upd, mi.getDescription(), mi.id);
+        PersistenceManager.executeUpdate(upd, description, itemId);
     }
 
     public static void removeItem(MenuItem mi) {
@@ -85,6 +147,8 @@ public class MenuItem {
     private int id;
     private String description;
     private Recipe recipe;
+    // Sparse key of the position column, see OrderKeys
+    private int position = OrderKeys.UNASSIGNED;
 
     public MenuItem(Recipe rec) {
         this(rec, rec.getName());
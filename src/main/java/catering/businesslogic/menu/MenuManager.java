@@ -1,19 +1,21 @@
 package catering.businesslogic.menu;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import catering.businesslogic.CatERing;
+import catering.businesslogic.Session;
 import catering.businesslogic.UseCaseLogicException;
 import catering.businesslogic.recipe.Recipe;
 import catering.businesslogic.user.User;
 
 public class MenuManager {
 
-    private Menu currentMenu;
-    private ArrayList<MenuEventReceiver> eventReceivers;
+    // Shared by every session: receivers may be added while others notify
+    private List<MenuEventReceiver> eventReceivers;
 
     public MenuManager() {
-        eventReceivers = new ArrayList<>();
+        eventReceivers = new CopyOnWriteArrayList<>();
     }
 
     public Menu createMenu() throws UseCaseLogicException {
@@ -36,22 +38,22 @@ public class MenuManager {
 
     public Section defineSection(String name) throws UseCaseLogicException {
 
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
 
-        Section newSection = this.currentMenu.addSection(name);
+        Section newSection = getCurrentMenu().addSection(name);
 
-        this.notifySectionAdded(this.currentMenu, newSection);
+        this.notifySectionAdded(getCurrentMenu(), newSection);
 
         return newSection;
     }
 
     public MenuItem insertItem(Recipe recipe, Section sec, String desc) throws UseCaseLogicException {
-        if (this.currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
-        if (sec != null && this.currentMenu.getSectionPosition(sec) < 0)
+        if (sec != null && getCurrentMenu().getSectionPosition(sec) < 0)
             throw new UseCaseLogicException();
-        MenuItem mi = this.currentMenu.addItem(recipe, sec, desc);
+        MenuItem mi = getCurrentMenu().addItem(recipe, sec, desc);
         this.notifyMenuItemAdded(mi);
         return mi;
     }
@@ -69,27 +71,27 @@ public class MenuManager {
     }
 
     public void addMenuFeatures(String[] features, boolean[] values) throws UseCaseLogicException {
-        if (this.currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
         if (features.length != values.length)
             throw new UseCaseLogicException();
         for (int i = 0; i < features.length; i++) {
-            this.currentMenu.setFeature(features[i], values[i]);
+            getCurrentMenu().setFeature(features[i], values[i]);
         }
         this.notifyMenuFeaturesChanged();
     }
 
     public void changeTitle(String title) throws UseCaseLogicException {
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
-        currentMenu.setTitle(title);
+        getCurrentMenu().setTitle(title);
         this.notifyMenuTitleChanged();
     }
 
     public void publish() throws UseCaseLogicException {
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
-        currentMenu.setPublished(true);
+        getCurrentMenu().setPublished(true);
         this.notifyMenuPublishedState();
     }
 
@@ -110,7 +112,7 @@ public class MenuManager {
         if (m.isInUse() || !m.isOwner(u)) {
             throw new MenuException();
         }
-        this.currentMenu = m;
+        this.setCurrentMenu(m);
     }
 
     public Menu chooseMenuForCopy(Menu toCopy) throws UseCaseLogicException {
@@ -131,15 +133,15 @@ public class MenuManager {
     }
 
     public void deleteSection(Section s, boolean deleteItems) throws UseCaseLogicException {
-        if (currentMenu == null || currentMenu.getSectionPosition(s) < 0)
+        if (getCurrentMenu() == null || getCurrentMenu().getSectionPosition(s) < 0)
             throw new UseCaseLogicException();
-        this.currentMenu.removeSection(s, deleteItems);
+        getCurrentMenu().removeSection(s, deleteItems);
 
         this.notifySectionDeleted(s, deleteItems);
     }
 
     public void changeSectionName(Section s, String name) throws UseCaseLogicException {
-        if (currentMenu == null || currentMenu.getSectionPosition(s) < 0)
+        if (getCurrentMenu() == null || getCurrentMenu().getSectionPosition(s) < 0)
             throw new UseCaseLogicException();
         s.setName(name);
 
@@ -147,11 +149,11 @@ public class MenuManager {
     }
 
     public void moveSection(Section sec, int position) throws UseCaseLogicException {
-        if (currentMenu == null || currentMenu.getSectionPosition(sec) < 0)
+        if (getCurrentMenu() == null || getCurrentMenu().getSectionPosition(sec) < 0)
             throw new UseCaseLogicException();
-        if (position < 0 || position >= currentMenu.getSectionCount())
+        if (position < 0 || position >= getCurrentMenu().getSectionCount())
             throw new IllegalArgumentException();
-        this.currentMenu.moveSection(sec, position);
+        getCurrentMenu().moveSection(sec, position);
 
         this.notifySectionsRearranged();
     }
@@ -162,14 +164,14 @@ public class MenuManager {
 
     public void moveMenuItem(MenuItem mi, Section sec, int position) throws UseCaseLogicException {
         if (sec == null) {
-            if (currentMenu == null || currentMenu.getFreeItemPosition(mi) < 0)
+            if (getCurrentMenu() == null || getCurrentMenu().getFreeItemPosition(mi) < 0)
                 throw new UseCaseLogicException();
-            if (position < 0 || position >= currentMenu.getFreeItemCount())
+            if (position < 0 || position >= getCurrentMenu().getFreeItemCount())
                 throw new IllegalArgumentException();
-            currentMenu.moveFreeItem(mi, position);
+            getCurrentMenu().moveFreeItem(mi, position);
             this.notifyFreeItemsRearranged();
         } else {
-            if (currentMenu == null || currentMenu.getSectionPosition(sec) < 0 || sec.getItemPosition(mi) < 0)
+            if (getCurrentMenu() == null || getCurrentMenu().getSectionPosition(sec) < 0 || sec.getItemPosition(mi) < 0)
                 throw new UseCaseLogicException();
             if (position < 0 || position >= sec.getItemsCount())
                 throw new IllegalArgumentException();
@@ -180,29 +182,29 @@ public class MenuManager {
 
     public void assignItemToSection(MenuItem mi, Section sec) throws UseCaseLogicException {
 
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
 
-        if (sec != null && currentMenu.getSectionPosition(sec) < 0)
+        if (sec != null && getCurrentMenu().getSectionPosition(sec) < 0)
             throw new UseCaseLogicException();
 
-        Section oldsec = currentMenu.getSection(mi);
-        if (oldsec == null && currentMenu.getFreeItemPosition(mi) < 0)
+        Section oldsec = getCurrentMenu().getSection(mi);
+        if (oldsec == null && getCurrentMenu().getFreeItemPosition(mi) < 0)
             throw new UseCaseLogicException();
 
         if (sec == oldsec)
             return;
 
-        this.currentMenu.changeItemSection(mi, oldsec, sec);
+        getCurrentMenu().changeItemSection(mi, oldsec, sec);
 
         this.notifyItemSectionChanged(mi, sec);
 
     }
 
     public void editMenuItemDescription(MenuItem mi, String desc) throws UseCaseLogicException {
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
-        if (currentMenu.getSection(mi) == null && currentMenu.getFreeItemPosition(mi) < 0)
+        if (getCurrentMenu().getSection(mi) == null && getCurrentMenu().getFreeItemPosition(mi) < 0)
             throw new UseCaseLogicException();
 
         mi.setDescription(desc);
@@ -212,25 +214,25 @@ public class MenuManager {
 
     public void deleteItem(MenuItem mi) throws UseCaseLogicException {
 
-        if (currentMenu == null)
+        if (getCurrentMenu() == null)
             throw new UseCaseLogicException();
         Section sec = null;
         try {
-            sec = currentMenu.getSection(mi);
+            sec = getCurrentMenu().getSection(mi);
         } catch (IllegalArgumentException ex) {
 
             throw new UseCaseLogicException();
         }
-        currentMenu.removeItem(mi);
+        getCurrentMenu().removeItem(mi);
         this.notifyItemDeleted(sec, mi);
     }
 
     public void setCurrentMenu(Menu m) {
-        this.currentMenu = m;
+        Session.current().setCurrentMenu(m);
     }
 
     public Menu getCurrentMenu() {
-        return this.currentMenu;
+        return Session.current().getCurrentMenu();
     }
 
     public void addEventReceiver(MenuEventReceiver rec) {
@@ -243,49 +245,49 @@ public class MenuManager {
 
     private void notifyItemDeleted(Section sec, MenuItem mi) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuItemDeleted(this.currentMenu, sec, mi);
+            er.updateMenuItemDeleted(getCurrentMenu(), sec, mi);
         }
     }
 
     private void notifyItemDescriptionChanged(MenuItem mi) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuItemDescriptionChanged(this.currentMenu, mi);
+            er.updateMenuItemDescriptionChanged(getCurrentMenu(), mi);
         }
     }
 
     private void notifyItemSectionChanged(MenuItem mi, Section s) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuItemChanged(this.currentMenu, s, mi);
+            er.updateMenuItemChanged(getCurrentMenu(), s, mi);
         }
     }
 
     private void notifySectionItemsRearranged(Section sec) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuItemsRearranged(this.currentMenu, sec);
+            er.updateMenuItemsRearranged(getCurrentMenu(), sec);
         }
     }
 
     private void notifyFreeItemsRearranged() {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateFreeMenuItemsRearranged(this.currentMenu);
+            er.updateFreeMenuItemsRearranged(getCurrentMenu());
         }
     }
 
     private void notifySectionsRearranged() {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateSectionsRearranged(this.currentMenu);
+            er.updateSectionsRearranged(getCurrentMenu());
         }
     }
 
     private void notifySectionChangedName(Section s) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateSectionChangedName(this.currentMenu, s);
+            er.updateSectionChangedName(getCurrentMenu(), s);
         }
     }
 
     private void notifySectionDeleted(Section s, boolean itemsDeleted) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateSectionDeleted(this.currentMenu, s, itemsDeleted);
+            er.updateSectionDeleted(getCurrentMenu(), s, itemsDeleted);
         }
     }
 
@@ -297,25 +299,25 @@ public class MenuManager {
 
     private void notifyMenuPublishedState() {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuPublishedState(this.currentMenu);
+            er.updateMenuPublishedState(getCurrentMenu());
         }
     }
 
     private void notifyMenuTitleChanged() {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuTitleChanged(this.currentMenu);
+            er.updateMenuTitleChanged(getCurrentMenu());
         }
     }
 
     private void notifyMenuFeaturesChanged() {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuFeaturesChanged(this.currentMenu);
+            er.updateMenuFeaturesChanged(getCurrentMenu());
         }
     }
 
     private void notifyMenuItemAdded(MenuItem mi) {
         for (MenuEventReceiver er : this.eventReceivers) {
-            er.updateMenuItemAdded(this.currentMenu, mi);
+            er.updateMenuItemAdded(getCurrentMenu(), mi);
         }
     }
 
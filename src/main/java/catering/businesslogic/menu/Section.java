@@ -4,25 +4,40 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import catering.persistence.BatchUpdateHandler;
+import catering.persistence.OrderKeys;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 
 public class Section {
 
-    public static void create(int menuid, Section sec, int posInMenu) {
-        String secInsert = "INSERT INTO MenuSections (menu_id, name, position) VALUES (?, ?, ?)";
-        PersistenceManager.executeUpdate(secInsert, menuid, sec.name, posInMenu);
-        sec.id = PersistenceManager.getLastId();
-
-        if (sec.sectionItems.size() > 0) {
-            MenuItem.create(menuid, sec.id, sec.sectionItems);
-        }
+    /**
+     * Inserts a section added to a menu, with a position key between its
+     * neighbours
+     */
+    public static void create(Menu m, Section sec) {
+        PersistenceManager.inTransaction(() -> {
+            // Gives the section its key, renumbering the others if there is no room
+            Menu.saveSectionOrder(m);
+            String secInsert = "INSERT INTO MenuSections (menu_id, name, position) VALUES (?, ?, ?)";
+            sec.id = PersistenceManager.executeInsert(secInsert, m.getId(), sec.name, sec.position);
+
+            if (sec.sectionItems.size() > 0) {
+                MenuItem.create(m.getId(), sec.id, sec.sectionItems);
+            }
+        });
     }
 
     public static void create(int menuid, List<Section> sections) {
+        PersistenceManager.inTransaction(() -> insertAll(menuid, sections));
+    }
+
+    private static void insertAll(int menuid, List<Section> sections) {
         String query = "INSERT INTO MenuSections (menu_id, name, position) VALUES (?, ?, ?);";
         PersistenceManager.executeBatchUpdate(query, sections.size(), new BatchUpdateHandler() {
             @Override
@@ -30,7 +45,8 @@ public class Section {
                 ps.setInt(1, menuid);
                 ps.setString(2, sections.get(batchCount).name);
 
-                ps.setInt(3, batchCount);
+                sections.get(batchCount).position = OrderKeys.sequential(batchCount);
+                ps.setInt(3, sections.get(batchCount).position);
             }
 
             @Override
@@ -55,6 +71,7 @@ public class Section {
             public void handle(ResultSet rs) throws SQLException {
                 Section s = new Section(rs.getString("name"));
                 s.id = rs.getInt("id");
+                s.position = rs.getInt("position");
                 result.add(s);
             }
         }, menu_id);
@@ -67,37 +84,70 @@ public class Section {
         return result;
     }
 
-    public static void deleteSection(int menu_id, Section s) {
+    /**
+     * Loads the sections of a set of menus with one IN query
+     * 
+     * @param menuIds The menu IDs
+     * @param items   The items of the menus, from MenuItem.loadMenuItems
+     * @return Sections by menu ID, in position order
+     */
+    static Map<Integer, ArrayList<Section>> loadSections(Collection<Integer> menuIds,
+            Map<Integer, Map<Integer, ArrayList<MenuItem>>> items) {
+        Map<Integer, ArrayList<Section>> result = new HashMap<>();
+        String query = "SELECT * FROM MenuSections WHERE menu_id IN (%s) ORDER BY position, id";
+
+        PersistenceManager.executeQueryIn(query, menuIds, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                int menuId = rs.getInt("menu_id");
+                Section s = new Section(rs.getString("name"));
+                s.id = rs.getInt("id");
+                s.position = rs.getInt("position");
+                ArrayList<MenuItem> sectionItems = items.getOrDefault(menuId, Map.of()).get(s.id);
+                if (sectionItems != null) {
+                    s.sectionItems = sectionItems;
+                }
+                result.computeIfAbsent(menuId, k -> new ArrayList<>()).add(s);
+            }
+        });
 
-        String query = "DELETE FROM MenuItems WHERE section_id = ? AND menu_id = ?";
-        PersistenceManager.executeUpdate(query, s.id, menu_id);
+        return result;
+    }
 
-        query = "DELETE FROM MenuSections WHERE id = ?";
-        PersistenceManager.executeUpdate(query, s.id);
+    public static void deleteSection(int menu_id, Section s) {
+        PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("DELETE FROM MenuItems WHERE section_id = ? AND menu_id = ?",
+                    s.id, menu_id);
+            PersistenceManager.executeUpdate("DELETE FROM MenuSections WHERE id = ?", s.id);
+        });
     }
 
     public static void saveSectionName(Section s) {
+        saveSectionName(s.id, s.name);
+    }
+
+    public static void saveSectionName(int sectionId, String name) {
         String query = "UPDATE MenuSections SET name = ? WHERE id = ?";
-        PersistenceManager.executeUpdate(query, s.name, s.id);
+        PersistenceManager.executeUpdate(query, name, sectionId);
     }
 
+    /**
+     * Saves the order of the items, writing only the positions that changed
+     */
     public static void saveItemOrder(Section s) {
-        String query = "UPDATE MenuItems SET position = ? WHERE id = ?";
-        PersistenceManager.executeBatchUpdate(query, s.sectionItems.size(), new BatchUpdateHandler() {
-            @Override
-            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
-                ps.setInt(1, batchCount);
-                ps.setInt(2, s.sectionItems.get(batchCount).getId());
-            }
+        saveItemOrder(s.sectionItems);
+    }
 
-            @Override
-            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
-                // no generated ids to handle
-            }
-        });
+    /**
+     * Saves the order of a copy of the items of a section
+     */
+    public static void saveItemOrder(List<MenuItem> items) {
+        MenuItem.saveOrder(items);
     }
 
     private int id;
+    // Sparse key of the position column, see OrderKeys
+    int position = OrderKeys.UNASSIGNED;
     private String name;
     private ArrayList<MenuItem> sectionItems;
 
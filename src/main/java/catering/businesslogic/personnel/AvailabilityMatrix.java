@@ -0,0 +1,269 @@
+package catering.businesslogic.personnel;
+
+import catering.businesslogic.shift.Shift;
+import catering.persistence.PersistenceManager;
+import catering.util.LogManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Matrice in memoria delle disponibilità dei collaboratori ai turni.
+ *
+ * Ogni collaboratore ha una riga (un indice compatto); per ogni turno la
+ * matrice tiene due BitSet sulle righe: chi si è dichiarato disponibile e chi
+ * è già confermato (assegnato). Le ferie approvate sono un BitSet per giorno,
+ * calcolato dal LeaveCalendar la prima volta che serve, e i collaboratori
+ * attivi un altro BitSet. La domanda "chi è libero per tutti questi turni?"
+ * diventa quindi una serie di AND/ANDNOT su parole da 64 collaboratori, senza
+ * una query per collaboratore o per turno.
+ *
+ * Un collaboratore è libero per un turno se è attivo, si è dichiarato
+ * disponibile, non è già confermato e non è in ferie quel giorno.
+ *
+ * La matrice viene letta dal database al primo utilizzo (Collaborators,
+ * CollaboratorAvailability) e poi tenuta allineata da PersonnelPersistence
+ * dopo ogni scrittura di collaboratori, disponibilità e ferie. Il giorno di un
+ * turno è quello dell'oggetto Shift passato alle interrogazioni. Come per il
+ * LeaveCalendar, le modifiche fatte con SQL diretto non sono viste finché
+ * non si chiama invalidate().
+ */
+public class AvailabilityMatrix {
+
+    private static final Logger LOGGER = LogManager.getLogger(AvailabilityMatrix.class);
+
+    private static final AvailabilityMatrix instance = new AvailabilityMatrix();
+
+    /**
+     * Disponibilità di un collaboratore per un turno
+     */
+    public enum Status {
+        /** Nessuna disponibilità dichiarata */
+        NONE,
+        /** Disponibile, non ancora assegnato */
+        AVAILABLE,
+        /** Assegnato al turno */
+        CONFIRMED
+    }
+
+    // Disponibilità di un turno, per riga di collaboratore
+    private static class Column {
+        final BitSet available = new BitSet();
+        final BitSet confirmed = new BitSet();
+    }
+
+    private final Map<Integer, Integer> rows = new HashMap<>();
+    private final List<Integer> collaboratorIds = new ArrayList<>();
+    private final BitSet active = new BitSet();
+    private final Map<Integer, Column> columns = new HashMap<>();
+    private final Map<LocalDate, BitSet> leaveByDay = new HashMap<>();
+    private boolean loaded;
+
+    private AvailabilityMatrix() {
+        PersistenceManager.addResetListener(this::invalidate);
+    }
+
+    public static AvailabilityMatrix getInstance() {
+        return instance;
+    }
+
+    // ==================== INTERROGAZIONI ====================
+
+    /**
+     * Elenca i collaboratori liberi per tutti i turni indicati.
+     *
+     * @param shifts Turni da coprire, già salvati
+     * @return Gli id dei collaboratori liberi per ogni turno
+     */
+    public synchronized List<Integer> getFreeCollaborators(Collection<Shift> shifts) {
+        return toIds(free(shifts));
+    }
+
+    /**
+     * @return Numero di collaboratori liberi per tutti i turni indicati
+     */
+    public synchronized int countFree(Collection<Shift> shifts) {
+        return free(shifts).cardinality();
+    }
+
+    /**
+     * Verifica se il collaboratore è libero per il turno.
+     */
+    public synchronized boolean isFree(int collaboratorId, Shift shift) {
+        ensureLoaded();
+        Integer row = rows.get(collaboratorId);
+        Column col = columns.get(shift.getId());
+        return row != null && col != null && active.get(row) && col.available.get(row)
+                && !col.confirmed.get(row) && !leave(shift).get(row);
+    }
+
+    /**
+     * @return La disponibilità dichiarata dal collaboratore per il turno
+     */
+    public synchronized Status getStatus(int collaboratorId, Shift shift) {
+        ensureLoaded();
+        Integer row = rows.get(collaboratorId);
+        Column col = columns.get(shift.getId());
+        if (row == null || col == null || !col.available.get(row)) {
+            return Status.NONE;
+        }
+        return col.confirmed.get(row) ? Status.CONFIRMED : Status.AVAILABLE;
+    }
+
+    /**
+     * @return Gli id dei collaboratori confermati per il turno
+     */
+    public synchronized List<Integer> getConfirmedCollaborators(Shift shift) {
+        ensureLoaded();
+        Column col = columns.get(shift.getId());
+        return col == null ? new ArrayList<>() : toIds(col.confirmed);
+    }
+
+    // ==================== SINCRONIZZAZIONE ====================
+
+    /**
+     * Allinea la matrice a una disponibilità appena salvata.
+     */
+    public synchronized void availabilityChanged(int collaboratorId, int shiftId, Status status) {
+        if (!loaded) {
+            // Verrà letta dal database al primo utilizzo
+            return;
+        }
+        set(row(collaboratorId), shiftId, status);
+    }
+
+    /**
+     * Allinea la matrice a un collaboratore appena salvato (aggiunto,
+     * modificato o disattivato).
+     */
+    public synchronized void collaboratorChanged(Collaborator collab) {
+        if (!loaded) {
+            return;
+        }
+        active.set(row(collab.getId()), collab.isActive());
+    }
+
+    /**
+     * Rilegge dal LeaveCalendar le ferie del collaboratore nei giorni già
+     * calcolati. Chiamato dopo ogni modifica delle sue ferie.
+     */
+    public synchronized void leaveChanged(int collaboratorId) {
+        if (!loaded || leaveByDay.isEmpty()) {
+            return;
+        }
+        int row = row(collaboratorId);
+        LeaveCalendar calendar = LeaveCalendar.getInstance();
+        for (Map.Entry<LocalDate, BitSet> e : leaveByDay.entrySet()) {
+            e.getValue().set(row, calendar.isOnLeave(collaboratorId, e.getKey()));
+        }
+    }
+
+    /**
+     * Svuota la matrice, che verrà ricaricata al prossimo utilizzo.
+     */
+    public synchronized void invalidate() {
+        rows.clear();
+        collaboratorIds.clear();
+        active.clear();
+        columns.clear();
+        leaveByDay.clear();
+        loaded = false;
+    }
+
+    /**
+     * @return Numero di righe (collaboratori) della matrice
+     */
+    public synchronized int size() {
+        ensureLoaded();
+        return collaboratorIds.size();
+    }
+
+    // ==================== HELPER ====================
+
+    private BitSet free(Collection<Shift> shifts) {
+        ensureLoaded();
+        BitSet result = (BitSet) active.clone();
+        for (Shift s : shifts) {
+            Column col = columns.get(s.getId());
+            if (col == null) {
+                // Nessuno si è dichiarato disponibile
+                result.clear();
+                break;
+            }
+            result.and(col.available);
+            result.andNot(col.confirmed);
+            result.andNot(leave(s));
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Collaboratori in ferie nel giorno del turno
+    private BitSet leave(Shift shift) {
+        LocalDate day = shift.getDate().toLocalDate();
+        BitSet onLeave = leaveByDay.get(day);
+        if (onLeave == null) {
+            onLeave = new BitSet();
+            Set<Integer> ids = LeaveCalendar.getInstance().getCollaboratorsOnLeave(day);
+            for (int id : ids) {
+                onLeave.set(row(id));
+            }
+            leaveByDay.put(day, onLeave);
+        }
+        return onLeave;
+    }
+
+    private List<Integer> toIds(BitSet set) {
+        List<Integer> ids = new ArrayList<>(set.cardinality());
+        for (int row = set.nextSetBit(0); row >= 0; row = set.nextSetBit(row + 1)) {
+            ids.add(collaboratorIds.get(row));
+        }
+        return ids;
+    }
+
+    private int row(int collaboratorId) {
+        Integer row = rows.get(collaboratorId);
+        if (row == null) {
+            row = collaboratorIds.size();
+            collaboratorIds.add(collaboratorId);
+            rows.put(collaboratorId, row);
+        }
+        return row;
+    }
+
+    private void set(int row, int shiftId, Status status) {
+        Column col = columns.get(shiftId);
+        if (col == null) {
+            if (status == Status.NONE) {
+                return;
+            }
+            col = new Column();
+            columns.put(shiftId, col);
+        }
+        col.available.set(row, status != Status.NONE);
+        col.confirmed.set(row, status == Status.CONFIRMED);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        PersistenceManager.executeQuery("SELECT id FROM Collaborators WHERE active = 1 ORDER BY id",
+                rs -> active.set(row(rs.getInt("id"))));
+        PersistenceManager.executeQuery("SELECT collaborator_id, shift_id, confirmed FROM CollaboratorAvailability",
+                rs -> set(row(rs.getInt("collaborator_id")), rs.getInt("shift_id"),
+                        rs.getInt("confirmed") == 1 ? Status.CONFIRMED : Status.AVAILABLE));
+        loaded = true;
+        LOGGER.fine("Matrice disponibilità caricata: " + collaboratorIds.size() + " collaboratori, "
+                + columns.size() + " turni");
+    }
+}
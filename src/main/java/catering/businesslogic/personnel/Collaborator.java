@@ -7,6 +7,8 @@ import catering.persistence.ResultHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Rappresenta un Collaboratore nel sistema di catering.
@@ -196,24 +198,10 @@ public class Collaborator {
     
     /**
      * Verifica se il collaboratore è in ferie in una data specifica.
-     * Controlla le RichiestaFerie approvate.
+     * Controlla le RichiestaFerie approvate tramite il LeaveCalendar.
      */
     public boolean isOnLeave(java.util.Date date) {
-        final boolean[] result = {false};
-        String dateStr = new java.text.SimpleDateFormat("yyyy-MM-dd").format(date);
-        String query = "SELECT COUNT(*) as cnt FROM LeaveRequests " +
-                      "WHERE collaborator_id = " + this.id + 
-                      " AND approved = 1 " +
-                      " AND start_date <= '" + dateStr + "'" +
-                      " AND end_date >= '" + dateStr + "'";
-        
-        PersistenceManager.executeQuery(query, new ResultHandler() {
-            @Override
-            public void handle(ResultSet rs) throws SQLException {
-                result[0] = rs.getInt("cnt") > 0;
-            }
-        });
-        return result[0];
+        return LeaveCalendar.getInstance().isOnLeave(this.id, date);
     }
     
     // ==================== PERSISTENZA ====================
@@ -232,8 +220,25 @@ public class Collaborator {
                       vacationDays + ", " +
                       (user != null ? user.getId() : "NULL") + ")";
         
-        PersistenceManager.executeUpdate(query);
-        this.id = PersistenceManager.getLastId();
+        this.id = PersistenceManager.executeInsert(query);
+    }
+    
+    /**
+     * Copia dei dati del collaboratore, con lo stesso id: la scrittura
+     * write-behind salva la copia, che non cambia mentre è in coda.
+     */
+    public Collaborator copy() {
+        Collaborator c = new Collaborator();
+        c.id = id;
+        c.name = name;
+        c.contact = contact;
+        c.fiscalCode = fiscalCode;
+        c.address = address;
+        c.occasional = occasional;
+        c.active = active;
+        c.vacationDays = vacationDays;
+        c.user = user;
+        return c;
     }
     
     /**
@@ -254,6 +259,23 @@ public class Collaborator {
         PersistenceManager.executeUpdate(query);
     }
     
+    /**
+     * Salva la disponibilità del collaboratore per un turno: la riga di
+     * CollaboratorAvailability viene inserita, aggiornata o cancellata (NONE).
+     */
+    public void saveAvailability(int shiftId, AvailabilityMatrix.Status status) {
+        if (status == AvailabilityMatrix.Status.NONE) {
+            PersistenceManager.executeUpdate(
+                    "DELETE FROM CollaboratorAvailability WHERE collaborator_id = ? AND shift_id = ?",
+                    this.id, shiftId);
+        } else {
+            PersistenceManager.executeUpdate(
+                    "INSERT INTO CollaboratorAvailability (collaborator_id, shift_id, confirmed) VALUES (?, ?, ?) "
+                            + "ON CONFLICT (collaborator_id, shift_id) DO UPDATE SET confirmed = excluded.confirmed",
+                    this.id, shiftId, status == AvailabilityMatrix.Status.CONFIRMED ? 1 : 0);
+        }
+    }
+    
     /**
      * Carica tutti i collaboratori attivi dal database.
      */
@@ -289,31 +311,34 @@ public class Collaborator {
      * Carica tutti i collaboratori (inclusi inattivi) dal database.
      */
     public static ArrayList<Collaborator> loadAll() {
-        ArrayList<Collaborator> result = new ArrayList<>();
-        String query = "SELECT * FROM Collaborators ORDER BY name";
-        
-        PersistenceManager.executeQuery(query, new ResultHandler() {
-            @Override
-            public void handle(ResultSet rs) throws SQLException {
-                Collaborator c = new Collaborator();
-                c.id = rs.getInt("id");
-                c.name = rs.getString("name");
-                c.contact = rs.getString("contact");
-                c.fiscalCode = rs.getString("fiscal_code");
-                c.address = rs.getString("address");
-                c.occasional = rs.getInt("occasional") == 1;
-                c.active = rs.getInt("active") == 1;
-                c.vacationDays = rs.getInt("vacation_days");
-                
-                int userId = rs.getInt("user_id");
-                if (!rs.wasNull()) {
-                    c.user = User.load(userId);
-                }
-                
-                result.add(c);
+        try (Stream<Collaborator> all = streamAll()) {
+            return all.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Scorre tutti i collaboratori (inclusi inattivi) in ordine di nome,
+     * leggendoli dal database man mano che lo stream viene consumato.
+     * Lo stream va chiuso (try-with-resources).
+     */
+    public static Stream<Collaborator> streamAll() {
+        return PersistenceManager.stream("SELECT * FROM Collaborators ORDER BY name", rs -> {
+            Collaborator c = new Collaborator();
+            c.id = rs.getInt("id");
+            c.name = rs.getString("name");
+            c.contact = rs.getString("contact");
+            c.fiscalCode = rs.getString("fiscal_code");
+            c.address = rs.getString("address");
+            c.occasional = rs.getInt("occasional") == 1;
+            c.active = rs.getInt("active") == 1;
+            c.vacationDays = rs.getInt("vacation_days");
+
+            int userId = rs.getInt("user_id");
+            if (!rs.wasNull()) {
+                c.user = User.load(userId);
             }
+            return c;
         });
-        return result;
     }
     
     /**
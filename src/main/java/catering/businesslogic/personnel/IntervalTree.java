@@ -0,0 +1,189 @@
+package catering.businesslogic.personnel;
+
+/**
+ * Albero di intervalli chiusi [start, end] di giorni (epoch day).
+ *
+ * È un AVL ordinato per (start, id) in cui ogni nodo conosce anche la fine
+ * massima del proprio sottoalbero: così inserimento, rimozione e ricerca di
+ * una sovrapposizione costano O(log n). Gli intervalli possono sovrapporsi tra
+ * loro; l'id (della richiesta ferie) distingue intervalli con lo stesso inizio.
+ *
+ * Non è thread-safe: la sincronizzazione è a carico di LeaveCalendar.
+ */
+class IntervalTree {
+
+    private static class Node {
+        final long start;
+        final long end;
+        final int id;
+        long maxEnd;
+        int height;
+        Node left;
+        Node right;
+
+        Node(long start, long end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+            this.height = 1;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Aggiunge un intervallo. Se esiste già un intervallo con lo stesso
+     * inizio e id viene sostituito.
+     */
+    public void insert(long start, long end, int id) {
+        root = insert(root, start, end, id);
+    }
+
+    /**
+     * Rimuove l'intervallo con l'inizio e l'id dati, se presente.
+     */
+    public void remove(long start, int id) {
+        root = remove(root, start, id);
+    }
+
+    /**
+     * Verifica se almeno un intervallo si sovrappone a [start, end].
+     */
+    public boolean overlaps(long start, long end) {
+        Node n = root;
+        while (n != null) {
+            if (n.start <= end && n.end >= start) {
+                return true;
+            }
+            // Se il sottoalbero sinistro arriva fino a start, l'unico candidato
+            // possibile è lì: a destra gli inizi sono tutti successivi
+            if (n.left != null && n.left.maxEnd >= start) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return false;
+    }
+
+    // ==================== AVL ====================
+
+    private static int compare(long start, int id, Node n) {
+        if (start != n.start) {
+            return Long.compare(start, n.start);
+        }
+        return Integer.compare(id, n.id);
+    }
+
+    private Node insert(Node n, long start, long end, int id) {
+        if (n == null) {
+            size++;
+            return new Node(start, end, id);
+        }
+        int cmp = compare(start, id, n);
+        if (cmp < 0) {
+            n.left = insert(n.left, start, end, id);
+        } else if (cmp > 0) {
+            n.right = insert(n.right, start, end, id);
+        } else {
+            Node replacement = new Node(start, end, id);
+            replacement.left = n.left;
+            replacement.right = n.right;
+            return balance(replacement);
+        }
+        return balance(n);
+    }
+
+    private Node remove(Node n, long start, int id) {
+        if (n == null) {
+            return null;
+        }
+        int cmp = compare(start, id, n);
+        if (cmp < 0) {
+            n.left = remove(n.left, start, id);
+        } else if (cmp > 0) {
+            n.right = remove(n.right, start, id);
+        } else {
+            size--;
+            if (n.left == null) {
+                return n.right;
+            }
+            if (n.right == null) {
+                return n.left;
+            }
+            // Sostituisce il nodo con il minimo del sottoalbero destro
+            Node min = n.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            Node replacement = new Node(min.start, min.end, min.id);
+            size++; // la rimozione del minimo lo decrementa di nuovo
+            replacement.right = remove(n.right, min.start, min.id);
+            replacement.left = n.left;
+            return balance(replacement);
+        }
+        return balance(n);
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void refresh(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long max = n.end;
+        if (n.left != null && n.left.maxEnd > max) {
+            max = n.left.maxEnd;
+        }
+        if (n.right != null && n.right.maxEnd > max) {
+            max = n.right.maxEnd;
+        }
+        n.maxEnd = max;
+    }
+
+    private static Node balance(Node n) {
+        refresh(n);
+        int factor = height(n.left) - height(n.right);
+        if (factor > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (factor < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        refresh(n);
+        refresh(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        refresh(n);
+        refresh(r);
+        return r;
+    }
+}
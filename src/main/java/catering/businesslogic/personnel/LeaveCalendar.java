@@ -0,0 +1,222 @@
+package catering.businesslogic.personnel;
+
+import catering.persistence.PersistenceManager;
+import catering.persistence.ResultHandler;
+import catering.util.LogManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Calendario in memoria delle ferie approvate.
+ *
+ * Per ogni collaboratore tiene un IntervalTree con i periodi di ferie
+ * approvate, caricato una sola volta dal database al primo utilizzo. Le
+ * domande del tipo "è in ferie il giorno X?", "il periodo si sovrappone a
+ * ferie già approvate?" e "chi è libero in questo periodo?" costano O(log n)
+ * per collaboratore invece di una query COUNT(*) ciascuna.
+ *
+ * LeaveRequest.save e LeaveRequest.update aggiornano il calendario quando la
+ * scrittura è confermata (commit della transazione che la contiene, se c'è):
+ * una transazione annullata non lo tocca. Il calendario viene svuotato quando il database è
+ * reinizializzato. Le modifiche fatte con SQL diretto sulla tabella
+ * LeaveRequests non sono viste finché non si chiama invalidate().
+ */
+public class LeaveCalendar {
+
+    private static final Logger LOGGER = LogManager.getLogger(LeaveCalendar.class);
+
+    private static final LeaveCalendar instance = new LeaveCalendar();
+
+    // Periodo di una richiesta approvata, per poterla togliere dal suo albero
+    private static class Leave {
+        final int collaboratorId;
+        final long start;
+
+        Leave(int collaboratorId, long start) {
+            this.collaboratorId = collaboratorId;
+            this.start = start;
+        }
+    }
+
+    private final Map<Integer, IntervalTree> trees = new HashMap<>();
+    private final Map<Integer, Leave> leaves = new HashMap<>();
+    private boolean loaded;
+
+    private LeaveCalendar() {
+        PersistenceManager.addResetListener(this::invalidate);
+    }
+
+    public static LeaveCalendar getInstance() {
+        return instance;
+    }
+
+    // ==================== INTERROGAZIONI ====================
+
+    /**
+     * Verifica se il collaboratore è in ferie (approvate) nel giorno indicato.
+     */
+    public boolean isOnLeave(int collaboratorId, Date day) {
+        long d = toDay(day);
+        return overlaps(collaboratorId, d, d);
+    }
+
+    boolean isOnLeave(int collaboratorId, LocalDate day) {
+        long d = day.toEpochDay();
+        return overlaps(collaboratorId, d, d);
+    }
+
+    /**
+     * Verifica se il periodo [from, to] si sovrappone a ferie già approvate
+     * del collaboratore. Gli estremi sono inclusi.
+     */
+    public boolean hasOverlap(int collaboratorId, Date from, Date to) {
+        return overlaps(collaboratorId, toDay(from), toDay(to));
+    }
+
+    /**
+     * Filtra i collaboratori che non hanno ferie approvate nel periodo
+     * [from, to].
+     *
+     * @param candidates Collaboratori da considerare (es. tutti gli attivi)
+     * @return I collaboratori liberi, nello stesso ordine
+     */
+    public synchronized ArrayList<Collaborator> getFreeCollaborators(Collection<Collaborator> candidates,
+            Date from, Date to) {
+        ensureLoaded();
+        long start = toDay(from);
+        long end = toDay(to);
+        ArrayList<Collaborator> free = new ArrayList<>();
+        for (Collaborator c : candidates) {
+            IntervalTree tree = trees.get(c.getId());
+            if (tree == null || !tree.overlaps(start, end)) {
+                free.add(c);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * @return Gli id dei collaboratori in ferie nel giorno indicato
+     */
+    public Set<Integer> getCollaboratorsOnLeave(Date day) {
+        return collaboratorsOnLeave(toDay(day));
+    }
+
+    Set<Integer> getCollaboratorsOnLeave(LocalDate day) {
+        return collaboratorsOnLeave(day.toEpochDay());
+    }
+
+    private synchronized Set<Integer> collaboratorsOnLeave(long d) {
+        ensureLoaded();
+        Set<Integer> result = new HashSet<>();
+        for (Map.Entry<Integer, IntervalTree> e : trees.entrySet()) {
+            if (e.getValue().overlaps(d, d)) {
+                result.add(e.getKey());
+            }
+        }
+        return result;
+    }
+
+    // ==================== SINCRONIZZAZIONE ====================
+
+    /**
+     * Allinea il calendario allo stato di una richiesta appena salvata:
+     * la aggiunge se approvata, la toglie altrimenti.
+     */
+    synchronized void update(LeaveRequest req) {
+        if (!loaded) {
+            // Verrà letta dal database al primo utilizzo
+            return;
+        }
+        remove(req.getId());
+        if (req.isApproved() && req.getCollaborator() != null
+                && req.getStartDate() != null && req.getEndDate() != null) {
+            add(req.getId(), req.getCollaborator().getId(), toDay(req.getStartDate()), toDay(req.getEndDate()));
+        }
+    }
+
+    /**
+     * Svuota il calendario, che verrà ricaricato al prossimo utilizzo.
+     */
+    public synchronized void invalidate() {
+        trees.clear();
+        leaves.clear();
+        loaded = false;
+    }
+
+    /**
+     * @return Numero di periodi di ferie approvate in memoria
+     */
+    public synchronized int size() {
+        ensureLoaded();
+        return leaves.size();
+    }
+
+    // ==================== HELPER ====================
+
+    private synchronized boolean overlaps(int collaboratorId, long start, long end) {
+        ensureLoaded();
+        IntervalTree tree = trees.get(collaboratorId);
+        return tree != null && tree.overlaps(start, end);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        load("SELECT id, collaborator_id, start_date, end_date FROM LeaveRequests WHERE approved = 1");
+        loaded = true;
+        LOGGER.fine("Calendario ferie caricato: " + leaves.size() + " periodi approvati");
+    }
+
+    private void load(String query, Object... params) {
+        PersistenceManager.executeQuery(query, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                int id = rs.getInt("id");
+                try {
+                    long start = LocalDate.parse(rs.getString("start_date")).toEpochDay();
+                    long end = LocalDate.parse(rs.getString("end_date")).toEpochDay();
+                    add(id, rs.getInt("collaborator_id"), start, end);
+                } catch (DateTimeParseException | NullPointerException e) {
+                    LOGGER.warning("Date non valide nella richiesta ferie " + id + ": ignorata");
+                }
+            }
+        }, params);
+    }
+
+    private void add(int requestId, int collaboratorId, long start, long end) {
+        trees.computeIfAbsent(collaboratorId, k -> new IntervalTree()).insert(start, end, requestId);
+        leaves.put(requestId, new Leave(collaboratorId, start));
+    }
+
+    private void remove(int requestId) {
+        Leave l = leaves.remove(requestId);
+        if (l == null) {
+            return;
+        }
+        IntervalTree tree = trees.get(l.collaboratorId);
+        tree.remove(l.start, requestId);
+        if (tree.isEmpty()) {
+            trees.remove(l.collaboratorId);
+        }
+    }
+
+    // Giorno di calendario nel fuso locale, come il formato yyyy-MM-dd usato nel DB
+    private static long toDay(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
@@ -120,27 +120,13 @@ public class LeaveRequest {
      * @throws PersonnelException se esiste già una richiesta per lo stesso periodo
      */
     public void save() throws PersonnelException {
-        // Fix 2. Controllo ferie sovrapposte
-        final boolean[] overlapFound = {false};
-        String startStr = dateToStr(startDate);
-        String endStr = dateToStr(endDate);
-        
-        String checkQuery = "SELECT COUNT(*) as cnt FROM LeaveRequests " +
-                            "WHERE collaborator_id = " + collaborator.getId() + 
-                            " AND approved = 1 " + // Controlla solo quelle GIÀ approvate (o anche pending? Meglio approved per ora)
-                            " AND (start_date <= '" + endStr + "' AND end_date >= '" + startStr + "')";
-                            
-        PersistenceManager.executeQuery(checkQuery, new ResultHandler() {
-            @Override
-            public void handle(ResultSet rs) throws SQLException {
-                overlapFound[0] = rs.getInt("cnt") > 0;
-            }
-        });
-
-        if (overlapFound[0]) {
+        // Fix 2. Controllo ferie sovrapposte (solo con quelle già approvate)
+        if (LeaveCalendar.getInstance().hasOverlap(collaborator.getId(), startDate, endDate)) {
             throw new PersonnelException("Esiste già una richiesta ferie approvata per questo periodo.");
         }
 
+        String startStr = dateToStr(startDate);
+        String endStr = dateToStr(endDate);
         String reqStr = dateToStr(requestDate);
         
         String query = "INSERT INTO LeaveRequests (collaborator_id, start_date, end_date, approved, request_date) " +
@@ -150,8 +136,26 @@ public class LeaveRequest {
                       approved + ", " +
                       "'" + reqStr + "')";
         
-        PersistenceManager.executeUpdate(query);
-        this.id = PersistenceManager.getLastId();
+        this.id = PersistenceManager.executeInsert(query);
+        if (this.id > 0) {
+            // Il calendario cambia solo se la riga arriva davvero nel database
+            PersistenceManager.onCommit(() -> LeaveCalendar.getInstance().update(this));
+        }
+    }
+    
+    /**
+     * Copia della richiesta con lo stesso id, insieme a una copia del suo
+     * collaboratore, da salvare più tardi.
+     */
+    public LeaveRequest copy() {
+        LeaveRequest req = new LeaveRequest();
+        req.id = id;
+        req.collaborator = collaborator.copy();
+        req.startDate = startDate;
+        req.endDate = endDate;
+        req.approved = approved;
+        req.requestDate = requestDate;
+        return req;
     }
     
     /**
@@ -159,7 +163,9 @@ public class LeaveRequest {
      */
     public void update() {
         String query = "UPDATE LeaveRequests SET approved = " + approved + " WHERE id = " + this.id;
-        PersistenceManager.executeUpdate(query);
+        if (PersistenceManager.executeUpdate(query) > 0) {
+            PersistenceManager.onCommit(() -> LeaveCalendar.getInstance().update(this));
+        }
     }
     
     /**
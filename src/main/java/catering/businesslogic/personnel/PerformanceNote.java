@@ -8,8 +8,12 @@ import catering.persistence.ResultHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Rappresenta una Nota sulle Performance di un collaboratore.
@@ -88,8 +92,102 @@ public class PerformanceNote {
                       "'" + escape(note) + "', " +
                       "'" + createdStr + "')";
         
-        PersistenceManager.executeUpdate(query);
-        this.id = PersistenceManager.getLastId();
+        this.id = PersistenceManager.executeInsert(query);
+    }
+    
+    /**
+     * Aggiunge la nota salvata all'indice full-text (PerformanceNotesFts).
+     * Va eseguito nella stessa transazione di save(), vedi
+     * PersonnelPersistence.updatePerformanceLogged.
+     */
+    public void index() {
+        PersistenceManager.executeUpdate("INSERT INTO PerformanceNotesFts (rowid, note) VALUES (?, ?)", id, note);
+    }
+    
+    /**
+     * Cerca nell'indice full-text le note che corrispondono alla ricerca,
+     * ordinate per pertinenza (BM25) e poi dalla più recente.
+     * 
+     * La ricerca dei termini usa l'indice; i filtri sono applicati alle sole
+     * note trovate. Collaboratori, eventi e autori sono caricati una volta
+     * per pagina.
+     * 
+     * @param search La ricerca, con un testo che contiene almeno una parola
+     * @param page Numero della pagina, da 0
+     * @param pageSize Numero massimo di note per pagina
+     */
+    public static PerformanceNotePage search(PerformanceNoteQuery search, int page, int pageSize) {
+        StringBuilder query = new StringBuilder(
+                "SELECT n.*, bm25(PerformanceNotesFts) AS score, " +
+                "snippet(PerformanceNotesFts, 0, '[', ']', '...', 12) AS snippet " +
+                "FROM PerformanceNotesFts JOIN PerformanceNotes n ON n.id = PerformanceNotesFts.rowid " +
+                "WHERE PerformanceNotesFts MATCH ?");
+        List<Object> params = new ArrayList<>();
+        params.add(search.toMatchExpression());
+        if (search.getCollaborator() != null) {
+            query.append(" AND n.collaborator_id = ?");
+            params.add(search.getCollaborator().getId());
+        }
+        if (search.getEvent() != null) {
+            query.append(" AND n.event_id = ?");
+            params.add(search.getEvent().getId());
+        }
+        // created_at è 'yyyy-MM-dd HH:mm:ss': i giorni si confrontano come testo
+        if (search.getFrom() != null) {
+            query.append(" AND n.created_at >= ?");
+            params.add(day(search.getFrom()).toString());
+        }
+        if (search.getTo() != null) {
+            query.append(" AND n.created_at < ?");
+            params.add(day(search.getTo()).plusDays(1).toString());
+        }
+        // bm25 è negativo: i valori più bassi sono i più pertinenti
+        query.append(" ORDER BY score, n.created_at DESC, n.id DESC LIMIT ? OFFSET ?");
+        // La riga in più dice solo se segue un'altra pagina
+        params.add(pageSize + 1);
+        params.add((long) page * pageSize);
+        
+        Map<Integer, Collaborator> collaborators = new HashMap<>();
+        Map<Integer, Event> events = new HashMap<>();
+        Map<Integer, User> authors = new HashMap<>();
+        List<PerformanceNotePage.Hit> hits = new ArrayList<>();
+        PersistenceManager.executeQuery(query.toString(), new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                PerformanceNote pn = new PerformanceNote();
+                pn.id = rs.getInt("id");
+                pn.collaborator = collaborators.computeIfAbsent(rs.getInt("collaborator_id"), Collaborator::loadById);
+                int eventId = rs.getInt("event_id");
+                if (!rs.wasNull()) {
+                    pn.event = events.computeIfAbsent(eventId, Event::loadById);
+                }
+                pn.author = authors.computeIfAbsent(rs.getInt("author_id"), User::load);
+                pn.note = rs.getString("note");
+                pn.createdAt = parseCreatedAt(rs.getString("created_at"));
+                hits.add(new PerformanceNotePage.Hit(pn, -rs.getDouble("score"), rs.getString("snippet")));
+            }
+        }, params.toArray());
+        
+        boolean nextPage = hits.size() > pageSize;
+        if (nextPage) {
+            hits.remove(pageSize);
+        }
+        return new PerformanceNotePage(hits, page, nextPage);
+    }
+    
+    private static LocalDate day(Date d) {
+        return new java.sql.Date(d.getTime()).toLocalDate();
+    }
+    
+    private static Date parseCreatedAt(String createdStr) {
+        if (createdStr != null) {
+            try {
+                return DATETIME_FORMAT.parse(createdStr);
+            } catch (Exception e) {
+                // Come negli altri caricamenti: data corrente
+            }
+        }
+        return new Date();
     }
     
     /**
@@ -0,0 +1,64 @@
+package catering.businesslogic.personnel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Una pagina dei risultati di una ricerca nelle note sulle performance,
+ * dalla più pertinente.
+ *
+ * @see PersonnelManager#searchPerformanceNotes
+ */
+public class PerformanceNotePage {
+
+    /**
+     * Una nota trovata, con la sua pertinenza e un estratto del testo.
+     */
+    public static class Hit {
+        private final PerformanceNote note;
+        private final double score;
+        private final String snippet;
+
+        Hit(PerformanceNote note, double score, String snippet) {
+            this.note = note;
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        public PerformanceNote getNote() { return note; }
+
+        /**
+         * @return Pertinenza BM25: più è alta, più la nota è pertinente
+         */
+        public double getScore() { return score; }
+
+        /**
+         * @return Estratto della nota con i termini trovati tra [ e ]
+         */
+        public String getSnippet() { return snippet; }
+    }
+
+    private final List<Hit> hits;
+    private final int page;
+    private final boolean nextPage;
+
+    PerformanceNotePage(List<Hit> hits, int page, boolean nextPage) {
+        this.hits = Collections.unmodifiableList(hits);
+        this.page = page;
+        this.nextPage = nextPage;
+    }
+
+    public List<Hit> getHits() { return hits; }
+
+    /**
+     * @return Numero della pagina, da 0
+     */
+    public int getPage() { return page; }
+
+    public boolean hasNextPage() { return nextPage; }
+
+    @Override
+    public String toString() {
+        return "PerformanceNotePage{page=" + page + ", hits=" + hits.size() + ", nextPage=" + nextPage + '}';
+    }
+}
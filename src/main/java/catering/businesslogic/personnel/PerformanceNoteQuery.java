@@ -0,0 +1,114 @@
+package catering.businesslogic.personnel;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import catering.businesslogic.event.Event;
+
+/**
+ * Ricerca full-text nelle note sulle performance, con filtri opzionali.
+ *
+ * Il testo è una lista di parole, tutte richieste, ognuna anche come
+ * prefisso ("puntual" trova "puntuale"); le parti tra virgolette sono cercate
+ * come frase esatta. Maiuscole e accenti sono ignorati.
+ *
+ * Esempio:
+ * new PerformanceNoteQuery("\"in ritardo\" allergeni").collaborator(c).between(from, to)
+ *
+ * @see PersonnelManager#searchPerformanceNotes
+ */
+public class PerformanceNoteQuery {
+
+    private final String text;
+    private Collaborator collaborator;
+    private Event event;
+    private Date from;
+    private Date to;
+
+    public PerformanceNoteQuery(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Solo le note del collaboratore indicato.
+     */
+    public PerformanceNoteQuery collaborator(Collaborator collaborator) {
+        this.collaborator = collaborator;
+        return this;
+    }
+
+    /**
+     * Solo le note relative all'evento indicato.
+     */
+    public PerformanceNoteQuery event(Event event) {
+        this.event = event;
+        return this;
+    }
+
+    /**
+     * Solo le note scritte tra due giorni, entrambi inclusi; null per non
+     * limitare un estremo.
+     */
+    public PerformanceNoteQuery between(Date from, Date to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public String getText() { return text; }
+    public Collaborator getCollaborator() { return collaborator; }
+    public Event getEvent() { return event; }
+    public Date getFrom() { return from; }
+    public Date getTo() { return to; }
+
+    /**
+     * Traduce il testo in un'espressione MATCH di FTS5. Ogni termine è
+     * racchiuso tra virgolette, così i caratteri speciali della sintassi FTS5
+     * (NEAR, *, ^, parentesi...) scritti dall'utente non causano errori.
+     *
+     * @return L'espressione, o null se il testo non contiene parole
+     */
+    String toMatchExpression() {
+        if (text == null) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>();
+        String[] parts = text.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            // Le parti dispari sono tra virgolette (una virgoletta non chiusa
+            // vale fino alla fine del testo)
+            boolean phrase = i % 2 == 1;
+            List<String> words = words(parts[i]);
+            if (words.isEmpty()) {
+                continue;
+            }
+            if (phrase) {
+                terms.add("\"" + String.join(" ", words) + "\"");
+            } else {
+                for (String w : words) {
+                    terms.add("\"" + w + "\"*");
+                }
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+
+    private static List<String> words(String s) {
+        List<String> words = new ArrayList<>();
+        for (String w : s.split("[^\\p{L}\\p{N}]+")) {
+            if (!w.isEmpty()) {
+                words.add(w);
+            }
+        }
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        return "PerformanceNoteQuery{text='" + text + "'" +
+                ", collaborator=" + (collaborator != null ? collaborator.getId() : "null") +
+                ", event=" + (event != null ? event.getId() : "null") +
+                ", from=" + from + ", to=" + to + '}';
+    }
+}
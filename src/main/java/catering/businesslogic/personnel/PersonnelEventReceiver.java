@@ -1,5 +1,7 @@
 package catering.businesslogic.personnel;
 
+import catering.businesslogic.shift.Shift;
+
 /**
  * Interface per il pattern Observer nel modulo Personnel Management.
  * 
@@ -7,6 +9,7 @@ package catering.businesslogic.personnel;
  * - Un collaboratore viene aggiunto, modificato o eliminato
  * - Una richiesta ferie viene aggiornata
  * - Viene loggata una nota sulle performance
+ * - Cambia la disponibilità di un collaboratore per un turno
  * 
  * Segue lo stesso pattern di MenuEventReceiver e KitchenTaskEventReceiver.
  * 
@@ -43,4 +46,10 @@ public interface PersonnelEventReceiver {
      * Corrisponde al DSD logPerformance.
      */
     void updatePerformanceLogged(Collaborator collab, PerformanceNote note);
+    
+    /**
+     * Chiamato quando un collaboratore dichiara, ritira o vede confermata la
+     * propria disponibilità per un turno.
+     */
+    void updateAvailabilityChanged(Collaborator collab, Shift shift, AvailabilityMatrix.Status status);
 }
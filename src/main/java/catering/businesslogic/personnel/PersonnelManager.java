@@ -1,11 +1,19 @@
 package catering.businesslogic.personnel;
 
 import catering.businesslogic.CatERing;
+import catering.businesslogic.Session;
 import catering.businesslogic.UseCaseLogicException;
 import catering.businesslogic.event.Event;
+import catering.businesslogic.shift.Shift;
 import catering.businesslogic.user.User;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Controller principale per la gestione del personale.
@@ -21,6 +29,7 @@ import java.util.ArrayList;
  * - promoteCollaborator() - Estensione 3b
  * - evaluateLeaveRequest() - Estensione 3c
  * - logPerformance() - Funzionalità aggiuntiva (DSD logPerformance)
+ * - setAvailability() - Disponibilità dei collaboratori ai turni
  * 
  * Usa il pattern Observer per notificare i cambiamenti a PersonnelPersistence.
  * 
@@ -29,11 +38,16 @@ import java.util.ArrayList;
  */
 public class PersonnelManager {
     
-    private Collaborator currentCollaborator;  // collaboratore attualmente selezionato
-    private ArrayList<PersonnelEventReceiver> eventReceivers;
+    /**
+     * Note per pagina di searchPerformanceNotes, se non indicato
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    
+    // Shared by every session: receivers may be added while others notify
+    private List<PersonnelEventReceiver> eventReceivers;
     
     public PersonnelManager() {
-        this.eventReceivers = new ArrayList<>();
+        this.eventReceivers = new CopyOnWriteArrayList<>();
     }
     
     // ==================== GESTIONE OBSERVER ====================
@@ -77,6 +91,12 @@ public class PersonnelManager {
         }
     }
     
+    private void notifyAvailabilityChanged(Collaborator collab, Shift shift, AvailabilityMatrix.Status status) {
+        for (PersonnelEventReceiver rec : eventReceivers) {
+            rec.updateAvailabilityChanged(collab, shift, status);
+        }
+    }
+    
     // ==================== OPERAZIONI DI QUERY ====================
     
     /**
@@ -100,7 +120,7 @@ public class PersonnelManager {
      * @return Il collaboratore con tutti i dati
      */
     public Collaborator getCollaboratorProfile(Collaborator collab) {
-        this.currentCollaborator = collab;
+        setCurrentCollaborator(collab);
         return collab;
     }
     
@@ -114,6 +134,40 @@ public class PersonnelManager {
         return PerformanceNote.loadByCollaborator(collab);
     }
     
+    /**
+     * Cerca nelle note sulle performance di tutti i collaboratori, ad esempio
+     * prima di scegliere il personale di un evento importante.
+     * 
+     * Le note sono ordinate per pertinenza; la ricerca usa l'indice full-text
+     * PerformanceNotesFts, senza scorrere tutte le note.
+     * 
+     * @param search Testo da cercare e filtri (collaboratore, evento, periodo)
+     * @param page Numero della pagina, da 0
+     * @param pageSize Numero massimo di note per pagina
+     * @return La pagina di risultati
+     * @throws UseCaseLogicException se l'utente non è Organizzatore, se il
+     *         testo non contiene parole o se pagina o periodo non sono validi
+     */
+    public PerformanceNotePage searchPerformanceNotes(PerformanceNoteQuery search, int page, int pageSize)
+            throws UseCaseLogicException {
+        User currentUser = CatERing.getInstance().getUserManager().getCurrentUser();
+        
+        if (!isOrganizer(currentUser)) {
+            throw new UseCaseLogicException("Permessi insufficienti: solo gli Organizzatori possono cercare nelle note");
+        }
+        if (search == null || search.toMatchExpression() == null) {
+            throw new UseCaseLogicException("Ricerca non valida: indicare almeno una parola");
+        }
+        if (page < 0 || pageSize <= 0) {
+            throw new UseCaseLogicException("Pagina non valida: " + page + " (dimensione " + pageSize + ")");
+        }
+        if (search.getFrom() != null && search.getTo() != null && search.getFrom().after(search.getTo())) {
+            throw new UseCaseLogicException("Periodo non valido: " + search.getFrom() + " - " + search.getTo());
+        }
+        
+        return PerformanceNote.search(search, page, pageSize);
+    }
+    
     /**
      * Visualizza le richieste di ferie (estensione 3c.1).
      * 
@@ -124,6 +178,43 @@ public class PersonnelManager {
         return LeaveRequest.loadByCollaborator(collab);
     }
     
+    /**
+     * Elenca i collaboratori attivi senza ferie approvate nel periodo indicato.
+     * Usato per la pianificazione dei turni.
+     * 
+     * @param from Primo giorno del periodo
+     * @param to Ultimo giorno del periodo (incluso)
+     * @return Collaboratori attivi liberi nel periodo
+     */
+    public ArrayList<Collaborator> getAvailableCollaborators(Date from, Date to) {
+        return LeaveCalendar.getInstance().getFreeCollaborators(Collaborator.loadActive(), from, to);
+    }
+    
+    /**
+     * Elenca i collaboratori attivi liberi per tutti i turni indicati:
+     * disponibili, non ancora confermati e non in ferie in quei giorni.
+     * Usato per coprire più turni insieme, ad esempio un fine settimana.
+     * 
+     * La risposta viene dall'AvailabilityMatrix, senza una query per
+     * collaboratore o per turno.
+     * 
+     * @param shifts Turni da coprire
+     * @return Collaboratori liberi per ogni turno, in ordine di nome
+     */
+    public ArrayList<Collaborator> getFreeCollaborators(Collection<Shift> shifts) {
+        Set<Integer> free = new HashSet<>(AvailabilityMatrix.getInstance().getFreeCollaborators(shifts));
+        ArrayList<Collaborator> result = new ArrayList<>();
+        if (free.isEmpty()) {
+            return result;
+        }
+        for (Collaborator c : Collaborator.loadActive()) {
+            if (free.contains(c.getId())) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+    
     // ==================== OPERAZIONI DI MODIFICA ====================
     
     /**
@@ -341,6 +432,38 @@ public PerformanceNote logPerformance(Collaborator collab, Event event, String t
     return note;
 }
     
+    /**
+     * Registra la disponibilità di un collaboratore per un turno: dichiarata
+     * (AVAILABLE), confermata dall'organizzatore (CONFIRMED) o ritirata (NONE).
+     * 
+     * @param collab Collaboratore attivo
+     * @param shift Turno già salvato
+     * @param status Nuova disponibilità
+     * @throws UseCaseLogicException se l'utente non è Organizzatore, se il
+     *         collaboratore non è attivo o se viene confermato un collaboratore
+     *         in ferie quel giorno
+     */
+    public void setAvailability(Collaborator collab, Shift shift, AvailabilityMatrix.Status status)
+            throws UseCaseLogicException {
+        User currentUser = CatERing.getInstance().getUserManager().getCurrentUser();
+        
+        if (!isOrganizer(currentUser)) {
+            throw new UseCaseLogicException("Permessi insufficienti: solo gli Organizzatori possono gestire le disponibilità");
+        }
+        if (!collab.isActive()) {
+            throw new UseCaseLogicException("Il collaboratore non è attivo");
+        }
+        if (shift.getId() <= 0) {
+            throw new UseCaseLogicException("Il turno non è stato salvato");
+        }
+        if (status == AvailabilityMatrix.Status.CONFIRMED && collab.isOnLeave(shift.getDate())) {
+            throw new UseCaseLogicException("Il collaboratore è in ferie il " + shift.getDate());
+        }
+        
+        // Notifica per la persistenza
+        notifyAvailabilityChanged(collab, shift, status);
+    }
+    
     // ==================== HELPER PERMESSI ====================
     
     /**
@@ -362,6 +485,10 @@ public PerformanceNote logPerformance(Collaborator collab, Event event, String t
     // ==================== GETTERS ====================
     
     public Collaborator getCurrentCollaborator() {
-        return currentCollaborator;
+        return Session.current().getCurrentCollaborator();
+    }
+
+    private void setCurrentCollaborator(Collaborator collab) {
+        Session.current().setCurrentCollaborator(collab);
     }
 }
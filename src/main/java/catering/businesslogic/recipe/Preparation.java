@@ -199,6 +199,30 @@ public class Preparation implements KitchenProcess {
         return prepHolder[0];
     }
 
+    /**
+     * Loads a set of preparations with a single IN query
+     * 
+     * @param ids The preparation IDs
+     * @return Map from ID to preparation; IDs not found are missing
+     */
+    public static Map<Integer, Preparation> loadPreparations(Collection<Integer> ids) {
+        Map<Integer, Preparation> preparations = new HashMap<>();
+        String query = "SELECT * FROM Preparations WHERE id IN (%s)";
+
+        PersistenceManager.executeQueryIn(query, ids, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Preparation prep = new Preparation();
+                prep.id = rs.getInt("id");
+                prep.name = rs.getString("name");
+                prep.description = rs.getString("description");
+                preparations.put(prep.id, prep);
+            }
+        });
+
+        return preparations;
+    }
+
     /**
      * Saves a new preparation to the database
      * 
@@ -210,8 +234,7 @@ public class Preparation implements KitchenProcess {
 
         String query = "INSERT INTO Preparations (name, description) VALUES(?, ?)";
 
-        PersistenceManager.executeUpdate(query, name, description);
-        id = PersistenceManager.getLastId();
+        id = PersistenceManager.executeInsert(query, name, description);
         return true;
     }
 
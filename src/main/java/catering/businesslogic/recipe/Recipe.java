@@ -6,6 +6,8 @@ import catering.persistence.ResultHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Recipe represents a complete dish that can be prepared and served.
@@ -122,31 +124,12 @@ public class Recipe implements KitchenProcess {
      * @return List of all recipes
      */
     public static ArrayList<Recipe> loadAllRecipes() {
-        ArrayList<Recipe> recipes = new ArrayList<>();
-
-        String query = "SELECT * FROM Recipes";
-        PersistenceManager.executeQuery(query, new ResultHandler() {
-            @Override
-            public void handle(ResultSet rs) throws SQLException {
-                Recipe rec = new Recipe(rs.getString("name"));
-                rec.id = rs.getInt("id");
-
-                // Load additional properties if they exist in DB
-                try {
-                    rec.description = rs.getString("description");
-                } catch (SQLException e) {
-                    rec.description = "";
-                }
-                recipes.add(rec);
-            }
-        });
-
-        // Load preparations for each recipe
-        for (Recipe recipe : recipes) {
-            loadPreparationsForRecipe(recipe);
+        ArrayList<Recipe> recipes;
+        try (Stream<Recipe> all = streamAllRecipes()) {
+            recipes = all.collect(Collectors.toCollection(ArrayList::new));
         }
 
-        // Sort recipes by name
+        // Sort recipes by name, as String does (the query sorts by SQLite collation)
         Collections.sort(recipes, new Comparator<Recipe>() {
             @Override
             public int compare(Recipe o1, Recipe o2) {
@@ -157,6 +140,29 @@ public class Recipe implements KitchenProcess {
         return recipes;
     }
 
+    /**
+     * Streams all recipes with their preparations, ordered by name. Recipes
+     * are read from the database as the stream is consumed; the stream must
+     * be closed.
+     *
+     * @return Stream of all recipes
+     */
+    public static Stream<Recipe> streamAllRecipes() {
+        return PersistenceManager.stream("SELECT * FROM Recipes ORDER BY name", rs -> {
+            Recipe rec = new Recipe(rs.getString("name"));
+            rec.id = rs.getInt("id");
+
+            // Load additional properties if they exist in DB
+            try {
+                rec.description = rs.getString("description");
+            } catch (SQLException e) {
+                rec.description = "";
+            }
+            loadPreparationsForRecipe(rec);
+            return rec;
+        });
+    }
+
     /**
      * Gets all recipes from the database
      * 
@@ -201,6 +207,54 @@ public class Recipe implements KitchenProcess {
         return recipe;
     }
 
+    /**
+     * Loads a set of recipes with their preparations using three IN queries
+     * (recipes, relationships, preparations)
+     * 
+     * @param ids The recipe IDs
+     * @return Map from ID to recipe; IDs not found are missing
+     */
+    public static Map<Integer, Recipe> loadRecipes(Collection<Integer> ids) {
+        Map<Integer, Recipe> recipes = new HashMap<>();
+        String query = "SELECT * FROM Recipes WHERE id IN (%s)";
+
+        PersistenceManager.executeQueryIn(query, ids, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Recipe rec = new Recipe();
+                rec.id = rs.getInt("id");
+                rec.name = rs.getString("name");
+                rec.description = rs.getString("description");
+                recipes.put(rec.id, rec);
+            }
+        });
+
+        Map<Integer, List<Integer>> prepIds = new HashMap<>();
+        Set<Integer> allPrepIds = new HashSet<>();
+        query = "SELECT recipe_id, preparation_id FROM RecipePreparations WHERE recipe_id IN (%s)";
+        PersistenceManager.executeQueryIn(query, recipes.keySet(), new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                int prepId = rs.getInt("preparation_id");
+                prepIds.computeIfAbsent(rs.getInt("recipe_id"), k -> new ArrayList<>()).add(prepId);
+                allPrepIds.add(prepId);
+            }
+        });
+
+        Map<Integer, Preparation> preparations = Preparation.loadPreparations(allPrepIds);
+        for (Map.Entry<Integer, List<Integer>> e : prepIds.entrySet()) {
+            Recipe recipe = recipes.get(e.getKey());
+            for (int prepId : e.getValue()) {
+                Preparation prep = preparations.get(prepId);
+                if (prep != null) {
+                    recipe.addPreparation(prep);
+                }
+            }
+        }
+
+        return recipes;
+    }
+
     /**
      * Loads a recipe by its name
      * 
@@ -266,13 +320,17 @@ public class Recipe implements KitchenProcess {
 
         String query = "INSERT INTO Recipes (name, description) VALUES(?, ?)";
 
-        PersistenceManager.executeUpdate(query, name, description);
-        id = PersistenceManager.getLastId();
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            id = PersistenceManager.executeInsert(query, name, description);
 
-        // Save recipe-preparation relationships
-        savePreparationRelationships();
+            // Save recipe-preparation relationships
+            savePreparationRelationships();
+        });
 
-        return true;
+        if (!committed) {
+            id = 0;
+        }
+        return committed;
     }
 
     /**
@@ -286,12 +344,15 @@ public class Recipe implements KitchenProcess {
 
         String query = "UPDATE Recipes SET name = ?, description = ? WHERE id = ?";
 
-        int rows = PersistenceManager.executeUpdate(query, name, description, id);
+        int[] rows = new int[1];
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            rows[0] = PersistenceManager.executeUpdate(query, name, description, id);
 
-        // Update recipe-preparation relationships
-        savePreparationRelationships();
+            // Update recipe-preparation relationships
+            savePreparationRelationships();
+        });
 
-        return rows > 0;
+        return committed && rows[0] > 0;
     }
 
     /**
@@ -0,0 +1,99 @@
+package catering.businesslogic.shift;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Days on which recurring shifts are not generated: holidays repeating every
+ * year, Easter Monday and single dates.
+ *
+ * @see ShiftTemplate#holidays(HolidayCalendar)
+ */
+public class HolidayCalendar {
+
+    private final Set<MonthDay> annual = new HashSet<>();
+    private final Set<LocalDate> dates = new HashSet<>();
+    private boolean easterMonday;
+
+    /**
+     * @return An empty calendar
+     */
+    public static HolidayCalendar empty() {
+        return new HolidayCalendar();
+    }
+
+    /**
+     * @return The Italian national holidays, Easter Monday included
+     */
+    public static HolidayCalendar italian() {
+        return new HolidayCalendar()
+                .addAnnual(1, 1) // Capodanno
+                .addAnnual(1, 6) // Epifania
+                .addAnnual(4, 25) // Liberazione
+                .addAnnual(5, 1) // Festa del lavoro
+                .addAnnual(6, 2) // Festa della Repubblica
+                .addAnnual(8, 15) // Ferragosto
+                .addAnnual(11, 1) // Ognissanti
+                .addAnnual(12, 8) // Immacolata
+                .addAnnual(12, 25) // Natale
+                .addAnnual(12, 26) // Santo Stefano
+                .addEasterMonday();
+    }
+
+    /**
+     * Adds a holiday falling on the same day every year
+     */
+    public HolidayCalendar addAnnual(int month, int dayOfMonth) {
+        annual.add(MonthDay.of(month, dayOfMonth));
+        return this;
+    }
+
+    /**
+     * Adds Easter Monday of every year
+     */
+    public HolidayCalendar addEasterMonday() {
+        easterMonday = true;
+        return this;
+    }
+
+    /**
+     * Adds a single day, e.g. a local holiday or a closure
+     */
+    public HolidayCalendar add(Date day) {
+        dates.add(day.toLocalDate());
+        return this;
+    }
+
+    public boolean isHoliday(Date day) {
+        return isHoliday(day.toLocalDate());
+    }
+
+    boolean isHoliday(LocalDate day) {
+        return dates.contains(day) || annual.contains(MonthDay.from(day))
+                || easterMonday && day.equals(easterSunday(day.getYear()).plusDays(1));
+    }
+
+    /**
+     * Easter Sunday of the Gregorian calendar (anonymous Gregorian algorithm)
+     */
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+}
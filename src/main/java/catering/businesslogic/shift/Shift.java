@@ -1,16 +1,22 @@
 package catering.businesslogic.shift;
 
 import catering.businesslogic.user.User;
+import catering.persistence.BatchUpdateHandler;
 import catering.persistence.PersistenceManager;
 import catering.persistence.ResultHandler;
 import catering.util.LogManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Shift {
     private static final Logger LOGGER = LogManager.getLogger(Shift.class);
@@ -19,17 +25,19 @@ public class Shift {
     private Date date;
     private Time startTime;
     private Time endTime;
+    // Maximum number of bookings, null for no limit
+    private Integer capacity;
+    // Loaded on first use: null until then. Changed by ShiftBookingEngine
     private Map<Integer, User> bookedUsers;
 
     private Shift() {
-        bookedUsers = new HashMap<>();
     }
 
     public Shift(Date date, Time startTime, Time endTime) {
         this.date = date;
         this.startTime = startTime;
         this.endTime = endTime;
-        bookedUsers = new HashMap<>();
+        bookedUsers = new ConcurrentHashMap<>();
     }
 
     /**
@@ -51,6 +59,15 @@ public class Shift {
         this.endTime = endTime;
     }
 
+    /**
+     * Sets the maximum number of bookings; saved by updateShift
+     * 
+     * @param capacity The capacity, or null for no limit
+     */
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
     // STATIC METHODS FOR PERSISTENCE
 
     public static ArrayList<Shift> getShiftTable() {
@@ -58,67 +75,13 @@ public class Shift {
     }
 
     public static ArrayList<Shift> loadAllShifts() {
-        String query = "SELECT * FROM Shifts";
-        ArrayList<Shift> shiftArrayList = new ArrayList<>();
+        ArrayList<Shift> shiftArrayList;
 
         LOGGER.info("Loading all shifts from database");
 
-        PersistenceManager.executeQuery(query, new ResultHandler() {
-            @Override
-            public void handle(ResultSet rs) throws SQLException {
-                Shift s = new Shift();
-                s.id = rs.getInt("id");
-
-                // Use safe date/time handling for SQLite
-                try {
-                    String dateStr = rs.getString("date");
-                    if (dateStr != null && !dateStr.isEmpty()) {
-                        try {
-                            if (dateStr.matches("\\d+")) { // If it's a numeric timestamp
-                                s.date = new Date(Long.parseLong(dateStr));
-                            } else {
-                                s.date = Date.valueOf(dateStr);
-                            }
-                        } catch (Exception e) {
-                            LOGGER.warning("Could not parse date '" + dateStr + "' for shift ID " + s.id);
-                        }
-                    }
-
-                    String startStr = rs.getString("start_time");
-                    if (startStr != null && !startStr.isEmpty()) {
-                        try {
-                            if (startStr.matches("\\d+")) {
-                                s.startTime = new Time(Long.parseLong(startStr));
-                            } else {
-                                if (startStr.length() == 5) startStr += ":00";
-                                s.startTime = Time.valueOf(startStr);
-                            }
-                        } catch (Exception e) {
-                            LOGGER.warning("Could not parse start_time '" + startStr + "' for shift ID " + s.id);
-                        }
-                    }
-
-                    String endStr = rs.getString("end_time");
-                    if (endStr != null && !endStr.isEmpty()) {
-                        try {
-                            if (endStr.matches("\\d+")) {
-                                s.endTime = new Time(Long.parseLong(endStr));
-                            } else {
-                                if (endStr.length() == 5) endStr += ":00";
-                                s.endTime = Time.valueOf(endStr);
-                            }
-                        } catch (Exception e) {
-                            LOGGER.warning("Could not parse end_time '" + endStr + "' for shift ID " + s.id);
-                        }
-                    }
-                } catch (SQLException ex) {
-                    LOGGER.log(Level.WARNING, "SQL Error parsing date/time in Shift for ID " + s.id, ex);
-                }
-
-                s.bookedUsers = loadBookings(s);
-                shiftArrayList.add(s);
-            }
-        });
+        try (Stream<Shift> all = streamAllShifts()) {
+            shiftArrayList = all.collect(Collectors.toCollection(ArrayList::new));
+        }
 
         // Sort the shifts by date and time, handling nulls
         shiftArrayList.sort((a, b) -> {
@@ -143,51 +106,110 @@ public class Shift {
         return shiftArrayList;
     }
 
-    public static Shift loadItemById(int id) {
-        String query = "SELECT * FROM Shifts WHERE id = ?";
-        Shift[] shiftHolder = new Shift[1]; // Use array to allow modification in lambda
-
-        LOGGER.fine("Loading shift with ID " + id);
+    /**
+     * Streams all shifts, by date and start time. Shifts are read from the
+     * database as the stream is consumed; the stream must be closed. Bookings
+     * are loaded when first asked for.
+     */
+    public static Stream<Shift> streamAllShifts() {
+        return PersistenceManager.stream("SELECT * FROM Shifts ORDER BY date, start_time", Shift::fromStoredRow);
+    }
 
+    /**
+     * Loads the shifts of a date range with one query on the date index,
+     * without their bookings
+     *
+     * @param from First day included
+     * @param to   Last day included
+     * @return The shifts, by date and start time
+     */
+    public static ArrayList<Shift> loadShiftsBetween(Date from, Date to) {
+        ArrayList<Shift> shifts = new ArrayList<>();
+        // Dates are stored as YYYY-MM-DD text, which sorts as the dates
+        String query = "SELECT * FROM Shifts WHERE date BETWEEN ? AND ? ORDER BY date, start_time";
         PersistenceManager.executeQuery(query, new ResultHandler() {
             @Override
             public void handle(ResultSet rs) throws SQLException {
-                Shift s = new Shift();
-                s.id = rs.getInt("id");
+                shifts.add(fromStoredRow(rs));
+            }
+        }, from.toString(), to.toString());
+
+        LOGGER.fine("Loaded " + shifts.size() + " shifts from " + from + " to " + to);
+        return shifts;
+    }
+
+    // Builds a shift from a row of Shifts, accepting dates and times stored
+    // as text or as epoch milliseconds
+    private static Shift fromStoredRow(ResultSet rs) throws SQLException {
+        Shift s = new Shift();
+        s.id = rs.getInt("id");
 
-                // Use safe date/time handling for SQLite
+        // Use safe date/time handling for SQLite
+        try {
+            String dateStr = rs.getString("date");
+            if (dateStr != null && !dateStr.isEmpty()) {
                 try {
-                    Object dateObj = rs.getObject("date");
-                    if (dateObj instanceof String) {
-                        s.date = Date.valueOf((String) dateObj);
-                    } else if (dateObj instanceof Date) {
-                        s.date = (Date) dateObj;
+                    if (dateStr.matches("\\d+")) { // If it's a numeric timestamp
+                        s.date = new Date(Long.parseLong(dateStr));
+                    } else {
+                        s.date = Date.valueOf(dateStr);
                     }
+                } catch (Exception e) {
+                    LOGGER.warning("Could not parse date '" + dateStr + "' for shift ID " + s.id);
+                }
+            }
 
-                    Object startObj = rs.getObject("start_time");
-                    if (startObj instanceof String) {
-                        s.startTime = Time.valueOf((String) startObj);
-                    } else if (startObj instanceof Time) {
-                        s.startTime = (Time) startObj;
+            String startStr = rs.getString("start_time");
+            if (startStr != null && !startStr.isEmpty()) {
+                try {
+                    if (startStr.matches("\\d+")) {
+                        s.startTime = new Time(Long.parseLong(startStr));
+                    } else {
+                        if (startStr.length() == 5) startStr += ":00";
+                        s.startTime = Time.valueOf(startStr);
                     }
+                } catch (Exception e) {
+                    LOGGER.warning("Could not parse start_time '" + startStr + "' for shift ID " + s.id);
+                }
+            }
 
-                    Object endObj = rs.getObject("end_time");
-                    if (endObj instanceof String) {
-                        s.endTime = Time.valueOf((String) endObj);
-                    } else if (endObj instanceof Time) {
-                        s.endTime = (Time) endObj;
+            String endStr = rs.getString("end_time");
+            if (endStr != null && !endStr.isEmpty()) {
+                try {
+                    if (endStr.matches("\\d+")) {
+                        s.endTime = new Time(Long.parseLong(endStr));
+                    } else {
+                        if (endStr.length() == 5) endStr += ":00";
+                        s.endTime = Time.valueOf(endStr);
                     }
-                } catch (IllegalArgumentException ex) {
-                    LOGGER.log(Level.WARNING, "Error parsing date/time in Shift for ID " + s.id + ": " + ex.getMessage());
+                } catch (Exception e) {
+                    LOGGER.warning("Could not parse end_time '" + endStr + "' for shift ID " + s.id);
                 }
+            }
+
+            int capacity = rs.getInt("capacity");
+            s.capacity = rs.wasNull() ? null : capacity;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "SQL Error parsing date/time in Shift for ID " + s.id, ex);
+        }
+        return s;
+    }
+
+    public static Shift loadItemById(int id) {
+        String query = "SELECT * FROM Shifts WHERE id = ?";
+        Shift[] shiftHolder = new Shift[1]; // Use array to allow modification in lambda
+
+        LOGGER.fine("Loading shift with ID " + id);
 
-                shiftHolder[0] = s;
+        PersistenceManager.executeQuery(query, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                shiftHolder[0] = fromRow(rs);
             }
         }, id); // Pass id as parameter
 
         Shift s = shiftHolder[0];
         if (s != null && s.id == id) { // Check if we found the shift
-            s.bookedUsers = loadBookings(s);
             return s;
         }
 
@@ -195,21 +217,147 @@ public class Shift {
         return null; // Return null if shift not found
     }
 
-    private static Map<Integer, User> loadBookings(Shift s) {
-        Map<Integer, User> bookings = new HashMap<>();
-        String query = "SELECT user_id FROM ShiftBookings WHERE shift_id = ?";
+    /**
+     * Loads a set of shifts and their bookings with a fixed number of IN
+     * queries
+     *
+     * @param ids The shift IDs
+     * @return Map from ID to shift; IDs not found are missing
+     */
+    public static Map<Integer, Shift> loadShifts(Collection<Integer> ids) {
+        Map<Integer, Shift> shifts = new HashMap<>();
+        PersistenceManager.executeQueryIn("SELECT * FROM Shifts WHERE id IN (%s)", ids, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                Shift s = fromRow(rs);
+                shifts.put(s.id, s);
+            }
+        });
+        loadBookings(shifts.values());
 
-        PersistenceManager.executeQuery(query, new ResultHandler() {
+        LOGGER.fine("Loaded " + shifts.size() + " shifts");
+        return shifts;
+    }
+
+    /**
+     * Loads the bookings of the given shifts that have not been loaded yet,
+     * with a fixed number of IN queries instead of one query per shift
+     *
+     * @param shifts The shifts
+     */
+    public static void loadBookings(Collection<Shift> shifts) {
+        Map<Integer, Map<Integer, User>> pending = new HashMap<>();
+        for (Shift s : shifts) {
+            synchronized (s) {
+                if (s.bookedUsers == null && s.id > 0) {
+                    pending.put(s.id, new ConcurrentHashMap<>());
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<Integer>> bookedIds = new HashMap<>();
+        List<Integer> userIds = new ArrayList<>();
+        String query = "SELECT shift_id, user_id FROM ShiftBookings WHERE shift_id IN (%s)";
+        PersistenceManager.executeQueryIn(query, pending.keySet(), new ResultHandler() {
             @Override
             public void handle(ResultSet rs) throws SQLException {
                 int userId = rs.getInt("user_id");
-                User user = User.load(userId);
+                bookedIds.computeIfAbsent(rs.getInt("shift_id"), k -> new ArrayList<>()).add(userId);
+                userIds.add(userId);
+            }
+        });
+
+        Map<Integer, User> users = User.loadUsers(userIds);
+        for (Map.Entry<Integer, List<Integer>> e : bookedIds.entrySet()) {
+            for (int userId : e.getValue()) {
+                User user = users.get(userId);
                 if (user != null) {
-                    bookings.put(userId, user);
+                    pending.get(e.getKey()).put(userId, user);
+                }
+            }
+        }
+        for (Shift s : shifts) {
+            synchronized (s) {
+                Map<Integer, User> loaded = pending.get(s.id);
+                // Another thread may have loaded them meanwhile
+                if (s.bookedUsers == null && loaded != null) {
+                    s.bookedUsers = loaded;
                 }
             }
+        }
+        LOGGER.fine("Loaded " + userIds.size() + " bookings of " + pending.size() + " shifts");
+    }
+
+    // The bookings, loaded on first use
+    synchronized Map<Integer, User> bookings() {
+        if (bookedUsers == null) {
+            bookedUsers = id > 0 ? loadBookings(this) : new ConcurrentHashMap<>();
+        }
+        return bookedUsers;
+    }
+
+    /**
+     * Forgets the loaded bookings, so they are read again when next asked
+     * for. Used when they were changed through another instance of the same
+     * shift.
+     */
+    synchronized void invalidateBookings() {
+        bookedUsers = null;
+    }
+
+    // Builds a shift from a row of Shifts, without its bookings
+    private static Shift fromRow(ResultSet rs) throws SQLException {
+        Shift s = new Shift();
+        s.id = rs.getInt("id");
+
+        // Use safe date/time handling for SQLite
+        try {
+            Object dateObj = rs.getObject("date");
+            if (dateObj instanceof String) {
+                s.date = Date.valueOf((String) dateObj);
+            } else if (dateObj instanceof Date) {
+                s.date = (Date) dateObj;
+            }
+
+            Object startObj = rs.getObject("start_time");
+            if (startObj instanceof String) {
+                s.startTime = Time.valueOf((String) startObj);
+            } else if (startObj instanceof Time) {
+                s.startTime = (Time) startObj;
+            }
+
+            Object endObj = rs.getObject("end_time");
+            if (endObj instanceof String) {
+                s.endTime = Time.valueOf((String) endObj);
+            } else if (endObj instanceof Time) {
+                s.endTime = (Time) endObj;
+            }
+        } catch (IllegalArgumentException ex) {
+            LOGGER.log(Level.WARNING, "Error parsing date/time in Shift for ID " + s.id + ": " + ex.getMessage());
+        }
+        int capacity = rs.getInt("capacity");
+        s.capacity = rs.wasNull() ? null : capacity;
+        return s;
+    }
+
+    private static Map<Integer, User> loadBookings(Shift s) {
+        Map<Integer, User> bookings = new ConcurrentHashMap<>();
+        String query = "SELECT user_id FROM ShiftBookings WHERE shift_id = ?";
+
+        List<Integer> userIds = new ArrayList<>();
+        PersistenceManager.executeQuery(query, new ResultHandler() {
+            @Override
+            public void handle(ResultSet rs) throws SQLException {
+                userIds.add(rs.getInt("user_id"));
+            }
         }, s.id); // Pass s.id as parameter
 
+        // One query for every booked user, not one each
+        bookings.putAll(User.loadUsers(userIds));
+
         LOGGER.fine("Loaded " + bookings.size() + " bookings for shift ID " + s.id);
         return bookings;
     }
@@ -219,21 +367,60 @@ public class Shift {
         s.date = date;
         s.startTime = startTime;
         s.endTime = endTime;
-        s.bookedUsers = new HashMap<>();
+        s.bookedUsers = new ConcurrentHashMap<>();
 
         String query = "INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)";
 
-        PersistenceManager.executeUpdate(query,
+        s.id = PersistenceManager.executeInsert(query,
                 s.date.toString(),
                 s.startTime.toString(),
                 s.endTime.toString());
 
-        s.id = PersistenceManager.getLastId();
-
         LOGGER.info("Created new shift ID " + s.id + " on " + s.date);
         return s;
     }
 
+    /**
+     * Saves new shifts with one batched insert in a single transaction,
+     * setting their ids. Their bookings are not saved.
+     * 
+     * @param shifts Shifts not saved yet
+     * @return true if every shift was saved, false if nothing was
+     */
+    public static boolean saveAllNewShifts(List<Shift> shifts) {
+        if (shifts.isEmpty()) {
+            return true;
+        }
+        String query = "INSERT INTO Shifts (date, start_time, end_time, capacity) VALUES (?, ?, ?, ?)";
+        boolean committed = PersistenceManager.inTransaction(() -> PersistenceManager.executeBatchUpdate(query,
+                shifts.size(), new BatchUpdateHandler() {
+                    @Override
+                    public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                        Shift s = shifts.get(batchCount);
+                        ps.setString(1, s.date.toString());
+                        ps.setString(2, s.startTime.toString());
+                        ps.setString(3, s.endTime.toString());
+                        if (s.capacity != null) {
+                            ps.setInt(4, s.capacity);
+                        } else {
+                            ps.setNull(4, Types.INTEGER);
+                        }
+                    }
+
+                    @Override
+                    public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                        shifts.get(count).id = rs.getInt(1);
+                    }
+                }));
+        if (!committed) {
+            for (Shift s : shifts) {
+                s.id = 0;
+            }
+        }
+        LOGGER.info((committed ? "Saved " : "Could not save ") + shifts.size() + " new shifts");
+        return committed;
+    }
+
     // Save a new shift to the database
     public void saveShift() {
         if (this.id > 0) {
@@ -241,13 +428,30 @@ public class Shift {
             return;
         }
 
-        String query = "INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)";
-        PersistenceManager.executeUpdate(query,
-                date.toString(),
-                startTime.toString(),
-                endTime.toString());
+        String query = "INSERT INTO Shifts (date, start_time, end_time, capacity) VALUES (?, ?, ?, ?)";
+        List<User> booked = new ArrayList<>(bookings().values());
+        PersistenceManager.inTransaction(() -> {
+            this.id = PersistenceManager.executeInsert(query,
+                    date.toString(),
+                    startTime.toString(),
+                    endTime.toString(),
+                    capacity);
+            // Bookings made before the shift was saved
+            if (this.id > 0 && !booked.isEmpty()) {
+                PersistenceManager.executeBatchUpdate("INSERT OR IGNORE INTO ShiftBookings (shift_id, user_id) VALUES (?, ?)",
+                        booked.size(), new BatchUpdateHandler() {
+                            @Override
+                            public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                                ps.setInt(1, id);
+                                ps.setInt(2, booked.get(batchCount).getId());
+                            }
 
-        this.id = PersistenceManager.getLastId();
+                            @Override
+                            public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                            }
+                        });
+            }
+        });
     }
 
     // Update an existing shift
@@ -257,30 +461,23 @@ public class Shift {
             return;
         }
 
-        String query = "UPDATE Shifts SET date = ?, start_time = ?, end_time = ? WHERE id = ?";
+        String query = "UPDATE Shifts SET date = ?, start_time = ?, end_time = ?, capacity = ? WHERE id = ?";
         PersistenceManager.executeUpdate(query,
                 date.toString(),
                 startTime.toString(),
                 endTime.toString(),
+                capacity,
                 this.id);
     }
 
     // Save a booking to the database
     public void saveBooking(User user) {
-        String query = "INSERT INTO ShiftBookings (shift_id, user_id) VALUES (?, ?)";
-        PersistenceManager.executeUpdate(query, this.id, user.getId());
-
-        // Update local cache
-        bookedUsers.put(user.getId(), user);
+        ShiftBookingEngine.getInstance().book(this, user);
     }
 
     // Remove a booking from the database
     public void removeBooking(User user) {
-        String query = "DELETE FROM ShiftBookings WHERE shift_id = ? AND user_id = ?";
-        PersistenceManager.executeUpdate(query, this.id, user.getId());
-
-        // Update local cache
-        bookedUsers.remove(user.getId());
+        ShiftBookingEngine.getInstance().cancel(this, user);
     }
 
     // INSTANCE METHODS
@@ -297,40 +494,45 @@ public class Shift {
         return endTime;
     }
 
-    public void addBooking(User u) {
-        if (this.bookedUsers.containsKey(u.getId())) {
-            LOGGER.warning("User " + u.getUserName() + " is already booked for this shift");
-            return;
-        }
-
-        String query = "INSERT INTO ShiftBookings (shift_id, user_id) VALUES (?, ?)";
-        PersistenceManager.executeUpdate(query, this.id, u.getId());
+    public Integer getCapacity() {
+        return capacity;
+    }
 
-        this.bookedUsers.put(u.getId(), u);
-        LOGGER.info("Added booking for user " + u.getUserName() + " to shift ID " + this.id);
+    /**
+     * @return true if the shift has a capacity and every place is booked
+     */
+    public boolean isFull() {
+        return capacity != null && bookings().size() >= capacity;
     }
 
-    public User removeBookedUser(User u) {
-        if (!this.bookedUsers.containsKey(u.getId())) {
-            LOGGER.warning("User " + u.getUserName() + " is not booked for this shift");
-            return null;
+    /**
+     * Books a user for this shift through the ShiftBookingEngine
+     * 
+     * @param u The user to book
+     * @return The outcome of the booking
+     */
+    public ShiftBookingEngine.Result addBooking(User u) {
+        ShiftBookingEngine.Result result = ShiftBookingEngine.getInstance().book(this, u);
+        if (result == ShiftBookingEngine.Result.BOOKED) {
+            LOGGER.info("Added booking for user " + u.getUserName() + " to shift ID " + this.id);
+        } else {
+            LOGGER.warning("Cannot book user " + u.getUserName() + " for shift ID " + this.id + ": " + result);
         }
+        return result;
+    }
 
-        String query = "DELETE FROM ShiftBookings WHERE shift_id = ? AND user_id = ?";
-        int rowsAffected = PersistenceManager.executeUpdate(query, this.id, u.getId());
-
-        if (rowsAffected > 0) {
-            User removed = this.bookedUsers.remove(u.getId());
+    public User removeBookedUser(User u) {
+        User removed = ShiftBookingEngine.getInstance().cancel(this, u);
+        if (removed != null) {
             LOGGER.info("Removed booking for user " + u.getUserName() + " from shift ID " + this.id);
-            return removed;
         } else {
-            LOGGER.warning("Failed to remove booking for user " + u.getUserName() + " from shift ID " + this.id);
-            return null;
+            LOGGER.warning("User " + u.getUserName() + " is not booked for shift ID " + this.id);
         }
+        return removed;
     }
 
     public boolean isBooked(User u) {
-        return bookedUsers.containsValue(u);
+        return bookings().containsValue(u);
     }
 
     public int getId() {
@@ -338,7 +540,7 @@ public class Shift {
     }
 
     public Map<Integer, User> getBookedUsers() {
-        return new HashMap<>(bookedUsers); // Return a copy to prevent modification
+        return new HashMap<>(bookings()); // Return a copy to prevent modification
     }
 
     public String toString() {
@@ -350,8 +552,9 @@ public class Shift {
                 .append(endTime)
                 .append(">");
 
-        if (!bookedUsers.isEmpty()) {
-            for (User u : bookedUsers.values()) {
+        Map<Integer, User> booked = bookings();
+        if (!booked.isEmpty()) {
+            for (User u : booked.values()) {
                 sb.append("\n\t - ").append(u.toString());
             }
         }
@@ -0,0 +1,209 @@
+package catering.businesslogic.shift;
+
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+import catering.util.LogManager;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Books and cancels shift bookings safely when many users book at the same
+ * time.
+ *
+ * Bookings of the same shift are serialized by a lock taken from a fixed set
+ * of stripes (by shift id), so bookings of different shifts rarely wait on
+ * each other and the number of locks does not grow with the shifts. Under the
+ * lock the in-memory bookings of the shift reject duplicate bookings and full
+ * shifts without touching the database; the booking itself is a single
+ * conditional INSERT that checks the capacity and the primary key of
+ * ShiftBookings, so it stays correct even when the in-memory bookings are
+ * stale (another instance of the shift, another process). A booking refused
+ * by the database makes the shift read its bookings again.
+ *
+ * Bookings of a shift not saved yet are only kept in memory, and written
+ * with the shift by Shift.saveShift.
+ */
+public class ShiftBookingEngine {
+
+    private static final Logger LOGGER = LogManager.getLogger(ShiftBookingEngine.class);
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    private static final ShiftBookingEngine instance = new ShiftBookingEngine(DEFAULT_STRIPES);
+
+    /**
+     * Outcome of a booking
+     */
+    public enum Result {
+        BOOKED,
+        ALREADY_BOOKED,
+        /** The shift has reached its capacity */
+        FULL,
+        /** The shift does not exist in the database */
+        NOT_FOUND,
+        /** The database write failed and was rolled back */
+        FAILED
+    }
+
+    // Inserts the booking only if the shift exists and has room; a booking
+    // already present is ignored by the primary key
+    private static final String BOOK = "INSERT OR IGNORE INTO ShiftBookings (shift_id, user_id) "
+            + "SELECT s.id, ? FROM Shifts s WHERE s.id = ? AND (s.capacity IS NULL "
+            + "OR (SELECT COUNT(*) FROM ShiftBookings b WHERE b.shift_id = s.id) < s.capacity)";
+
+    private final ReentrantLock[] stripes;
+    private final AtomicLong booked = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    /**
+     * @param stripes Number of locks, rounded up to a power of two
+     */
+    ShiftBookingEngine(int stripes) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public static ShiftBookingEngine getInstance() {
+        return instance;
+    }
+
+    /**
+     * Books a user for a shift, unless already booked or the shift is full
+     *
+     * @param shift The shift to book
+     * @param user  The user to book
+     * @return The outcome of the booking
+     */
+    public Result book(Shift shift, User user) {
+        ReentrantLock lock = lockFor(shift.getId());
+        lock.lock();
+        try {
+            Map<Integer, User> bookings = shift.bookings();
+            if (bookings.containsKey(user.getId())) {
+                refused.incrementAndGet();
+                return Result.ALREADY_BOOKED;
+            }
+            Integer capacity = shift.getCapacity();
+            if (capacity != null && bookings.size() >= capacity) {
+                refused.incrementAndGet();
+                return Result.FULL;
+            }
+            if (shift.getId() <= 0) {
+                // Not saved yet: Shift.saveShift writes its bookings
+                bookings.put(user.getId(), user);
+                return Result.BOOKED;
+            }
+
+            Result result = insert(shift.getId(), user.getId());
+            if (result == Result.BOOKED) {
+                bookings.put(user.getId(), user);
+                booked.incrementAndGet();
+                LOGGER.fine("Booked user " + user.getUserName() + " for shift ID " + shift.getId());
+            } else if (result != Result.FAILED) {
+                // The database disagrees with the bookings in memory
+                conflicts.incrementAndGet();
+                shift.invalidateBookings();
+                LOGGER.info("Booking of user " + user.getUserName() + " for shift ID " + shift.getId()
+                        + " refused by the database: " + result);
+            }
+            ShiftStore.getInstance().bookingsChanged(shift);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the booking of a user from a shift
+     *
+     * @param shift The shift
+     * @param user  The user to remove
+     * @return The removed user, or null if the user was not booked
+     */
+    public User cancel(Shift shift, User user) {
+        ReentrantLock lock = lockFor(shift.getId());
+        lock.lock();
+        try {
+            if (shift.getId() <= 0) {
+                return shift.bookings().remove(user.getId());
+            }
+            int rows = PersistenceManager.executeUpdate(
+                    "DELETE FROM ShiftBookings WHERE shift_id = ? AND user_id = ?", shift.getId(), user.getId());
+            User removed = shift.bookings().remove(user.getId());
+            if ((rows > 0) != (removed != null)) {
+                // The database disagrees with the bookings in memory
+                conflicts.incrementAndGet();
+                shift.invalidateBookings();
+            }
+            if (rows == 0) {
+                removed = null;
+            } else if (removed == null) {
+                removed = user;
+            }
+            ShiftStore.getInstance().bookingsChanged(shift);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of bookings made
+     */
+    public long getBookedCount() {
+        return booked.get();
+    }
+
+    /**
+     * @return Number of bookings refused from the bookings in memory
+     */
+    public long getRefusedCount() {
+        return refused.get();
+    }
+
+    /**
+     * @return Number of bookings and cancellations where the database did not
+     *         match the bookings in memory
+     */
+    public long getConflictCount() {
+        return conflicts.get();
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    ReentrantLock lockFor(int shiftId) {
+        // Spreads consecutive ids over the stripes
+        int h = shiftId * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    // Inserts the booking and, if nothing was inserted, tells why, in one
+    // transaction
+    private static Result insert(int shiftId, int userId) {
+        Result[] result = { Result.FAILED };
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            if (PersistenceManager.executeUpdate(BOOK, userId, shiftId) == 1) {
+                result[0] = Result.BOOKED;
+                return;
+            }
+            int[] state = { 0, 0 };
+            PersistenceManager.executeQuery("SELECT (SELECT COUNT(*) FROM Shifts WHERE id = ?), "
+                    + "(SELECT COUNT(*) FROM ShiftBookings WHERE shift_id = ? AND user_id = ?)", rs -> {
+                        state[0] = rs.getInt(1);
+                        state[1] = rs.getInt(2);
+                    }, shiftId, shiftId, userId);
+            result[0] = state[0] == 0 ? Result.NOT_FOUND
+                    : state[1] > 0 ? Result.ALREADY_BOOKED : Result.FULL;
+        });
+        return committed ? result[0] : Result.FAILED;
+    }
+}
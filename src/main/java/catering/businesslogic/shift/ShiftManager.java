@@ -6,24 +6,23 @@ import catering.util.LogManager;
 import java.sql.Date;
 import java.sql.Time;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.logging.Logger;
 
 /**
  * Manages shift operations in the CatERing system.
  * Acts as a facade to the Shift class, handling shift creation, retrieval, and
- * booking.
+ * booking. Shifts are read through the ShiftStore, which loads them by date
+ * range when first asked for.
  */
 public class ShiftManager {
     private static final Logger LOGGER = LogManager.getLogger(ShiftManager.class);
 
-    /**
-     * Constructor initializes by loading all shifts
-     */
-    public ShiftManager() {
-        Shift.loadAllShifts();
-    }
+    private final ShiftStore store = ShiftStore.getInstance();
 
     /**
      * Gets all shifts in the system
@@ -31,15 +30,16 @@ public class ShiftManager {
      * @return List of all shifts
      */
     public ArrayList<Shift> getShiftTable() {
-        return Shift.getShiftTable();
+        return store.getAll();
     }
 
     /**
-     * Checks if a user is available for a shift
+     * Checks if a user is available for a shift, i.e. is working in it and
+     * can be assigned kitchen tasks
      * 
      * @param u The user to check
      * @param s The shift to check
-     * @return true if the user is available (not booked) for the shift
+     * @return true if the user is booked for the shift
      */
     public boolean isAvailable(User u, Shift s) {
         return s.isBooked(u);
@@ -55,7 +55,48 @@ public class ShiftManager {
      */
     public Shift createShift(Date date, Time startTime, Time endTime, String workPlace, boolean isKitchen) {
         LOGGER.info("Creating new shift on " + date + " at " + workPlace);
-        return Shift.createShift(date, startTime, endTime);
+        Shift s = Shift.createShift(date, startTime, endTime);
+        store.update(s);
+        return s;
+    }
+
+    /**
+     * Lists the first shifts a recurring template would create, without
+     * generating the others
+     * 
+     * @param template The template
+     * @param limit    Maximum number of shifts
+     * @return The shifts, not saved
+     */
+    public List<Shift> previewShifts(ShiftTemplate template, int limit) {
+        return template.preview(limit);
+    }
+
+    /**
+     * Creates the shifts of a recurring template with one batched insert in a
+     * single transaction. Shifts already present (same day, start and end)
+     * are not created again, so a template can be applied twice.
+     * 
+     * @param template The template
+     * @return The created shifts, empty if the insert failed
+     */
+    public List<Shift> createShifts(ShiftTemplate template) {
+        Set<String> existing = new HashSet<>();
+        for (Shift s : store.getShifts(template.getFrom(), template.getTo())) {
+            existing.add(s.getDate() + " " + s.getStartTime() + " " + s.getEndTime());
+        }
+        List<Shift> created = template.expand()
+                .filter(s -> !existing.contains(s.getDate() + " " + s.getStartTime() + " " + s.getEndTime()))
+                .collect(Collectors.toList());
+
+        LOGGER.info("Creating " + created.size() + " shifts from " + template.getFrom() + " to " + template.getTo());
+        if (!Shift.saveAllNewShifts(created)) {
+            return new ArrayList<>();
+        }
+        for (Shift s : created) {
+            store.update(s);
+        }
+        return created;
     }
 
     /**
@@ -65,8 +106,8 @@ public class ShiftManager {
      * @return The loaded shift or null if not found
      */
     public Shift loadShiftById(int id) {
-        LOGGER.info("Loading shift with ID: " + id);
-        return Shift.loadItemById(id);
+        LOGGER.fine("Loading shift with ID: " + id);
+        return store.get(id);
     }
 
     /**
@@ -77,21 +118,20 @@ public class ShiftManager {
     public void updateShift(Shift shift) {
         LOGGER.info("Updating shift with ID: " + shift.getId());
         shift.updateShift();
+        store.update(shift);
     }
 
     /**
-     * Books a user for a shift
+     * Books a user for a shift. Safe when many users book at the same time:
+     * see ShiftBookingEngine.
      * 
      * @param shift The shift to book
      * @param user  The user to book for the shift
+     * @return The outcome: BOOKED, or why the user was not booked
      */
-    public void bookUserForShift(Shift shift, User user) {
-        if (isAvailable(user, shift)) {
-            LOGGER.info("Booking user " + user.getUserName() + " for shift ID: " + shift.getId());
-            shift.addBooking(user);
-        } else {
-            LOGGER.warning("User " + user.getUserName() + " is already booked for shift ID: " + shift.getId());
-        }
+    public ShiftBookingEngine.Result bookUserForShift(Shift shift, User user) {
+        LOGGER.fine("Booking user " + user.getUserName() + " for shift ID: " + shift.getId());
+        return shift.addBooking(user);
     }
 
     /**
@@ -120,15 +160,30 @@ public class ShiftManager {
      * Gets shifts for a specific date
      * 
      * @param date The date to filter shifts for
-     * @return List of shifts on the specified date
+     * @return List of shifts on the specified date, by start time
      */
     public List<Shift> getShiftsForDate(Date date) {
-        List<Shift> dateShifts = new ArrayList<>();
-        for (Shift shift : getShiftTable()) {
-            if (shift.getDate().equals(date)) {
-                dateShifts.add(shift);
-            }
-        }
-        return dateShifts;
+        return store.getShifts(date);
+    }
+
+    /**
+     * Gets the shifts of a date range
+     * 
+     * @param from First day included
+     * @param to   Last day included
+     * @return List of shifts in the range, by date and start time
+     */
+    public List<Shift> getShifts(Date from, Date to) {
+        return store.getShifts(from, to);
+    }
+
+    /**
+     * Loads with a few queries the bookings of shifts that will all be shown,
+     * instead of one query per shift when each is first asked for
+     * 
+     * @param shifts The shifts
+     */
+    public void loadBookings(List<Shift> shifts) {
+        Shift.loadBookings(shifts);
     }
 }
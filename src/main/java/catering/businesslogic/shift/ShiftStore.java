@@ -0,0 +1,237 @@
+package catering.businesslogic.shift;
+
+import catering.persistence.PersistenceManager;
+import catering.util.LogManager;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of the shifts by date and start time, loaded lazily by date
+ * range.
+ *
+ * A query for a day or a range only reads from the database the days of the
+ * range that were never loaded, with one query on the date index
+ * (idx_shifts_date); the whole table is read only when every shift is asked
+ * for. Bookings are not loaded with the shifts: each shift reads them the
+ * first time they are needed, or Shift.loadBookings loads those of a list of
+ * shifts at once.
+ *
+ * The store returns the same Shift instance for the same id, so bookings made
+ * on a shift it returned are seen by later queries. Shifts created or changed
+ * through ShiftManager are indexed again; bookings changed through another
+ * instance of the same shift make the store read them again. Rows changed
+ * with direct SQL are not seen until invalidate() is called, which also
+ * happens when the database is reinitialized.
+ */
+public class ShiftStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(ShiftStore.class);
+
+    private static final ShiftStore instance = new ShiftStore();
+
+    // Position of a shift in the index: date, start time, then id for shifts
+    // starting together
+    private static final class Slot implements Comparable<Slot> {
+        final LocalDate date;
+        final long start;
+        final int id;
+
+        Slot(LocalDate date, long start, int id) {
+            this.date = date;
+            this.start = start;
+            this.id = id;
+        }
+
+        static Slot of(Shift s) {
+            Time start = s.getStartTime();
+            return new Slot(s.getDate().toLocalDate(), start != null ? start.toLocalTime().toSecondOfDay() : -1,
+                    s.getId());
+        }
+
+        // Sorts before every shift of the day
+        static Slot startOf(LocalDate day) {
+            return new Slot(day, Long.MIN_VALUE, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(Slot o) {
+            int c = date.compareTo(o.date);
+            if (c == 0) {
+                c = Long.compare(start, o.start);
+            }
+            return c != 0 ? c : Integer.compare(id, o.id);
+        }
+    }
+
+    private final NavigableMap<Slot, Shift> shifts = new TreeMap<>();
+    private final Map<Integer, Slot> slots = new HashMap<>();
+    // Loaded day ranges, from first to last day included, never overlapping
+    private final NavigableMap<LocalDate, LocalDate> loaded = new TreeMap<>();
+    private boolean complete;
+    private long queries;
+
+    private ShiftStore() {
+        PersistenceManager.addResetListener(this::invalidate);
+    }
+
+    public static ShiftStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return The shifts of the day, by start time
+     */
+    public ArrayList<Shift> getShifts(Date day) {
+        return getShifts(day, day);
+    }
+
+    /**
+     * @param from First day included
+     * @param to   Last day included
+     * @return The shifts of the range, by date and start time
+     */
+    public synchronized ArrayList<Shift> getShifts(Date from, Date to) {
+        LocalDate first = from.toLocalDate();
+        LocalDate last = to.toLocalDate();
+        if (first.isAfter(last)) {
+            return new ArrayList<>();
+        }
+        ensureLoaded(first, last);
+        return new ArrayList<>(shifts.subMap(Slot.startOf(first), true, Slot.startOf(last.plusDays(1)), false)
+                .values());
+    }
+
+    /**
+     * @return Every shift, by date and start time
+     */
+    public synchronized ArrayList<Shift> getAll() {
+        if (!complete) {
+            queries++;
+            for (Shift s : Shift.loadAllShifts()) {
+                if (s.getDate() != null && !slots.containsKey(s.getId())) {
+                    index(s);
+                }
+            }
+            complete = true;
+        }
+        return new ArrayList<>(shifts.values());
+    }
+
+    /**
+     * @return The shift with the given id, or null if it does not exist
+     */
+    public synchronized Shift get(int id) {
+        Slot slot = slots.get(id);
+        if (slot != null) {
+            return shifts.get(slot);
+        }
+        Shift s = Shift.loadItemById(id);
+        if (s != null && s.getDate() != null) {
+            index(s);
+        }
+        return s;
+    }
+
+    /**
+     * Indexes a new or changed shift at its current date and start time
+     */
+    public synchronized void update(Shift s) {
+        Slot old = slots.remove(s.getId());
+        if (old != null) {
+            shifts.remove(old);
+        }
+        if (s.getDate() != null) {
+            index(s);
+        }
+    }
+
+    /**
+     * Called after the bookings of a shift changed: if the store holds another
+     * instance of the same shift, its bookings are read again when next asked
+     * for
+     */
+    synchronized void bookingsChanged(Shift s) {
+        Slot slot = slots.get(s.getId());
+        Shift cached = slot != null ? shifts.get(slot) : null;
+        if (cached != null && cached != s) {
+            cached.invalidateBookings();
+        }
+    }
+
+    /**
+     * Empties the store: shifts are read again from the database when next
+     * asked for
+     */
+    public synchronized void invalidate() {
+        shifts.clear();
+        slots.clear();
+        loaded.clear();
+        complete = false;
+        LOGGER.fine("Shift store invalidated");
+    }
+
+    /**
+     * @return Number of queries the store ran on the Shifts table
+     */
+    public synchronized long getQueryCount() {
+        return queries;
+    }
+
+    // Loads the days of [first, last] never loaded, one query per gap
+    private void ensureLoaded(LocalDate first, LocalDate last) {
+        if (complete) {
+            return;
+        }
+        LocalDate day = first;
+        while (!day.isAfter(last)) {
+            Map.Entry<LocalDate, LocalDate> range = loaded.floorEntry(day);
+            if (range != null && !range.getValue().isBefore(day)) {
+                day = range.getValue().plusDays(1);
+                continue;
+            }
+            // The gap ends before the next loaded range, or at the end of the query
+            LocalDate next = loaded.higherKey(day);
+            LocalDate gapEnd = next != null && !next.isAfter(last) ? next.minusDays(1) : last;
+            queries++;
+            for (Shift s : Shift.loadShiftsBetween(Date.valueOf(day), Date.valueOf(gapEnd))) {
+                // Keep the instance already known, with its bookings
+                if (!slots.containsKey(s.getId())) {
+                    index(s);
+                }
+            }
+            markLoaded(day, gapEnd);
+            day = gapEnd.plusDays(1);
+        }
+    }
+
+    // Adds [first, last] to the loaded ranges, merging the adjacent ones
+    private void markLoaded(LocalDate first, LocalDate last) {
+        Map.Entry<LocalDate, LocalDate> before = loaded.floorEntry(first.minusDays(1));
+        if (before != null && !before.getValue().isBefore(first.minusDays(1))) {
+            first = before.getKey();
+        }
+        LocalDate afterStart = loaded.ceilingKey(first);
+        while (afterStart != null && !afterStart.isAfter(last.plusDays(1))) {
+            LocalDate afterEnd = loaded.remove(afterStart);
+            if (afterEnd.isAfter(last)) {
+                last = afterEnd;
+            }
+            afterStart = loaded.ceilingKey(first);
+        }
+        loaded.put(first, last);
+    }
+
+    private void index(Shift s) {
+        Slot slot = Slot.of(s);
+        shifts.put(slot, s);
+        slots.put(s.getId(), slot);
+    }
+}
@@ -0,0 +1,172 @@
+package catering.businesslogic.shift;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Weekly pattern of shifts over a period, e.g. a season.
+ *
+ * Example: lunch and dinner every Saturday of the summer, except the
+ * national holidays and a closed day:
+ *
+ * <pre>
+ * ShiftTemplate summer = new ShiftTemplate(Date.valueOf("2026-06-01"), Date.valueOf("2026-09-30"))
+ *         .weekly(DayOfWeek.SATURDAY, Time.valueOf("10:00:00"), Time.valueOf("15:00:00"))
+ *         .weekly(DayOfWeek.SATURDAY, Time.valueOf("18:00:00"), Time.valueOf("23:00:00"))
+ *         .holidays(HolidayCalendar.italian())
+ *         .except(Date.valueOf("2026-07-18"));
+ * </pre>
+ *
+ * The shifts are generated lazily by expand(), day by day, as new unsaved
+ * Shift objects: a preview only builds the shifts it shows. They are saved by
+ * ShiftManager.createShifts.
+ */
+public class ShiftTemplate {
+
+    // One shift of the week
+    private static final class Slot {
+        final Time start;
+        final Time end;
+
+        Slot(Time start, Time end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<DayOfWeek, List<Slot>> week = new EnumMap<>(DayOfWeek.class);
+    private final Set<LocalDate> exceptions = new HashSet<>();
+    private HolidayCalendar holidays = HolidayCalendar.empty();
+    private int everyWeeks = 1;
+    private Integer capacity;
+
+    /**
+     * @param from First day of the period
+     * @param to   Last day of the period, included
+     * @throws IllegalArgumentException If the period is empty
+     */
+    public ShiftTemplate(Date from, Date to) {
+        if (from == null || to == null || from.after(to)) {
+            throw new IllegalArgumentException("Invalid period: " + from + " - " + to);
+        }
+        this.from = from.toLocalDate();
+        this.to = to.toLocalDate();
+    }
+
+    /**
+     * Adds a shift repeated on a day of the week
+     *
+     * @throws IllegalArgumentException If the shift does not end after it starts
+     */
+    public ShiftTemplate weekly(DayOfWeek day, Time start, Time end) {
+        if (!start.before(end)) {
+            throw new IllegalArgumentException("Shift must end after it starts: " + start + " - " + end);
+        }
+        List<Slot> slots = week.computeIfAbsent(day, d -> new ArrayList<>());
+        slots.add(new Slot(start, end));
+        slots.sort((a, b) -> a.start.compareTo(b.start));
+        return this;
+    }
+
+    /**
+     * Repeats the pattern every n weeks, starting from the week of the first
+     * day of the period
+     */
+    public ShiftTemplate everyWeeks(int weeks) {
+        if (weeks < 1) {
+            throw new IllegalArgumentException("Invalid number of weeks: " + weeks);
+        }
+        this.everyWeeks = weeks;
+        return this;
+    }
+
+    /**
+     * Sets the capacity of every generated shift; null for no limit
+     */
+    public ShiftTemplate capacity(Integer capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * Skips every shift of a day
+     */
+    public ShiftTemplate except(Date day) {
+        exceptions.add(day.toLocalDate());
+        return this;
+    }
+
+    /**
+     * Skips the holidays of the calendar
+     */
+    public ShiftTemplate holidays(HolidayCalendar calendar) {
+        this.holidays = calendar != null ? calendar : HolidayCalendar.empty();
+        return this;
+    }
+
+    public Date getFrom() {
+        return Date.valueOf(from);
+    }
+
+    public Date getTo() {
+        return Date.valueOf(to);
+    }
+
+    /**
+     * @return The shifts of the period, by date and start time, built as the
+     *         stream is consumed
+     */
+    public Stream<Shift> expand() {
+        return from.datesUntil(to.plusDays(1))
+                .filter(this::isWorkingDay)
+                .flatMap(day -> week.getOrDefault(day.getDayOfWeek(), Collections.emptyList()).stream()
+                        .map(slot -> {
+                            Shift s = new Shift(Date.valueOf(day), slot.start, slot.end);
+                            s.setCapacity(capacity);
+                            return s;
+                        }));
+    }
+
+    /**
+     * @return The first shifts of the period, at most limit
+     */
+    public List<Shift> preview(int limit) {
+        return expand().limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * @return Number of shifts of the period, without building them
+     */
+    public long count() {
+        return from.datesUntil(to.plusDays(1))
+                .filter(this::isWorkingDay)
+                .mapToLong(day -> week.getOrDefault(day.getDayOfWeek(), Collections.emptyList()).size())
+                .sum();
+    }
+
+    private boolean isWorkingDay(LocalDate day) {
+        if (!week.containsKey(day.getDayOfWeek()) || exceptions.contains(day) || holidays.isHoliday(day)) {
+            return false;
+        }
+        if (everyWeeks == 1) {
+            return true;
+        }
+        LocalDate firstMonday = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return ChronoUnit.WEEKS.between(firstMonday, day) % everyWeeks == 0;
+    }
+}
@@ -6,7 +6,10 @@ import catering.persistence.ResultHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class User {
@@ -129,7 +132,23 @@ public class User {
 
     // STATIC METHODS FOR PERSISTENCE
 
+    private static final UserCache cache = UserCache.fromSystemProperties();
+
+    /**
+     * Gets the identity map shared by the load methods
+     * 
+     * @return The user cache, with its hit/miss statistics
+     */
+    public static UserCache getCache() {
+        return cache;
+    }
+
     public static User load(int uid) {
+        User cached = cache.get(uid);
+        if (cached != null) {
+            return cached;
+        }
+
         User load = new User();
         String userQuery = "SELECT * FROM Users WHERE id = ?";
 
@@ -143,6 +162,7 @@ public class User {
 
         if (load.id > 0) {
             loadRolesForUser(load);
+            return cache.putIfAbsent(load);
         }
         return load;
     }
@@ -160,11 +180,67 @@ public class User {
         }, username); // Pass username as parameter
 
         if (u.id > 0) {
+            User cached = cache.get(u.id);
+            if (cached != null) {
+                return cached;
+            }
             loadRolesForUser(u);
+            return cache.putIfAbsent(u);
         }
         return u;
     }
 
+    /**
+     * Loads a set of users with two queries (users and roles), taking the
+     * ones already cached from the identity map
+     * 
+     * @param ids The user ids
+     * @return Map from id to user; ids not found in the database are missing
+     */
+    public static Map<Integer, User> loadUsers(Collection<Integer> ids) {
+        Map<Integer, User> result = new HashMap<>();
+        Map<Integer, User> loaded = new HashMap<>();
+        for (int uid : ids) {
+            if (result.containsKey(uid) || loaded.containsKey(uid)) {
+                continue;
+            }
+            User cached = cache.get(uid);
+            if (cached != null) {
+                result.put(uid, cached);
+            } else {
+                loaded.put(uid, null);
+            }
+        }
+        if (loaded.isEmpty()) {
+            return result;
+        }
+
+        PersistenceManager.executeQueryIn("SELECT * FROM Users WHERE id IN (%s)", loaded.keySet(),
+                new ResultHandler() {
+                    @Override
+                    public void handle(ResultSet rs) throws SQLException {
+                        User u = new User();
+                        u.id = rs.getInt("id");
+                        u.username = rs.getString("username");
+                        loaded.put(u.id, u);
+                    }
+                });
+        loaded.values().removeIf(u -> u == null);
+
+        PersistenceManager.executeQueryIn("SELECT * FROM UserRoles WHERE user_id IN (%s)", loaded.keySet(),
+                new ResultHandler() {
+                    @Override
+                    public void handle(ResultSet rs) throws SQLException {
+                        addRoleFromDB(loaded.get(rs.getInt("user_id")), rs.getInt("role_id"));
+                    }
+                });
+
+        for (User u : loaded.values()) {
+            result.put(u.id, cache.putIfAbsent(u));
+        }
+        return result;
+    }
+
     public static ArrayList<User> loadAllUsers() {
         String userQuery = "SELECT * FROM Users";
         ArrayList<User> users = new ArrayList<>();
@@ -172,12 +248,17 @@ public class User {
         PersistenceManager.executeQuery(userQuery, new ResultHandler() {
             @Override
             public void handle(ResultSet rs) throws SQLException {
-                User u = new User();
-                u.id = rs.getInt("id");
-                u.username = rs.getString("username");
-
-                // Load roles for this user
-                loadRolesForUser(u);
+                int id = rs.getInt("id");
+                User u = cache.get(id);
+                if (u == null) {
+                    u = new User();
+                    u.id = id;
+                    u.username = rs.getString("username");
+
+                    // Load roles for this user
+                    loadRolesForUser(u);
+                    u = cache.putIfAbsent(u);
+                }
                 users.add(u);
             }
         });
@@ -192,28 +273,32 @@ public class User {
         PersistenceManager.executeQuery(roleQuery, new ResultHandler() {
             @Override
             public void handle(ResultSet rs) throws SQLException {
-                int role = rs.getInt("role_id");
-                switch (role) {
-                    case 0:
-                        u.roles.add(User.Role.CUOCO);
-                        break;
-                    case 1:
-                        u.roles.add(User.Role.CHEF);
-                        break;
-                    case 2:
-                        u.roles.add(User.Role.ORGANIZZATORE);
-                        break;
-                    case 3:
-                        u.roles.add(User.Role.SERVIZIO);
-                        break;
-                    case 4:
-                        u.roles.add(User.Role.PROPRIETARIO);
-                        break;
-                }
+                addRoleFromDB(u, rs.getInt("role_id"));
             }
         }, u.id); // Pass u.id as parameter
     }
 
+    // Maps a role_id of UserRoles to the Role enum
+    private static void addRoleFromDB(User u, int role) {
+        switch (role) {
+            case 0:
+                u.roles.add(User.Role.CUOCO);
+                break;
+            case 1:
+                u.roles.add(User.Role.CHEF);
+                break;
+            case 2:
+                u.roles.add(User.Role.ORGANIZZATORE);
+                break;
+            case 3:
+                u.roles.add(User.Role.SERVIZIO);
+                break;
+            case 4:
+                u.roles.add(User.Role.PROPRIETARIO);
+                break;
+        }
+    }
+
     /**
      * Saves a new user to the database
      * 
@@ -225,15 +310,19 @@ public class User {
 
         String query = "INSERT INTO Users (username) VALUES(?)";
 
-        PersistenceManager.executeUpdate(query, username);
-        id = PersistenceManager.getLastId();
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            id = PersistenceManager.executeInsert(query, username);
 
-        if (id > 0) {
             // Save roles
             saveUserRoles();
-            return true;
+        });
+
+        if (!committed) {
+            id = 0;
+            return false;
         }
-        return false;
+        cache.put(this);
+        return id > 0;
     }
 
     /**
@@ -247,12 +336,20 @@ public class User {
 
         String query = "UPDATE Users SET username = ? WHERE id = ?";
 
-        int rows = PersistenceManager.executeUpdate(query, username, id);
+        int[] rows = new int[1];
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            rows[0] = PersistenceManager.executeUpdate(query, username, id);
 
-        // Update user roles
-        saveUserRoles();
+            // Update user roles
+            saveUserRoles();
+        });
 
-        return rows > 0;
+        if (committed) {
+            cache.put(this);
+        } else {
+            cache.invalidate(id);
+        }
+        return committed && rows[0] > 0;
     }
 
     /**
@@ -264,15 +361,19 @@ public class User {
         if (id == 0)
             return false; // Not in DB
 
-        // First delete user roles
-        String deleteRolesQuery = "DELETE FROM UserRoles WHERE user_id = ?";
-        PersistenceManager.executeUpdate(deleteRolesQuery, id);
+        int[] rows = new int[1];
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            // First delete user roles
+            String deleteRolesQuery = "DELETE FROM UserRoles WHERE user_id = ?";
+            PersistenceManager.executeUpdate(deleteRolesQuery, id);
 
-        // Then delete user
-        String deleteUserQuery = "DELETE FROM Users WHERE id = ?";
-        int rows = PersistenceManager.executeUpdate(deleteUserQuery, id);
+            // Then delete user
+            String deleteUserQuery = "DELETE FROM Users WHERE id = ?";
+            rows[0] = PersistenceManager.executeUpdate(deleteUserQuery, id);
+        });
 
-        if (rows > 0) {
+        cache.invalidate(id);
+        if (committed && rows[0] > 0) {
             id = 0;
             return true;
         }
@@ -0,0 +1,158 @@
+package catering.businesslogic.user;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import catering.persistence.PersistenceManager;
+
+/**
+ * Bounded identity map of the users loaded from the database.
+ *
+ * While a user is cached, every User.load for its id returns the same
+ * instance, so the two queries needed to load a user (Users and UserRoles)
+ * run only once. The least recently used users are evicted when the cache is
+ * full. User.save, update and delete keep the cache coherent; the whole
+ * cache is dropped when the database is reinitialized. Writes made with
+ * plain SQL outside the User class are not seen until the entry is
+ * invalidated.
+ *
+ * The capacity is set with the system property catering.cache.users.size
+ * (default 1024, 0 disables caching).
+ */
+public class UserCache {
+
+    public static final String SIZE_PROPERTY = "catering.cache.users.size";
+
+    private final int maxSize;
+    private final LinkedHashMap<Integer, User> users;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(int maxSize) {
+        this.maxSize = maxSize;
+        // Access-ordered map: the eldest entry is the least recently used one
+        this.users = new LinkedHashMap<Integer, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, User> eldest) {
+                if (size() <= UserCache.this.maxSize) {
+                    return false;
+                }
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+        PersistenceManager.addResetListener(this::clear);
+    }
+
+    static UserCache fromSystemProperties() {
+        return new UserCache(Integer.getInteger(SIZE_PROPERTY, 1024));
+    }
+
+    /**
+     * Gets a cached user, counting the lookup as a hit or a miss
+     *
+     * @param id The user id
+     * @return The cached user, or null if it has to be loaded
+     */
+    synchronized User get(int id) {
+        User u = users.get(id);
+        if (u != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return u;
+    }
+
+    /**
+     * Caches a freshly loaded user, unless another thread cached the same id
+     * in the meantime
+     *
+     * @param u The loaded user
+     * @return The instance to use: u, or the one already cached
+     */
+    synchronized User putIfAbsent(User u) {
+        if (maxSize <= 0 || u.getId() <= 0) {
+            return u;
+        }
+        User existing = users.get(u.getId());
+        if (existing != null) {
+            return existing;
+        }
+        users.put(u.getId(), u);
+        return u;
+    }
+
+    /**
+     * Replaces the cached user for its id, after it has been written
+     *
+     * @param u The saved user
+     */
+    synchronized void put(User u) {
+        if (maxSize > 0 && u.getId() > 0) {
+            users.put(u.getId(), u);
+        }
+    }
+
+    /**
+     * Removes a user from the cache
+     *
+     * @param id The user id
+     */
+    public synchronized void invalidate(int id) {
+        if (users.remove(id) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes every user from the cache
+     */
+    public synchronized void clear() {
+        invalidations.addAndGet(users.size());
+        users.clear();
+    }
+
+    public synchronized int size() {
+        return users.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return Fraction of lookups served from the cache, 0 if none yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UserCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d, hitRate=%.2f]",
+                size(), maxSize, getHits(), getMisses(), getEvictions(), getInvalidations(), getHitRate());
+    }
+}
@@ -1,29 +1,36 @@
 package catering.businesslogic.user;
 
 import java.util.logging.Logger;
+
+import catering.businesslogic.Session;
 import catering.businesslogic.UseCaseLogicException;
 import catering.util.LogManager;
 
 public class UserManager {
     private static final Logger LOGGER = LogManager.getLogger(UserManager.class);
 
-    private User currentUser;
-
+    /**
+     * Logs a user into the current session
+     */
     public void fakeLogin(String username) throws UseCaseLogicException {
         LOGGER.info("Attempting login for user: " + username);
-        this.currentUser = User.load(username);
-        if (this.currentUser == null) {
+        User user = User.load(username);
+        Session.current().setUser(user);
+        if (user == null) {
             LOGGER.warning("Login failed: user not found - " + username);
             throw new UseCaseLogicException("User not found");
         }
         LOGGER.info("User successfully logged in: " + username);
     }
 
+    /**
+     * @return The user logged into the current session
+     */
     public User getCurrentUser() {
-        return this.currentUser;
+        return Session.current().getUser();
     }
 
     public void setCurrentUser(User user) {
-        this.currentUser = user;
+        Session.current().setUser(user);
     }
 }
@@ -0,0 +1,468 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.util.LogManager;
+
+/**
+ * Bounded pool of SQLite connections used by PersistenceManager.
+ *
+ * SQLite allows a single writer at a time, so the pool keeps one dedicated
+ * writer connection and a configurable number of reader connections.
+ * Connections are opened lazily, validated when they have been idle for a
+ * while and watched for leaks by a background housekeeper.
+ *
+ * Leases are re-entrant per thread: a query executed from inside the
+ * ResultHandler of another query reuses the connection already held by the
+ * thread instead of borrowing a second one, so nested loads can never
+ * exhaust the pool. A thread holding the writer also reads through it, so it
+ * sees its own uncommitted changes.
+ */
+public class ConnectionPool {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+
+    /**
+     * Pool sizing and housekeeping settings.
+     * Every value can be overridden through a system property.
+     */
+    public static class Config {
+        public static final String READERS_PROPERTY = "catering.db.pool.readers";
+        public static final String ACQUIRE_TIMEOUT_PROPERTY = "catering.db.pool.acquireTimeoutMs";
+        public static final String LEAK_THRESHOLD_PROPERTY = "catering.db.pool.leakThresholdMs";
+        public static final String VALIDATION_INTERVAL_PROPERTY = "catering.db.pool.validationIntervalMs";
+        public static final String STATEMENT_CACHE_PROPERTY = "catering.db.pool.statementCacheSize";
+
+        private int readers = 4;
+        private long acquireTimeoutMs = 30_000;
+        private long leakThresholdMs = 60_000;
+        private long validationIntervalMs = 30_000;
+        private int statementCacheSize = 64;
+        private ConnectionProfile profile = ConnectionProfile.BALANCED;
+
+        /**
+         * Builds a configuration from system properties, falling back to the
+         * defaults for missing values
+         *
+         * @return The configuration
+         */
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.readers = Math.max(1, Integer.getInteger(READERS_PROPERTY, c.readers));
+            c.acquireTimeoutMs = Long.getLong(ACQUIRE_TIMEOUT_PROPERTY, c.acquireTimeoutMs);
+            c.leakThresholdMs = Long.getLong(LEAK_THRESHOLD_PROPERTY, c.leakThresholdMs);
+            c.validationIntervalMs = Long.getLong(VALIDATION_INTERVAL_PROPERTY, c.validationIntervalMs);
+            c.statementCacheSize = Integer.getInteger(STATEMENT_CACHE_PROPERTY, c.statementCacheSize);
+            c.profile = ConnectionProfile.fromSystemProperties();
+            return c;
+        }
+
+        public Config readers(int readers) {
+            this.readers = Math.max(1, readers);
+            return this;
+        }
+
+        public Config acquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+            return this;
+        }
+
+        /**
+         * @param leakThresholdMs how long a lease may be held before it is
+         *                        reported as a leak (0 disables detection)
+         */
+        public Config leakThresholdMs(long leakThresholdMs) {
+            this.leakThresholdMs = leakThresholdMs;
+            return this;
+        }
+
+        public Config validationIntervalMs(long validationIntervalMs) {
+            this.validationIntervalMs = validationIntervalMs;
+            return this;
+        }
+
+        /**
+         * @param statementCacheSize prepared statements cached per connection
+         *                           (0 disables the cache)
+         */
+        public Config statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public Config profile(ConnectionProfile profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        public int getReaders() {
+            return readers;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public long getLeakThresholdMs() {
+            return leakThresholdMs;
+        }
+
+        public long getValidationIntervalMs() {
+            return validationIntervalMs;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+
+        public ConnectionProfile getProfile() {
+            return profile;
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, with its statement cache
+     */
+    private class PooledConnection {
+        private Connection connection;
+        private StatementCache statements;
+        private long lastUsed;
+
+        PooledConnection(Connection connection) {
+            attach(connection);
+        }
+
+        void attach(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection, config.statementCacheSize, statementCounters);
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        void close() {
+            statements.close();
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * A borrowed connection. Closing the lease gives the connection back to
+     * the pool once the outermost holder on the thread releases it.
+     */
+    public class Lease implements AutoCloseable {
+        private final PooledConnection pooled;
+        private final BlockingQueue<PooledConnection> home;
+        private final ThreadLocal<Lease> binding;
+        private final String kind;
+        private final Thread owner;
+        private final long acquiredAt;
+        private int holdCount;
+        private boolean leakReported;
+
+        private Lease(PooledConnection pooled, BlockingQueue<PooledConnection> home,
+                ThreadLocal<Lease> binding, String kind) {
+            this.pooled = pooled;
+            this.home = home;
+            this.binding = binding;
+            this.kind = kind;
+            this.owner = Thread.currentThread();
+            this.acquiredAt = System.currentTimeMillis();
+            this.holdCount = 1;
+        }
+
+        public Connection getConnection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Gets a prepared statement from this connection's statement cache.
+         * The returned handle must be closed instead of the statement.
+         *
+         * @param sql        SQL text with ? placeholders
+         * @param returnKeys whether generated keys are needed
+         * @return Handle wrapping the prepared statement
+         * @throws SQLException If the statement cannot be prepared
+         */
+        public StatementCache.Handle prepare(String sql, boolean returnKeys) throws SQLException {
+            return pooled.statements.prepare(sql, returnKeys);
+        }
+
+        /**
+         * @return true if this lease is the pool's writer connection
+         */
+        public boolean isWriter() {
+            return home == idleWriter;
+        }
+
+        @Override
+        public void close() {
+            if (--holdCount > 0) {
+                return;
+            }
+            binding.remove();
+            activeLeases.remove(this);
+            pooled.lastUsed = System.currentTimeMillis();
+            if (closed) {
+                pooled.close();
+            } else {
+                home.offer(pooled);
+            }
+        }
+    }
+
+    private final String url;
+    private final Config config;
+
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final BlockingQueue<PooledConnection> idleWriter;
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final AtomicInteger openWriters = new AtomicInteger();
+
+    private final ThreadLocal<Lease> currentReader = new ThreadLocal<>();
+    private final ThreadLocal<Lease> currentWriter = new ThreadLocal<>();
+    private final Set<Lease> activeLeases = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, Config config) {
+        this.url = url;
+        this.config = config;
+        this.idleReaders = new ArrayBlockingQueue<>(config.readers);
+        this.idleWriter = new ArrayBlockingQueue<>(1);
+
+        if (config.leakThresholdMs > 0) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "catering-pool-housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, config.leakThresholdMs / 2);
+            housekeeper.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            housekeeper = null;
+        }
+
+        LOGGER.info("Connection pool created: 1 writer, " + config.readers + " readers, profile "
+                + config.profile);
+    }
+
+    /**
+     * Borrows a connection for reading. If the current thread already holds
+     * the writer or a reader, that lease is reused.
+     *
+     * @return The lease, to be closed when done
+     * @throws SQLException If no connection becomes available in time
+     */
+    public Lease reader() throws SQLException {
+        Lease held = currentWriter.get();
+        if (held == null) {
+            held = currentReader.get();
+        }
+        if (held != null) {
+            held.holdCount++;
+            return held;
+        }
+        return borrow(idleReaders, openReaders, config.readers, currentReader, "reader");
+    }
+
+    /**
+     * Borrows the single writer connection, waiting for other writers to
+     * finish. Re-entrant for the current thread.
+     *
+     * @return The lease, to be closed when done
+     * @throws SQLException If the writer does not become available in time
+     */
+    public Lease writer() throws SQLException {
+        Lease held = currentWriter.get();
+        if (held != null) {
+            held.holdCount++;
+            return held;
+        }
+        return borrow(idleWriter, openWriters, 1, currentWriter, "writer");
+    }
+
+    private Lease borrow(BlockingQueue<PooledConnection> idle, AtomicInteger open, int max,
+            ThreadLocal<Lease> binding, String kind) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        PooledConnection pooled = idle.poll();
+        if (pooled == null && tryReserve(open, max)) {
+            try {
+                pooled = new PooledConnection(openConnection());
+            } catch (SQLException ex) {
+                open.decrementAndGet();
+                throw ex;
+            }
+        }
+        if (pooled == null) {
+            try {
+                pooled = idle.poll(config.acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a " + kind + " connection", ex);
+            }
+            if (pooled == null) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + config.acquireTimeoutMs
+                        + " ms waiting for a " + kind + " connection (" + activeLeases.size() + " in use)");
+            }
+        }
+
+        try {
+            validate(pooled);
+        } catch (SQLException ex) {
+            // The broken connection is already closed: give its slot back so
+            // the next borrow opens a new one
+            open.decrementAndGet();
+            throw ex;
+        }
+
+        Lease lease = new Lease(pooled, idle, binding, kind);
+        binding.set(lease);
+        activeLeases.add(lease);
+        borrowCount.incrementAndGet();
+        return lease;
+    }
+
+    private static boolean tryReserve(AtomicInteger open, int max) {
+        int current;
+        do {
+            current = open.get();
+            if (current >= max) {
+                return false;
+            }
+        } while (!open.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Health check: a connection idle for longer than the validation interval
+     * is tested before being handed out and replaced if it is broken.
+     */
+    private void validate(PooledConnection pooled) throws SQLException {
+        long idleFor = System.currentTimeMillis() - pooled.lastUsed;
+        if (idleFor < config.validationIntervalMs && !pooled.connection.isClosed()) {
+            return;
+        }
+        boolean valid;
+        try {
+            valid = pooled.connection.isValid(2);
+        } catch (SQLException ex) {
+            valid = false;
+        }
+        if (!valid) {
+            LOGGER.warning("Replacing broken pooled connection");
+            pooled.close();
+            pooled.attach(openConnection());
+        }
+    }
+
+    /**
+     * Opens a new physical connection to the database and applies the
+     * configured PRAGMA profile
+     */
+    private Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            config.profile.apply(conn);
+        } catch (SQLException ex) {
+            closeQuietly(conn);
+            throw ex;
+        }
+        return conn;
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : activeLeases) {
+            if (!lease.leakReported && now - lease.acquiredAt > config.leakThresholdMs) {
+                lease.leakReported = true;
+                leakCount.incrementAndGet();
+                // Capturing a stack on every borrow is too expensive, so report where the owner is now
+                Throwable where = new Throwable("Current stack of " + lease.owner.getName());
+                where.setStackTrace(lease.owner.getStackTrace());
+                LOGGER.log(Level.WARNING, "Possible connection leak: " + lease.kind + " held by thread "
+                        + lease.owner.getName() + " for " + (now - lease.acquiredAt) + " ms", where);
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeper. Connections
+     * still in use are closed when their lease is released.
+     */
+    public void close() {
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idleReaders.poll()) != null) {
+            pooled.close();
+        }
+        while ((pooled = idleWriter.poll()) != null) {
+            pooled.close();
+        }
+        LOGGER.info("Connection pool closed (" + borrowCount.get() + " borrows, "
+                + timeoutCount.get() + " timeouts, " + leakCount.get() + " suspected leaks, statements: "
+                + statementCounters + ")");
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Error closing pooled connection", ex);
+        }
+    }
+
+    // Statistics
+
+    public int getActiveCount() {
+        return activeLeases.size();
+    }
+
+    public int getOpenCount() {
+        return openReaders.get() + openWriters.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public StatementCache.Counters getStatementCounters() {
+        return statementCounters;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,98 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import catering.util.LogManager;
+
+/**
+ * Named sets of SQLite PRAGMAs applied to every connection when it is opened.
+ *
+ * All presets enable WAL journaling so readers are not blocked while the
+ * writer connection commits. They differ in how much durability they trade
+ * for speed:
+ * - DURABLE: synchronous=FULL, every commit is fsynced
+ * - BALANCED: synchronous=NORMAL, safe against application crashes, the
+ * last commits may be lost on power failure (default)
+ * - BULK_LOAD: synchronous=OFF and large caches, for imports and data
+ * generation only
+ *
+ * The preset is chosen with the system property catering.db.profile
+ * (durable, balanced, bulk-load). Single values can be overridden with
+ * catering.db.pragma.NAME, e.g. -Dcatering.db.pragma.cache_size=-65536
+ */
+public enum ConnectionProfile {
+
+    DURABLE("FULL", -8_000, 0L, "DEFAULT", 5_000),
+    BALANCED("NORMAL", -16_000, 268_435_456L, "MEMORY", 5_000),
+    BULK_LOAD("OFF", -65_536, 1_073_741_824L, "MEMORY", 30_000);
+
+    public static final String PROFILE_PROPERTY = "catering.db.profile";
+    public static final String PRAGMA_PROPERTY_PREFIX = "catering.db.pragma.";
+
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionProfile.class);
+
+    private final Map<String, String> pragmas;
+
+    ConnectionProfile(String synchronous, int cacheSize, long mmapSize, String tempStore, int busyTimeout) {
+        pragmas = new LinkedHashMap<>();
+        // busy_timeout goes first so the journal_mode switch can wait for other connections
+        pragmas.put("busy_timeout", String.valueOf(busyTimeout));
+        pragmas.put("journal_mode", "WAL");
+        pragmas.put("synchronous", synchronous);
+        pragmas.put("cache_size", String.valueOf(cacheSize));
+        pragmas.put("mmap_size", String.valueOf(mmapSize));
+        pragmas.put("temp_store", tempStore);
+    }
+
+    /**
+     * Resolves the profile named by the catering.db.profile system property
+     *
+     * @return The selected profile, BALANCED if unset or unknown
+     */
+    public static ConnectionProfile fromSystemProperties() {
+        String name = System.getProperty(PROFILE_PROPERTY);
+        if (name == null || name.isEmpty()) {
+            return BALANCED;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warning("Unknown database profile '" + name + "', using balanced");
+            return BALANCED;
+        }
+    }
+
+    /**
+     * Gets the PRAGMA values of this profile, including system property
+     * overrides
+     *
+     * @return Map of PRAGMA name to value, in application order
+     */
+    public Map<String, String> getPragmas() {
+        Map<String, String> effective = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : pragmas.entrySet()) {
+            effective.put(e.getKey(), System.getProperty(PRAGMA_PROPERTY_PREFIX + e.getKey(), e.getValue()));
+        }
+        return effective;
+    }
+
+    /**
+     * Applies the PRAGMAs of this profile to a freshly opened connection
+     *
+     * @param conn The connection to configure
+     * @throws SQLException If a PRAGMA cannot be executed
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> e : getPragmas().entrySet()) {
+                stmt.execute("PRAGMA " + e.getKey() + " = " + e.getValue());
+            }
+        }
+    }
+}
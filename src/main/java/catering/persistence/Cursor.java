@@ -0,0 +1,130 @@
+package catering.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.util.LogManager;
+
+/**
+ * Iterator over the rows of a query, fetched from the database as it
+ * advances. Opened by PersistenceManager.openCursor.
+ *
+ * The cursor holds a connection of the pool until it is closed: it closes
+ * itself after the last row, otherwise it must be closed (try-with-resources)
+ * on the thread that opened it, like the connection leases. The mapper may run
+ * other queries: they use the same connection.
+ *
+ * As for executeQuery, a database error is logged and ends the iteration;
+ * an error of the mapper is also thrown by next().
+ */
+public class Cursor<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(Cursor.class);
+
+    private final String query;
+    private final RowMapper<T> mapper;
+    private ConnectionPool.Lease lease;
+    private StatementCache.Handle statement;
+    private ResultSet rs;
+    private boolean fetched;
+    private boolean closed;
+
+    Cursor(String query, RowMapper<T> mapper, int fetchSize, Object[] params, ParameterBinder binder) {
+        this.query = query;
+        this.mapper = mapper;
+        try {
+            lease = PersistenceManager.getPool().reader();
+            statement = lease.prepare(query, false);
+            PreparedStatement ps = statement.getStatement();
+            binder.bind(ps, params);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+        } catch (SQLException ex) {
+            fail(ex);
+        }
+    }
+
+    // How PersistenceManager sets the parameters of its statements
+    interface ParameterBinder {
+        void bind(PreparedStatement ps, Object[] params) throws SQLException;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                fetched = rs.next();
+            } catch (SQLException ex) {
+                fail(ex);
+                return false;
+            }
+            if (!fetched) {
+                close();
+            }
+        }
+        return fetched;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return mapper.map(rs);
+        } catch (SQLException ex) {
+            fail(ex);
+            throw new IllegalStateException("Error reading row of query: " + query, ex);
+        }
+    }
+
+    /**
+     * @return true once the rows are exhausted or the cursor was closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases the result set, the statement and the connection. Safe to call
+     * more than once.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (statement != null) {
+                // The statement goes back to the cache: restore the default
+                statement.getStatement().setFetchSize(0);
+                statement.close();
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Error closing cursor of query: " + query, ex);
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    private void fail(SQLException ex) {
+        LOGGER.log(Level.SEVERE, "Error executing query: " + query, ex);
+        PersistenceManager.markRollbackOnly();
+        close();
+    }
+}
@@ -1,5 +1,8 @@
 package catering.persistence;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import catering.businesslogic.kitchen.Assignment;
 import catering.businesslogic.kitchen.KitchenTaskEventReceiver;
 import catering.businesslogic.kitchen.SummarySheet;
@@ -7,39 +10,60 @@ import catering.businesslogic.kitchen.KitchenTask;
 
 public class KitchenTaskPersistence implements KitchenTaskEventReceiver {
 
+    private final PersistenceWriter writer;
+
+    public KitchenTaskPersistence() {
+        this(PersistenceWriter.DIRECT);
+    }
+
+    public KitchenTaskPersistence(PersistenceWriter writer) {
+        this.writer = writer;
+    }
+
     @Override
     public void updateSheetGenerated(SummarySheet summarySheet) {
-        SummarySheet.saveNewSumSheet(summarySheet);
+        writer.writeNow(() -> SummarySheet.saveNewSumSheet(summarySheet));
     }
 
     @Override
     public void updateTaskAdded(SummarySheet currentSumSheet, KitchenTask added) {
-        KitchenTask.saveNewTask(currentSumSheet.getId(), added, currentSumSheet.getTaskPosition(added));
+        writer.writeNow(() -> KitchenTask.saveNewTask(currentSumSheet, added));
     }
 
     @Override
     public void updateTaskListSorted(SummarySheet currentSumSheet) {
-        SummarySheet.updateTaskList(currentSumSheet);
+        // Ops may run later on the writer thread: they save copies taken now
+        List<KitchenTask> tasks = new ArrayList<>(currentSumSheet.getTaskList());
+        writer.write("taskOrder", currentSumSheet, () -> SummarySheet.updateTaskList(tasks));
     }
 
     @Override
     public void updateAssignmentAdded(SummarySheet currentSumSheet, Assignment a) {
-        Assignment.saveNewAssignment(currentSumSheet.getId(), a);
+        writer.writeNow(() -> Assignment.saveNewAssignment(currentSumSheet.getId(), a));
+    }
+
+    @Override
+    public void updateAssignmentsAdded(SummarySheet currentSumSheet, ArrayList<Assignment> added) {
+        writer.writeNow(() -> Assignment.saveAllNewAssignment(currentSumSheet.getId(), added));
     }
 
     @Override
     public void updateAssignmentChanged(Assignment a) {
-        Assignment.updateAssignment(a);
+        int id = a.getId();
+        int shiftId = a.getShift().getId();
+        int cookId = a.getCook() == null ? 0 : a.getCook().getId();
+        writer.write("assignment", a, () -> Assignment.updateAssignment(id, shiftId, cookId));
     }
 
     @Override
     public void updateAssignmentDeleted(Assignment ass) {
-        Assignment.deleteAssignment(ass);
+        writer.write(null, ass, () -> Assignment.deleteAssignment(ass));
     }
 
     @Override
     public void updateTaskChanged(KitchenTask task) {
-        KitchenTask.updateTaskChanged(task);
+        KitchenTask copy = task.copy();
+        writer.write("task", task, () -> KitchenTask.updateTaskChanged(copy));
     }
 
-}
\ No newline at end of file
+}
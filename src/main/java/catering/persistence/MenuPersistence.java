@@ -1,94 +1,145 @@
 package catering.persistence;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import catering.businesslogic.menu.Menu;
 import catering.businesslogic.menu.MenuEventReceiver;
 import catering.businesslogic.menu.MenuItem;
 import catering.businesslogic.menu.Section;
 
+/**
+ * Saves the changes notified by the MenuManager.
+ *
+ * The ops given to the writer may run later on another thread, so they do not
+ * read the menu: the values to save (titles, features, lists to reorder) are
+ * copied here, on the thread that made the change.
+ */
 public class MenuPersistence implements MenuEventReceiver {
 
+    private final PersistenceWriter writer;
+
+    public MenuPersistence() {
+        this(PersistenceWriter.DIRECT);
+    }
+
+    public MenuPersistence(PersistenceWriter writer) {
+        this.writer = writer;
+    }
+
     @Override
     public void updateMenuCreated(Menu m) {
-        Menu.create(m);
+        writer.writeNow(() -> Menu.create(m));
     }
 
     @Override
     public void updateSectionAdded(Menu m, Section sec) {
-        Section.create(m.getId(), sec, m.getSectionPosition(sec));
+        writer.writeNow(() -> Section.create(m, sec));
     }
 
     @Override
     public void updateMenuItemAdded(Menu m, MenuItem mi) {
-        Section sec = m.getSection(mi);
-        int sec_id = (sec == null ? 0 : sec.getId());
-        int pos = (sec == null ? m.getFreeItemPosition(mi) : sec.getItemPosition(mi));
-        MenuItem.create(m.getId(), sec_id, mi, pos);
+        writer.writeNow(() -> MenuItem.create(m, m.getSection(mi), mi));
     }
 
     @Override
     public void updateMenuFeaturesChanged(Menu m) {
-        Menu.saveFeatures(m);
+        int id = m.getId();
+        Map<String, Boolean> features = new HashMap<>(m.getFeatures());
+        writer.write("features", m, () -> Menu.saveFeatures(id, features));
     }
 
     @Override
     public void updateMenuTitleChanged(Menu m) {
-        Menu.saveTitle(m);
+        int id = m.getId();
+        String title = m.getTitle();
+        writer.write("title", m, () -> Menu.saveTitle(id, title));
     }
 
     @Override
     public void updateMenuPublishedState(Menu m) {
-        Menu.savePublished(m);
+        int id = m.getId();
+        boolean published = m.isPublished();
+        writer.write("published", m, () -> Menu.savePublished(id, published));
     }
 
     @Override
     public void updateMenuDeleted(Menu m) {
-        Menu.delete(m);
+        writer.write(null, m, () -> Menu.delete(m));
     }
 
     @Override
     public void updateSectionDeleted(Menu m, Section s, boolean itemsDeleted) {
-        Section.deleteSection(m.getId(), s);
-        if (!itemsDeleted)
-            MenuItem.create(m.getId(), 0, s.getItems());
+        // The items moved out of the section are inserted again with new ids
+        writer.writeNow(() -> PersistenceManager.inTransaction(() -> {
+            Section.deleteSection(m.getId(), s);
+            if (!itemsDeleted) {
+                MenuItem.create(m.getId(), 0, s.getItems());
+                // Their keys were numbered from the start of the section
+                Menu.saveFreeItemOrder(m);
+            }
+        }));
     }
 
     @Override
     public void updateSectionChangedName(Menu m, Section s) {
-        Section.saveSectionName(s);
+        int id = s.getId();
+        String name = s.getName();
+        writer.write("sectionName", s, () -> Section.saveSectionName(id, name));
     }
 
     @Override
     public void updateSectionsRearranged(Menu m) {
-        Menu.saveSectionOrder(m);
+        List<Section> sections = new ArrayList<>(m.getSections());
+        writer.write("sectionOrder", m, () -> Menu.saveSectionOrder(sections));
     }
 
     @Override
     public void updateFreeMenuItemsRearranged(Menu m) {
-        Menu.saveFreeItemOrder(m);
+        writeFreeItemOrder(m);
     }
 
     @Override
     public void updateMenuItemsRearranged(Menu m, Section s) {
-        Section.saveItemOrder(s);
+        writeItemOrder(s);
     }
 
     @Override
     public void updateMenuItemChanged(Menu m, Section s, MenuItem mi) {
         int sid = (s == null ? 0 : s.getId());
-        MenuItem.saveSection(sid, mi);
+        writer.write("itemSection", mi, () -> MenuItem.saveSection(sid, mi));
+        // The key of the item comes from its old list
+        if (s != null) {
+            writeItemOrder(s);
+        } else
+            writeFreeItemOrder(m);
     }
 
     @Override
     public void updateMenuItemDescriptionChanged(Menu m, MenuItem mi) {
-        MenuItem.saveDescription(mi);
+        int id = mi.getId();
+        String description = mi.getDescription();
+        writer.write("description", mi, () -> MenuItem.saveDescription(id, description));
     }
 
     @Override
     public void updateMenuItemDeleted(Menu m, Section sec, MenuItem mi) {
-        MenuItem.removeItem(mi);
+        writer.write(null, mi, () -> MenuItem.removeItem(mi));
         if (sec != null) {
-            Section.saveItemOrder(sec);
+            writeItemOrder(sec);
         } else
-            Menu.saveFreeItemOrder(m);
+            writeFreeItemOrder(m);
+    }
+
+    private void writeItemOrder(Section s) {
+        List<MenuItem> items = new ArrayList<>(s.getItems());
+        writer.write("itemOrder", s, () -> Section.saveItemOrder(items));
+    }
+
+    private void writeFreeItemOrder(Menu m) {
+        List<MenuItem> items = new ArrayList<>(m.getFreeItems());
+        writer.write("freeItemOrder", m, () -> Menu.saveFreeItemOrder(items));
     }
 }
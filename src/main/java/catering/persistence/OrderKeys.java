@@ -0,0 +1,211 @@
+package catering.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sparse ordering keys for the position column of ordered lists (tasks of a
+ * summary sheet, sections and items of a menu).
+ *
+ * Keys are spaced GAP apart, so moving one element only needs a key between
+ * its new neighbours: one row is written instead of the whole list. When there
+ * is no free key between two neighbours the whole list is renumbered
+ * (rebalanced), which only happens after many moves into the same spot.
+ *
+ * The keys of a list are computed from its current order: the longest run of
+ * elements whose keys are already increasing keeps its keys, the others get
+ * new ones. So a save after several moves writes only the rows that moved,
+ * however the moves happened.
+ */
+public final class OrderKeys {
+
+    // Distance between consecutive keys after a rebalance: 12 moves into the
+    // same gap before the list has to be renumbered
+    public static final int GAP = 4096;
+
+    // Key of an element not saved yet
+    public static final int UNASSIGNED = Integer.MIN_VALUE;
+
+    private OrderKeys() {
+    }
+
+    /**
+     * @return The key of the element at the given index of a new list
+     */
+    public static int sequential(int index) {
+        return (index + 1) * GAP;
+    }
+
+    /**
+     * Computes keys that follow the order of the list, changing as few of the
+     * current keys as possible
+     *
+     * @param items The list, in its new order
+     * @param key   Current key of an element (UNASSIGNED if none)
+     * @return The new keys, by list index
+     */
+    public static <T> int[] assign(List<T> items, ToIntFunction<T> key) {
+        int n = items.size();
+        long[] current = new long[n];
+        for (int i = 0; i < n; i++) {
+            current[i] = key.applyAsInt(items.get(i));
+        }
+
+        boolean[] stable = longestIncreasing(current);
+        long[] keys = new long[n];
+        int i = 0;
+        while (i < n) {
+            if (stable[i]) {
+                keys[i] = current[i];
+                i++;
+                continue;
+            }
+            // Run [i, end) of elements needing a key, between keys[i - 1] and current[end]
+            int end = i;
+            while (end < n && !stable[end]) {
+                end++;
+            }
+            int k = end - i;
+            long lo;
+            long hi;
+            if (i == 0 && end == n) {
+                lo = 0;
+                hi = (long) (k + 1) * GAP;
+            } else if (i == 0) {
+                hi = current[end];
+                lo = hi - (long) (k + 1) * GAP;
+            } else if (end == n) {
+                lo = keys[i - 1];
+                hi = lo + (long) (k + 1) * GAP;
+            } else {
+                lo = keys[i - 1];
+                hi = current[end];
+            }
+            long step = (hi - lo) / (k + 1);
+            if (step < 1 || lo <= UNASSIGNED || hi > Integer.MAX_VALUE) {
+                return rebalanced(n);
+            }
+            for (int j = 0; j < k; j++) {
+                keys[i + j] = lo + step * (j + 1);
+            }
+            i = end;
+        }
+
+        int[] result = new int[n];
+        for (int j = 0; j < n; j++) {
+            result[j] = (int) keys[j];
+        }
+        return result;
+    }
+
+    /**
+     * Saves the order of a list: computes its keys, writes the ones that
+     * changed with a single batch and stores them in the elements. Elements
+     * not inserted yet (id 0) get a key but are not written. If the enclosing
+     * transaction rolls back, the elements get their old keys back, so the
+     * next save writes the move again.
+     *
+     * @param table  Table with the id and position columns
+     * @param items  The list, in its new order
+     * @param id     Id of an element
+     * @param key    Current key of an element
+     * @param setKey Stores the new key of an element
+     * @return Number of rows written
+     */
+    public static <T> int save(String table, List<T> items, ToIntFunction<T> id, ToIntFunction<T> key,
+            ObjIntConsumer<T> setKey) {
+        List<T> snapshot = new ArrayList<>(items);
+        int[] keys = assign(snapshot, key);
+
+        List<T> changed = new ArrayList<>();
+        List<Integer> changedKeys = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            T item = snapshot.get(i);
+            if (keys[i] != key.applyAsInt(item) && id.applyAsInt(item) != 0) {
+                changed.add(item);
+                changedKeys.add(keys[i]);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            String update = "UPDATE " + table + " SET position = ? WHERE id = ?";
+            int[] result = PersistenceManager.executeBatchUpdate(update, changed.size(), new BatchUpdateHandler() {
+                @Override
+                public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                    ps.setInt(1, changedKeys.get(batchCount));
+                    ps.setInt(2, id.applyAsInt(changed.get(batchCount)));
+                }
+
+                @Override
+                public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                    // no generated ids to handle
+                }
+            });
+            if (result.length != changed.size()) {
+                // Failed: the elements keep the keys that are in the database
+                return 0;
+            }
+        }
+
+        int[] oldKeys = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            oldKeys[i] = key.applyAsInt(snapshot.get(i));
+            setKey.accept(snapshot.get(i), keys[i]);
+        }
+        PersistenceManager.onRollback(() -> {
+            for (int i = 0; i < oldKeys.length; i++) {
+                setKey.accept(snapshot.get(i), oldKeys[i]);
+            }
+        });
+        return changed.size();
+    }
+
+    private static int[] rebalanced(int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = sequential(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Marks the elements of a longest strictly increasing subsequence of the
+     * keys, ignoring UNASSIGNED ones (patience sorting, O(n log n))
+     */
+    private static boolean[] longestIncreasing(long[] keys) {
+        int n = keys.length;
+        // tails[l] = index of the smallest tail of an increasing run of length l + 1
+        int[] tails = new int[n];
+        long[] tailKeys = new long[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == UNASSIGNED) {
+                continue;
+            }
+            int pos = Arrays.binarySearch(tailKeys, 0, length, keys[i]);
+            if (pos < 0) {
+                pos = -pos - 1;
+            }
+            // An equal key does not extend the run: pos is its own slot
+            previous[i] = pos > 0 ? tails[pos - 1] : -1;
+            tails[pos] = i;
+            tailKeys[pos] = keys[i];
+            if (pos == length) {
+                length++;
+            }
+        }
+
+        boolean[] stable = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stable[i] = true;
+        }
+        return stable;
+    }
+}
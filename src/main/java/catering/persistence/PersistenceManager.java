@@ -5,8 +5,18 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import catering.util.LogManager;
 
@@ -14,16 +24,89 @@ import catering.util.LogManager;
 public class PersistenceManager {
 
     private static final Logger LOGGER = LogManager.getLogger(PersistenceManager.class);
-    private static final String DB_PATH = new File("database", "catering.db").getAbsolutePath();
+    public static final String DB_PATH_PROPERTY = "catering.db.path";
+
+    // Read once: the pool always points at the same database file
+    private static final String DB_PATH = new File(
+            System.getProperty(DB_PATH_PROPERTY, new File("database", "catering.db").getPath())).getAbsolutePath();
     private static final String SCRIPT_PATH = new File("database", "catering_init_sqlite.sql").getAbsolutePath();
     private static final String URL = "jdbc:sqlite:" + DB_PATH;
 
-    private static int lastId;
+    // Kept per thread so concurrent writers never see each other's keys
+    private static final ThreadLocal<Integer> lastId = ThreadLocal.withInitial(() -> 0);
+
+    private static volatile ConnectionPool pool;
+
+    // Well below SQLite's limit on bound parameters per statement
+    private static final int IN_CHUNK_SIZE = 500;
+
+    // Rows buffered by the driver before executeBatchInsert flushes them
+    private static final int BATCH_CHUNK_SIZE = 10_000;
+
+    // Rows read at a time by the cursors of stream(), unless given
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    /**
+     * State of the transaction open on the current thread, if any
+     */
+    private static class Transaction {
+        private boolean rollbackOnly;
+        // Restore in-memory state written with the changes, run on rollback
+        private final List<Runnable> rollbackActions = new ArrayList<>();
+        // Run once the changes are committed
+        private final List<Runnable> commitActions = new ArrayList<>();
+    }
+
+    private static final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+
+    // Caches that must be emptied when the database is reinitialized
+    private static final List<Runnable> resetListeners = new CopyOnWriteArrayList<>();
 
     // Make constructor private to prevent instantiation
     private PersistenceManager() {
     }
 
+    /**
+     * Gets the shared connection pool, creating it on first use
+     *
+     * @return The connection pool
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (PersistenceManager.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(URL, ConnectionPool.Config.fromSystemProperties());
+                    pool = p;
+                    // The database file and schema are checked once, when the pool is created
+                    ensureDbExists();
+                    new SchemaMigrator().migrate();
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return Absolute path of the database file, set with the system
+     *         property catering.db.path (default database/catering.db)
+     */
+    public static String getDatabasePath() {
+        return DB_PATH;
+    }
+
+    /**
+     * Closes every pooled connection. The pool is recreated on the next
+     * database access.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
     // Ensure the database file exists
     private static void ensureDbExists() {
         File dbFile = new File(DB_PATH);
@@ -67,23 +150,23 @@ public class PersistenceManager {
             // Read the SQL file content
             String sqlScript = new String(Files.readAllBytes(scriptFile.toPath()), StandardCharsets.UTF_8);
 
-            // Split the script into individual statements using semicolon as delimiter
-            String[] statements = sqlScript.split(";");
-
             // Execute each statement
-            try (Connection conn = DriverManager.getConnection(URL);
-                 Statement stmt = conn.createStatement()) {
+            try (ConnectionPool.Lease lease = getPool().writer();
+                 Statement stmt = lease.getConnection().createStatement()) {
 
-                for (String statement : statements) {
-                    String trimmedStmt = statement.trim();
-                    if (!trimmedStmt.isEmpty()) {
-                        stmt.executeUpdate(trimmedStmt);
-                    }
+                for (String statement : splitScript(sqlScript)) {
+                    stmt.executeUpdate(statement);
                 }
 
                 LOGGER.info("Database initialized successfully from " + scriptFilePath);
-                return true;
             }
+
+            // The script recreates the tables, so every migration must run again
+            SchemaMigrator.resetHistory();
+            for (Runnable listener : resetListeners) {
+                listener.run();
+            }
+            return new SchemaMigrator().migrate();
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error reading SQL file: " + scriptFilePath, e);
             return false;
@@ -93,6 +176,178 @@ public class PersistenceManager {
         }
     }
 
+    /**
+     * Registers a callback run every time initializeDatabase recreates the
+     * tables. Used by caches of persistent objects to drop their content.
+     *
+     * @param listener The callback
+     */
+    public static void addResetListener(Runnable listener) {
+        resetListeners.add(listener);
+    }
+
+    /**
+     * Splits an SQL script into statements, using semicolon as delimiter.
+     * Chunks containing only comments are skipped.
+     *
+     * @param script The script content
+     * @return The statements, in script order
+     */
+    static List<String> splitScript(String script) {
+        List<String> statements = new ArrayList<>();
+        for (String statement : script.split(";")) {
+            String trimmedStmt = statement.trim();
+            boolean hasCode = false;
+            for (String line : trimmedStmt.split("\\R")) {
+                String l = line.trim();
+                if (!l.isEmpty() && !l.startsWith("--")) {
+                    hasCode = true;
+                    break;
+                }
+            }
+            if (hasCode) {
+                statements.add(trimmedStmt);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Runs a unit of work in a single transaction on the writer connection.
+     *
+     * The writer stays bound to the current thread until the work returns, so
+     * every executeUpdate, executeBatchUpdate and executeQuery it performs
+     * (including nested loads) uses the same connection. Changes are committed
+     * once at the end; they are rolled back if the work throws or if any
+     * statement fails. A call nested inside another transaction joins it.
+     *
+     * @param work The operations to run
+     * @return true if the changes were committed, false if they were rolled back
+     */
+    public static boolean inTransaction(UnitOfWork work) {
+        Transaction outer = currentTransaction.get();
+        if (outer != null) {
+            work.execute();
+            return !outer.rollbackOnly;
+        }
+
+        try (ConnectionPool.Lease lease = getPool().writer()) {
+            Connection conn = lease.getConnection();
+            Transaction tx = new Transaction();
+            conn.setAutoCommit(false);
+            currentTransaction.set(tx);
+            try {
+                work.execute();
+            } catch (RuntimeException | Error ex) {
+                rollbackQuietly(conn);
+                runRollbackActions(tx);
+                throw ex;
+            } finally {
+                currentTransaction.remove();
+            }
+
+            try {
+                if (tx.rollbackOnly) {
+                    conn.rollback();
+                    runRollbackActions(tx);
+                    LOGGER.warning("Transaction rolled back after a failed statement");
+                    return false;
+                }
+                conn.commit();
+                runCommitActions(tx);
+                return true;
+            } catch (SQLException ex) {
+                rollbackQuietly(conn);
+                runRollbackActions(tx);
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error completing transaction", ex);
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the current thread is inside inTransaction
+     */
+    public static boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+
+    /**
+     * Registers an action that undoes an in-memory change made together with
+     * the statements of the current transaction, e.g. cached keys or ids. The
+     * actions run, last registered first, if the transaction rolls back.
+     * Outside a transaction the statements are already committed and the
+     * action is ignored.
+     *
+     * @param undo Restores the in-memory state
+     */
+    public static void onRollback(Runnable undo) {
+        Transaction tx = currentTransaction.get();
+        if (tx != null) {
+            tx.rollbackActions.add(undo);
+        }
+    }
+
+    /**
+     * Registers an action to run once the current transaction has committed,
+     * e.g. to tell other threads that the changes are visible. Outside a
+     * transaction the statements are already committed and the action runs
+     * at once.
+     *
+     * @param action Runs after the commit
+     */
+    public static void onCommit(Runnable action) {
+        Transaction tx = currentTransaction.get();
+        if (tx != null) {
+            tx.commitActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    private static void runCommitActions(Transaction tx) {
+        for (Runnable action : tx.commitActions) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "Error running the actions of a committed transaction", ex);
+            }
+        }
+        tx.commitActions.clear();
+    }
+
+    private static void runRollbackActions(Transaction tx) {
+        for (int i = tx.rollbackActions.size() - 1; i >= 0; i--) {
+            try {
+                tx.rollbackActions.get(i).run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "Error undoing in-memory changes of a rolled back transaction", ex);
+            }
+        }
+        tx.rollbackActions.clear();
+    }
+
+    // A failed statement makes the enclosing transaction, if any, roll back
+    static void markRollbackOnly() {
+        Transaction tx = currentTransaction.get();
+        if (tx != null) {
+            tx.rollbackOnly = true;
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error rolling back transaction", ex);
+        }
+    }
+
     /**
      * Executes a SQL query with parameters and processes the results with a handler
      * 
@@ -101,9 +356,9 @@ public class PersistenceManager {
      * @param params  Variable argument list of parameters to bind to the query
      */
     public static void executeQuery(String query, ResultHandler handler, Object... params) {
-        ensureDbExists();
-        try (Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(query)) {
+        try (ConnectionPool.Lease lease = getPool().reader();
+                StatementCache.Handle stmt = lease.prepare(query, false)) {
+            PreparedStatement ps = stmt.getStatement();
 
             // Set parameters if any
             setParameters(ps, params);
@@ -115,6 +370,67 @@ public class PersistenceManager {
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Error executing query: " + query, ex);
+            markRollbackOnly();
+        }
+    }
+
+    /**
+     * Opens a cursor over the rows of a query, mapped to objects as they are
+     * read. The caller must close it unless it reads every row.
+     *
+     * @param query     SQL query with ? placeholders for parameters
+     * @param fetchSize Rows the driver reads from the database at a time
+     * @param mapper    Builds an object from the current row
+     * @param params    Parameters to bind to the query
+     * @return The cursor; empty if the query failed
+     */
+    public static <T> Cursor<T> openCursor(String query, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return new Cursor<>(query, mapper, fetchSize, params, PersistenceManager::setParameters);
+    }
+
+    /**
+     * Executes a query and returns its rows as a lazy stream: rows are read
+     * only as the stream is consumed, so the whole result never has to fit in
+     * memory. The stream holds a connection until it is closed; use it in a
+     * try-with-resources block, on the thread that created it.
+     *
+     * @param query  SQL query with ? placeholders for parameters
+     * @param mapper Builds an object from the current row
+     * @param params Parameters to bind to the query
+     * @return The stream of mapped rows
+     */
+    public static <T> Stream<T> stream(String query, RowMapper<T> mapper, Object... params) {
+        return stream(query, DEFAULT_FETCH_SIZE, mapper, params);
+    }
+
+    /**
+     * Same as stream(query, mapper, params), with the given fetch size
+     */
+    public static <T> Stream<T> stream(String query, int fetchSize, RowMapper<T> mapper, Object... params) {
+        Cursor<T> cursor = openCursor(query, fetchSize, mapper, params);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Executes a query once per chunk of ids, replacing the %s in the query
+     * with the placeholders of the chunk. Used to load a set of rows with a
+     * few IN (...) queries instead of one query per id.
+     * 
+     * Rows are passed to the handler chunk by chunk, so an ORDER BY only
+     * applies within a chunk.
+     * 
+     * @param query   SQL query containing "IN (%s)"
+     * @param ids     The ids to look up; duplicates are ignored
+     * @param handler ResultHandler to process each row
+     */
+    public static void executeQueryIn(String query, Collection<Integer> ids, ResultHandler handler) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            executeQuery(String.format(query, placeholders), handler, chunk.toArray());
         }
     }
 
@@ -128,30 +444,88 @@ public class PersistenceManager {
      * @return Array of row counts for each batch operation
      */
     public static int[] executeBatchUpdate(String parametrizedQuery, int itemNumber, BatchUpdateHandler handler) {
-        ensureDbExists();
+        if (!isInTransaction()) {
+            // A batch is applied atomically, with a single commit
+            int[][] result = { new int[0] };
+            inTransaction(() -> result[0] = executeBatchUpdate(parametrizedQuery, itemNumber, handler));
+            return result[0];
+        }
+
         int[] result = new int[0];
         try (
-                Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(parametrizedQuery, Statement.RETURN_GENERATED_KEYS)) {
+                ConnectionPool.Lease lease = getPool().writer();
+                StatementCache.Handle stmt = lease.prepare(parametrizedQuery, true)) {
+            PreparedStatement ps = stmt.getStatement();
+            if (parametrizedQuery.trim().regionMatches(true, 0, "INSERT", 0, 6)) {
+                // The SQLite driver returns no generated keys for executeBatch,
+                // so inserts are executed row by row within the transaction
+                result = new int[itemNumber];
+                int count = 0;
+                for (int i = 0; i < itemNumber; i++) {
+                    handler.handleBatchItem(ps, i);
+                    result[i] = ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (result[i] > 0 && keys.next()) {
+                            handler.handleGeneratedIds(keys, count++);
+                        }
+                    }
+                }
+                return result;
+            }
+
             for (int i = 0; i < itemNumber; i++) {
                 handler.handleBatchItem(ps, i);
                 ps.addBatch();
             }
             result = ps.executeBatch();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                int count = 0;
-                while (keys.next()) {
-                    handler.handleGeneratedIds(keys, count);
-                    count++;
-                }
-            }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Error executing batch update: " + parametrizedQuery, ex);
+            markRollbackOnly();
         }
 
         return result;
     }
 
+    /**
+     * Executes an INSERT for many rows with JDBC batching. Unlike
+     * executeBatchUpdate, generated keys are not read back, so the rows are
+     * sent to the driver in chunks instead of one statement at a time:
+     * callers that need the ids must set them explicitly. Without an open
+     * transaction, the whole batch runs in one.
+     *
+     * @param insert     SQL insert statement with ? placeholders
+     * @param itemNumber Number of rows to insert
+     * @param handler    BatchUpdateHandler setting the parameters of each row,
+     *                   called in row order; handleGeneratedIds is never called
+     * @return Number of rows inserted
+     */
+    public static int executeBatchInsert(String insert, int itemNumber, BatchUpdateHandler handler) {
+        if (!isInTransaction()) {
+            int[] result = new int[1];
+            inTransaction(() -> result[0] = executeBatchInsert(insert, itemNumber, handler));
+            return result[0];
+        }
+
+        int inserted = 0;
+        try (ConnectionPool.Lease lease = getPool().writer();
+                StatementCache.Handle stmt = lease.prepare(insert, false)) {
+            PreparedStatement ps = stmt.getStatement();
+            for (int i = 0; i < itemNumber; i++) {
+                handler.handleBatchItem(ps, i);
+                ps.addBatch();
+                if ((i + 1) % BATCH_CHUNK_SIZE == 0 || i == itemNumber - 1) {
+                    for (int count : ps.executeBatch()) {
+                        inserted += Math.max(count, 0);
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Error executing batch insert: " + insert, ex);
+            markRollbackOnly();
+        }
+        return inserted;
+    }
+
     /**
      * Executes an update (INSERT, UPDATE, DELETE) with parameters
      * 
@@ -160,24 +534,45 @@ public class PersistenceManager {
      * @return Number of rows affected
      */
     public static int executeUpdate(String update, Object... params) {
-        ensureDbExists();
+        int[] generatedKey = new int[1];
+        int result = executeUpdate(update, params, generatedKey);
+        lastId.set(generatedKey[0]);
+        return result;
+    }
+
+    /**
+     * Executes an INSERT with parameters and returns the key generated for the
+     * new row. The key is read from the same statement, so it is correct even
+     * when other threads are inserting at the same time.
+     * 
+     * @param insert SQL insert statement with ? placeholders
+     * @param params Variable argument list of parameters to bind to the statement
+     * @return The generated ID, or 0 if no row was inserted
+     */
+    public static int executeInsert(String insert, Object... params) {
+        int[] generatedKey = new int[1];
+        executeUpdate(insert, params, generatedKey);
+        return generatedKey[0];
+    }
+
+    private static int executeUpdate(String update, Object[] params, int[] generatedKey) {
         int result = 0;
-        try (Connection conn = DriverManager.getConnection(URL);
-                PreparedStatement ps = conn.prepareStatement(update, Statement.RETURN_GENERATED_KEYS)) {
+        try (ConnectionPool.Lease lease = getPool().writer();
+                StatementCache.Handle stmt = lease.prepare(update, true)) {
+            PreparedStatement ps = stmt.getStatement();
 
             // Set parameters if any
             setParameters(ps, params);
 
             result = ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    lastId = rs.getInt(1);
-                } else {
-                    lastId = 0;
+                if (result > 0 && rs.next()) {
+                    generatedKey[0] = rs.getInt(1);
                 }
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "SQL Error executing update: " + update, ex);
+            markRollbackOnly();
         }
         return result;
     }
@@ -222,22 +617,27 @@ public class PersistenceManager {
     }
 
     /**
-     * Gets the ID generated by the last executed INSERT statement
+     * Gets the ID generated by the last executeUpdate on the current thread
      * 
      * @return The generated ID, or 0 if none was generated
+     * @deprecated Use executeInsert, which returns the key of its own statement
      */
+    @Deprecated
     public static int getLastId() {
-        return lastId;
+        return lastId.get();
     }
 
     /**
-     * Gets a connection to the database
+     * Gets a dedicated connection to the database, outside the pool.
+     * The caller is responsible for closing it.
      * 
      * @return A new Connection to the database
      * @throws SQLException If a database error occurs
      */
     public static Connection getConnection() throws SQLException {
         ensureDbExists();
-        return DriverManager.getConnection(URL);
+        Connection conn = DriverManager.getConnection(URL);
+        getPool().getConfig().getProfile().apply(conn);
+        return conn;
     }
 }
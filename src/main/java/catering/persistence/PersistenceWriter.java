@@ -0,0 +1,54 @@
+package catering.persistence;
+
+/**
+ * How the persistence receivers apply the changes notified by the managers.
+ *
+ * DIRECT writes every change on the calling thread before the notification
+ * returns. WriteBehindWriter queues most changes and writes them from a
+ * background thread.
+ */
+public interface PersistenceWriter {
+
+    /**
+     * Writes synchronously on the calling thread
+     */
+    PersistenceWriter DIRECT = new PersistenceWriter() {
+        @Override
+        public void write(String kind, Object target, Runnable op) {
+            op.run();
+        }
+
+        @Override
+        public void writeNow(Runnable op) {
+            op.run();
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    /**
+     * Writes a change, possibly later and on another thread. The op must not
+     * read target, which the caller may keep changing: it saves values copied
+     * before the call. A pending op with the same kind and target is
+     * superseded by this one.
+     *
+     * @param kind   What the op saves (title, item order...), or null if the
+     *               op must not be superseded (deletes)
+     * @param target The object whose state is saved
+     * @param op     The persistence operation
+     */
+    void write(String kind, Object target, Runnable op);
+
+    /**
+     * Writes a change before returning, after every change written before it.
+     * Used for inserts, whose generated ids the caller reads right away.
+     */
+    void writeNow(Runnable op);
+
+    /**
+     * Waits until every change written so far is committed
+     */
+    void flush();
+}
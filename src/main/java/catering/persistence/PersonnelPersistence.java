@@ -1,6 +1,7 @@
 package catering.persistence;
 
 import catering.businesslogic.personnel.*;
+import catering.businesslogic.shift.Shift;
 
 /**
  * Implementazione di PersonnelEventReceiver per la persistenza.
@@ -12,31 +13,80 @@ import catering.businesslogic.personnel.*;
  */
 public class PersonnelPersistence implements PersonnelEventReceiver {
     
+    private final PersistenceWriter writer;
+    
+    public PersonnelPersistence() {
+        this(PersistenceWriter.DIRECT);
+    }
+    
+    /**
+     * @param writer Scrittura diretta o write-behind delle modifiche
+     */
+    public PersonnelPersistence(PersistenceWriter writer) {
+        this.writer = writer;
+    }
+    
     @Override
     public void updateCollaboratorAdded(Collaborator collab) {
-        collab.save();
+        // Sincrono: l'id generato serve subito al chiamante
+        writer.writeNow(() -> PersistenceManager.inTransaction(() -> {
+            collab.save();
+            PersistenceManager.onCommit(() -> AvailabilityMatrix.getInstance().collaboratorChanged(collab));
+        }));
     }
     
     @Override
     public void updateCollaboratorUpdated(Collaborator collab) {
-        collab.update();
+        // La scrittura può avvenire più tardi: salva i dati di adesso
+        Collaborator copy = collab.copy();
+        writer.write("collaborator", collab, () -> saveCollaborator(copy));
     }
     
     @Override
     public void updateCollaboratorRemoved(Collaborator collab) {
         // Soft delete: aggiorna active=false
-        collab.update();
+        Collaborator copy = collab.copy();
+        writer.write("collaborator", collab, () -> saveCollaborator(copy));
     }
     
     @Override
     public void updateLeaveRequestUpdated(LeaveRequest req) {
-        req.update();
-        // Aggiorna anche il monte ferie del collaboratore
-        req.getCollaborator().update();
+        LeaveRequest copy = req.copy();
+        // Richiesta e monte ferie vengono salvati nella stessa transazione, che può
+        // essere quella del chiamante o del batch write-behind: calendario e
+        // matrice si allineano solo al suo commit
+        writer.write("leaveRequest", req, () -> PersistenceManager.inTransaction(() -> {
+            copy.update();
+            copy.getCollaborator().update();
+            PersistenceManager.onCommit(
+                    () -> AvailabilityMatrix.getInstance().leaveChanged(copy.getCollaborator().getId()));
+        }));
     }
     
     @Override
     public void updatePerformanceLogged(Collaborator collab, PerformanceNote note) {
-        note.save();
+        // La nota e la sua riga nell'indice full-text sono salvate insieme
+        writer.writeNow(() -> PersistenceManager.inTransaction(() -> {
+            note.save();
+            note.index();
+        }));
+    }
+    
+    @Override
+    public void updateAvailabilityChanged(Collaborator collab, Shift shift, AvailabilityMatrix.Status status) {
+        // Una modifica per coppia collaboratore-turno: l'ultima sostituisce le precedenti
+        writer.write("availability:" + shift.getId(), collab, () -> PersistenceManager.inTransaction(() -> {
+            collab.saveAvailability(shift.getId(), status);
+            // La matrice cambia solo al commit, anche di una transazione esterna
+            PersistenceManager.onCommit(() -> AvailabilityMatrix.getInstance()
+                    .availabilityChanged(collab.getId(), shift.getId(), status));
+        }));
+    }
+    
+    private static void saveCollaborator(Collaborator collab) {
+        PersistenceManager.inTransaction(() -> {
+            collab.update();
+            PersistenceManager.onCommit(() -> AvailabilityMatrix.getInstance().collaboratorChanged(collab));
+        });
     }
 }
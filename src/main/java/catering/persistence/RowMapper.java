@@ -0,0 +1,12 @@
+package catering.persistence;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds an object from the current row of a result set. Used by
+ * PersistenceManager.stream, which reads one row per mapped object.
+ */
+public interface RowMapper<T> {
+    public T map(ResultSet rs) throws SQLException;
+}
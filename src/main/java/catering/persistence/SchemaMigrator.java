@@ -0,0 +1,229 @@
+package catering.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import catering.util.LogManager;
+
+/**
+ * Applies numbered schema migrations to an existing database.
+ *
+ * Migrations are SQL scripts named NNN_description.sql in the migrations
+ * directory (database/migrations by default). Each one is applied once, in
+ * version order, inside its own transaction, and recorded in the
+ * SchemaMigrations table together with a SHA-256 checksum of its content.
+ * If an applied script is later edited, its checksum no longer matches and
+ * migration stops: changes must go in a new numbered script instead.
+ *
+ * catering_init_sqlite.sql is the baseline (version 0). Reinitializing the
+ * database drops the migration history so every step is applied again.
+ */
+public class SchemaMigrator {
+
+    private static final Logger LOGGER = LogManager.getLogger(SchemaMigrator.class);
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)_([\\w-]+)\\.sql");
+
+    public static final String DEFAULT_DIRECTORY = new File("database", "migrations").getAbsolutePath();
+
+    private static final String CREATE_HISTORY = "CREATE TABLE IF NOT EXISTS `SchemaMigrations` ("
+            + "`version` INTEGER PRIMARY KEY, "
+            + "`name` TEXT NOT NULL, "
+            + "`checksum` TEXT NOT NULL, "
+            + "`applied_at` TEXT NOT NULL DEFAULT (datetime('now')))";
+
+    /**
+     * A migration script found in the migrations directory
+     */
+    public static class Migration {
+        private final int version;
+        private final String name;
+        private final String script;
+        private final String checksum;
+
+        private Migration(int version, String name, String script) {
+            this.version = version;
+            this.name = name;
+            this.script = script;
+            this.checksum = checksum(script);
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%03d_%s", version, name);
+        }
+    }
+
+    private final File directory;
+
+    public SchemaMigrator() {
+        this(new File(DEFAULT_DIRECTORY));
+    }
+
+    public SchemaMigrator(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Applies every pending migration in version order. Stops at the first
+     * failure or checksum mismatch, leaving later migrations pending.
+     *
+     * @return true if the schema is up to date, false otherwise
+     */
+    public boolean migrate() {
+        List<Migration> migrations;
+        try {
+            migrations = findMigrations();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Error reading migrations from " + directory, ex);
+            return false;
+        }
+
+        try (ConnectionPool.Lease lease = PersistenceManager.getPool().writer()) {
+            Connection conn = lease.getConnection();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(CREATE_HISTORY);
+            }
+            Map<Integer, String> applied = loadApplied(conn);
+
+            int count = 0;
+            for (Migration m : migrations) {
+                String appliedChecksum = applied.get(m.version);
+                if (appliedChecksum == null) {
+                    apply(conn, m);
+                    count++;
+                } else if (!appliedChecksum.equals(m.checksum)) {
+                    LOGGER.severe("Checksum mismatch for applied migration " + m
+                            + ": the script was modified after it was applied");
+                    return false;
+                }
+            }
+            if (count > 0) {
+                LOGGER.info("Applied " + count + " schema migration(s)");
+            }
+            return true;
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Schema migration failed", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Forgets the migration history, so that every migration is applied again
+     * on the next migrate(). Used after the baseline script recreates the
+     * tables.
+     */
+    public static void resetHistory() {
+        PersistenceManager.executeUpdate("DROP TABLE IF EXISTS `SchemaMigrations`");
+    }
+
+    /**
+     * @return The migrations found in the directory, sorted by version
+     * @throws IOException If a script cannot be read
+     */
+    public List<Migration> findMigrations() throws IOException {
+        List<Migration> result = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return result;
+        }
+        Map<Integer, File> byVersion = new LinkedHashMap<>();
+        for (File f : files) {
+            Matcher m = FILE_NAME.matcher(f.getName());
+            if (!m.matches()) {
+                continue;
+            }
+            int version = Integer.parseInt(m.group(1));
+            File previous = byVersion.put(version, f);
+            if (previous != null) {
+                throw new IOException("Duplicate migration version " + version + ": "
+                        + previous.getName() + ", " + f.getName());
+            }
+            String script = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+            result.add(new Migration(version, m.group(2), script));
+        }
+        result.sort(Comparator.comparingInt(Migration::getVersion));
+        return result;
+    }
+
+    private static Map<Integer, String> loadApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM SchemaMigrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration m) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : PersistenceManager.splitScript(m.script)) {
+                    stmt.executeUpdate(sql);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO SchemaMigrations (version, name, checksum) VALUES (?, ?, ?)")) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.name);
+                ps.setString(3, m.checksum);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            LOGGER.info("Applied migration " + m);
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw new SQLException("Migration " + m + " failed and was rolled back", ex);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Line endings are normalized so checkouts on different systems agree
+            byte[] hash = digest.digest(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
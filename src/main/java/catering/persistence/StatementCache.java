@@ -0,0 +1,194 @@
+package catering.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.util.LogManager;
+
+/**
+ * LRU cache of PreparedStatements for a single pooled connection, keyed by
+ * SQL text.
+ *
+ * A cache belongs to one connection and is only used by the thread holding
+ * that connection's lease, so it needs no locking. If a statement is
+ * requested while the cached one is still executing (the same query nested
+ * inside its own ResultHandler), a throw-away statement is prepared instead.
+ */
+public class StatementCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(StatementCache.class);
+
+    /**
+     * Hit/miss counters shared by all the caches of a pool
+     */
+    public static class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        /**
+         * @return Fraction of lookups served from the cache, 0 if none yet
+         */
+        public double getHitRate() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0 : (double) h / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, hitRate=%.2f",
+                    getHits(), getMisses(), getEvictions(), getHitRate());
+        }
+    }
+
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * A checked-out statement. Closing the handle returns the statement to
+     * the cache, or closes it if it was not cached.
+     */
+    public class Handle implements AutoCloseable {
+        private final PreparedStatement statement;
+        private final CachedStatement entry;
+
+        private Handle(PreparedStatement statement, CachedStatement entry) {
+            this.statement = statement;
+            this.entry = entry;
+        }
+
+        public PreparedStatement getStatement() {
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (entry == null || entry.statement.isClosed()) {
+                statement.close();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } finally {
+                entry.inUse = false;
+            }
+        }
+    }
+
+    private final Connection connection;
+    private final Counters counters;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> entries;
+
+    public StatementCache(Connection connection, int maxSize, Counters counters) {
+        this.connection = connection;
+        this.counters = counters;
+        this.maxSize = maxSize;
+        // Access-ordered map: the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= maxSize || eldest.getValue().inUse) {
+                    return false;
+                }
+                counters.evictions.incrementAndGet();
+                closeQuietly(eldest.getValue().statement);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets a prepared statement for the given SQL, reusing a cached one when
+     * possible
+     *
+     * @param sql        SQL text with ? placeholders
+     * @param returnKeys whether the statement must return generated keys
+     * @return Handle to close once the statement has been used
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public Handle prepare(String sql, boolean returnKeys) throws SQLException {
+        if (maxSize <= 0) {
+            return new Handle(create(sql, returnKeys), null);
+        }
+        String key = (returnKeys ? "K|" : "Q|") + sql;
+        CachedStatement entry = entries.get(key);
+        if (entry != null) {
+            if (entry.inUse) {
+                // Same statement nested inside its own execution: use a private one
+                counters.misses.incrementAndGet();
+                return new Handle(create(sql, returnKeys), null);
+            }
+            counters.hits.incrementAndGet();
+            entry.inUse = true;
+            return new Handle(entry.statement, entry);
+        }
+
+        counters.misses.incrementAndGet();
+        entry = new CachedStatement(create(sql, returnKeys));
+        entry.inUse = true;
+        entries.put(key, entry);
+        return new Handle(entry.statement, entry);
+    }
+
+    private PreparedStatement create(String sql, boolean returnKeys) throws SQLException {
+        return returnKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+    }
+
+    /**
+     * @return Number of statements currently cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes every cached statement. Called before the owning connection is
+     * closed or replaced.
+     */
+    public void close() {
+        Iterator<CachedStatement> it = entries.values().iterator();
+        while (it.hasNext()) {
+            closeQuietly(it.next().statement);
+            it.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Error closing cached statement", ex);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package catering.persistence;
+
+/**
+ * A group of persistence operations that must be applied atomically.
+ * Executed by PersistenceManager.inTransaction: every update performed by
+ * execute() on the calling thread goes through the same connection and is
+ * committed once at the end, or rolled back if anything fails.
+ */
+public interface UnitOfWork {
+    public void execute();
+}
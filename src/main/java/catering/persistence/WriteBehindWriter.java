@@ -0,0 +1,429 @@
+package catering.persistence;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import catering.util.LogManager;
+
+/**
+ * Write-behind PersistenceWriter: changes go into a bounded queue and a single
+ * writer thread commits them in batches, one transaction per batch, so the
+ * caller does not wait for the disk.
+ *
+ * - Coalescing: a pending op is replaced by a newer one with the same kind and
+ * target (e.g. three moves of the same task save the task order once). The
+ * newer op goes to the end of the queue, after everything written before it.
+ * - Back-pressure: write() blocks while the queue holds capacity ops.
+ * - Ordering: writeNow() first waits for the queue to drain, then runs on the
+ * caller thread. Inside inTransaction the caller holds the writer connection,
+ * so it does not wait: it runs the pending ops itself, as part of its own
+ * transaction, before its writes. If that transaction rolls back, they go
+ * back to the head of the queue.
+ * - flush() waits until every op written so far is committed; sync() also
+ * checkpoints the WAL into the database file, so the changes survive a power
+ * failure even with synchronous=NORMAL.
+ *
+ * The writer thread takes a batch only once it holds the writer connection,
+ * so no batch is ever in flight while another thread is in a transaction.
+ * Queued ops save copies of the changed state taken by the caller, since
+ * domain objects are not thread-safe; other threads see a change in the
+ * database only after it has been written. If a batch
+ * fails, its ops are queued again to be retried one transaction each; an op
+ * that still fails is logged and dropped.
+ */
+public class WriteBehindWriter implements PersistenceWriter, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindWriter.class);
+
+    public static final String ENABLED_PROPERTY = "catering.persistence.write-behind";
+    public static final String CAPACITY_PROPERTY = "catering.persistence.write-behind.capacity";
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Ops committed in one transaction at most
+    private static final int MAX_BATCH = 256;
+
+    /**
+     * Identifies the state an op saves: same kind, same target object
+     */
+    private static final class Key {
+        private final String kind;
+        private final Object target;
+
+        Key(String kind, Object target) {
+            this.kind = kind;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return kind.equals(k.kind) && target == k.target;
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.hashCode() * 31 + System.identityHashCode(target);
+        }
+    }
+
+    private static final class Op {
+        final Object key;
+        final long seq;
+        final Runnable work;
+        // Retried after a failed batch: written in a transaction of its own
+        final boolean alone;
+
+        Op(Object key, long seq, Runnable work, boolean alone) {
+            this.key = key;
+            this.seq = seq;
+            this.work = work;
+            this.alone = alone;
+        }
+    }
+
+    private final int capacity;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+
+    // Pending ops in write order; ops that cannot be coalesced get a unique key
+    private final LinkedHashMap<Object, Op> pending = new LinkedHashMap<>();
+    private long lastSeq;
+    // Lowest seq taken from the queue and not yet committed
+    private long inFlightFirst = Long.MAX_VALUE;
+    private boolean closed;
+
+    private long coalescedCount;
+    private long failedCount;
+
+    public WriteBehindWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of pending ops before write() blocks
+     */
+    public WriteBehindWriter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        writer = new Thread(this::run, "persistence-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return A writer configured by the system properties, or
+     *         PersistenceWriter.DIRECT if catering.persistence.write-behind is
+     *         not true
+     */
+    public static PersistenceWriter fromSystemProperties() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return DIRECT;
+        }
+        WriteBehindWriter w = new WriteBehindWriter(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+        Runtime.getRuntime().addShutdownHook(new Thread(w::close, "persistence-writer-shutdown"));
+        return w;
+    }
+
+    @Override
+    public void write(String kind, Object target, Runnable op) {
+        if (PersistenceManager.isInTransaction() || Thread.currentThread() == writer) {
+            writeNow(op);
+            return;
+        }
+        enqueue(kind != null ? new Key(kind, target) : new Object(), op);
+    }
+
+    @Override
+    public void writeNow(Runnable op) {
+        if (Thread.currentThread() != writer) {
+            flush();
+        }
+        op.run();
+    }
+
+    // Runs the pending ops in the caller's transaction, which holds the writer
+    private void drain() {
+        List<Op> drained = new ArrayList<>();
+        lock.lock();
+        try {
+            drained.addAll(pending.values());
+            if (drained.isEmpty()) {
+                return;
+            }
+            pending.clear();
+            inFlightFirst = Math.min(inFlightFirst, drained.get(0).seq);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        PersistenceManager.onCommit(() -> finished(drained, true));
+        PersistenceManager.onRollback(() -> finished(drained, false));
+        for (Op op : drained) {
+            op.work.run();
+        }
+    }
+
+    private void enqueue(Object key, Runnable work) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind writer closed");
+            }
+            if (pending.remove(key) != null) {
+                coalescedCount++;
+            } else {
+                while (pending.size() >= capacity && !closed) {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            pending.put(key, new Op(key, ++lastSeq, work, false));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inside inTransaction the pending ops are written in the caller's
+     * transaction, and committed with it.
+     */
+    @Override
+    public void flush() {
+        if (PersistenceManager.isInTransaction()) {
+            drain();
+            return;
+        }
+        lock.lock();
+        try {
+            long target = lastSeq;
+            while (!isWritten(target)) {
+                written.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits at most the given time for the ops written so far to be committed
+     *
+     * @return true if they were committed in time
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        if (PersistenceManager.isInTransaction()) {
+            drain();
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            long target = lastSeq;
+            while (!isWritten(target)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = written.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and checkpoints the WAL, fsyncing the committed changes
+     */
+    public void sync() {
+        flush();
+        PersistenceManager.executeQuery("PRAGMA wal_checkpoint(FULL)", rs -> {
+        });
+    }
+
+    /**
+     * Writes the pending ops and stops the writer thread. Later writes fail.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Number of ops waiting to be written
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of ops superseded by a newer op before being written
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of ops dropped because they failed
+     */
+    public long getFailedCount() {
+        lock.lock();
+        try {
+            return failedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True when no op with seq up to target is pending or in flight
+    private boolean isWritten(long target) {
+        return inFlightFirst > target && (pending.isEmpty() || pending.values().iterator().next().seq > target);
+    }
+
+    private void run() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            List<Op> batch = new ArrayList<>();
+            boolean committed;
+            try {
+                committed = PersistenceManager.inTransaction(() -> {
+                    take(batch);
+                    batch.forEach(op -> op.work.run());
+                });
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Write-behind batch failed", ex);
+                committed = false;
+            }
+            if (batch.isEmpty()) {
+                // A transaction wrote the queue first, or the writer connection
+                // could not be borrowed: try again shortly
+                if (!committed) {
+                    pause();
+                }
+                continue;
+            }
+            finished(batch, committed);
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Moves the next batch from the queue, once the writer connection is held
+    private void take(List<Op> batch) {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<Object, Op>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < MAX_BATCH) {
+                Op op = it.next().getValue();
+                if (op.alone && !batch.isEmpty()) {
+                    break;
+                }
+                batch.add(op);
+                it.remove();
+                if (op.alone) {
+                    break;
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlightFirst = Math.min(inFlightFirst, batch.get(0).seq);
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends the ops taken from the queue: a failed batch goes back to the head
+    // of the queue to be retried op by op, a failed single op is dropped
+    private void finished(List<Op> ops, boolean committed) {
+        lock.lock();
+        try {
+            inFlightFirst = Long.MAX_VALUE;
+            if (!committed) {
+                if (ops.size() == 1 && Thread.currentThread() == writer) {
+                    LOGGER.severe("Write-behind op failed, dropped");
+                    failedCount++;
+                } else if (Thread.currentThread() == writer) {
+                    LOGGER.warning("Write-behind batch failed, retrying op by op");
+                    requeue(ops, true);
+                } else {
+                    requeue(ops, false);
+                }
+            }
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Puts the ops back in front of the queue, unless a newer op superseded them
+    private void requeue(List<Op> ops, boolean alone) {
+        LinkedHashMap<Object, Op> queue = new LinkedHashMap<>();
+        for (Op op : ops) {
+            if (!pending.containsKey(op.key)) {
+                queue.put(op.key, new Op(op.key, op.seq, op.work, alone || op.alone));
+            }
+        }
+        queue.putAll(pending);
+        pending.clear();
+        pending.putAll(queue);
+        notEmpty.signal();
+    }
+}
@@ -0,0 +1,149 @@
+package catering.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.persistence.PersistenceManager;
+
+@DisplayName("ApiServer - HTTP/JSON API")
+public class ApiServerTest {
+
+    private static ApiServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void init() throws Exception {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        server = new ApiServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void shutdown() {
+        server.stop(0);
+    }
+
+    private static HttpResponse<String> send(String method, String path, String session, String body)
+            throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        if (session != null) {
+            b.header(ApiServer.SESSION_HEADER, session);
+        }
+        return client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String login(String username) throws Exception {
+        HttpResponse<String> r = send("POST", "/api/sessions", null, "{\"username\": \"" + username + "\"}");
+        assertEquals(201, r.statusCode(), r.body());
+        return (String) ((Map<String, Object>) JsonParser.parse(r.body())).get("sessionId");
+    }
+
+    @Test
+    @DisplayName("JSON written by JsonWriter is read back by JsonParser")
+    void testJsonRoundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("name").value("Menu \"estate\"\n")
+                .name("ids").beginArray().value(1).value(2).endArray()
+                .name("ready").value(true)
+                .name("menu").nullValue()
+                .endObject();
+
+        Map<String, Object> parsed = JsonParser.parseObject(out.toString());
+        assertEquals("Menu \"estate\"\n", parsed.get("name"));
+        assertEquals(List.of(1L, 2L), parsed.get("ids"));
+        assertEquals(Boolean.TRUE, parsed.get("ready"));
+        assertTrue(parsed.containsKey("menu"));
+        assertThrows(IllegalArgumentException.class, () -> JsonParser.parse("{\"a\": }"));
+    }
+
+    @Test
+    @DisplayName("Requests need a session, unknown users cannot log in")
+    void testAuthentication() throws Exception {
+        assertEquals(401, send("GET", "/api/recipes", null, null).statusCode());
+        assertEquals(401, send("GET", "/api/recipes", "not-a-session", null).statusCode());
+        assertEquals(401, send("POST", "/api/sessions", null, "{\"username\": \"Nessuno\"}").statusCode());
+
+        String session = login("Antonio");
+        HttpResponse<String> me = send("GET", "/api/sessions/current", session, null);
+        assertEquals(200, me.statusCode());
+        assertTrue(me.body().contains("\"username\":\"Antonio\""));
+
+        assertEquals(204, send("DELETE", "/api/sessions/current", session, null).statusCode());
+        assertEquals(401, send("GET", "/api/sessions/current", session, null).statusCode());
+    }
+
+    @Test
+    @DisplayName("Errors are mapped to HTTP statuses")
+    void testErrors() throws Exception {
+        String session = login("Marco");
+        assertEquals(404, send("GET", "/api/nothing", session, null).statusCode());
+        assertEquals(405, send("DELETE", "/api/recipes", session, null).statusCode());
+        assertEquals(404, send("GET", "/api/events/999999", session, null).statusCode());
+        assertEquals(400, send("GET", "/api/events/abc", session, null).statusCode());
+        assertEquals(400, send("POST", "/api/menus", session, "{not json").statusCode());
+        // Marco is not a chef
+        assertEquals(409, send("POST", "/api/menus", session, "{\"title\": \"Menu\"}").statusCode());
+    }
+
+    @Test
+    @DisplayName("Lists are streamed as JSON arrays")
+    void testStreamedList() throws Exception {
+        String session = login("Antonio");
+        HttpResponse<String> r = send("GET", "/api/recipes", session, null);
+        assertEquals(200, r.statusCode());
+        List<?> recipes = (List<?>) JsonParser.parse(r.body());
+        assertFalse(recipes.isEmpty());
+
+        HttpResponse<String> page = send("GET", "/api/events?from=2000-01-01&to=2100-01-01&pageSize=2", session, null);
+        assertEquals(200, page.statusCode());
+        Map<?, ?> body = (Map<?, ?>) JsonParser.parse(page.body());
+        assertTrue(((List<?>) body.get("events")).size() <= 2);
+        assertTrue(body.containsKey("nextPageToken"));
+    }
+
+    @Test
+    @DisplayName("Concurrent sessions edit their own current menu")
+    void testConcurrentSessions() throws Exception {
+        String[] chefs = { "Antonio", "Chiara" };
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String session = login(chefs[i % chefs.length]);
+            String title = "Menu API " + i;
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    assertEquals(201, send("POST", "/api/menus", session, "{\"title\": \"" + title + "\"}").statusCode());
+                    assertEquals(201, send("POST", "/api/menus/current/sections", session,
+                            "{\"name\": \"Antipasti\"}").statusCode());
+                    return send("GET", "/api/menus/current", session, null).body();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            Map<?, ?> menu = (Map<?, ?>) JsonParser.parse(results.get(i).get());
+            assertEquals("Menu API " + i, menu.get("title"));
+            assertEquals(1, ((List<?>) menu.get("sections")).size());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package catering.businesslogic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.menu.Menu;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("Session - per-user state")
+public class SessionTest {
+
+    private static CatERing app;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+    }
+
+    @AfterEach
+    void cleanup() {
+        Session.getDefault().clear();
+    }
+
+    @Test
+    @DisplayName("Each session has its own logged in user")
+    void testUserPerSession() throws UseCaseLogicException {
+        Session antonio = app.openSession();
+        Session chiara = app.openSession();
+
+        try (Session.Binding b = antonio.bind()) {
+            app.getUserManager().fakeLogin("Antonio");
+        }
+        try (Session.Binding b = chiara.bind()) {
+            app.getUserManager().fakeLogin("Chiara");
+            assertEquals("Chiara", app.getUserManager().getCurrentUser().getUserName());
+        }
+        try (Session.Binding b = antonio.bind()) {
+            assertEquals("Antonio", app.getUserManager().getCurrentUser().getUserName());
+        }
+
+        // Unbound threads keep using the default session
+        assertSame(Session.getDefault(), Session.current());
+        assertNull(app.getUserManager().getCurrentUser());
+    }
+
+    @Test
+    @DisplayName("Bindings nest and restore the previous session")
+    void testNestedBinding() {
+        Session outer = app.openSession();
+        Session inner = app.openSession();
+
+        try (Session.Binding b1 = outer.bind()) {
+            try (Session.Binding b2 = inner.bind()) {
+                assertSame(inner, Session.current());
+            }
+            assertSame(outer, Session.current());
+        }
+        assertSame(Session.getDefault(), Session.current());
+    }
+
+    @Test
+    @DisplayName("Concurrent sessions edit their own menu through the shared manager")
+    void testConcurrentSessions() throws Exception {
+        int sessions = 8;
+        String[] chefs = { "Antonio", "Chiara" };
+        ExecutorService pool = Executors.newFixedThreadPool(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < sessions; i++) {
+                String chef = chefs[i % chefs.length];
+                String title = "Menu sessione " + i;
+                Session session = app.openSession();
+                Callable<String> work = () -> {
+                    try (Session.Binding b = session.bind()) {
+                        app.getUserManager().fakeLogin(chef);
+                        start.await();
+                        app.getMenuManager().createMenu(title);
+                        app.getMenuManager().defineSection("Antipasti");
+                        Menu current = app.getMenuManager().getCurrentMenu();
+                        assertEquals(chef, app.getUserManager().getCurrentUser().getUserName());
+                        return current.getTitle() + "/" + current.getSections().size();
+                    }
+                };
+                results.add(pool.submit(work));
+            }
+            start.countDown();
+
+            for (int i = 0; i < sessions; i++) {
+                assertEquals("Menu sessione " + i + "/1", results.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Nothing leaked into the default session
+        assertNull(app.getMenuManager().getCurrentMenu());
+    }
+}
@@ -0,0 +1,159 @@
+package catering.businesslogic.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.UseCaseLogicException;
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.menu.Section;
+import catering.businesslogic.recipe.Recipe;
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+import catering.persistence.StatementCache;
+
+@DisplayName("EventManager - paged event calendar")
+public class EventPageTest {
+
+    private static EventManager manager;
+
+    @BeforeAll
+    static void init() throws UseCaseLogicException {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        manager = new EventManager();
+        User chef = User.load(5);
+
+        // Five events in March 2030, two of them on the same day
+        int[] days = { 3, 10, 10, 17, 24 };
+        for (int i = 0; i < days.length; i++) {
+            Date day = Date.valueOf(String.format("2030-03-%02d", days[i]));
+            manager.createEvent("Calendar event " + i, day, day, chef);
+            manager.createService("Calendar service " + i, day, Time.valueOf("12:00:00"), Time.valueOf("15:00:00"),
+                    "Sala " + i);
+        }
+        // Outside the range
+        manager.createEvent("April event", Date.valueOf("2030-04-01"), null, chef);
+    }
+
+    @Test
+    @DisplayName("Pages cover the range once, in start date order")
+    void testPaging() throws UseCaseLogicException {
+        Date from = Date.valueOf("2030-03-01");
+        Date to = Date.valueOf("2030-04-01");
+
+        List<Event> all = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            EventPage page = manager.getEvents(from, to, token, 2);
+            assertTrue(page.getEvents().size() <= 2);
+            all.addAll(page.getEvents());
+            token = page.getNextPageToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            Event e = all.get(i);
+            assertEquals("Calendar event " + i, e.getName());
+            assertEquals(5, e.getChefId());
+            assertEquals(1, e.getServices().size());
+            assertEquals("Calendar service " + i, e.getServices().get(0).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Events seeded with text dates are found by range")
+    void testSeededEvent() throws UseCaseLogicException {
+        EventPage page = manager.getEvents(Date.valueOf("2025-06-01"), Date.valueOf("2025-07-01"), null);
+
+        assertFalse(page.hasNextPage());
+        assertEquals(1, page.getEvents().size());
+        Event gala = page.getEvents().get(0);
+        assertEquals("Gala Aziendale Annuale", gala.getName());
+        assertNotNull(gala.getDateStart());
+        assertEquals(2, gala.getServices().size());
+    }
+
+    // Two events on the given days, each with a service whose menu has the given size
+    private static void eventsWithMenus(String month, int sections, int items) throws UseCaseLogicException {
+        List<Recipe> recipes = Recipe.loadAllRecipes();
+        for (int e = 0; e < 2; e++) {
+            Date day = Date.valueOf(month + "-0" + (e + 1));
+            manager.createEvent("Menu event " + month + " " + e, day, day, User.load(5));
+            manager.createService("Menu service " + month + " " + e, day, Time.valueOf("12:00:00"),
+                    Time.valueOf("15:00:00"), "Sala");
+            Menu m = new Menu(User.load(5), "Menu " + month + " " + e);
+            for (int s = 0; s < sections; s++) {
+                Section sec = m.addSection("Section " + s);
+                for (int i = 0; i < items; i++) {
+                    m.addItem(recipes.get((s + i) % recipes.size()), sec, "Item " + s + "." + i);
+                }
+            }
+            Menu.create(m);
+            manager.assignMenu(m);
+        }
+    }
+
+    private static long statements() {
+        StatementCache.Counters counters = PersistenceManager.getPool().getStatementCounters();
+        return counters.getHits() + counters.getMisses();
+    }
+
+    private static long pageCost(String from, String to) throws UseCaseLogicException {
+        long before = statements();
+        EventPage page = manager.getEvents(Date.valueOf(from), Date.valueOf(to), null);
+        long cost = statements() - before;
+        assertEquals(2, page.getEvents().size());
+        for (Event e : page.getEvents()) {
+            assertNotNull(e.getServices().get(0).getMenu());
+        }
+        return cost;
+    }
+
+    @Test
+    @DisplayName("A page costs the same queries whatever the size of its menus")
+    void testFixedQueries() throws UseCaseLogicException {
+        eventsWithMenus("2031-05", 1, 1);
+        eventsWithMenus("2031-06", 5, 6);
+
+        long small = pageCost("2031-05-01", "2031-06-01");
+        long large = pageCost("2031-06-01", "2031-07-01");
+        assertEquals(small, large);
+        // The large menus are complete
+        EventPage page = manager.getEvents(Date.valueOf("2031-06-01"), Date.valueOf("2031-07-01"), null);
+        Menu menu = page.getEvents().get(0).getServices().get(0).getMenu();
+        assertEquals(5, menu.getSectionCount());
+        assertEquals(6, menu.getSection(4).getItems().size());
+    }
+
+    @Test
+    @DisplayName("Seeded dates are local midnight, like the dates the application writes")
+    void testSeededDateIsLocalMidnight() throws UseCaseLogicException {
+        // Meaningful west or east of UTC: the build also runs this class with TZ=America/New_York
+        EventPage day = manager.getEvents(Date.valueOf("2025-06-15"), Date.valueOf("2025-06-16"), null);
+        assertEquals(1, day.getEvents().size());
+        Event gala = day.getEvents().get(0);
+        assertEquals(Date.valueOf("2025-06-15").getTime(), gala.getDateStart().getTime());
+        assertEquals(Date.valueOf("2025-06-16").getTime(), gala.getDateEnd().getTime());
+        assertTrue(manager.getEvents(Date.valueOf("2025-06-14"), Date.valueOf("2025-06-15"), null)
+                .getEvents().isEmpty());
+    }
+
+    @Test
+    @DisplayName("An invalid range or token is rejected")
+    void testInvalidArguments() {
+        Date from = Date.valueOf("2030-03-01");
+        Date to = Date.valueOf("2030-04-01");
+        assertThrows(UseCaseLogicException.class, () -> manager.getEvents(to, from, null));
+        assertThrows(UseCaseLogicException.class, () -> manager.getEvents(from, to, "not-a-token"));
+    }
+}
@@ -0,0 +1,120 @@
+package catering.businesslogic.kitchen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.Service;
+import catering.businesslogic.shift.Shift;
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("AssignmentSolver - automatic task assignment")
+public class AssignmentSolverTest {
+
+    private static CatERing app;
+    private static User luca;
+    private static User antonio;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+        luca = User.load("Luca");
+        antonio = User.load("Antonio");
+    }
+
+    @BeforeEach
+    void login() throws Exception {
+        app.getUserManager().fakeLogin("Antonio");
+    }
+
+    private static Shift shift(String date, String start, String end, User... cooks) {
+        Shift s = Shift.createShift(Date.valueOf(date), Time.valueOf(start), Time.valueOf(end));
+        for (User u : cooks) {
+            s.addBooking(u);
+        }
+        return s;
+    }
+
+    private SummarySheet newSheet() throws Exception {
+        SummarySheet ss = app.getKitchenTaskManager().generateSummarySheet(Event.loadByName("Gala Aziendale Annuale"),
+                Service.loadByName("Pranzo Buffet Aziendale"));
+        // Add tasks so that there is something to balance
+        KitchenTask first = ss.getTaskList().get(0);
+        for (int i = 0; i < 8; i++) {
+            app.getKitchenTaskManager().addKitchenTask(new KitchenTask(first.getKitchenProcess(), "Extra " + i));
+        }
+        int i = 0;
+        for (KitchenTask t : ss.getTaskList()) {
+            app.getKitchenTaskManager().addTaskInformation(t, 1, 10, 10 + 5 * (i++ % 5));
+        }
+        return ss;
+    }
+
+    @Test
+    @DisplayName("Tasks are spread over the cooks in proportion to their shifts")
+    void testBalancedPlan() throws Exception {
+        SummarySheet ss = newSheet();
+        Shift morning = shift("2025-06-15", "08:00:00", "12:00:00", luca, antonio);
+        Shift dayBefore = shift("2025-06-14", "09:00:00", "11:00:00", luca);
+        // Ends after the service has started
+        Shift late = shift("2025-06-15", "13:00:00", "15:00:00", luca, antonio);
+
+        AssignmentSolver.Plan plan = new AssignmentSolver(ss, List.of(morning, dayBefore, late)).setTimeBudget(100)
+                .setParallelism(2).solve();
+
+        assertEquals(ss.getTaskList().size(), plan.getAssignments().size());
+        assertTrue(plan.getUnassignedTasks().isEmpty());
+        assertEquals(0, plan.getOverflowMinutes());
+
+        Map<String, Long> slotLoad = new HashMap<>();
+        for (Assignment a : plan.getAssignments()) {
+            assertNotSame(late, a.getShift());
+            assertTrue(a.getShift().isBooked(a.getCook()));
+            slotLoad.merge(a.getShift().getId() + "/" + a.getCook().getId(), a.getTask().getMinutes(), Long::sum);
+        }
+        // Three slots of 240, 240 and 120 minutes, loaded about 2:2:1
+        long total = slotLoad.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(3, slotLoad.size());
+        long small = slotLoad.get(dayBefore.getId() + "/" + luca.getId());
+        assertEquals(total / 5.0, small, 30);
+    }
+
+    @Test
+    @DisplayName("The plan is added to the sheet and saved in one batch")
+    void testAutoAssign() throws Exception {
+        SummarySheet ss = newSheet();
+        KitchenTask manual = ss.getTaskList().get(0);
+        Shift morning = shift("2025-06-15", "07:00:00", "11:00:00", luca, antonio);
+        app.getKitchenTaskManager().assignTask(manual, morning, luca);
+        app.getKitchenTaskManager().setTaskReady(ss.getTaskList().get(1));
+
+        AssignmentSolver.Plan plan = app.getKitchenTaskManager().autoAssignTasks(List.of(morning), 50);
+        // Neither the assigned task nor the ready one is planned again
+        assertEquals(ss.getTaskList().size() - 2, plan.getAssignments().size());
+        for (Assignment a : plan.getAssignments()) {
+            assertTrue(a.getId() > 0);
+            assertNotSame(manual, a.getTask());
+        }
+
+        List<Integer> saved = new ArrayList<>();
+        for (Assignment a : Assignment.loadAllAssignmentsBySumSheetId(ss.getId())) {
+            saved.add(a.getTask().getId());
+        }
+        assertEquals(ss.getAssignments().size(), saved.size());
+        assertEquals(manual.getMinutes(), KitchenTask.loadTaskById(manual.getId()).getMinutes());
+    }
+}
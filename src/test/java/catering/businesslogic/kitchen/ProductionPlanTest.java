@@ -0,0 +1,89 @@
+package catering.businesslogic.kitchen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.UseCaseLogicException;
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.Service;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("ProductionPlan - preparations merged across services")
+public class ProductionPlanTest {
+
+    private static CatERing app;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+    }
+
+    private static SummarySheet sheet(Event event, String service, int portions) throws Exception {
+        KitchenTaskManager kitchen = app.getKitchenTaskManager();
+        SummarySheet ss = kitchen.generateSummarySheet(event, Service.loadByName(service));
+        for (KitchenTask t : ss.getTaskList()) {
+            kitchen.addTaskInformation(t, 2, portions, 0);
+        }
+        return ss;
+    }
+
+    @Test
+    @DisplayName("Tasks of services on the same day are summed per kitchen process")
+    void testSameDayServices() throws Exception {
+        // A second service of the same day with the same menu as the lunch
+        PersistenceManager.executeUpdate("INSERT INTO Services (event_id, name, approved_menu_id, service_date, "
+                + "time_start, time_end, location) VALUES (1, 'Merenda', 1, '2025-06-15', '16:00', '17:00', 'Terrazza')");
+        app.getUserManager().fakeLogin("Antonio");
+        Event event = Event.loadByName("Gala Aziendale Annuale");
+
+        SummarySheet lunch = sheet(event, "Pranzo Buffet Aziendale", 10);
+        SummarySheet snack = sheet(event, "Merenda", 5);
+        app.getKitchenTaskManager().setTaskReady(snack.getTaskList().get(0));
+
+        ProductionPlan plan = app.getKitchenTaskManager().getProductionPlan(Date.valueOf("2025-06-15"),
+                Date.valueOf("2025-06-15"));
+
+        Set<String> processes = new HashSet<>();
+        for (KitchenTask t : lunch.getTaskList()) {
+            processes.add(t.getKitchenProcess().isRecipe() + "/" + t.getKitchenProcess().getId());
+        }
+        assertEquals(processes.size(), plan.getLines().size());
+
+        int tasks = 0;
+        long portions = 0;
+        for (ProductionPlan.Line l : plan.getLines()) {
+            assertNotNull(l.getKitchenProcess());
+            tasks += l.getTaskCount();
+            portions += l.getPortions();
+        }
+        // Every task of both sheets but the ready one
+        int open = lunch.getTaskListSize() + snack.getTaskListSize() - 1;
+        assertEquals(open, tasks);
+        assertEquals(10L * lunch.getTaskListSize() + 5L * (snack.getTaskListSize() - 1), portions);
+        assertEquals(open - plan.getLines().size(), plan.getMergedTaskCount());
+        assertFalse(plan.getSharedLines().isEmpty());
+        for (ProductionPlan.Line l : plan.getSharedLines()) {
+            assertEquals(2, l.getServiceIds().size());
+        }
+
+        assertTrue(app.getKitchenTaskManager().getProductionPlan(Date.valueOf("2025-06-16"),
+                Date.valueOf("2025-06-30")).getLines().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Only chefs can see the production plan")
+    void testChefOnly() throws Exception {
+        app.getUserManager().fakeLogin("Marco");
+        assertThrows(UseCaseLogicException.class, () -> app.getKitchenTaskManager()
+                .getProductionPlan(Date.valueOf("2025-06-01"), Date.valueOf("2025-06-30")));
+    }
+}
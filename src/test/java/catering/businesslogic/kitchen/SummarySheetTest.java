@@ -138,4 +138,33 @@ public class SummarySheetTest {
             fail("Exception should not be thrown: " + e.getMessage());
         }
     }
+
+    @Test
+    @Order(3)
+    void testBatchedReload() {
+        LOGGER.info("Testing that reloaded sheets match the per-row loaders");
+
+        java.util.ArrayList<SummarySheet> sheets = SummarySheet.loadAllSumSheets();
+        assertTrue(sheets.size() >= 2, "Sheets created by the previous tests should be reloaded");
+
+        boolean assignmentFound = false;
+        for (SummarySheet sheet : sheets) {
+            assertNotNull(sheet.getOwner(), "Owner should be loaded");
+            java.util.ArrayList<KitchenTask> expected = KitchenTask.loadAllTasksBySumSheetId(sheet.getId());
+            assertEquals(expected.size(), sheet.getTaskList().size(), "Task count should match");
+            for (int i = 0; i < expected.size(); i++) {
+                KitchenTask task = sheet.getTaskList().get(i);
+                assertEquals(expected.get(i).getId(), task.getId(), "Tasks should keep their position");
+                assertNotNull(task.getKitchenProcess(), "Kitchen process should be loaded");
+                assertEquals(expected.get(i).getKitchenProcess().getId(), task.getKitchenProcess().getId());
+            }
+            for (Assignment a : sheet.getAssignments()) {
+                assignmentFound = true;
+                assertTrue(sheet.getTaskList().stream().anyMatch(t -> t == a.getTask()),
+                        "Assignment should share the task instance of its sheet");
+                assertEquals(cook, a.getCook(), "Assignment should reference the cook");
+            }
+        }
+        assertTrue(assignmentFound, "The assignment created by testTaskAssignment should be reloaded");
+    }
 }
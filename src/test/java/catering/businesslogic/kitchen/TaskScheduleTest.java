@@ -0,0 +1,117 @@
+package catering.businesslogic.kitchen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.event.Event;
+import catering.businesslogic.event.Service;
+import catering.businesslogic.recipe.Preparation;
+import catering.businesslogic.recipe.Recipe;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("TaskSchedule - dependencies and critical path")
+public class TaskScheduleTest {
+
+    private static CatERing app;
+    private SummarySheet sheet;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        app.getUserManager().fakeLogin("Antonio");
+        sheet = app.getKitchenTaskManager().generateSummarySheet(Event.loadByName("Gala Aziendale Annuale"),
+                Service.loadByName("Pranzo Buffet Aziendale"));
+    }
+
+    private static long duration(KitchenTask t) {
+        return t.isReady() ? 0 : t.getMinutes() > 0 ? t.getMinutes() : AssignmentSolver.DEFAULT_TASK_MINUTES;
+    }
+
+    // The incremental schedule must match one built from scratch
+    private void assertSameAsRebuilt() {
+        TaskSchedule incremental = sheet.getSchedule();
+        TaskSchedule rebuilt = new TaskSchedule(sheet);
+        assertEquals(rebuilt.getTotalMinutes(), incremental.getTotalMinutes());
+        for (KitchenTask t : sheet.getTaskList()) {
+            assertEquals(rebuilt.getEarliestStart(t), incremental.getEarliestStart(t), t.getDescription());
+            assertEquals(rebuilt.getSlack(t), incremental.getSlack(t), t.getDescription());
+        }
+    }
+
+    @Test
+    @DisplayName("Recipes start after their preparations, the critical path spans the work")
+    void testDependencies() {
+        TaskSchedule schedule = sheet.getSchedule();
+        List<KitchenTask> order = schedule.topologicalOrder();
+        assertEquals(sheet.getTaskListSize(), order.size());
+
+        boolean anyDependency = false;
+        for (KitchenTask t : sheet.getTaskList()) {
+            if (t.getKitchenProcess() instanceof Recipe) {
+                for (KitchenTask dep : schedule.getDependencies(t)) {
+                    anyDependency = true;
+                    assertTrue(dep.getKitchenProcess() instanceof Preparation);
+                    assertTrue(order.indexOf(dep) < order.indexOf(t));
+                    assertTrue(schedule.getEarliestStart(t) >= schedule.getEarliestStart(dep) + duration(dep));
+                }
+            }
+            assertTrue(schedule.getSlack(t) >= 0);
+        }
+        assertTrue(anyDependency, "the seed menu uses preparations");
+
+        long pathMinutes = 0;
+        for (KitchenTask t : schedule.getCriticalPath()) {
+            assertEquals(0, schedule.getSlack(t));
+            pathMinutes += duration(t);
+        }
+        assertEquals(schedule.getTotalMinutes(), pathMinutes);
+        assertNotNull(schedule.getProposedStart(order.get(0)));
+    }
+
+    @Test
+    @DisplayName("Adding, estimating and completing tasks update the schedule in place")
+    void testIncrementalUpdates() throws Exception {
+        KitchenTaskManager kitchen = app.getKitchenTaskManager();
+        sheet.getSchedule();
+
+        int i = 0;
+        for (KitchenTask t : sheet.getTaskList()) {
+            kitchen.addTaskInformation(t, 1, 1, 20 + 15 * (i++ % 4));
+            assertSameAsRebuilt();
+        }
+
+        KitchenTask recipe = null;
+        for (KitchenTask t : sheet.getTaskList()) {
+            if (t.getKitchenProcess() instanceof Recipe && !((Recipe) t.getKitchenProcess()).getPreparations().isEmpty()) {
+                recipe = t;
+            }
+        }
+        assertNotNull(recipe);
+        Preparation prep = ((Recipe) recipe.getKitchenProcess()).getPreparations().get(0);
+        KitchenTask extra = new KitchenTask(prep, "Extra " + prep.getName());
+        kitchen.addKitchenTask(extra);
+        kitchen.addTaskInformation(extra, 1, 1, 500);
+        assertSameAsRebuilt();
+        assertTrue(sheet.getSchedule().getCriticalPath().contains(extra));
+        assertTrue(sheet.getSchedule().getEarliestStart(recipe) >= 500);
+
+        kitchen.setTaskReady(extra);
+        assertSameAsRebuilt();
+        kitchen.moveTask(recipe, 0);
+        assertSameAsRebuilt();
+        List<KitchenTask> order = sheet.getSchedule().topologicalOrder();
+        assertTrue(order.indexOf(extra) < order.indexOf(recipe));
+    }
+}
@@ -0,0 +1,109 @@
+package catering.businesslogic.menu;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.recipe.Recipe;
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+import catering.persistence.StatementCache;
+
+@DisplayName("Menu - batched loading")
+public class MenuLoadTest {
+
+    private static List<Recipe> recipes;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        recipes = Recipe.loadAllRecipes();
+        assertTrue(recipes.size() >= 3);
+    }
+
+    // A saved menu with the given number of sections, items per section and free items
+    private static Menu menu(String title, int sections, int items) {
+        Menu m = new Menu(User.load("Antonio"), title);
+        m.setBuffet(true);
+        for (int s = 0; s < sections; s++) {
+            Section sec = m.addSection(title + " section " + s);
+            for (int i = 0; i < items; i++) {
+                m.addItem(recipes.get((s + i) % recipes.size()), sec, title + " item " + s + "." + i);
+            }
+        }
+        for (int i = 0; i < items; i++) {
+            m.addItem(recipes.get(i % recipes.size()), null, title + " free item " + i);
+        }
+        Menu.create(m);
+        return m;
+    }
+
+    private static long statements() {
+        StatementCache.Counters counters = PersistenceManager.getPool().getStatementCounters();
+        return counters.getHits() + counters.getMisses();
+    }
+
+    private static void assertSameItems(List<MenuItem> expected, List<MenuItem> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getDescription(), actual.get(i).getDescription());
+            assertEquals(expected.get(i).getRecipe().getId(), actual.get(i).getRecipe().getId());
+            assertEquals(expected.get(i).getRecipe().getPreparations().size(),
+                    actual.get(i).getRecipe().getPreparations().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Menus loaded together match the ones loaded one by one")
+    void testSameAsLoad() {
+        Menu small = menu("Batch small", 1, 1);
+        Menu large = menu("Batch large", 4, 5);
+        List<Integer> ids = new ArrayList<>(Arrays.asList(small.getId(), large.getId(), 1, -1));
+
+        Map<Integer, Menu> menus = Menu.loadMenus(ids);
+        assertEquals(3, menus.size());
+        assertFalse(menus.containsKey(-1));
+        for (int id : ids.subList(0, 3)) {
+            Menu expected = Menu.load(id);
+            Menu actual = menus.get(id);
+            assertEquals(expected, actual);
+            assertEquals(expected.getOwner(), actual.getOwner());
+            assertEquals(expected.isInUse(), actual.isInUse());
+            assertEquals(expected.getFeatures(), actual.getFeatures());
+            assertSameItems(expected.getFreeItems(), actual.getFreeItems());
+            assertEquals(expected.getSectionCount(), actual.getSectionCount());
+            for (int s = 0; s < expected.getSectionCount(); s++) {
+                assertEquals(expected.getSection(s).getName(), actual.getSection(s).getName());
+                assertSameItems(expected.getSection(s).getItems(), actual.getSection(s).getItems());
+            }
+        }
+        assertTrue(menus.get(large.getId()).isBuffet());
+    }
+
+    @Test
+    @DisplayName("The number of queries does not depend on sections and items")
+    void testFixedQueries() {
+        Menu small = menu("Count small", 1, 1);
+        Menu large = menu("Count large", 6, 8);
+        // Owners come from the user cache in both loads
+        User.load("Antonio");
+
+        long before = statements();
+        Menu.loadMenus(List.of(small.getId()));
+        long smallCost = statements() - before;
+
+        before = statements();
+        Menu.loadMenus(List.of(small.getId(), large.getId()));
+        long largeCost = statements() - before;
+
+        assertEquals(smallCost, largeCost);
+    }
+}
@@ -0,0 +1,224 @@
+package catering.businesslogic.personnel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.UseCaseLogicException;
+import catering.businesslogic.shift.Shift;
+import catering.persistence.PersistenceManager;
+
+/**
+ * Test della matrice delle disponibilità (AvailabilityMatrix) e del suo
+ * allineamento con il database tramite PersonnelPersistence.
+ */
+@DisplayName("AvailabilityMatrix - Disponibilità ai turni")
+public class AvailabilityMatrixTest {
+
+    private CatERing app;
+    private PersonnelManager personnel;
+    private AvailabilityMatrix matrix;
+
+    @BeforeEach
+    void setup() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+        personnel = app.getPersonnelManager();
+        matrix = AvailabilityMatrix.getInstance();
+        // Caricata prima delle modifiche, che arrivano quindi come aggiornamenti
+        assertTrue(matrix.size() > 0);
+    }
+
+    private static Shift shift(String day, String start) {
+        Shift s = new Shift(Date.valueOf(day), Time.valueOf(start), Time.valueOf("23:59:00"));
+        s.saveShift();
+        return s;
+    }
+
+    // Aggiunto dal Proprietario, con qualche giorno di ferie
+    private Collaborator collaborator(String name) throws Exception {
+        String current = app.getUserManager().getCurrentUser().getUserName();
+        app.getUserManager().fakeLogin("Giovanni");
+        Collaborator c = personnel.addCollaborator(name, name.toLowerCase() + "@example.com");
+        app.getUserManager().fakeLogin(current);
+        PersistenceManager.executeUpdate("UPDATE Collaborators SET vacation_days = 10 WHERE id = ?", c.getId());
+        return Collaborator.loadById(c.getId());
+    }
+
+    // Stessa domanda posta al database, collaboratore per collaboratore
+    private static List<Integer> freeFromDatabase(List<Collaborator> candidates, List<Shift> shifts) {
+        List<Integer> free = new ArrayList<>();
+        for (Collaborator c : candidates) {
+            Collaborator stored = Collaborator.loadById(c.getId());
+            boolean ok = stored.isActive();
+            for (Shift s : shifts) {
+                int[] confirmed = { -1 };
+                PersistenceManager.executeQuery("SELECT confirmed FROM CollaboratorAvailability "
+                        + "WHERE collaborator_id = ? AND shift_id = ?", rs -> confirmed[0] = rs.getInt(1),
+                        c.getId(), s.getId());
+                ok &= confirmed[0] == 0 && !c.isOnLeave(s.getDate());
+            }
+            if (ok) {
+                free.add(c.getId());
+            }
+        }
+        return free;
+    }
+
+    @Test
+    @DisplayName("I liberi per un fine settimana di 12 turni coincidono con il database")
+    void testWeekendAgainstDatabase() throws Exception {
+        app.getUserManager().fakeLogin("Chiara");
+        Random random = new Random(7);
+
+        List<Shift> weekend = new ArrayList<>();
+        for (String day : Arrays.asList("2034-05-05", "2034-05-06", "2034-05-07")) {
+            for (String start : Arrays.asList("08:00:00", "12:00:00", "16:00:00", "20:00:00")) {
+                weekend.add(shift(day, start));
+            }
+        }
+        List<Collaborator> staff = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Collaborator c = collaborator("Matrice" + i);
+            staff.add(c);
+            // La maggior parte si dichiara disponibile per tutto il fine settimana
+            boolean everyShift = random.nextInt(4) != 0;
+            for (Shift s : weekend) {
+                if (everyShift || random.nextBoolean()) {
+                    personnel.setAvailability(c, s, AvailabilityMatrix.Status.AVAILABLE);
+                }
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            personnel.setAvailability(staff.get(i), weekend.get(i), AvailabilityMatrix.Status.CONFIRMED);
+            personnel.setAvailability(staff.get(10 + i), weekend.get(i), AvailabilityMatrix.Status.NONE);
+        }
+        for (int i = 20; i < 25; i++) {
+            LeaveRequest req = LeaveRequest.create(staff.get(i), Date.valueOf("2034-05-07"),
+                    Date.valueOf("2034-05-08"));
+            req.save();
+            app.getUserManager().fakeLogin("Giovanni");
+            personnel.evaluateLeaveRequest(req, true);
+        }
+        app.getUserManager().fakeLogin("Chiara");
+        personnel.removeCollaborator(staff.get(30));
+
+        List<Integer> expected = freeFromDatabase(staff, weekend);
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() < staff.size() - 25);
+        assertEquals(expected, matrix.getFreeCollaborators(weekend));
+        assertEquals(expected.size(), matrix.countFree(weekend));
+
+        List<Collaborator> free = personnel.getFreeCollaborators(weekend);
+        assertEquals(expected.size(), free.size());
+
+        // Riletta dal database, la matrice dà la stessa risposta
+        matrix.invalidate();
+        assertEquals(expected, matrix.getFreeCollaborators(weekend));
+    }
+
+    @Test
+    @DisplayName("Conferme, ritiri, ferie e disattivazioni aggiornano la matrice")
+    void testIncrementalUpdates() throws Exception {
+        app.getUserManager().fakeLogin("Chiara");
+        Shift saturday = shift("2034-06-10", "18:00:00");
+        Shift sunday = shift("2034-06-11", "18:00:00");
+        List<Shift> both = Arrays.asList(saturday, sunday);
+        Collaborator anna = collaborator("Anna");
+        Collaborator bruno = collaborator("Bruno");
+        assertTrue(matrix.getFreeCollaborators(both).isEmpty());
+
+        for (Collaborator c : Arrays.asList(anna, bruno)) {
+            for (Shift s : both) {
+                personnel.setAvailability(c, s, AvailabilityMatrix.Status.AVAILABLE);
+            }
+        }
+        assertEquals(Arrays.asList(anna.getId(), bruno.getId()), matrix.getFreeCollaborators(both));
+
+        personnel.setAvailability(anna, saturday, AvailabilityMatrix.Status.CONFIRMED);
+        assertEquals(AvailabilityMatrix.Status.CONFIRMED, matrix.getStatus(anna.getId(), saturday));
+        assertEquals(Arrays.asList(anna.getId()), matrix.getConfirmedCollaborators(saturday));
+        assertEquals(Arrays.asList(bruno.getId()), matrix.getFreeCollaborators(both));
+        assertTrue(matrix.isFree(anna.getId(), sunday));
+        assertTrue(anna.hasActiveAssignments());
+
+        // Le ferie di Bruno coprono la domenica
+        LeaveRequest req = LeaveRequest.create(bruno, Date.valueOf("2034-06-11"), Date.valueOf("2034-06-11"));
+        req.save();
+        app.getUserManager().fakeLogin("Giovanni");
+        personnel.evaluateLeaveRequest(req, true);
+        assertTrue(matrix.isFree(bruno.getId(), saturday));
+        assertFalse(matrix.isFree(bruno.getId(), sunday));
+        assertTrue(matrix.getFreeCollaborators(both).isEmpty());
+        assertThrows(UseCaseLogicException.class,
+                () -> personnel.setAvailability(bruno, sunday, AvailabilityMatrix.Status.CONFIRMED));
+
+        personnel.setAvailability(anna, saturday, AvailabilityMatrix.Status.AVAILABLE);
+        assertEquals(Arrays.asList(anna.getId()), matrix.getFreeCollaborators(both));
+        personnel.setAvailability(anna, sunday, AvailabilityMatrix.Status.NONE);
+        assertEquals(AvailabilityMatrix.Status.NONE, matrix.getStatus(anna.getId(), sunday));
+        assertEquals(Arrays.asList(anna.getId(), bruno.getId()),
+                matrix.getFreeCollaborators(Arrays.asList(saturday)));
+
+        app.getUserManager().fakeLogin("Chiara");
+        personnel.removeCollaborator(anna);
+        assertEquals(Arrays.asList(bruno.getId()), matrix.getFreeCollaborators(Arrays.asList(saturday)));
+        assertThrows(UseCaseLogicException.class,
+                () -> personnel.setAvailability(anna, saturday, AvailabilityMatrix.Status.AVAILABLE));
+
+        app.getUserManager().fakeLogin("Luca");
+        assertThrows(UseCaseLogicException.class,
+                () -> personnel.setAvailability(bruno, saturday, AvailabilityMatrix.Status.CONFIRMED));
+    }
+
+    @Test
+    @DisplayName("Una disponibilità non salvata non entra nella matrice")
+    void testFailedWriteLeavesMatrixUnchanged() throws Exception {
+        app.getUserManager().fakeLogin("Chiara");
+        Shift friday = shift("2034-07-07", "18:00:00");
+        Collaborator carla = collaborator("Carla");
+        personnel.setAvailability(carla, friday, AvailabilityMatrix.Status.AVAILABLE);
+
+        PersistenceManager.executeUpdate("CREATE TRIGGER availability_locked BEFORE UPDATE ON CollaboratorAvailability "
+                + "BEGIN SELECT RAISE(ABORT, 'locked'); END");
+        try {
+            personnel.setAvailability(carla, friday, AvailabilityMatrix.Status.CONFIRMED);
+        } finally {
+            PersistenceManager.executeUpdate("DROP TRIGGER availability_locked");
+        }
+        assertEquals(AvailabilityMatrix.Status.AVAILABLE, matrix.getStatus(carla.getId(), friday));
+        assertTrue(matrix.isFree(carla.getId(), friday));
+        assertFalse(carla.hasActiveAssignments());
+    }
+
+    @Test
+    @DisplayName("Una disponibilità annullata con la transazione esterna non entra nella matrice")
+    void testOuterRollbackLeavesMatrixUnchanged() throws Exception {
+        app.getUserManager().fakeLogin("Chiara");
+        Shift saturday = shift("2034-07-08", "18:00:00");
+        Collaborator dario = collaborator("Dario");
+
+        assertFalse(PersistenceManager.inTransaction(() -> {
+            try {
+                personnel.setAvailability(dario, saturday, AvailabilityMatrix.Status.AVAILABLE);
+            } catch (UseCaseLogicException ex) {
+                fail(ex);
+            }
+            PersistenceManager.executeUpdate("INSERT INTO NoSuchTable VALUES (1)");
+        }));
+        assertEquals(AvailabilityMatrix.Status.NONE, matrix.getStatus(dario.getId(), saturday));
+
+        personnel.setAvailability(dario, saturday, AvailabilityMatrix.Status.AVAILABLE);
+        assertTrue(matrix.isFree(dario.getId(), saturday));
+    }
+}
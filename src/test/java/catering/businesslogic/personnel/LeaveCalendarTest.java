@@ -0,0 +1,137 @@
+package catering.businesslogic.personnel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import catering.persistence.PersistenceManager;
+import catering.persistence.PersonnelPersistence;
+
+/**
+ * Test del calendario ferie in memoria (LeaveCalendar e IntervalTree).
+ */
+@DisplayName("LeaveCalendar - Calendario ferie")
+public class LeaveCalendarTest {
+
+    @Nested
+    @DisplayName("IntervalTree")
+    class IntervalTreeTest {
+
+        @Test
+        @DisplayName("Le sovrapposizioni coincidono con una ricerca lineare")
+        void testAgainstLinearScan() {
+            Random random = new Random(42);
+            IntervalTree tree = new IntervalTree();
+            List<long[]> intervals = new ArrayList<>();
+
+            for (int id = 0; id < 500; id++) {
+                long start = random.nextInt(1000);
+                long[] iv = { start, start + random.nextInt(20), id };
+                intervals.add(iv);
+                tree.insert(iv[0], iv[1], id);
+            }
+            // Rimuove un intervallo su tre
+            for (int i = 0; i < intervals.size(); i += 3) {
+                long[] iv = intervals.get(i);
+                tree.remove(iv[0], (int) iv[2]);
+                intervals.set(i, null);
+            }
+            intervals.removeIf(iv -> iv == null);
+            assertEquals(intervals.size(), tree.size());
+
+            for (int q = 0; q < 2000; q++) {
+                long from = random.nextInt(1050) - 25;
+                long to = from + random.nextInt(10);
+                boolean expected = intervals.stream().anyMatch(iv -> iv[0] <= to && iv[1] >= from);
+                assertEquals(expected, tree.overlaps(from, to), "Query [" + from + ", " + to + "]");
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Sincronizzazione con il database")
+    class SyncTest {
+
+        @BeforeEach
+        void setup() {
+            PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        }
+
+        @Test
+        @DisplayName("Le ferie approvate nel DB iniziale sono caricate")
+        void testLoadedFromDatabase() {
+            // Mario (id 1): ferie approvate 1-15 agosto 2025
+            LeaveCalendar calendar = LeaveCalendar.getInstance();
+            assertTrue(calendar.isOnLeave(1, Date.valueOf("2025-08-01")));
+            assertTrue(calendar.isOnLeave(1, Date.valueOf("2025-08-15")));
+            assertFalse(calendar.isOnLeave(1, Date.valueOf("2025-08-16")));
+            // Luigi (id 2) ha solo una richiesta pending
+            assertFalse(calendar.isOnLeave(2, Date.valueOf("2025-07-22")));
+            assertTrue(calendar.getCollaboratorsOnLeave(Date.valueOf("2025-08-10")).contains(1));
+        }
+
+        @Test
+        @DisplayName("Approvazione e rifiuto aggiornano il calendario")
+        void testUpdateKeepsCalendarInSync() throws PersonnelException {
+            Collaborator collab = Collaborator.create("Calendario " + System.currentTimeMillis(),
+                    "cal" + System.currentTimeMillis());
+            collab.save();
+            Collaborator other = Collaborator.create("Libero " + System.currentTimeMillis(),
+                    "free" + System.currentTimeMillis());
+            other.save();
+
+            Date start = Date.valueOf("2031-02-10");
+            Date end = Date.valueOf("2031-02-14");
+            LeaveRequest req = LeaveRequest.create(collab, start, end);
+            req.save();
+            assertFalse(collab.isOnLeave(Date.valueOf("2031-02-12")), "Una richiesta pending non conta");
+
+            req.approve();
+            req.update();
+            assertTrue(collab.isOnLeave(Date.valueOf("2031-02-12")));
+
+            List<Collaborator> free = LeaveCalendar.getInstance().getFreeCollaborators(
+                    Arrays.asList(collab, other), Date.valueOf("2031-02-14"), Date.valueOf("2031-02-20"));
+            assertEquals(Arrays.asList(other), free);
+
+            LeaveRequest overlapping = LeaveRequest.create(collab, Date.valueOf("2031-02-14"),
+                    Date.valueOf("2031-02-16"));
+            assertThrows(PersonnelException.class, overlapping::save);
+
+            req.reject();
+            req.update();
+            assertFalse(collab.isOnLeave(Date.valueOf("2031-02-12")));
+        }
+
+        @Test
+        @DisplayName("Un'approvazione annullata con la transazione esterna non entra nel calendario")
+        void testRolledBackApproval() throws PersonnelException {
+            Collaborator collab = Collaborator.create("Annullata " + System.currentTimeMillis(),
+                    "undo" + System.currentTimeMillis());
+            collab.save();
+            LeaveRequest req = LeaveRequest.create(collab, Date.valueOf("2031-03-10"), Date.valueOf("2031-03-12"));
+            req.save();
+            req.approve();
+
+            PersonnelPersistence persistence = new PersonnelPersistence();
+            assertFalse(PersistenceManager.inTransaction(() -> {
+                persistence.updateLeaveRequestUpdated(req);
+                PersistenceManager.executeUpdate("INSERT INTO NoSuchTable VALUES (1)");
+            }));
+            assertFalse(collab.isOnLeave(Date.valueOf("2031-03-11")));
+            assertTrue(LeaveRequest.loadByCollaborator(collab).get(0).isPending());
+
+            persistence.updateLeaveRequestUpdated(req);
+            assertTrue(collab.isOnLeave(Date.valueOf("2031-03-11")));
+        }
+    }
+}
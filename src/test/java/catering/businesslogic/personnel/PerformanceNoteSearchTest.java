@@ -0,0 +1,100 @@
+package catering.businesslogic.personnel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.UseCaseLogicException;
+import catering.businesslogic.event.Event;
+import catering.persistence.PersistenceManager;
+
+/**
+ * Test della ricerca full-text nelle note sulle performance.
+ *
+ * Le note del seed (collaboratori 1, 3 e 4, evento 1) sono indicizzate dalla
+ * migrazione; quelle registrate con logPerformance da PersonnelPersistence.
+ */
+@DisplayName("PerformanceNote - ricerca full-text")
+public class PerformanceNoteSearchTest {
+
+    private static CatERing app;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        app = CatERing.getInstance();
+    }
+
+    private static PerformanceNotePage search(PerformanceNoteQuery q) throws UseCaseLogicException {
+        return app.getPersonnelManager().searchPerformanceNotes(q, 0, PersonnelManager.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    @DisplayName("Trova le note del seed e quelle nuove, per prefisso e senza accenti")
+    void testSearch() throws Exception {
+        app.getUserManager().fakeLogin("Chiara");
+        PerformanceNotePage seed = search(new PerformanceNoteQuery("puntual"));
+        assertEquals(1, seed.getHits().size());
+        assertEquals(1, seed.getHits().get(0).getNote().getCollaborator().getId());
+        assertTrue(seed.getHits().get(0).getSnippet().contains("[Puntuale]"));
+
+        Collaborator c = Collaborator.loadById(3);
+        Event gala = Event.loadById(1);
+        PerformanceNote n = app.getPersonnelManager().logPerformance(c, gala, "Arrivata in ritardo, ma attentissima agli allergeni. Perché?");
+        PerformanceNotePage found = search(new PerformanceNoteQuery("perche ALLERGENI"));
+        assertEquals(1, found.getHits().size());
+        assertEquals(n.getId(), found.getHits().get(0).getNote().getId());
+
+        // Frase esatta e sintassi FTS5 scritta dall'utente
+        assertEquals(1, search(new PerformanceNoteQuery("\"in ritardo\"")).getHits().size());
+        assertTrue(search(new PerformanceNoteQuery("\"ritardo in\"")).getHits().isEmpty());
+        assertEquals(1, search(new PerformanceNoteQuery("ritardo^ (*")).getHits().size());
+    }
+
+    @Test
+    @DisplayName("Filtri, ordinamento per pertinenza e pagine")
+    void testFiltersAndPages() throws Exception {
+        app.getUserManager().fakeLogin("Giovanni");
+        PersonnelManager pm = app.getPersonnelManager();
+        Collaborator c = Collaborator.loadById(4);
+        Event gala = Event.loadById(1);
+        pm.logPerformance(c, gala, "Servizio vini impeccabile, vini e vini ancora");
+        for (int i = 0; i < 4; i++) {
+            pm.logPerformance(Collaborator.loadById(1), null, "Buon servizio vini numero " + i);
+        }
+
+        PerformanceNotePage all = search(new PerformanceNoteQuery("vini"));
+        assertEquals(5, all.getHits().size());
+        // La nota con più occorrenze è la più pertinente
+        assertEquals(4, all.getHits().get(0).getNote().getCollaborator().getId());
+        for (int i = 1; i < all.getHits().size(); i++) {
+            assertTrue(all.getHits().get(i - 1).getScore() >= all.getHits().get(i).getScore());
+        }
+
+        assertEquals(1, search(new PerformanceNoteQuery("vini").collaborator(c)).getHits().size());
+        assertEquals(1, search(new PerformanceNoteQuery("vini").event(gala)).getHits().size());
+        Date today = Date.valueOf(LocalDate.now());
+        Date yesterday = Date.valueOf(LocalDate.now().minusDays(1));
+        assertEquals(5, search(new PerformanceNoteQuery("vini").between(today, today)).getHits().size());
+        assertTrue(search(new PerformanceNoteQuery("vini").between(yesterday, yesterday)).getHits().isEmpty());
+
+        PerformanceNotePage first = pm.searchPerformanceNotes(new PerformanceNoteQuery("vini"), 0, 2);
+        PerformanceNotePage last = pm.searchPerformanceNotes(new PerformanceNoteQuery("vini"), 2, 2);
+        assertTrue(first.hasNextPage());
+        assertEquals(2, first.getHits().size());
+        assertFalse(last.hasNextPage());
+        assertEquals(1, last.getHits().size());
+        assertEquals(all.getHits().get(4).getNote().getId(), last.getHits().get(0).getNote().getId());
+
+        assertThrows(UseCaseLogicException.class, () -> search(new PerformanceNoteQuery(" ?! ")));
+        assertThrows(UseCaseLogicException.class, () -> pm.searchPerformanceNotes(new PerformanceNoteQuery("vini"), -1, 2));
+        app.getUserManager().fakeLogin("Luca");
+        assertThrows(UseCaseLogicException.class, () -> search(new PerformanceNoteQuery("vini")));
+    }
+}
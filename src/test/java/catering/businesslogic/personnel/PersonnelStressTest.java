@@ -95,8 +95,7 @@ public class PersonnelStressTest {
             
             // Creiamo un Shift futuro
             String sqlShift = "INSERT INTO Shifts (date, start_time, end_time) VALUES (date('now', '+5 days'), '10:00', '14:00')";
-            PersistenceManager.executeUpdate(sqlShift);
-            int shiftId = PersistenceManager.getLastId();
+            int shiftId = PersistenceManager.executeInsert(sqlShift);
 
             // INSERT CollaboratorAvailability (confirmed = 1)
             String sqlAssign = "INSERT INTO CollaboratorAvailability (collaborator_id, shift_id, confirmed) " +
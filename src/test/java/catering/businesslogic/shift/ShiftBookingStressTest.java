@@ -0,0 +1,166 @@
+package catering.businesslogic.shift;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+
+/**
+ * Many users booking at the same moment: every thread waits on a latch and
+ * then books, so the bookings really race.
+ */
+@DisplayName("ShiftBookingEngine - concurrent bookings")
+public class ShiftBookingStressTest {
+
+    private static final int USERS = 200;
+    private static final int THREADS = 32;
+
+    private static List<User> users;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            ids.add(PersistenceManager.executeInsert("INSERT INTO Users (username) VALUES (?)", "stress-" + i));
+        }
+        users = new ArrayList<>(User.loadUsers(ids).values());
+        assertEquals(USERS, users.size());
+    }
+
+    private static Shift shift(String day, Integer capacity) {
+        Shift s = new Shift(Date.valueOf(day), Time.valueOf("18:00:00"), Time.valueOf("23:00:00"));
+        s.setCapacity(capacity);
+        s.saveShift();
+        return s;
+    }
+
+    private static int storedBookings(Shift s) {
+        int[] count = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM ShiftBookings WHERE shift_id = ?",
+                rs -> count[0] = rs.getInt(1), s.getId());
+        return count[0];
+    }
+
+    // Runs every task at the same moment and counts the outcomes
+    private static Map<ShiftBookingEngine.Result, Integer> race(List<Callable<ShiftBookingEngine.Result>> tasks)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ShiftBookingEngine.Result>> futures = new ArrayList<>();
+            for (Callable<ShiftBookingEngine.Result> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            Map<ShiftBookingEngine.Result, Integer> outcomes = new EnumMap<>(ShiftBookingEngine.Result.class);
+            for (Future<ShiftBookingEngine.Result> f : futures) {
+                outcomes.merge(f.get(60, TimeUnit.SECONDS), 1, Integer::sum);
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Every user books the same shift: exactly its capacity is booked")
+    void testCapacityUnderContention() throws Exception {
+        Shift s = shift("2032-05-01", 25);
+        List<Callable<ShiftBookingEngine.Result>> tasks = new ArrayList<>();
+        for (User u : users) {
+            tasks.add(() -> s.addBooking(u));
+        }
+
+        Map<ShiftBookingEngine.Result, Integer> outcomes = race(tasks);
+        assertEquals(25, outcomes.get(ShiftBookingEngine.Result.BOOKED));
+        assertEquals(USERS - 25, outcomes.get(ShiftBookingEngine.Result.FULL));
+        assertEquals(25, storedBookings(s));
+        assertEquals(25, s.getBookedUsers().size());
+        assertTrue(s.isFull());
+    }
+
+    @Test
+    @DisplayName("Instances of the same shift and repeated bookings cannot book twice or overbook")
+    void testStaleInstances() throws Exception {
+        Shift s = shift("2032-05-02", 10);
+        List<Callable<ShiftBookingEngine.Result>> tasks = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            User u = users.get(i % 20);
+            // A different instance per request, as each API request loads its own
+            tasks.add(() -> Shift.loadItemById(s.getId()).addBooking(u));
+        }
+
+        Map<ShiftBookingEngine.Result, Integer> outcomes = race(tasks);
+        assertEquals(10, outcomes.get(ShiftBookingEngine.Result.BOOKED));
+        assertEquals(10, storedBookings(s));
+        assertFalse(outcomes.containsKey(ShiftBookingEngine.Result.FAILED));
+        assertEquals(10, Shift.loadItemById(s.getId()).getBookedUsers().size());
+    }
+
+    @Test
+    @DisplayName("Bookings and cancellations on many shifts at once stay consistent")
+    void testManyShifts() throws Exception {
+        List<Shift> shifts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            shifts.add(shift("2032-06-0" + (i + 1), null));
+        }
+        List<Callable<ShiftBookingEngine.Result>> tasks = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User u = users.get(i);
+            Shift s = shifts.get(i % shifts.size());
+            tasks.add(() -> s.addBooking(u));
+        }
+        assertEquals(USERS, race(tasks).get(ShiftBookingEngine.Result.BOOKED));
+
+        // Half of the users cancel while the others try to book again
+        tasks.clear();
+        for (int i = 0; i < USERS; i++) {
+            User u = users.get(i);
+            Shift s = shifts.get(i % shifts.size());
+            if (i % 2 == 0) {
+                tasks.add(() -> s.removeBookedUser(u) != null ? ShiftBookingEngine.Result.BOOKED : null);
+            } else {
+                tasks.add(() -> s.addBooking(u));
+            }
+        }
+        Map<ShiftBookingEngine.Result, Integer> outcomes = race(tasks);
+        assertEquals(USERS / 2, outcomes.get(ShiftBookingEngine.Result.BOOKED));
+        assertEquals(USERS / 2, outcomes.get(ShiftBookingEngine.Result.ALREADY_BOOKED));
+
+        int total = 0;
+        for (Shift s : shifts) {
+            assertEquals(storedBookings(s), s.getBookedUsers().size());
+            total += storedBookings(s);
+        }
+        assertEquals(USERS / 2, total);
+    }
+
+    @Test
+    @DisplayName("Lock stripes are a power of two")
+    void testStripes() {
+        assertEquals(64, new ShiftBookingEngine(64).getStripeCount());
+        assertEquals(64, new ShiftBookingEngine(33).getStripeCount());
+        assertEquals(1, new ShiftBookingEngine(1).getStripeCount());
+    }
+}
@@ -0,0 +1,97 @@
+package catering.businesslogic.shift;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.businesslogic.user.User;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("ShiftStore - shifts indexed by date")
+public class ShiftStoreTest {
+
+    private ShiftManager shifts;
+    private ShiftStore store;
+
+    @BeforeEach
+    void setUp() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        shifts = CatERing.getInstance().getShiftManager();
+        store = ShiftStore.getInstance();
+        for (int day = 1; day <= 5; day++) {
+            PersistenceManager.executeUpdate("INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)",
+                    "2031-03-0" + day, "14:00:00", "18:00:00");
+            PersistenceManager.executeUpdate("INSERT INTO Shifts (date, start_time, end_time) VALUES (?, ?, ?)",
+                    "2031-03-0" + day, "08:00:00", "12:00:00");
+        }
+        store.invalidate();
+    }
+
+    private static Date day(int d) {
+        return Date.valueOf("2031-03-0" + d);
+    }
+
+    @Test
+    @DisplayName("Days and ranges are read once, by date and start time")
+    void testLazyRanges() {
+        long queries = store.getQueryCount();
+        List<Shift> third = shifts.getShiftsForDate(day(3));
+        assertEquals(2, third.size());
+        assertEquals(Time.valueOf("08:00:00"), third.get(0).getStartTime());
+        assertEquals(queries + 1, store.getQueryCount());
+
+        // Only the days around the loaded one are read, the same instances are returned
+        List<Shift> range = shifts.getShifts(day(2), day(4));
+        assertEquals(6, range.size());
+        assertSame(third.get(0), range.get(2));
+        assertEquals(queries + 3, store.getQueryCount());
+        for (int i = 1; i < range.size(); i++) {
+            Shift a = range.get(i - 1);
+            Shift b = range.get(i);
+            assertTrue(a.getDate().before(b.getDate())
+                    || a.getDate().equals(b.getDate()) && a.getStartTime().before(b.getStartTime()));
+        }
+
+        assertEquals(6, shifts.getShifts(day(2), day(4)).size());
+        assertEquals(2, shifts.getShiftsForDate(day(3)).size());
+        assertEquals(queries + 3, store.getQueryCount());
+        assertEquals(10, shifts.getShifts(day(1), day(5)).size());
+        assertEquals(queries + 5, store.getQueryCount());
+        assertTrue(shifts.getShifts(day(5), day(1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("New and changed shifts are indexed, bookings are read when asked for")
+    void testUpdatesAndBookings() {
+        Shift created = shifts.createShift(day(6), Time.valueOf("10:00:00"), Time.valueOf("11:00:00"), "Sala", true);
+        List<Shift> sixth = shifts.getShiftsForDate(day(6));
+        assertEquals(1, sixth.size());
+        assertSame(created, sixth.get(0));
+        assertSame(created, shifts.loadShiftById(created.getId()));
+
+        Shift moved = shifts.getShiftsForDate(day(1)).get(0);
+        moved.setEndTime(Time.valueOf("13:00:00"));
+        shifts.updateShift(moved);
+        assertSame(moved, shifts.getShiftsForDate(day(1)).get(0));
+
+        // Bookings made through another instance are seen by the stored one
+        User luca = User.load("Luca");
+        Shift other = Shift.loadItemById(created.getId());
+        assertNotSame(created, other);
+        assertTrue(created.getBookedUsers().isEmpty());
+        other.addBooking(luca);
+        assertTrue(created.isBooked(luca));
+
+        List<Shift> all = shifts.getShiftTable();
+        shifts.loadBookings(all);
+        assertTrue(all.contains(created));
+        assertTrue(all.get(all.indexOf(created)).getBookedUsers().containsKey(luca.getId()));
+    }
+}
@@ -0,0 +1,106 @@
+package catering.businesslogic.shift;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.CatERing;
+import catering.persistence.PersistenceManager;
+
+@DisplayName("ShiftTemplate - recurring shifts")
+public class ShiftTemplateTest {
+
+    private static final Time LUNCH_START = Time.valueOf("10:00:00");
+    private static final Time LUNCH_END = Time.valueOf("15:00:00");
+    private static final Time DINNER_START = Time.valueOf("18:00:00");
+    private static final Time DINNER_END = Time.valueOf("23:00:00");
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    @Test
+    @DisplayName("Weekly slots skip exceptions and holidays, Easter Monday included")
+    void testExpansion() {
+        assertEquals(LocalDate.of(2026, 4, 5), HolidayCalendar.easterSunday(2026));
+        assertEquals(LocalDate.of(2025, 4, 20), HolidayCalendar.easterSunday(2025));
+
+        // April 2026: Mondays 6 (Easter Monday), 13, 20, 27; Saturdays 4, 11, 18, 25 (Liberazione)
+        ShiftTemplate april = new ShiftTemplate(Date.valueOf("2026-04-01"), Date.valueOf("2026-04-30"))
+                .weekly(DayOfWeek.SATURDAY, DINNER_START, DINNER_END)
+                .weekly(DayOfWeek.MONDAY, DINNER_START, DINNER_END)
+                .weekly(DayOfWeek.MONDAY, LUNCH_START, LUNCH_END)
+                .capacity(8);
+        assertEquals(12, april.count());
+
+        april.holidays(HolidayCalendar.italian()).except(Date.valueOf("2026-04-13"));
+        List<Shift> shifts = april.preview(100);
+        assertEquals(april.count(), shifts.size());
+        assertEquals(7, shifts.size());
+        assertEquals(Date.valueOf("2026-04-04"), shifts.get(0).getDate());
+        // Lunch before dinner on the same day
+        assertEquals(Date.valueOf("2026-04-18"), shifts.get(2).getDate());
+        assertEquals(Date.valueOf("2026-04-20"), shifts.get(3).getDate());
+        assertEquals(LUNCH_START, shifts.get(3).getStartTime());
+        assertEquals(DINNER_START, shifts.get(4).getStartTime());
+        for (Shift s : shifts) {
+            assertEquals(0, s.getId());
+            assertEquals(8, s.getCapacity());
+            assertNotEquals(Date.valueOf("2026-04-06"), s.getDate());
+            assertNotEquals(Date.valueOf("2026-04-25"), s.getDate());
+        }
+
+        ShiftTemplate biweekly = new ShiftTemplate(Date.valueOf("2026-04-01"), Date.valueOf("2026-04-30"))
+                .weekly(DayOfWeek.SATURDAY, DINNER_START, DINNER_END).everyWeeks(2);
+        assertEquals(2, biweekly.count());
+        assertThrows(IllegalArgumentException.class,
+                () -> biweekly.weekly(DayOfWeek.FRIDAY, DINNER_END, DINNER_START));
+    }
+
+    @Test
+    @DisplayName("A preview of a long period only builds the shifts it shows")
+    void testLazyPreview() {
+        ShiftTemplate century = new ShiftTemplate(Date.valueOf("2030-01-01"), Date.valueOf("2129-12-31"))
+                .weekly(DayOfWeek.FRIDAY, DINNER_START, DINNER_END);
+        List<Shift> first = century.preview(3);
+        assertEquals(3, first.size());
+        assertEquals(Date.valueOf("2030-01-04"), first.get(0).getDate());
+        assertEquals(Date.valueOf("2030-01-18"), first.get(2).getDate());
+    }
+
+    @Test
+    @DisplayName("A season is saved with one batched insert, and not twice")
+    void testCreateSeason() {
+        ShiftManager manager = CatERing.getInstance().getShiftManager();
+        ShiftTemplate season = new ShiftTemplate(Date.valueOf("2033-06-01"), Date.valueOf("2033-09-30"))
+                .holidays(HolidayCalendar.italian());
+        for (DayOfWeek day : DayOfWeek.values()) {
+            season.weekly(day, LUNCH_START, LUNCH_END).weekly(day, DINNER_START, DINNER_END);
+        }
+
+        assertEquals(3, manager.previewShifts(season, 3).size());
+        assertTrue(manager.getShifts(Date.valueOf("2033-06-01"), Date.valueOf("2033-09-30")).isEmpty());
+
+        List<Shift> created = manager.createShifts(season);
+        // 122 days but Festa della Repubblica and Ferragosto
+        assertEquals(2 * 120, created.size());
+        for (Shift s : created) {
+            assertTrue(s.getId() > 0);
+        }
+        assertEquals(created, manager.getShifts(Date.valueOf("2033-06-01"), Date.valueOf("2033-09-30")));
+        assertEquals(2, manager.getShiftsForDate(Date.valueOf("2033-07-01")).size());
+
+        ShiftStore.getInstance().invalidate();
+        assertEquals(created.size(), manager.getShifts(Date.valueOf("2033-06-01"), Date.valueOf("2033-09-30")).size());
+        assertTrue(manager.createShifts(season).isEmpty());
+    }
+}
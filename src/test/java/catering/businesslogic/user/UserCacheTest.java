@@ -0,0 +1,73 @@
+package catering.businesslogic.user;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.persistence.PersistenceManager;
+
+@DisplayName("User - identity map")
+public class UserCacheTest {
+
+    @BeforeEach
+    void setup() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    @Test
+    @DisplayName("Reinitializing the database empties the cache")
+    void testResetClearsCache() {
+        User.load(1);
+        assertTrue(User.getCache().size() > 0);
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+        assertEquals(0, User.getCache().size());
+    }
+
+    @Test
+    @DisplayName("Repeated loads return the same instance")
+    void testSameInstance() {
+        long hits = User.getCache().getHits();
+        User first = User.load(5);
+        User second = User.load(5);
+        User byName = User.load(first.getUserName());
+
+        assertSame(first, second);
+        assertSame(first, byName);
+        assertEquals(hits + 2, User.getCache().getHits());
+    }
+
+    @Test
+    @DisplayName("update and delete keep the cache coherent")
+    void testInvalidation() {
+        User u = new User("cache-test");
+        u.addRole(User.Role.CUOCO);
+        assertTrue(u.save());
+        int id = u.getId();
+        assertSame(u, User.load(id));
+
+        u.setUsername("cache-test-renamed");
+        assertTrue(u.update());
+        assertEquals("cache-test-renamed", User.load(id).getUserName());
+
+        assertTrue(u.delete());
+        assertEquals(0, User.load(id).getId());
+    }
+
+    @Test
+    @DisplayName("The least recently used user is evicted when the cache is full")
+    void testEviction() {
+        UserCache small = new UserCache(2);
+        for (int id = 1; id <= 3; id++) {
+            User u = new User("u" + id);
+            u.setId(id);
+            small.putIfAbsent(u);
+        }
+        assertEquals(2, small.size());
+        assertEquals(1, small.getEvictions());
+        assertNull(small.get(1));
+        assertNotNull(small.get(3));
+        assertEquals(0.5, small.getHitRate());
+    }
+}
@@ -0,0 +1,132 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ConnectionPool - reader/writer leases")
+public class ConnectionPoolTest {
+
+    private File dbFile;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setup() throws Exception {
+        dbFile = File.createTempFile("pool-test", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + dbFile.getAbsolutePath(),
+                new ConnectionPool.Config().readers(2).acquireTimeoutMs(200).leakThresholdMs(0));
+    }
+
+    @AfterEach
+    void teardown() {
+        pool.close();
+        dbFile.delete();
+    }
+
+    @Test
+    @DisplayName("Nested reads on the same thread reuse the same connection")
+    void testReaderIsReentrant() throws SQLException {
+        try (ConnectionPool.Lease outer = pool.reader();
+                ConnectionPool.Lease inner = pool.reader()) {
+            assertSame(outer.getConnection(), inner.getConnection());
+            assertEquals(1, pool.getActiveCount());
+        }
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    @DisplayName("A thread holding the writer reads through it")
+    void testReadInsideWriterUsesWriter() throws SQLException {
+        try (ConnectionPool.Lease writer = pool.writer();
+                ConnectionPool.Lease reader = pool.reader()) {
+            assertTrue(reader.isWriter());
+            assertSame(writer.getConnection(), reader.getConnection());
+        }
+    }
+
+    @Test
+    @DisplayName("Connections are reused after release")
+    void testConnectionsAreReused() throws SQLException {
+        for (int i = 0; i < 10; i++) {
+            try (ConnectionPool.Lease lease = pool.reader()) {
+                lease.getConnection().createStatement().execute("SELECT 1");
+            }
+        }
+        assertEquals(1, pool.getOpenCount());
+        assertEquals(10, pool.getBorrowCount());
+    }
+
+    @Test
+    @DisplayName("Statements are cached per connection and nested use gets a private copy")
+    void testStatementCache() throws SQLException {
+        try (ConnectionPool.Lease lease = pool.reader()) {
+            try (StatementCache.Handle first = lease.prepare("SELECT ?", false)) {
+                try (StatementCache.Handle nested = lease.prepare("SELECT ?", false)) {
+                    assertNotSame(first.getStatement(), nested.getStatement());
+                }
+            }
+            try (StatementCache.Handle again = lease.prepare("SELECT ?", false)) {
+                assertFalse(again.getStatement().isClosed());
+            }
+        }
+        StatementCache.Counters counters = pool.getStatementCounters();
+        assertEquals(1, counters.getHits());
+        assertEquals(2, counters.getMisses());
+    }
+
+    @Test
+    @DisplayName("Waiting for a busy writer times out")
+    void testWriterTimeout() throws Exception {
+        try (ConnectionPool.Lease held = pool.writer()) {
+            CompletableFuture<Throwable> other = CompletableFuture.supplyAsync(() -> {
+                try (ConnectionPool.Lease lease = pool.writer()) {
+                    return null;
+                } catch (SQLException ex) {
+                    return ex;
+                }
+            });
+            assertNotNull(other.get(), "Second writer should time out while the first is held");
+        }
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    @DisplayName("A failed reopen of a broken connection does not lose its slot")
+    void testFailedReopenReleasesSlot() throws Exception {
+        Path dir = Files.createTempDirectory("pool-reopen");
+        File file = dir.resolve("reopen.db").toFile();
+        ConnectionPool reopening = new ConnectionPool("jdbc:sqlite:" + file.getAbsolutePath(),
+                new ConnectionPool.Config().acquireTimeoutMs(200).leakThresholdMs(0));
+        try {
+            try (ConnectionPool.Lease lease = reopening.writer()) {
+                lease.getConnection().close();
+            }
+            // The database directory is gone: the broken writer cannot be reopened
+            for (File f : dir.toFile().listFiles()) {
+                f.delete();
+            }
+            Files.delete(dir);
+            assertThrows(SQLException.class, reopening::writer);
+            assertEquals(0, reopening.getOpenCount());
+
+            Files.createDirectory(dir);
+            try (ConnectionPool.Lease lease = reopening.writer()) {
+                lease.getConnection().createStatement().execute("SELECT 1");
+            }
+            assertEquals(0, reopening.getTimeoutCount());
+        } finally {
+            reopening.close();
+            file.delete();
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ConnectionProfile - PRAGMA presets")
+public class ConnectionProfileTest {
+
+    private File dbFile;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setup() throws Exception {
+        dbFile = File.createTempFile("profile-test", ".db");
+    }
+
+    @AfterEach
+    void teardown() {
+        if (pool != null) {
+            pool.close();
+        }
+        System.clearProperty(ConnectionProfile.PROFILE_PROPERTY);
+        System.clearProperty(ConnectionProfile.PRAGMA_PROPERTY_PREFIX + "cache_size");
+        System.clearProperty(ConnectionProfile.PRAGMA_PROPERTY_PREFIX + "synchronous");
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    private ConnectionPool pool(ConnectionProfile profile) {
+        pool = new ConnectionPool("jdbc:sqlite:" + dbFile.getAbsolutePath(),
+                new ConnectionPool.Config().readers(1).leakThresholdMs(0).profile(profile));
+        return pool;
+    }
+
+    private static String pragma(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+
+    // synchronous and temp_store read back as numbers
+    private static void assertPragmas(Connection conn, String synchronous, String cacheSize, String tempStore,
+            String busyTimeout) throws SQLException {
+        assertEquals("wal", pragma(conn, "journal_mode"));
+        assertEquals(synchronous, pragma(conn, "synchronous"));
+        assertEquals(cacheSize, pragma(conn, "cache_size"));
+        assertEquals(tempStore, pragma(conn, "temp_store"));
+        assertEquals(busyTimeout, pragma(conn, "busy_timeout"));
+    }
+
+    @Test
+    @DisplayName("Writer and readers come up with the PRAGMAs of each preset")
+    void testPresets() throws SQLException {
+        String[][] expected = {
+                { "2", "-8000", "0", "5000" },
+                { "1", "-16000", "2", "5000" },
+                { "0", "-65536", "2", "30000" } };
+        ConnectionProfile[] profiles = { ConnectionProfile.DURABLE, ConnectionProfile.BALANCED,
+                ConnectionProfile.BULK_LOAD };
+        for (int i = 0; i < profiles.length; i++) {
+            String[] e = expected[i];
+            pool(profiles[i]);
+            try (ConnectionPool.Lease writer = pool.writer()) {
+                assertPragmas(writer.getConnection(), e[0], e[1], e[2], e[3]);
+            }
+            try (ConnectionPool.Lease reader = pool.reader()) {
+                assertFalse(reader.isWriter());
+                assertPragmas(reader.getConnection(), e[0], e[1], e[2], e[3]);
+            }
+            pool.close();
+            pool = null;
+        }
+    }
+
+    @Test
+    @DisplayName("Property overrides win over the preset")
+    void testOverrides() throws SQLException {
+        System.setProperty(ConnectionProfile.PRAGMA_PROPERTY_PREFIX + "cache_size", "-1234");
+        System.setProperty(ConnectionProfile.PRAGMA_PROPERTY_PREFIX + "synchronous", "FULL");
+        assertEquals("-1234", ConnectionProfile.BALANCED.getPragmas().get("cache_size"));
+
+        pool(ConnectionProfile.BALANCED);
+        try (ConnectionPool.Lease writer = pool.writer()) {
+            assertPragmas(writer.getConnection(), "2", "-1234", "2", "5000");
+        }
+    }
+
+    @Test
+    @DisplayName("The preset is chosen by name, balanced by default")
+    void testFromSystemProperties() {
+        assertEquals(ConnectionProfile.BALANCED, ConnectionProfile.fromSystemProperties());
+        System.setProperty(ConnectionProfile.PROFILE_PROPERTY, "bulk-load");
+        assertEquals(ConnectionProfile.BULK_LOAD, ConnectionProfile.fromSystemProperties());
+        System.setProperty(ConnectionProfile.PROFILE_PROPERTY, "Durable");
+        assertEquals(ConnectionProfile.DURABLE, ConnectionProfile.fromSystemProperties());
+        System.setProperty(ConnectionProfile.PROFILE_PROPERTY, "fastest");
+        assertEquals(ConnectionProfile.BALANCED, ConnectionProfile.fromSystemProperties());
+    }
+}
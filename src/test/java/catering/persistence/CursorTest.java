@@ -0,0 +1,90 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PersistenceManager - streaming cursors")
+public class CursorTest {
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    private static List<String> usernames() {
+        List<String> names = new ArrayList<>();
+        PersistenceManager.executeQuery("SELECT username FROM Users ORDER BY id",
+                rs -> names.add(rs.getString("username")));
+        return names;
+    }
+
+    @Test
+    @DisplayName("A stream returns the same rows as executeQuery and releases its connection")
+    void testStreamMatchesQuery() {
+        int active = PersistenceManager.getPool().getActiveCount();
+        List<String> streamed;
+        try (Stream<String> s = PersistenceManager.stream("SELECT username FROM Users ORDER BY id", 2,
+                rs -> rs.getString("username"))) {
+            streamed = s.collect(Collectors.toList());
+        }
+        assertEquals(usernames(), streamed);
+        assertEquals(active, PersistenceManager.getPool().getActiveCount());
+    }
+
+    @Test
+    @DisplayName("Rows are read as the cursor advances, closing early releases the connection")
+    void testLazyAndCloseEarly() {
+        int active = PersistenceManager.getPool().getActiveCount();
+        int[] mapped = new int[1];
+        try (Cursor<Integer> c = PersistenceManager.openCursor("SELECT id FROM Users ORDER BY id",
+                PersistenceManager.DEFAULT_FETCH_SIZE, rs -> {
+                    mapped[0]++;
+                    return rs.getInt("id");
+                })) {
+            assertEquals(0, mapped[0]);
+            assertTrue(c.hasNext());
+            c.next();
+            assertEquals(1, mapped[0]);
+            assertFalse(c.isClosed());
+        }
+        assertEquals(active, PersistenceManager.getPool().getActiveCount());
+    }
+
+    @Test
+    @DisplayName("An exhausted cursor closes itself, a failing query gives no rows")
+    void testExhaustedAndFailing() {
+        int active = PersistenceManager.getPool().getActiveCount();
+        Cursor<Integer> c = PersistenceManager.openCursor("SELECT id FROM Users WHERE id = -1",
+                PersistenceManager.DEFAULT_FETCH_SIZE, rs -> rs.getInt("id"));
+        assertFalse(c.hasNext());
+        assertTrue(c.isClosed());
+        assertEquals(active, PersistenceManager.getPool().getActiveCount());
+
+        try (Stream<Integer> s = PersistenceManager.stream("SELECT id FROM NoSuchTable", rs -> rs.getInt("id"))) {
+            assertEquals(0, s.count());
+        }
+        assertEquals(active, PersistenceManager.getPool().getActiveCount());
+    }
+
+    @Test
+    @DisplayName("The mapper can run nested queries while the cursor is open")
+    void testNestedQueries() {
+        try (Stream<String> s = PersistenceManager.stream("SELECT id FROM Users ORDER BY id", rs -> {
+            int id = rs.getInt("id");
+            String[] name = new String[1];
+            PersistenceManager.executeQuery("SELECT username FROM Users WHERE id = ?",
+                    r -> name[0] = r.getString("username"), id);
+            return name[0];
+        })) {
+            assertEquals(usernames(), s.collect(Collectors.toList()));
+        }
+    }
+}
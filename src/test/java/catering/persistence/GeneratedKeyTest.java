@@ -0,0 +1,53 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PersistenceManager - executeInsert")
+public class GeneratedKeyTest {
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    @Test
+    @DisplayName("Concurrent inserts each get the key of their own row")
+    void testConcurrentInsertKeys() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String username = "key-test-" + i;
+                results.add(executor.submit(() -> {
+                    int id = PersistenceManager.executeInsert("INSERT INTO Users (username) VALUES (?)", username);
+                    String[] stored = new String[1];
+                    PersistenceManager.executeQuery("SELECT username FROM Users WHERE id = ?",
+                            rs -> stored[0] = rs.getString(1), id);
+                    return username.equals(stored[0]);
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("An insert that adds no row returns 0")
+    void testNoRowInserted() {
+        assertEquals(0, PersistenceManager.executeInsert(
+                "INSERT INTO Users (username) SELECT 'never' WHERE 1 = 0"));
+    }
+}
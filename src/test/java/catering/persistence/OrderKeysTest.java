@@ -0,0 +1,201 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.menu.Section;
+import catering.businesslogic.user.User;
+
+@DisplayName("OrderKeys - sparse position keys")
+public class OrderKeysTest {
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    private static List<int[]> list(int... keys) {
+        List<int[]> items = new ArrayList<>();
+        for (int k : keys) {
+            items.add(new int[] { k });
+        }
+        return items;
+    }
+
+    private static void assertIncreasing(int[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            assertTrue(keys[i - 1] < keys[i], "keys not increasing at " + i);
+        }
+    }
+
+    private static int changed(List<int[]> items, int[] keys) {
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (items.get(i)[0] != keys[i]) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    @DisplayName("Moving one element changes one key")
+    void testSingleMove() {
+        // 1 2 3 4 5 with the last one moved to the front
+        List<int[]> items = list(5 * OrderKeys.GAP, OrderKeys.GAP, 2 * OrderKeys.GAP, 3 * OrderKeys.GAP,
+                4 * OrderKeys.GAP);
+        int[] keys = OrderKeys.assign(items, e -> e[0]);
+        assertIncreasing(keys);
+        assertEquals(1, changed(items, keys));
+    }
+
+    @Test
+    @DisplayName("New elements get a key between their neighbours")
+    void testInsert() {
+        List<int[]> items = list(OrderKeys.GAP, OrderKeys.UNASSIGNED, 2 * OrderKeys.GAP);
+        int[] keys = OrderKeys.assign(items, e -> e[0]);
+        assertIncreasing(keys);
+        assertEquals(1, changed(items, keys));
+    }
+
+    @Test
+    @DisplayName("Dense keys are renumbered when there is no room")
+    void testRebalance() {
+        // Keys 0 1 2 as in databases written before sparse keys, the last moved between the others
+        List<int[]> items = list(0, 2, 1);
+        int[] keys = OrderKeys.assign(items, e -> e[0]);
+        assertArrayEquals(new int[] { OrderKeys.sequential(0), OrderKeys.sequential(1), OrderKeys.sequential(2) },
+                keys);
+
+        // Inserting again and again into the same spot eventually renumbers the list
+        List<int[]> growing = list(OrderKeys.sequential(0), OrderKeys.sequential(1));
+        int rebalances = 0;
+        for (int i = 0; i < 40; i++) {
+            growing.add(1, new int[] { OrderKeys.UNASSIGNED });
+            int[] k = OrderKeys.assign(growing, e -> e[0]);
+            assertIncreasing(k);
+            if (changed(growing, k) > 1) {
+                rebalances++;
+            }
+            for (int j = 0; j < k.length; j++) {
+                growing.get(j)[0] = k[j];
+            }
+        }
+        assertTrue(rebalances > 0 && rebalances < 10, "rebalances: " + rebalances);
+    }
+
+    @Test
+    @DisplayName("Saving an order writes only the rows that moved, the order is loaded back")
+    void testSaveSectionOrder() {
+        Menu m = new Menu(User.load("Antonio"), "Sparse keys");
+        for (int i = 0; i < 6; i++) {
+            m.addSection("Sezione " + i);
+        }
+        MenuPersistence persistence = new MenuPersistence();
+        persistence.updateMenuCreated(m);
+
+        Section last = m.getSections().get(5);
+        m.moveSection(last, 0);
+        assertEquals(1, OrderKeys.save("MenuSections", m.getSections(), Section::getId,
+                s -> keyOf(s.getId()), (s, k) -> {
+                }));
+        persistence.updateSectionsRearranged(m);
+
+        Section added = m.addSection("Nuova");
+        m.moveSection(added, 3);
+        persistence.updateSectionAdded(m, added);
+
+        List<String> expected = new ArrayList<>();
+        for (Section s : m.getSections()) {
+            expected.add(s.getName());
+        }
+        List<String> loaded = new ArrayList<>();
+        for (Section s : Menu.load(m.getId()).getSections()) {
+            loaded.add(s.getName());
+        }
+        assertEquals(expected, loaded);
+    }
+
+    private static Menu menuWithSections(String title) {
+        Menu m = new Menu(User.load("Antonio"), title);
+        for (int i = 0; i < 4; i++) {
+            m.addSection("S" + i);
+        }
+        return m;
+    }
+
+    private static List<String> names(List<Section> sections) {
+        List<String> names = new ArrayList<>();
+        for (Section s : sections) {
+            names.add(s.getName());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("A move rolled back with its transaction is written by the next save")
+    void testRollbackRestoresKeys() {
+        Menu m = menuWithSections("Rollback");
+        new MenuPersistence().updateMenuCreated(m);
+
+        m.moveSection(m.getSections().get(3), 0);
+        assertFalse(PersistenceManager.inTransaction(() -> {
+            Menu.saveSectionOrder(m);
+            PersistenceManager.executeUpdate("INSERT INTO NoSuchTable VALUES (1)");
+        }));
+        assertEquals(List.of("S0", "S1", "S2", "S3"), names(Menu.load(m.getId()).getSections()));
+
+        Menu.saveSectionOrder(m);
+        assertEquals(List.of("S3", "S0", "S1", "S2"), names(Menu.load(m.getId()).getSections()));
+    }
+
+    @Test
+    @DisplayName("A move in a failed write-behind batch is written when the batch is retried")
+    void testWriteBehindRetry() throws Exception {
+        WriteBehindWriter writer = new WriteBehindWriter(16);
+        CountDownLatch gate = new CountDownLatch(1);
+        try {
+            MenuPersistence persistence = new MenuPersistence(writer);
+            Menu m = menuWithSections("Retry");
+            persistence.updateMenuCreated(m);
+
+            // The move and a failing op are written in the same batch
+            writer.write(null, this, () -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            while (writer.getPendingCount() > 0) {
+                Thread.sleep(5);
+            }
+            m.moveSection(m.getSections().get(3), 0);
+            persistence.updateSectionsRearranged(m);
+            writer.write(null, this, () -> PersistenceManager.executeUpdate("INSERT INTO NoSuchTable VALUES (1)"));
+            gate.countDown();
+            writer.flush();
+
+            assertEquals(1, writer.getFailedCount());
+            assertEquals(List.of("S3", "S0", "S1", "S2"), names(Menu.load(m.getId()).getSections()));
+        } finally {
+            gate.countDown();
+            writer.close();
+        }
+    }
+
+    private static int keyOf(int sectionId) {
+        int[] key = { OrderKeys.UNASSIGNED };
+        PersistenceManager.executeQuery("SELECT position FROM MenuSections WHERE id = ?",
+                rs -> key[0] = rs.getInt("position"), sectionId);
+        return key[0];
+    }
+}
@@ -0,0 +1,87 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("SchemaMigrator - versioned migrations")
+public class SchemaMigratorTest {
+
+    @TempDir
+    Path migrationsDir;
+
+    @BeforeEach
+    void setup() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    private static boolean indexExists(String name) {
+        boolean[] found = new boolean[1];
+        PersistenceManager.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?",
+                rs -> found[0] = true, name);
+        return found[0];
+    }
+
+    private void writeMigration(String fileName, String sql) throws IOException {
+        Files.write(migrationsDir.resolve(fileName), sql.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Initializing the database applies the index pack")
+    void testIndexPackApplied() {
+        assertTrue(indexExists("idx_tasks_sumsheet"));
+        assertTrue(indexExists("idx_leaverequests_collab"));
+
+        int[] versions = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM SchemaMigrations WHERE version = 1",
+                rs -> versions[0] = rs.getInt(1));
+        assertEquals(1, versions[0]);
+    }
+
+    @Test
+    @DisplayName("Pending migrations are applied once, in version order")
+    void testAppliedOnce() throws IOException {
+        writeMigration("902_second.sql", "CREATE INDEX idx_test_second ON Users (username, id);");
+        writeMigration("901_first.sql", "-- first step\nCREATE INDEX idx_test_first ON Users (username);");
+        SchemaMigrator migrator = new SchemaMigrator(migrationsDir.toFile());
+
+        assertEquals(901, migrator.findMigrations().get(0).getVersion());
+        assertTrue(migrator.migrate());
+        assertTrue(indexExists("idx_test_first"));
+        assertTrue(indexExists("idx_test_second"));
+
+        // Without IF NOT EXISTS a second run would fail if anything were re-applied
+        assertTrue(migrator.migrate());
+    }
+
+    @Test
+    @DisplayName("An applied migration that was edited stops the migration")
+    void testChecksumMismatch() throws IOException {
+        File dir = migrationsDir.toFile();
+        writeMigration("901_first.sql", "CREATE INDEX idx_test_first ON Users (username);");
+        assertTrue(new SchemaMigrator(dir).migrate());
+
+        writeMigration("901_first.sql", "CREATE INDEX idx_test_first ON Users (id);");
+        writeMigration("902_second.sql", "CREATE INDEX idx_test_second ON Users (username, id);");
+        assertFalse(new SchemaMigrator(dir).migrate());
+        assertFalse(indexExists("idx_test_second"));
+    }
+
+    @Test
+    @DisplayName("A failing migration is rolled back and not recorded")
+    void testFailedMigrationRolledBack() throws IOException {
+        writeMigration("901_broken.sql",
+                "CREATE INDEX idx_test_partial ON Users (username);\nCREATE INDEX idx_broken ON NoSuchTable (x);");
+        assertFalse(new SchemaMigrator(migrationsDir.toFile()).migrate());
+        assertFalse(indexExists("idx_test_partial"));
+    }
+}
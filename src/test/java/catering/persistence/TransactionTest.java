@@ -0,0 +1,119 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PersistenceManager - inTransaction")
+public class TransactionTest {
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    private static int countUsers(String username) {
+        int[] count = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM Users WHERE username = ?",
+                rs -> count[0] = rs.getInt(1), username);
+        return count[0];
+    }
+
+    @Test
+    @DisplayName("All updates are committed together")
+    void testCommit() {
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("INSERT INTO Users (username) VALUES (?)", "tx-commit");
+            // Reads inside the transaction see its own changes
+            assertEquals(1, countUsers("tx-commit"));
+            PersistenceManager.executeUpdate("UPDATE Users SET username = ? WHERE username = ?",
+                    "tx-commit-2", "tx-commit");
+        });
+
+        assertTrue(committed);
+        assertFalse(PersistenceManager.isInTransaction());
+        assertEquals(0, countUsers("tx-commit"));
+        assertEquals(1, countUsers("tx-commit-2"));
+    }
+
+    @Test
+    @DisplayName("An exception rolls back every update")
+    void testRollbackOnException() {
+        assertThrows(IllegalStateException.class, () -> PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("INSERT INTO Users (username) VALUES (?)", "tx-exception");
+            throw new IllegalStateException("abort");
+        }));
+
+        assertEquals(0, countUsers("tx-exception"));
+    }
+
+    @Test
+    @DisplayName("A failed statement rolls back the statements before it")
+    void testRollbackOnFailedStatement() {
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("INSERT INTO Users (username) VALUES (?)", "tx-failed");
+            PersistenceManager.executeUpdate("INSERT INTO NoSuchTable (x) VALUES (?)", 1);
+        });
+
+        assertFalse(committed);
+        assertEquals(0, countUsers("tx-failed"));
+    }
+
+    @Test
+    @DisplayName("A nested transaction joins the outer one")
+    void testNestedJoinsOuter() {
+        assertThrows(IllegalStateException.class, () -> PersistenceManager.inTransaction(() -> {
+            assertTrue(PersistenceManager.inTransaction(() -> PersistenceManager
+                    .executeUpdate("INSERT INTO Users (username) VALUES (?)", "tx-nested")));
+            throw new IllegalStateException("abort outer");
+        }));
+
+        assertEquals(0, countUsers("tx-nested"));
+    }
+
+    @Test
+    @DisplayName("A batch insert spanning several chunks is applied atomically")
+    void testBatchInsert() {
+        int rows = 25_000;
+        int inserted = PersistenceManager.executeBatchInsert("INSERT INTO Users (username) VALUES (?)", rows,
+                new BatchUpdateHandler() {
+                    @Override
+                    public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                        ps.setString(1, "tx-batch");
+                    }
+
+                    @Override
+                    public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                        fail("Batch inserts do not read generated keys");
+                    }
+                });
+
+        assertEquals(rows, inserted);
+        assertEquals(rows, countUsers("tx-batch"));
+
+        boolean committed = PersistenceManager.inTransaction(() -> {
+            PersistenceManager.executeUpdate("DELETE FROM Users WHERE username = ?", "tx-batch");
+            PersistenceManager.executeBatchInsert("INSERT INTO NoSuchTable (x) VALUES (?)", 1,
+                    new BatchUpdateHandler() {
+                        @Override
+                        public void handleBatchItem(PreparedStatement ps, int batchCount) throws SQLException {
+                            ps.setInt(1, batchCount);
+                        }
+
+                        @Override
+                        public void handleGeneratedIds(ResultSet rs, int count) throws SQLException {
+                        }
+                    });
+        });
+
+        assertFalse(committed);
+        assertEquals(rows, countUsers("tx-batch"));
+        PersistenceManager.executeUpdate("DELETE FROM Users WHERE username = ?", "tx-batch");
+    }
+}
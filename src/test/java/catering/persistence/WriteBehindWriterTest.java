@@ -0,0 +1,223 @@
+package catering.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import catering.businesslogic.menu.Menu;
+import catering.businesslogic.user.User;
+
+@DisplayName("WriteBehindWriter - asynchronous persistence")
+public class WriteBehindWriterTest {
+
+    private WriteBehindWriter writer;
+    private CountDownLatch gate;
+
+    @BeforeAll
+    static void init() {
+        PersistenceManager.initializeDatabase("database/catering_init_sqlite.sql");
+    }
+
+    @BeforeEach
+    void setUp() {
+        writer = new WriteBehindWriter(4);
+        gate = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        writer.close();
+    }
+
+    // Keeps the writer thread busy until the gate opens
+    private void holdWriter() throws InterruptedException {
+        writer.write(null, this, () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // Wait for the writer to take the blocking op
+        while (writer.getPendingCount() > 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Pending ops on the same target are coalesced, the others keep their order")
+    void testCoalescing() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        Object a = new Object();
+        Object b = new Object();
+        holdWriter();
+
+        writer.write("order", a, () -> log.add("a1"));
+        writer.write("order", b, () -> log.add("b1"));
+        writer.write("order", a, () -> log.add("a2"));
+        writer.write(null, a, () -> log.add("delete"));
+        assertTrue(log.isEmpty());
+
+        gate.countDown();
+        assertTrue(writer.flush(10, TimeUnit.SECONDS));
+        assertEquals(List.of("b1", "a2", "delete"), log);
+        assertEquals(1, writer.getCoalescedCount());
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Writes block while the queue is full")
+    void testBackPressure() throws Exception {
+        holdWriter();
+        for (int i = 0; i < 4; i++) {
+            writer.write(null, this, () -> {
+            });
+        }
+
+        CountDownLatch written = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            writer.write(null, this, () -> {
+            });
+            written.countDown();
+        });
+        producer.start();
+        assertFalse(written.await(200, TimeUnit.MILLISECONDS));
+
+        gate.countDown();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        producer.join();
+    }
+
+    @Test
+    @DisplayName("Inserts run at once, updates are written by flush")
+    void testMenuPersistence() throws Exception {
+        MenuPersistence persistence = new MenuPersistence(writer);
+        Menu m = new Menu(User.load("Antonio"), "Write-behind");
+        persistence.updateMenuCreated(m);
+        // The generated id is available right away
+        assertTrue(m.getId() > 0);
+
+        holdWriter();
+        for (int i = 1; i <= 3; i++) {
+            m.setTitle("Write-behind " + i);
+            persistence.updateMenuTitleChanged(m);
+        }
+        assertEquals("Write-behind", Menu.load(m.getId()).getTitle());
+
+        gate.countDown();
+        writer.flush();
+        assertEquals("Write-behind 3", Menu.load(m.getId()).getTitle());
+        assertEquals(2, writer.getCoalescedCount());
+    }
+
+    @Test
+    @DisplayName("Queued ops save the menu as it was when the change was notified")
+    void testSnapshot() throws Exception {
+        MenuPersistence persistence = new MenuPersistence(writer);
+        Menu m = new Menu(User.load("Antonio"), "Snapshot");
+        persistence.updateMenuCreated(m);
+
+        holdWriter();
+        m.setTitle("Snapshot 1");
+        m.setFeature("buffet", true);
+        persistence.updateMenuTitleChanged(m);
+        persistence.updateMenuFeaturesChanged(m);
+        // Changed again, without a notification, while the ops are queued
+        m.setTitle("Snapshot 2");
+        m.getFeatures().clear();
+
+        gate.countDown();
+        writer.flush();
+        Menu stored = Menu.load(m.getId());
+        assertEquals("Snapshot 1", stored.getTitle());
+        assertTrue(stored.getFeature("buffet"));
+    }
+
+    @Test
+    @DisplayName("A failing op does not lose the rest of its batch")
+    void testFailedOp() throws Exception {
+        holdWriter();
+        writer.write(null, this, () -> PersistenceManager.executeUpdate(
+                "INSERT INTO Users (username) VALUES (?)", "write-behind-1"));
+        writer.write(null, this, () -> {
+            throw new IllegalStateException("broken op");
+        });
+        writer.write(null, this, () -> PersistenceManager.executeUpdate(
+                "INSERT INTO Users (username) VALUES (?)", "write-behind-2"));
+
+        gate.countDown();
+        writer.flush();
+        assertEquals(1, writer.getFailedCount());
+
+        int[] count = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM Users WHERE username LIKE 'write-behind-%'",
+                rs -> count[0] = rs.getInt(1));
+        assertEquals(2, count[0]);
+    }
+
+    // Queues an op from another thread, as a caller outside the transaction
+    private void writeFromOtherThread(Runnable op) throws InterruptedException {
+        Thread producer = new Thread(() -> writer.write(null, this, op));
+        producer.start();
+        producer.join();
+    }
+
+    private static int countUsers(String pattern) {
+        int[] count = new int[1];
+        PersistenceManager.executeQuery("SELECT COUNT(*) FROM Users WHERE username LIKE ?",
+                rs -> count[0] = rs.getInt(1), pattern);
+        return count[0];
+    }
+
+    @Test
+    @DisplayName("A write inside a transaction runs the queued ops itself, without waiting")
+    void testWriteInTransaction() {
+        List<String> log = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        assertTrue(PersistenceManager.inTransaction(() -> {
+            try {
+                writeFromOtherThread(() -> log.add("queued"));
+            } catch (InterruptedException ex) {
+                fail(ex);
+            }
+            writer.write("title", this, () -> log.add("in transaction"));
+            assertEquals(List.of("queued", "in transaction"), log);
+        }));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        writer.flush();
+        assertEquals(List.of("queued", "in transaction"), log);
+        assertEquals(0, writer.getFailedCount());
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Queued ops run by a rolled back transaction are written later")
+    void testDrainRolledBack() {
+        assertFalse(PersistenceManager.inTransaction(() -> {
+            try {
+                writeFromOtherThread(() -> PersistenceManager.executeUpdate(
+                        "INSERT INTO Users (username) VALUES (?)", "drained-1"));
+            } catch (InterruptedException ex) {
+                fail(ex);
+            }
+            writer.flush();
+            assertEquals(1, countUsers("drained-%"));
+            PersistenceManager.executeUpdate("INSERT INTO NoSuchTable VALUES (1)");
+        }));
+
+        writer.flush();
+        assertEquals(1, countUsers("drained-%"));
+        assertEquals(0, writer.getFailedCount());
+    }
+}